@@ -0,0 +1,67 @@
+package org.eth.bench;
+
+import org.apache.commons.codec.DecoderException;
+import org.eth.common.CommonByte;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Throughput and allocation of the CommonByte helpers for payloads from an address up to 1 MiB.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommonByteBenchmark {
+
+    @Param({"20", "32", "1024", "65536", "1048576"})
+    public int size;
+
+    private String prefixedHex;
+    private String hex;
+    private byte[] bytes;
+    private byte[] leadingZeroes;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(size);
+        bytes = new byte[size];
+        rnd.nextBytes(bytes);
+        hex = CommonByte.bytesToHex(bytes);
+        prefixedHex = "0x" + hex;
+        leadingZeroes = new byte[size];
+        System.arraycopy(bytes, 0, leadingZeroes, size / 2, size - size / 2);
+    }
+
+    @Benchmark
+    public byte[] fromHex() throws DecoderException {
+        return CommonByte.fromHex(prefixedHex);
+    }
+
+    @Benchmark
+    public byte[] hexToBytes() throws DecoderException {
+        return CommonByte.hexToBytes(hex);
+    }
+
+    @Benchmark
+    public byte[] leftPadBytes() {
+        return CommonByte.leftPadBytes(bytes, size + 32);
+    }
+
+    @Benchmark
+    public byte[] trimLeftZeroes() {
+        return CommonByte.trimLeftZeroes(leadingZeroes);
+    }
+}
@@ -0,0 +1,66 @@
+package org.eth.bench;
+
+import org.eth.common.CommonTypes.Address;
+import org.eth.common.CommonTypes.Hash;
+import org.eth.hexutil.HexUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Cost of the Hash and Address operations on the RPC path: parsing, map-key use and rendering.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommonTypesBenchmark {
+
+    private String hashHex;
+    private Hash hash;
+    private Hash sameHash;
+    private Address address;
+
+    @Setup
+    public void setup() throws HexUtil.HexUtilException {
+        Random rnd = new Random(32);
+        byte[] bytes = new byte[32];
+        rnd.nextBytes(bytes);
+        hashHex = HexUtil.encode(bytes);
+        hash = Hash.fromBytes(bytes);
+        sameHash = Hash.fromHexString(hashHex);
+        byte[] addr = new byte[20];
+        rnd.nextBytes(addr);
+        address = Address.fromBytes(addr);
+    }
+
+    @Benchmark
+    public Hash hashFromHexString() throws HexUtil.HexUtilException {
+        return Hash.fromHexString(hashHex);
+    }
+
+    @Benchmark
+    public boolean hashEquals() {
+        return hash.equals(sameHash);
+    }
+
+    @Benchmark
+    public int hashHashCode() {
+        return hash.hashCode();
+    }
+
+    @Benchmark
+    public String addressToHexString() {
+        return address.toHexString();
+    }
+}
@@ -0,0 +1,48 @@
+package org.eth.bench;
+
+import org.eth.hexutil.HexUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Cost of the HexUtil number decoders on full-width inputs: a 256-bit quantity and a 63-bit
+// uint64, as in RPC balances and nonces.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HexNumberBenchmark {
+
+    private String big;
+    private String uint64;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(64);
+        big = HexUtil.encodeBig(new BigInteger(256, rnd).setBit(255));
+        uint64 = HexUtil.encodeUint64(rnd.nextLong() >>> 1);
+    }
+
+    @Benchmark
+    public BigInteger decodeBig() throws HexUtil.HexUtilException {
+        return HexUtil.decodeBig(big);
+    }
+
+    @Benchmark
+    public long decodeUint64() throws HexUtil.HexUtilException {
+        return HexUtil.decodeUint64(uint64);
+    }
+}
@@ -0,0 +1,52 @@
+package org.eth.bench;
+
+import org.eth.hexutil.HexUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Throughput and allocation of the HexUtil byte entry points for payloads from an address up to
+// 1 MiB. The fixed-width number decoders are in HexNumberBenchmark.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HexUtilBenchmark {
+
+    @Param({"20", "32", "1024", "65536", "1048576"})
+    public int size;
+
+    private byte[] bytes;
+    private String hex;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(size);
+        bytes = new byte[size];
+        rnd.nextBytes(bytes);
+        hex = HexUtil.encode(bytes);
+    }
+
+    @Benchmark
+    public String encode() {
+        return HexUtil.encode(bytes);
+    }
+
+    @Benchmark
+    public byte[] decode() throws HexUtil.HexUtilException {
+        return HexUtil.decode(hex);
+    }
+}
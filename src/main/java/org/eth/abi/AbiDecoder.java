@@ -0,0 +1,172 @@
+package org.eth.abi;
+
+import org.eth.common.UInt256;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.Hash;
+
+// AbiDecoder reads values out of Solidity ABI encoded data, such as eth_call return data, in
+// place. It is a view of one tuple: value i of the tuple is read from head word i on demand,
+// nothing is decoded up front and nothing is copied except what a getter returns. Dynamic
+// values are reached through their head word: bytes returns a view of the payload, and tuple
+// and array return decoders positioned at a nested tuple or at an array's elements.
+//
+// Head words are counted in 32-byte words from the start of the tuple, so for a tuple of only
+// static values word i is value i; a static tuple or fixed-size array nested in the head spans
+// as many words as it has values.
+public final class AbiDecoder {
+
+    private static final int WORD = AbiValue.WORD;
+
+    private final ByteBuffer data;
+    // Absolute index of the start of the tuple in data, and of the end of the data.
+    private final int base;
+    private final int limit;
+
+    private AbiDecoder(ByteBuffer data, int base, int limit) {
+        this.data = data;
+        this.base = base;
+        this.limit = limit;
+    }
+
+    public static AbiDecoder of(byte[] data) {
+        return of(data, 0, data.length);
+    }
+
+    public static AbiDecoder of(byte[] data, int off, int len) {
+        Objects.checkFromIndexSize(off, len, data.length);
+        return new AbiDecoder(ByteBuffer.wrap(data), off, off + len);
+    }
+
+    // Returns a decoder over the bytes between the position and limit of data, which is not
+    // modified.
+    public static AbiDecoder of(ByteBuffer data) {
+        return new AbiDecoder(data.duplicate().order(ByteOrder.BIG_ENDIAN), data.position(), data.limit());
+    }
+
+    // Returns the number of whole words from the start of the tuple to the end of the data.
+    public int words() {
+        return (limit - base) / WORD;
+    }
+
+    public Address address(int word) {
+        int p = word(word);
+        if (data.getLong(p) != 0 || data.getInt(p + 8) != 0) {
+            throw new IllegalArgumentException("Address word " + word + " has non-zero padding");
+        }
+        return Address.fromBuffer(data, p + 12);
+    }
+
+    public Hash bytes32(int word) {
+        return Hash.fromBuffer(data, word(word));
+    }
+
+    public UInt256 uint(int word) {
+        return UInt256.fromBuffer(data, word(word));
+    }
+
+    // Returns a uint word that must fit in 63 bits, such as a length, count or block number.
+    public long uint64(int word) {
+        int p = word(word);
+        long v = data.getLong(p + 24);
+        if ((data.getLong(p) | data.getLong(p + 8) | data.getLong(p + 16)) != 0 || v < 0) {
+            throw new ArithmeticException("Word " + word + " does not fit in a long");
+        }
+        return v;
+    }
+
+    public BigInteger bigInteger(int word) {
+        byte[] b = new byte[WORD];
+        data.get(word(word), b);
+        return new BigInteger(1, b);
+    }
+
+    public BigInteger int256(int word) {
+        byte[] b = new byte[WORD];
+        data.get(word(word), b);
+        return new BigInteger(b);
+    }
+
+    public boolean bool(int word) {
+        int p = word(word);
+        long v = data.getLong(p + 24);
+        if ((data.getLong(p) | data.getLong(p + 8) | data.getLong(p + 16)) != 0 || (v & ~1L) != 0) {
+            throw new IllegalArgumentException("Word " + word + " is not a bool");
+        }
+        return v == 1;
+    }
+
+    // Returns the length of the bytes, string or array whose offset is head word word.
+    public int length(int word) {
+        return checkedInt(tail(word), "Length");
+    }
+
+    // Returns a read-only view of the payload of the bytes or string at head word word.
+    public ByteBuffer bytes(int word) {
+        int p = tail(word);
+        int n = checkedInt(p, "Length");
+        Objects.checkFromIndexSize(p + WORD, n, limit);
+        return data.slice(p + WORD, n).asReadOnlyBuffer();
+    }
+
+    public byte[] byteArray(int word) {
+        ByteBuffer b = bytes(word);
+        byte[] out = new byte[b.remaining()];
+        b.get(out);
+        return out;
+    }
+
+    public String string(int word) {
+        return StandardCharsets.UTF_8.decode(bytes(word)).toString();
+    }
+
+    // Returns a decoder of the dynamic tuple at head word word.
+    public AbiDecoder tuple(int word) {
+        return new AbiDecoder(data, tail(word), limit);
+    }
+
+    // Returns a decoder of the elements of the dynamic array at head word word; element i is
+    // its word i, or its tuple(i) if elements are dynamic. The length is length(word).
+    public AbiDecoder array(int word) {
+        int p = tail(word);
+        return new AbiDecoder(data, Math.addExact(p, WORD), limit);
+    }
+
+    // Returns a decoder of the static tuple or fixed-size array whose first head word is word.
+    public AbiDecoder inline(int word) {
+        return new AbiDecoder(data, word(word), limit);
+    }
+
+    // Returns the absolute index of head word i after checking it lies in the data.
+    private int word(int i) {
+        if (i < 0) {
+            throw new IndexOutOfBoundsException("Negative word index " + i);
+        }
+        long p = base + (long) i * WORD;
+        Objects.checkFromIndexSize(p, WORD, limit);
+        return (int) p;
+    }
+
+    // Returns the absolute index of the tail pointed to by head word i.
+    private int tail(int i) {
+        int off = checkedInt(word(i), "Offset");
+        long p = (long) base + off;
+        Objects.checkFromIndexSize(p, WORD, limit);
+        return (int) p;
+    }
+
+    // Reads the word at absolute index p as a non-negative int.
+    private int checkedInt(int p, String what) {
+        long v = data.getLong(p + 24);
+        if ((data.getLong(p) | data.getLong(p + 8) | data.getLong(p + 16)) != 0 || v < 0 || v > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(what + " word out of range at " + (p - base));
+        }
+        return (int) v;
+    }
+}
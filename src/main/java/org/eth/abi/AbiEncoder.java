@@ -0,0 +1,90 @@
+package org.eth.abi;
+
+import org.eth.common.Keccak;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+// AbiEncoder writes Solidity ABI encodings, optionally behind a 4-byte function selector as
+// eth_call and transaction data. The arguments are sized once, then written into a single
+// output array or buffer without intermediate arrays per argument; see AbiValue.
+public final class AbiEncoder {
+
+    public static final int SELECTOR_LENGTH = 4;
+
+    private AbiEncoder() {
+    }
+
+    // Returns the selector of a canonical signature such as "transfer(address,uint256)", the
+    // first four bytes of its Keccak-256 hash.
+    public static int selector(String signature) {
+        byte[] d = Keccak.hash256(signature.getBytes(StandardCharsets.US_ASCII));
+        return (d[0] & 0xff) << 24 | (d[1] & 0xff) << 16 | (d[2] & 0xff) << 8 | (d[3] & 0xff);
+    }
+
+    // Returns the size of the encoding of args, without selector.
+    public static int encodedSize(AbiValue... args) {
+        return new AbiValue.Tuple(args).size;
+    }
+
+    public static byte[] encode(AbiValue... args) {
+        AbiValue.Tuple t = new AbiValue.Tuple(args);
+        byte[] out = new byte[t.size];
+        t.write(out, 0);
+        return out;
+    }
+
+    public static byte[] encodeCall(int selector, AbiValue... args) {
+        AbiValue.Tuple t = new AbiValue.Tuple(args);
+        byte[] out = new byte[Math.addExact(SELECTOR_LENGTH, t.size)];
+        writeSelector(out, 0, selector);
+        t.write(out, SELECTOR_LENGTH);
+        return out;
+    }
+
+    // Writes the encoding of args into dst starting at off and returns the offset past it.
+    public static int encode(AbiValue[] args, byte[] dst, int off) {
+        AbiValue.Tuple t = new AbiValue.Tuple(args);
+        Objects.checkFromIndexSize(off, t.size, dst.length);
+        t.write(dst, off);
+        return off + t.size;
+    }
+
+    // Writes the selector and the encoding of args into dst starting at off and returns the
+    // offset past them.
+    public static int encodeCall(int selector, AbiValue[] args, byte[] dst, int off) {
+        AbiValue.Tuple t = new AbiValue.Tuple(args);
+        Objects.checkFromIndexSize(off, Math.addExact(SELECTOR_LENGTH, t.size), dst.length);
+        writeSelector(dst, off, selector);
+        t.write(dst, off + SELECTOR_LENGTH);
+        return off + SELECTOR_LENGTH + t.size;
+    }
+
+    // Writes the selector and the encoding of args at the position of dst and advances it.
+    // Buffers without an accessible array are filled from a temporary array.
+    public static ByteBuffer encodeCall(int selector, AbiValue[] args, ByteBuffer dst) {
+        AbiValue.Tuple t = new AbiValue.Tuple(args);
+        int size = Math.addExact(SELECTOR_LENGTH, t.size);
+        int p = dst.position();
+        Objects.checkFromIndexSize(p, size, dst.limit());
+        if (dst.hasArray() && !dst.isReadOnly()) {
+            int off = dst.arrayOffset() + p;
+            writeSelector(dst.array(), off, selector);
+            t.write(dst.array(), off + SELECTOR_LENGTH);
+        } else {
+            byte[] tmp = new byte[size];
+            writeSelector(tmp, 0, selector);
+            t.write(tmp, SELECTOR_LENGTH);
+            dst.put(p, tmp);
+        }
+        return dst.position(p + size);
+    }
+
+    static void writeSelector(byte[] dst, int off, int selector) {
+        dst[off] = (byte) (selector >>> 24);
+        dst[off + 1] = (byte) (selector >>> 16);
+        dst[off + 2] = (byte) (selector >>> 8);
+        dst[off + 3] = (byte) selector;
+    }
+}
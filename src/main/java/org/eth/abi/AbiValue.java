@@ -0,0 +1,364 @@
+package org.eth.abi;
+
+import org.eth.common.ByteSlice;
+import org.eth.common.UInt256;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.HASH_LENGTH;
+import static org.eth.common.CommonTypes.Hash;
+
+// AbiValue is an argument of a Solidity ABI encoding: a static 32-byte word (address, bytes32,
+// uint256, int256, bool, bytesN), a dynamic bytes or string, or an array or tuple of values.
+// Each value knows its encoded size from construction, so AbiEncoder can size the output once
+// and every value writes itself straight into place: static words into the heads, dynamic
+// contents into the tails with their offsets in the heads.
+//
+// Values are untyped beyond static or dynamic: an array's elements are not checked to share
+// one ABI type, and the caller chooses the function selector that fixes the types.
+public abstract class AbiValue {
+
+    static final int WORD = 32;
+
+    private static final AbiValue TRUE = new Word(UInt256.ONE);
+    private static final AbiValue FALSE = new Word(UInt256.ZERO);
+
+    // Encoded size in bytes; for a dynamic value the size of its tail.
+    final int size;
+
+    AbiValue(int size) {
+        this.size = size;
+    }
+
+    // Reports whether the value is encoded in the tail, behind an offset in the head.
+    public abstract boolean isDynamic();
+
+    // Returns the size of the value's encoding, which for a dynamic value is its tail.
+    public int encodedSize() {
+        return size;
+    }
+
+    // Writes the value's encoding, exactly encodedSize() bytes, into dst at off.
+    abstract void write(byte[] dst, int off);
+
+    public static AbiValue address(Address address) {
+        return new AddressWord(address);
+    }
+
+    // Returns a bytes32 word.
+    public static AbiValue bytes32(Hash hash) {
+        return new HashWord(hash);
+    }
+
+    public static AbiValue uint(UInt256 value) {
+        return new Word(value);
+    }
+
+    public static AbiValue uint(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative uint: " + value);
+        }
+        return new Word(UInt256.valueOf(value));
+    }
+
+    public static AbiValue uint(BigInteger value) {
+        if (value.signum() < 0 || value.bitLength() > 256) {
+            throw new IllegalArgumentException("Value out of uint256 range: " + value);
+        }
+        return new Word(UInt256.fromBigInteger(value));
+    }
+
+    // Returns an int256 word in two's complement.
+    public static AbiValue int256(long value) {
+        return int256(BigInteger.valueOf(value));
+    }
+
+    public static AbiValue int256(BigInteger value) {
+        if (value.bitLength() > 255) {
+            throw new IllegalArgumentException("Value out of int256 range: " + value);
+        }
+        return new Word(UInt256.fromBigInteger(value));
+    }
+
+    public static AbiValue bool(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    // Returns a bytesN word, N being the length of value, at most 32; the bytes are left
+    // aligned.
+    public static AbiValue fixedBytes(byte[] value) {
+        if (value.length > WORD) {
+            throw new IllegalArgumentException("bytesN is at most 32 bytes: " + value.length);
+        }
+        return new FixedBytes(ByteSlice.wrap(value.clone()).rightPad(WORD));
+    }
+
+    // Returns a dynamic bytes value. The array is referenced, not copied, until encoding.
+    public static AbiValue bytes(byte[] value) {
+        return new Bytes(ByteSlice.wrap(value));
+    }
+
+    public static AbiValue bytes(ByteSlice value) {
+        return new Bytes(value);
+    }
+
+    public static AbiValue string(String value) {
+        return new Bytes(ByteSlice.wrap(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Returns a dynamic bytes value holding the calldata of a call: the selector followed by
+    // the encoded arguments, written in place instead of being encoded to a separate array
+    // first. Used for the inner calls of multicall-style batches.
+    public static AbiValue call(int selector, AbiValue... args) {
+        return new Call(selector, new Tuple(args.clone()));
+    }
+
+    // Returns a dynamic array T[] of the values.
+    public static AbiValue array(AbiValue... values) {
+        return new Array(new Tuple(values.clone()));
+    }
+
+    public static AbiValue array(List<? extends AbiValue> values) {
+        return new Array(new Tuple(values.toArray(new AbiValue[0])));
+    }
+
+    // Returns a fixed-size array T[k] of the values, encoded like a tuple.
+    public static AbiValue fixedArray(AbiValue... values) {
+        return new Tuple(values.clone());
+    }
+
+    public static AbiValue tuple(AbiValue... values) {
+        return new Tuple(values.clone());
+    }
+
+    public static AbiValue tuple(List<? extends AbiValue> values) {
+        return new Tuple(values.toArray(new AbiValue[0]));
+    }
+
+    private static int padded(int length) {
+        return Math.addExact(length, WORD - 1) & -WORD;
+    }
+
+    // Writes n as a big-endian 32-byte word.
+    static void writeLength(byte[] dst, int off, long n) {
+        Arrays.fill(dst, off, off + WORD - 8, (byte) 0);
+        for (int i = 0; i < 8; i++) {
+            dst[off + WORD - 1 - i] = (byte) (n >>> (i << 3));
+        }
+    }
+
+    private static final class Word extends AbiValue {
+        private final UInt256 value;
+
+        Word(UInt256 value) {
+            super(WORD);
+            this.value = value;
+        }
+
+        @Override
+        public boolean isDynamic() {
+            return false;
+        }
+
+        @Override
+        void write(byte[] dst, int off) {
+            value.toBytes(dst, off);
+        }
+    }
+
+    private static final class AddressWord extends AbiValue {
+        private final Address address;
+
+        AddressWord(Address address) {
+            super(WORD);
+            this.address = address;
+        }
+
+        @Override
+        public boolean isDynamic() {
+            return false;
+        }
+
+        @Override
+        void write(byte[] dst, int off) {
+            Arrays.fill(dst, off, off + 12, (byte) 0);
+            address.copyTo(dst, off + 12);
+        }
+    }
+
+    private static final class HashWord extends AbiValue {
+        private final Hash hash;
+
+        HashWord(Hash hash) {
+            super(HASH_LENGTH);
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean isDynamic() {
+            return false;
+        }
+
+        @Override
+        void write(byte[] dst, int off) {
+            hash.copyTo(dst, off);
+        }
+    }
+
+    private static final class FixedBytes extends AbiValue {
+        private final ByteSlice value;
+
+        FixedBytes(ByteSlice value) {
+            super(WORD);
+            this.value = value;
+        }
+
+        @Override
+        public boolean isDynamic() {
+            return false;
+        }
+
+        @Override
+        void write(byte[] dst, int off) {
+            value.copyTo(dst, off);
+        }
+    }
+
+    // Bytes is a length word followed by the bytes, right padded to whole words.
+    private static final class Bytes extends AbiValue {
+        private final ByteSlice value;
+
+        Bytes(ByteSlice value) {
+            super(Math.addExact(WORD, padded(value.size())));
+            this.value = value;
+        }
+
+        @Override
+        public boolean isDynamic() {
+            return true;
+        }
+
+        @Override
+        void write(byte[] dst, int off) {
+            writeLength(dst, off, value.size());
+            int end = value.copyTo(dst, off + WORD);
+            Arrays.fill(dst, end, off + size, (byte) 0);
+        }
+    }
+
+    private static final class Call extends AbiValue {
+        private final int selector;
+        private final Tuple args;
+
+        Call(int selector, Tuple args) {
+            super(Math.addExact(WORD, padded(Math.addExact(4, args.size))));
+            this.selector = selector;
+            this.args = args;
+        }
+
+        @Override
+        public boolean isDynamic() {
+            return true;
+        }
+
+        @Override
+        void write(byte[] dst, int off) {
+            writeLength(dst, off, 4 + args.size);
+            AbiEncoder.writeSelector(dst, off + WORD, selector);
+            args.write(dst, off + WORD + 4);
+            Arrays.fill(dst, off + WORD + 4 + args.size, off + size, (byte) 0);
+        }
+    }
+
+    // Tuple lays out its values as heads followed by tails. A static value's head is its
+    // encoding; a dynamic value's head is the offset of its tail from the start of the tuple.
+    static final class Tuple extends AbiValue {
+        private final AbiValue[] values;
+        private final int headSize;
+        private final boolean dynamic;
+
+        Tuple(AbiValue[] values) {
+            this(values, headSize(values));
+        }
+
+        private Tuple(AbiValue[] values, int headSize) {
+            super(totalSize(values, headSize));
+            this.values = values;
+            this.headSize = headSize;
+            boolean d = false;
+            for (AbiValue v : values) {
+                d |= v.isDynamic();
+            }
+            this.dynamic = d;
+        }
+
+        private static int headSize(AbiValue[] values) {
+            int n = 0;
+            for (AbiValue v : values) {
+                n = Math.addExact(n, v.isDynamic() ? WORD : v.size);
+            }
+            return n;
+        }
+
+        private static int totalSize(AbiValue[] values, int headSize) {
+            int n = headSize;
+            for (AbiValue v : values) {
+                if (v.isDynamic()) {
+                    n = Math.addExact(n, v.size);
+                }
+            }
+            return n;
+        }
+
+        int length() {
+            return values.length;
+        }
+
+        @Override
+        public boolean isDynamic() {
+            return dynamic;
+        }
+
+        @Override
+        void write(byte[] dst, int off) {
+            int head = off;
+            int tail = off + headSize;
+            for (AbiValue v : values) {
+                if (v.isDynamic()) {
+                    writeLength(dst, head, tail - off);
+                    v.write(dst, tail);
+                    tail += v.size;
+                    head += WORD;
+                } else {
+                    v.write(dst, head);
+                    head += v.size;
+                }
+            }
+        }
+    }
+
+    // Array is a length word followed by its elements encoded as a tuple.
+    private static final class Array extends AbiValue {
+        private final Tuple elements;
+
+        Array(Tuple elements) {
+            super(Math.addExact(WORD, elements.size));
+            this.elements = elements;
+        }
+
+        @Override
+        public boolean isDynamic() {
+            return true;
+        }
+
+        @Override
+        void write(byte[] dst, int off) {
+            writeLength(dst, off, elements.length());
+            elements.write(dst, off + WORD);
+        }
+    }
+}
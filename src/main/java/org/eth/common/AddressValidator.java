@@ -0,0 +1,264 @@
+package org.eth.common;
+
+import org.eth.hexutil.HexDecoder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+import static org.eth.common.CommonTypes.ADDRESS_LENGTH;
+import static org.eth.common.CommonTypes.Address;
+
+// AddressValidator checks many address strings, such as the rows of an uploaded address book,
+// against the rules of MixedcaseAddress: 40 hex digits with or without 0x prefix whose letter
+// case is the EIP-55 checksum of the address. Each entry is read once, decoding its bytes and
+// lowercasing its digits into a reusable buffer that is hashed in place, so validation builds
+// no strings or MixedcaseAddress objects.
+//
+// The result is two bitmaps, entries that are well-formed addresses and entries whose checksum
+// is also valid, plus the decoded addresses packed into one array. Batches of at least
+// parallelThreshold entries are split across a ForkJoinPool.
+public final class AddressValidator {
+
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
+    // Number of entries below which a task validates sequentially instead of splitting. A
+    // multiple of 64 so tasks never share a bitmap word.
+    private static final int LEAF_SIZE = 1024;
+
+    private static final int DIGITS = 2 * ADDRESS_LENGTH;
+
+    private final boolean acceptUncased;
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+
+    public AddressValidator() {
+        this(false);
+    }
+
+    // With acceptUncased, all-lowercase and all-uppercase entries, which carry no checksum, are
+    // valid as well.
+    public AddressValidator(boolean acceptUncased) {
+        this(acceptUncased, DEFAULT_PARALLEL_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    public AddressValidator(boolean acceptUncased, int parallelThreshold, ForkJoinPool pool) {
+        this.acceptUncased = acceptUncased;
+        this.parallelThreshold = parallelThreshold;
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    // Result holds the outcome of validating a list of entries. Entry i's address occupies bytes
+    // [i * 20, (i + 1) * 20) of data(), zeroed unless the entry is well-formed.
+    public static final class Result {
+        private final int size;
+        private final long[] wellFormed;
+        private final long[] valid;
+        private final byte[] data;
+
+        Result(int size, long[] wellFormed, long[] valid, byte[] data) {
+            this.size = size;
+            this.wellFormed = wellFormed;
+            this.valid = valid;
+            this.data = data;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        // Reports whether entry i is 40 hex digits with an optional prefix.
+        public boolean isWellFormed(int i) {
+            Objects.checkIndex(i, size);
+            return (wellFormed[i >>> 6] & (1L << i)) != 0;
+        }
+
+        // Reports whether entry i is well-formed and correctly checksummed.
+        public boolean isValid(int i) {
+            Objects.checkIndex(i, size);
+            return (valid[i >>> 6] & (1L << i)) != 0;
+        }
+
+        public int validCount() {
+            return count(valid);
+        }
+
+        public int wellFormedCount() {
+            return count(wellFormed);
+        }
+
+        // Returns the index of the first entry at or after from that is not valid, or -1.
+        public int nextInvalid(int from) {
+            for (int i = Math.max(from, 0); i < size; ) {
+                long w = ~valid[i >>> 6] & (-1L << i);
+                if (w != 0) {
+                    int j = (i & ~63) + Long.numberOfTrailingZeros(w);
+                    return j < size ? j : -1;
+                }
+                i = (i & ~63) + 64;
+            }
+            return -1;
+        }
+
+        // Returns the valid bitmap, bit i of word i / 64 set for valid entry i. The array is
+        // shared, not copied.
+        public long[] validBits() {
+            return valid;
+        }
+
+        public long[] wellFormedBits() {
+            return wellFormed;
+        }
+
+        // Returns the packed addresses. The array is shared, not copied.
+        public byte[] data() {
+            return data;
+        }
+
+        // Returns the address of entry i, or null if it is not well-formed.
+        public Address address(int i) {
+            return isWellFormed(i) ? Address.fromBytes(data, i * ADDRESS_LENGTH) : null;
+        }
+
+        private static int count(long[] bits) {
+            int n = 0;
+            for (long w : bits) {
+                n += Long.bitCount(w);
+            }
+            return n;
+        }
+    }
+
+    public Result validate(CharSequence[] inputs) {
+        return validate(Arrays.asList(inputs));
+    }
+
+    public Result validate(Stream<? extends CharSequence> inputs) {
+        return validate(inputs.toList());
+    }
+
+    public Result validate(List<? extends CharSequence> inputs) {
+        int n = inputs.size();
+        List<? extends CharSequence> list = inputs instanceof RandomAccess ? inputs : Arrays.asList(inputs.toArray(new CharSequence[0]));
+        long[] wellFormed = new long[(n + 63) >>> 6];
+        long[] valid = new long[wellFormed.length];
+        byte[] data = new byte[Math.multiplyExact(n, ADDRESS_LENGTH)];
+        if (n >= parallelThreshold && n > LEAF_SIZE) {
+            pool.invoke(new ValidateTask(list, 0, n, wellFormed, valid, data, acceptUncased));
+        } else {
+            validateRange(list, 0, n, wellFormed, valid, data, acceptUncased);
+        }
+        return new Result(n, wellFormed, valid, data);
+    }
+
+    private static void validateRange(List<? extends CharSequence> inputs, int from, int to, long[] wellFormed,
+                                      long[] valid, byte[] data, boolean acceptUncased) {
+        byte[] lower = new byte[DIGITS];
+        byte[] digest = new byte[Keccak.KECCAK256_LENGTH];
+        Keccak k = Keccak.internal256();
+        for (int i = from; i < to; i++) {
+            int r = check(inputs.get(i), data, i * ADDRESS_LENGTH, lower, digest, k, acceptUncased);
+            if (r >= 0) {
+                wellFormed[i >>> 6] |= 1L << i;
+                if (r > 0) {
+                    valid[i >>> 6] |= 1L << i;
+                }
+            }
+        }
+    }
+
+    // Decodes entry s into dst[off, off + 20) and returns 1 if it is valid, 0 if it is only
+    // well-formed and -1 otherwise, in which case the record is left zeroed.
+    private static int check(CharSequence s, byte[] dst, int off, byte[] lower, byte[] digest, Keccak k,
+                             boolean acceptUncased) {
+        if (s == null) {
+            return -1;
+        }
+        int start;
+        boolean casePrefix = true;
+        if (s.length() == DIGITS) {
+            start = 0;
+        } else if (s.length() == DIGITS + 2 && HexDecoder.hasPrefix(s, 0, 2)) {
+            start = 2;
+            // A 0X prefix never matches the checksummed form.
+            casePrefix = s.charAt(1) == 'x';
+        } else {
+            return -1;
+        }
+        // Bit i set for each letter digit i, and for each uppercase one.
+        long letters = 0;
+        long upper = 0;
+        for (int i = 0; i < DIGITS; i += 2) {
+            char hi = s.charAt(start + i);
+            char lo = s.charAt(start + i + 1);
+            int a = HexDecoder.nibble(hi);
+            int b = HexDecoder.nibble(lo);
+            if ((a | b) < 0) {
+                Arrays.fill(dst, off, off + ADDRESS_LENGTH, (byte) 0);
+                return -1;
+            }
+            dst[off + (i >>> 1)] = (byte) (a << 4 | b);
+            if (a >= 10) {
+                letters |= 1L << i;
+                upper |= (long) ((hi & 0x20) ^ 0x20) >>> 5 << i;
+            }
+            if (b >= 10) {
+                letters |= 1L << (i + 1);
+                upper |= (long) ((lo & 0x20) ^ 0x20) >>> 5 << (i + 1);
+            }
+            lower[i] = (byte) (hi | (a >= 10 ? 0x20 : 0));
+            lower[i + 1] = (byte) (lo | (b >= 10 ? 0x20 : 0));
+        }
+        if (!casePrefix) {
+            return 0;
+        }
+        if (acceptUncased && (upper == 0 || upper == letters)) {
+            return 1;
+        }
+        k.update(lower, 0, DIGITS).digest(digest, 0);
+        // Bit i of want is set where the checksum uppercases letter digit i.
+        long want = 0;
+        for (int i = 0; i < DIGITS; i += 2) {
+            int h = digest[i >>> 1];
+            want |= (long) ((h >>> 7) & 1) << i | (long) ((h >>> 3) & 1) << (i + 1);
+        }
+        return (want & letters) == upper ? 1 : 0;
+    }
+
+    private static final class ValidateTask extends RecursiveAction {
+        private final List<? extends CharSequence> inputs;
+        private final int from;
+        private final int to;
+        private final long[] wellFormed;
+        private final long[] valid;
+        private final byte[] data;
+        private final boolean acceptUncased;
+
+        ValidateTask(List<? extends CharSequence> inputs, int from, int to, long[] wellFormed, long[] valid,
+                     byte[] data, boolean acceptUncased) {
+            this.inputs = inputs;
+            this.from = from;
+            this.to = to;
+            this.wellFormed = wellFormed;
+            this.valid = valid;
+            this.data = data;
+            this.acceptUncased = acceptUncased;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                validateRange(inputs, from, to, wellFormed, valid, data, acceptUncased);
+                return;
+            }
+            // Split on a 64 entry boundary so the halves write disjoint bitmap words.
+            int mid = ((from + to) >>> 1) & ~63;
+            invokeAll(new ValidateTask(inputs, from, mid, wellFormed, valid, data, acceptUncased),
+                    new ValidateTask(inputs, mid, to, wellFormed, valid, data, acceptUncased));
+        }
+    }
+}
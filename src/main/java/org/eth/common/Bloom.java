@@ -0,0 +1,269 @@
+package org.eth.common;
+
+import org.eth.hexutil.HexEncoder;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static org.eth.common.CommonTypes.ADDRESS_LENGTH;
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.HASH_LENGTH;
+import static org.eth.common.CommonTypes.Hash;
+
+// Bloom is the 2048 bit logs bloom of a receipt or block header. Adding a value sets three bits,
+// each taken from the low 11 bits of one of the first three big-endian byte pairs of the value's
+// Keccak-256 digest. The 256 serialized bytes are big-endian, so bit b lives in byte
+// 255 - b / 8; in memory they are held as 32 big-endian long words, word 31 holding bits 0-63.
+//
+// Testing one value against many blooms is best done with a Query, which holds the value's bit
+// positions as at most three (word, mask) pairs so each test is a few loads and compares. Blooms
+// of a block range can be packed back to back into one long[] with copyTo and scanned in one
+// tight loop.
+public final class Bloom {
+
+    public static final int BYTES = 256;
+    public static final int WORDS = 32;
+    public static final int BITS = 2048;
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final long[] words;
+
+    public Bloom() {
+        this.words = new long[WORDS];
+    }
+
+    private Bloom(long[] words) {
+        this.words = words;
+    }
+
+    public static Bloom fromBytes(byte[] bytes) {
+        if (bytes.length != BYTES) {
+            throw new IllegalArgumentException("Bloom must be " + BYTES + " bytes long");
+        }
+        return fromBytes(bytes, 0);
+    }
+
+    public static Bloom fromBytes(byte[] src, int off) {
+        Objects.checkFromIndexSize(off, BYTES, src.length);
+        long[] words = new long[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            words[i] = (long) LONGS.get(src, off + i * 8);
+        }
+        return new Bloom(words);
+    }
+
+    // Returns the bloom stored at index in a packed array filled by copyTo.
+    public static Bloom fromPacked(long[] packed, int index) {
+        Objects.checkFromIndexSize(index * WORDS, WORDS, packed.length);
+        return new Bloom(Arrays.copyOfRange(packed, index * WORDS, index * WORDS + WORDS));
+    }
+
+    public Bloom add(Address address) {
+        byte[] buf = new byte[ADDRESS_LENGTH];
+        address.copyTo(buf, 0);
+        return add(buf, 0, ADDRESS_LENGTH);
+    }
+
+    public Bloom add(Hash hash) {
+        byte[] buf = new byte[HASH_LENGTH];
+        hash.copyTo(buf, 0);
+        return add(buf, 0, HASH_LENGTH);
+    }
+
+    public Bloom add(byte[] src, int off, int len) {
+        long[] q = positions(src, off, len);
+        for (int i = 0; i < q.length; i += 2) {
+            words[(int) q[i]] |= q[i + 1];
+        }
+        return this;
+    }
+
+    public Bloom or(Bloom other) {
+        for (int i = 0; i < WORDS; i++) {
+            words[i] |= other.words[i];
+        }
+        return this;
+    }
+
+    public boolean isEmpty() {
+        for (long w : words) {
+            if (w != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Reports whether every bit set in other is also set here.
+    public boolean contains(Bloom other) {
+        for (int i = 0; i < WORDS; i++) {
+            if ((words[i] & other.words[i]) != other.words[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean mayContain(Address address) {
+        return query(address).test(this);
+    }
+
+    public boolean mayContain(Hash hash) {
+        return query(hash).test(this);
+    }
+
+    public boolean mayContain(Query query) {
+        return query.test(this);
+    }
+
+    public boolean testBit(int bit) {
+        Objects.checkIndex(bit, BITS);
+        return (words[WORDS - 1 - (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    public byte[] getBytes() {
+        byte[] out = new byte[BYTES];
+        copyTo(out, 0);
+        return out;
+    }
+
+    public void copyTo(byte[] dst, int off) {
+        Objects.checkFromIndexSize(off, BYTES, dst.length);
+        for (int i = 0; i < WORDS; i++) {
+            LONGS.set(dst, off + i * 8, words[i]);
+        }
+    }
+
+    // Stores the words at index in a packed array of blooms, words [index * 32, index * 32 + 32).
+    public void copyTo(long[] packed, int index) {
+        System.arraycopy(words, 0, packed, Math.multiplyExact(index, WORDS), WORDS);
+    }
+
+    public Bloom copy() {
+        return new Bloom(words.clone());
+    }
+
+    public String toHexString() {
+        return HexEncoder.toHexString(getBytes(), true);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Bloom b && Arrays.equals(words, b.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        return toHexString();
+    }
+
+    public static Query query(Address address) {
+        byte[] buf = new byte[ADDRESS_LENGTH];
+        address.copyTo(buf, 0);
+        return new Query(positions(buf, 0, ADDRESS_LENGTH));
+    }
+
+    public static Query query(Hash hash) {
+        byte[] buf = new byte[HASH_LENGTH];
+        hash.copyTo(buf, 0);
+        return new Query(positions(buf, 0, HASH_LENGTH));
+    }
+
+    public static Query query(byte[] src, int off, int len) {
+        return new Query(positions(src, off, len));
+    }
+
+    // Returns the three bits of a value as (word, mask) pairs, merging bits in the same word.
+    private static long[] positions(byte[] src, int off, int len) {
+        byte[] digest = new byte[Keccak.KECCAK256_LENGTH];
+        Keccak.internal256().update(src, off, len).digest(digest, 0);
+        long[] pairs = new long[6];
+        int n = 0;
+        for (int i = 0; i < 6; i += 2) {
+            int bit = ((digest[i] & 0x07) << 8) | (digest[i + 1] & 0xff);
+            int word = WORDS - 1 - (bit >>> 6);
+            long mask = 1L << bit;
+            int j = 0;
+            while (j < n && pairs[j] != word) {
+                j += 2;
+            }
+            if (j == n) {
+                pairs[n] = word;
+                n += 2;
+            }
+            pairs[j + 1] |= mask;
+        }
+        return n == pairs.length ? pairs : Arrays.copyOf(pairs, n);
+    }
+
+    // Query holds the bit positions of one value, precomputed so testing it against many blooms
+    // needs no hashing. Unused pairs repeat the first one, so every test is the same three
+    // branch-free compares.
+    public static final class Query {
+        private final int i0;
+        private final int i1;
+        private final int i2;
+        private final long m0;
+        private final long m1;
+        private final long m2;
+
+        private Query(long[] pairs) {
+            this.i0 = (int) pairs[0];
+            this.m0 = pairs[1];
+            this.i1 = pairs.length > 2 ? (int) pairs[2] : i0;
+            this.m1 = pairs.length > 2 ? pairs[3] : m0;
+            this.i2 = pairs.length > 4 ? (int) pairs[4] : i0;
+            this.m2 = pairs.length > 4 ? pairs[5] : m0;
+        }
+
+        public boolean test(Bloom bloom) {
+            long[] w = bloom.words;
+            return ((w[i0] & m0) == m0) & ((w[i1] & m1) == m1) & ((w[i2] & m2) == m2);
+        }
+
+        // Tests the bloom at index in a packed array filled by Bloom.copyTo(long[], int).
+        public boolean test(long[] packed, int index) {
+            int base = index * WORDS;
+            Objects.checkFromIndexSize(base, WORDS, packed.length);
+            return ((packed[base + i0] & m0) == m0) & ((packed[base + i1] & m1) == m1)
+                    & ((packed[base + i2] & m2) == m2);
+        }
+
+        // Tests the packed blooms [from, to) and sets bit i - from of hits for every bloom i that
+        // may contain the value. Returns the number of matches.
+        public int scan(long[] packed, int from, int to, long[] hits) {
+            Objects.checkFromToIndex(from, to, packed.length / WORDS);
+            Objects.checkFromIndexSize(0, (to - from + 63) >>> 6, hits.length);
+            int matches = 0;
+            for (int i = from, base = from * WORDS; i < to; i++, base += WORDS) {
+                boolean hit = ((packed[base + i0] & m0) == m0) & ((packed[base + i1] & m1) == m1)
+                        & ((packed[base + i2] & m2) == m2);
+                if (hit) {
+                    hits[(i - from) >>> 6] |= 1L << (i - from);
+                    matches++;
+                }
+            }
+            return matches;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Query q && i0 == q.i0 && i1 == q.i1 && i2 == q.i2
+                    && m0 == q.m0 && m1 == q.m1 && m2 == q.m2;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(i0, i1, i2, m0, m1, m2);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package org.eth.common;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+// ByteSlice is an immutable view of a byte sequence: a range of a backing array, optionally
+// extended with virtual zero bytes on either side. Padding, trimming and slicing return new
+// views of the same array, so a value that is padded, trimmed and re-sliced on its way through
+// an encoder is copied only once, when it is finally written out with copyTo, writeTo or
+// toByteArray.
+//
+// A slice does not copy its backing array, so the array must not be changed while the slice is
+// in use. equals, hashCode and compareUnsigned work on the viewed bytes, whatever their layout:
+// a slice with virtual zeros equals one backed by real zeros, and hashCode matches
+// Arrays.hashCode of toByteArray.
+public final class ByteSlice {
+
+    public static final ByteSlice EMPTY = new ByteSlice(new byte[0], 0, 0, 0, 0);
+
+    private static final byte[] ZEROS = new byte[64];
+
+    private final byte[] array;
+    private final int offset;
+    private final int length;
+    // Virtual zero bytes before and after the array range.
+    private final int leftZeros;
+    private final int rightZeros;
+
+    private ByteSlice(byte[] array, int offset, int length, int leftZeros, int rightZeros) {
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+        this.leftZeros = leftZeros;
+        this.rightZeros = rightZeros;
+    }
+
+    public static ByteSlice wrap(byte[] array) {
+        return new ByteSlice(array, 0, array.length, 0, 0);
+    }
+
+    public static ByteSlice wrap(byte[] array, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, array.length);
+        return new ByteSlice(array, offset, length, 0, 0);
+    }
+
+    // Returns a slice of n zero bytes.
+    public static ByteSlice zeros(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Negative length: " + n);
+        }
+        return new ByteSlice(EMPTY.array, 0, 0, n, 0);
+    }
+
+    public int size() {
+        return leftZeros + length + rightZeros;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public byte get(int i) {
+        Objects.checkIndex(i, size());
+        int j = i - leftZeros;
+        return j >= 0 && j < length ? array[offset + j] : 0;
+    }
+
+    // Returns the view of bytes [from, to).
+    public ByteSlice slice(int from, int to) {
+        Objects.checkFromToIndex(from, to, size());
+        if (from == 0 && to == size()) {
+            return this;
+        }
+        int arrayEnd = leftZeros + length;
+        int arrayFrom = Math.min(Math.max(from, leftZeros), arrayEnd);
+        int arrayTo = Math.min(Math.max(to, leftZeros), arrayEnd);
+        if (arrayFrom >= arrayTo) {
+            return zeros(to - from);
+        }
+        return new ByteSlice(array, offset + arrayFrom - leftZeros, arrayTo - arrayFrom,
+                Math.max(0, leftZeros - from), Math.max(0, to - arrayEnd));
+    }
+
+    // Returns the view without its leading zero bytes.
+    public ByteSlice trimLeftZeroes() {
+        int k = 0;
+        while (k < length && array[offset + k] == 0) {
+            k++;
+        }
+        if (k == length) {
+            return EMPTY;
+        }
+        return k == 0 && leftZeros == 0 ? this : new ByteSlice(array, offset + k, length - k, 0, rightZeros);
+    }
+
+    // Returns the view without its trailing zero bytes.
+    public ByteSlice trimRightZeroes() {
+        int k = length;
+        while (k > 0 && array[offset + k - 1] == 0) {
+            k--;
+        }
+        if (k == 0) {
+            return EMPTY;
+        }
+        return k == length && rightZeros == 0 ? this : new ByteSlice(array, offset, k, leftZeros, 0);
+    }
+
+    // Returns the view extended to n bytes with leading zeros, or this slice if it is at least
+    // n bytes long.
+    public ByteSlice leftPad(int n) {
+        int size = size();
+        return n <= size ? this : new ByteSlice(array, offset, length, leftZeros + n - size, rightZeros);
+    }
+
+    // Returns the view extended to n bytes with trailing zeros, or this slice if it is at least
+    // n bytes long.
+    public ByteSlice rightPad(int n) {
+        int size = size();
+        return n <= size ? this : new ByteSlice(array, offset, length, leftZeros, rightZeros + n - size);
+    }
+
+    // Compares the viewed bytes as unsigned values, lexicographically; a proper prefix orders
+    // first.
+    public int compareUnsigned(ByteSlice o) {
+        int m = mismatch(o);
+        if (m < 0) {
+            return Integer.compare(size(), o.size());
+        }
+        return Integer.compare(get(m) & 0xff, o.get(m) & 0xff);
+    }
+
+    // Copies the viewed bytes into dst starting at off and returns the offset past them.
+    public int copyTo(byte[] dst, int off) {
+        Objects.checkFromIndexSize(off, size(), dst.length);
+        Arrays.fill(dst, off, off + leftZeros, (byte) 0);
+        System.arraycopy(array, offset, dst, off + leftZeros, length);
+        int end = off + size();
+        Arrays.fill(dst, end - rightZeros, end, (byte) 0);
+        return end;
+    }
+
+    // Writes the viewed bytes at the position of dst and advances it.
+    public ByteBuffer writeTo(ByteBuffer dst) {
+        if (dst.remaining() < size()) {
+            throw new BufferOverflowException();
+        }
+        putZeros(dst, leftZeros);
+        dst.put(array, offset, length);
+        putZeros(dst, rightZeros);
+        return dst;
+    }
+
+    public byte[] toByteArray() {
+        byte[] out = new byte[size()];
+        copyTo(out, 0);
+        return out;
+    }
+
+    public String toHexString() {
+        return CommonByte.bytesToHex(toByteArray());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ByteSlice)) return false;
+        ByteSlice s = (ByteSlice) o;
+        return size() == s.size() && mismatch(s) < 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 1;
+        for (int i = 0; i < leftZeros; i++) {
+            h *= 31;
+        }
+        for (int i = offset, end = offset + length; i < end; i++) {
+            h = 31 * h + array[i];
+        }
+        for (int i = 0; i < rightZeros; i++) {
+            h *= 31;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return toHexString();
+    }
+
+    private static void putZeros(ByteBuffer dst, int n) {
+        while (n > 0) {
+            int k = Math.min(n, ZEROS.length);
+            dst.put(ZEROS, 0, k);
+            n -= k;
+        }
+    }
+
+    // Returns the end of the run containing position p: the leading zeros, the array range or
+    // the trailing zeros.
+    private int runEnd(int p) {
+        if (p < leftZeros) {
+            return leftZeros;
+        }
+        return p < leftZeros + length ? leftZeros + length : size();
+    }
+
+    private boolean inArray(int p) {
+        return p >= leftZeros && p < leftZeros + length;
+    }
+
+    // Returns the first index within the common length where the views differ, or -1. Walks
+    // both views run by run, comparing array ranges with Arrays.mismatch and zero runs against
+    // the other view's bytes.
+    private int mismatch(ByteSlice o) {
+        int n = Math.min(size(), o.size());
+        for (int p = 0; p < n; ) {
+            int e = Math.min(n, Math.min(runEnd(p), o.runEnd(p)));
+            boolean a = inArray(p);
+            boolean b = o.inArray(p);
+            if (a && b) {
+                int from = offset + p - leftZeros;
+                int oFrom = o.offset + p - o.leftZeros;
+                int r = Arrays.mismatch(array, from, from + e - p, o.array, oFrom, oFrom + e - p);
+                if (r >= 0) {
+                    return p + r;
+                }
+            } else if (a != b) {
+                ByteSlice s = a ? this : o;
+                for (int i = s.offset + p - s.leftZeros, q = p; q < e; i++, q++) {
+                    if (s.array[i] != 0) {
+                        return q;
+                    }
+                }
+            }
+            p = e;
+        }
+        return -1;
+    }
+}
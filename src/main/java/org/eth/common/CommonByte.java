@@ -1,20 +1,22 @@
 package org.eth.common;
 
 import org.apache.commons.codec.DecoderException;
-import org.apache.commons.codec.binary.Hex;
+import org.eth.hexutil.HexDecoder;
+import org.eth.hexutil.HexEncoder;
+import org.eth.hexutil.HexUtil;
 
 import java.util.Arrays;
 
 public class CommonByte {
 
     public static byte[] fromHex(String s) throws DecoderException {
-        if (has0xPrefix(s)) {
-            s = s.substring(2);
+        byte[] out = new byte[HexDecoder.decodedLength(s, 0, s.length())];
+        try {
+            HexDecoder.decodeLenient(s, 0, s.length(), out, 0);
+        } catch (HexUtil.HexUtilException e) {
+            throw new DecoderException(e.getMessage(), e);
         }
-        if (s.length() % 2 != 0) {
-            s = "0" + s;
-        }
-        return hexToBytes(s);
+        return out;
     }
 
     public static byte[] copyBytes(byte[] b) {
@@ -26,32 +28,25 @@ public class CommonByte {
         return copiedBytes;
     }
 
-    private static boolean has0xPrefix(String str) {
-        return str.length() >= 2 && str.charAt(0) == '0' && (str.charAt(1) == 'x' || str.charAt(1) == 'X');
-    }
-
-    private static boolean isHexCharacter(byte c) {
-        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
-    }
-
     static boolean isHex(String str) {
-        if (str.length() % 2 != 0) {
-            return false;
-        }
-        for (char c : str.toCharArray()) {
-            if (!isHexCharacter((byte) c)) {
-                return false;
-            }
-        }
-        return true;
+        return str.length() % 2 == 0 && HexDecoder.isHexDigits(str, 0, str.length());
     }
 
     public static String bytesToHex(byte[] d) {
-        return new String(Hex.encodeHex(d));
+        return HexEncoder.toHexString(d, 0, d.length, false);
     }
 
     public static byte[] hexToBytes(String str) throws DecoderException {
-        return Hex.decodeHex(str.toCharArray());
+        if (str.length() % 2 != 0) {
+            throw new DecoderException("Odd number of characters.");
+        }
+        byte[] out = new byte[str.length() / 2];
+        try {
+            HexDecoder.decodeDigits(str, 0, str.length(), out, 0);
+        } catch (HexUtil.HexUtilException e) {
+            throw new DecoderException(e.getMessage(), e);
+        }
+        return out;
     }
 
     public static byte[] hexToBytesFixed(String str, int flen) throws IllegalArgumentException, DecoderException {
@@ -65,6 +60,15 @@ public class CommonByte {
         }
     }
 
+    // Like hexToBytesFixed, returning a view of the decoded bytes instead of copying them again.
+    public static ByteSlice hexToSliceFixed(String str, int flen) throws IllegalArgumentException, DecoderException {
+        byte[] h = hexToBytes(str);
+        if (h.length < flen) {
+            throw new IllegalArgumentException("Input string length does not match fixed length");
+        }
+        return ByteSlice.wrap(h, h.length - flen, flen);
+    }
+
     public static byte[] rightPadBytes(byte[] slice, int l) {
         if (l <= slice.length) {
             return slice;
@@ -102,4 +106,22 @@ public class CommonByte {
         }
         return Arrays.copyOfRange(s, 0, idx);
     }
-}
\ No newline at end of file
+
+    // The *Slice variants return views of their input rather than copies; see ByteSlice.
+
+    public static ByteSlice rightPadSlice(byte[] slice, int l) {
+        return ByteSlice.wrap(slice).rightPad(l);
+    }
+
+    public static ByteSlice leftPadSlice(byte[] slice, int l) {
+        return ByteSlice.wrap(slice).leftPad(l);
+    }
+
+    public static ByteSlice trimLeftZeroesSlice(byte[] s) {
+        return ByteSlice.wrap(s).trimLeftZeroes();
+    }
+
+    public static ByteSlice trimRightZeroesSlice(byte[] s) {
+        return ByteSlice.wrap(s).trimRightZeroes();
+    }
+}
@@ -11,4 +11,12 @@ public class CommonConstants {
     public static final BigInteger Big32 = BigInteger.valueOf(32);
     public static final BigInteger Big256 = BigInteger.valueOf(256);
     public static final BigInteger Big257 = BigInteger.valueOf(257);
+
+    public static final UInt256 U2560 = UInt256.ZERO;
+    public static final UInt256 U2561 = UInt256.ONE;
+    public static final UInt256 U2562 = UInt256.valueOf(2);
+    public static final UInt256 U2563 = UInt256.valueOf(3);
+    public static final UInt256 U25632 = UInt256.valueOf(32);
+    public static final UInt256 U256256 = UInt256.valueOf(256);
+    public static final UInt256 U256257 = UInt256.valueOf(257);
 }
\ No newline at end of file
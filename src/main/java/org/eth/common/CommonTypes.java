@@ -1,37 +1,99 @@
 package org.eth.common;
 
+import org.eth.hexutil.HexDecoder;
+import org.eth.hexutil.HexEncoder;
+import org.eth.hexutil.HexTokenScanner;
 import org.eth.hexutil.HexUtil;
+import org.eth.hexutil.HexValidator;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.math.BigInteger;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.text.FieldPosition;
 import java.text.Format;
 import java.text.ParsePosition;
-import java.util.Arrays;
-
-import static org.eth.common.CommonByte.isHex;
+import java.util.Objects;
 
 // Lengths of hashes and addresses in bytes.
 public final class CommonTypes {
     public static final int HASH_LENGTH = 32;
     public static final int ADDRESS_LENGTH = 20;
 
-    // Hash represents the 32 byte Keccak256 hash of arbitrary data.
-    public static class Hash {
-        private final byte[] bytes;
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private static byte[] checkLength(byte[] bytes, int length, String type) {
+        if (bytes.length != length) {
+            throw new IllegalArgumentException(type + " must be " + length + " bytes long");
+        }
+        return bytes;
+    }
+
+    // Folds a limb into a well-spread int; chained to derive hash codes from all limbs.
+    private static int mix(long w) {
+        long h = w * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // Hash represents the 32 byte Keccak256 hash of arbitrary data. The bytes are held in four
+    // big-endian long limbs, w0 holding bytes 0-7, so a hash is a single compact object and
+    // equals and hashCode work on whole words.
+    public static class Hash implements Comparable<Hash> {
+        final long w0;
+        final long w1;
+        final long w2;
+        final long w3;
+
+        Hash(long w0, long w1, long w2, long w3) {
+            this.w0 = w0;
+            this.w1 = w1;
+            this.w2 = w2;
+            this.w3 = w3;
+        }
 
         private Hash(byte[] bytes) {
-            if (bytes.length != HASH_LENGTH) {
-                throw new IllegalArgumentException("Hash must be " + HASH_LENGTH + " bytes long");
-            }
-            this.bytes = Arrays.copyOf(bytes, bytes.length);
+            this(checkLength(bytes, HASH_LENGTH, "Hash"), 0);
+        }
+
+        private Hash(byte[] src, int off) {
+            this((long) LONGS.get(src, off), (long) LONGS.get(src, off + 8),
+                    (long) LONGS.get(src, off + 16), (long) LONGS.get(src, off + 24));
         }
 
         public static Hash fromBytes(byte[] bytes) {
             return new Hash(bytes);
         }
 
+        // Returns the hash held in src[off, off + HASH_LENGTH), such as a record of a
+        // HexBatchDecoder.Batch.
+        public static Hash fromBytes(byte[] src, int off) {
+            Objects.checkFromIndexSize(off, HASH_LENGTH, src.length);
+            return new Hash(src, off);
+        }
+
+        // Returns the hash held at index in src, leaving its position unchanged. The bytes are
+        // read in file order whatever the buffer's byte order.
+        public static Hash fromBuffer(ByteBuffer src, int index) {
+            Objects.checkFromIndexSize(index, HASH_LENGTH, src.limit());
+            boolean big = src.order() == ByteOrder.BIG_ENDIAN;
+            long w0 = src.getLong(index);
+            long w1 = src.getLong(index + 8);
+            long w2 = src.getLong(index + 16);
+            long w3 = src.getLong(index + 24);
+            return big ? new Hash(w0, w1, w2, w3)
+                    : new Hash(Long.reverseBytes(w0), Long.reverseBytes(w1), Long.reverseBytes(w2), Long.reverseBytes(w3));
+        }
+
+        // Reads a hash at the position of src and advances it.
+        public static Hash readFrom(ByteBuffer src) {
+            Hash h = fromBuffer(src, src.position());
+            src.position(src.position() + HASH_LENGTH);
+            return h;
+        }
+
         public static Hash fromBigInteger(BigInteger bigInteger) {
             return fromBytes(bigInteger.toByteArray());
         }
@@ -40,16 +102,84 @@ public final class CommonTypes {
             return fromBytes(HexUtil.decode(hexString));
         }
 
+        public static Hash fromUInt256(UInt256 value) {
+            return new Hash(value.u3, value.u2, value.u1, value.u0);
+        }
+
         public byte[] getBytes() {
-            return Arrays.copyOf(bytes, bytes.length);
+            byte[] out = new byte[HASH_LENGTH];
+            copyTo(out, 0);
+            return out;
+        }
+
+        // Copies the bytes of the hash into dst starting at off.
+        public void copyTo(byte[] dst, int off) {
+            Objects.checkFromIndexSize(off, HASH_LENGTH, dst.length);
+            LONGS.set(dst, off, w0);
+            LONGS.set(dst, off + 8, w1);
+            LONGS.set(dst, off + 16, w2);
+            LONGS.set(dst, off + 24, w3);
+        }
+
+        // Writes the bytes of the hash at the position of dst and advances it.
+        public ByteBuffer writeTo(ByteBuffer dst) {
+            boolean big = dst.order() == ByteOrder.BIG_ENDIAN;
+            return dst.putLong(big ? w0 : Long.reverseBytes(w0))
+                    .putLong(big ? w1 : Long.reverseBytes(w1))
+                    .putLong(big ? w2 : Long.reverseBytes(w2))
+                    .putLong(big ? w3 : Long.reverseBytes(w3));
+        }
+
+        // Returns byte i of the hash.
+        public byte byteAt(int i) {
+            Objects.checkIndex(i, HASH_LENGTH);
+            long w = switch (i >>> 3) {
+                case 0 -> w0;
+                case 1 -> w1;
+                case 2 -> w2;
+                default -> w3;
+            };
+            return (byte) (w >>> (56 - ((i & 7) << 3)));
         }
 
         public BigInteger toBigInteger() {
-            return new BigInteger(1, bytes);
+            return new BigInteger(1, getBytes());
+        }
+
+        public UInt256 toUInt256() {
+            return UInt256.of(w3, w2, w1, w0);
+        }
+
+        // Writes the hex encoding of the hash into dst starting at dstOff and returns the
+        // index just past the last character written.
+        public int encodeHex(char[] dst, int dstOff, boolean prefix) {
+            int p = dstOff;
+            if (prefix) {
+                dst[p++] = '0';
+                dst[p++] = 'x';
+            }
+            p = HexEncoder.encodeLong(w0, 8, dst, p);
+            p = HexEncoder.encodeLong(w1, 8, dst, p);
+            p = HexEncoder.encodeLong(w2, 8, dst, p);
+            return HexEncoder.encodeLong(w3, 8, dst, p);
+        }
+
+        String toHexString(boolean prefix) {
+            byte[] out = new byte[HexEncoder.encodedLength(HASH_LENGTH, prefix)];
+            int p = 0;
+            if (prefix) {
+                out[p++] = '0';
+                out[p++] = 'x';
+            }
+            p = HexEncoder.encodeLong(w0, 8, out, p);
+            p = HexEncoder.encodeLong(w1, 8, out, p);
+            p = HexEncoder.encodeLong(w2, 8, out, p);
+            HexEncoder.encodeLong(w3, 8, out, p);
+            return new String(out, StandardCharsets.ISO_8859_1);
         }
 
         public String toHexString() {
-            return HexUtil.encode(bytes);
+            return toHexString(true);
         }
 
         @Override
@@ -63,12 +193,25 @@ public final class CommonTypes {
             if (o == null || getClass() != o.getClass()) return false;
 
             Hash hash = (Hash) o;
-            return Arrays.equals(bytes, hash.bytes);
+            return w0 == hash.w0 && w1 == hash.w1 && w2 == hash.w2 && w3 == hash.w3;
         }
 
         @Override
         public int hashCode() {
-            return Arrays.hashCode(bytes);
+            return mix(mix(mix(w0) + w1) + w2) + (int) (w3 ^ (w3 >>> 32));
+        }
+
+        // Orders hashes as unsigned big-endian byte strings, the order of their hex forms. The
+        // ordering looks only at the bytes, so it is inconsistent with equals: a Hash and an
+        // UnprefixedHash of the same bytes compare as 0 but are not equal, and sorted sets and
+        // KeySort.dedupe keep just one of them.
+        @Override
+        public int compareTo(Hash o) {
+            int c = Long.compareUnsigned(w0, o.w0);
+            if (c == 0 && (c = Long.compareUnsigned(w1, o.w1)) == 0 && (c = Long.compareUnsigned(w2, o.w2)) == 0) {
+                c = Long.compareUnsigned(w3, o.w3);
+            }
+            return c;
         }
 
         public static final class Formatter extends Format {
@@ -76,17 +219,26 @@ public final class CommonTypes {
             public StringBuffer format(Object obj, StringBuffer buffer, FieldPosition fieldPosition) {
                 if (obj instanceof Hash) {
                     Hash hash = (Hash) obj;
-                    String prefix = "0x";
-                    buffer.append(prefix);
-                    buffer.append(HexUtil.encode(hash.getBytes()));
+                    char[] chars = new char[HexEncoder.encodedLength(HASH_LENGTH, true)];
+                    hash.encodeHex(chars, 0, true);
+                    buffer.append(chars);
                 } else {
                     throw new IllegalArgumentException("Object must be of type Hash");
                 }
                 return buffer;
             }
 
+            // Parses a 0x-prefixed hash at the index of pos and advances it. The digits may be
+            // of either case and must not run on into further letters or digits.
             @Override
             public Object parseObject(String source, ParsePosition pos) {
+                HexTokenScanner s = HexTokenScanner.of(source);
+                int i = pos.getIndex();
+                if (s.lookingAt(i) && s.kind() == HexTokenScanner.Kind.HASH) {
+                    pos.setIndex(s.end());
+                    return Hash.fromBytes(s.value(), 0);
+                }
+                pos.setErrorIndex(i);
                 return null;
             }
         }
@@ -95,21 +247,58 @@ public final class CommonTypes {
         // can be defined here using corresponding Java libraries like JdbcTemplate or Jackson.
     }
 
-    // Address represents the 20 byte address of an Ethereum account.
-    public static class Address {
-        private final byte[] bytes;
+    // Address represents the 20 byte address of an Ethereum account, held as two big-endian
+    // long limbs for bytes 0-15 and an int for bytes 16-19.
+    public static class Address implements Comparable<Address> {
+        final long w0;
+        final long w1;
+        final int w2;
+        // Checksummed encoding, set on first use. Racing threads compute the same String,
+        // which is safely published through its final fields.
+        private String checksum;
+
+        Address(long w0, long w1, int w2) {
+            this.w0 = w0;
+            this.w1 = w1;
+            this.w2 = w2;
+        }
 
         private Address(byte[] bytes) {
-            if (bytes.length != ADDRESS_LENGTH) {
-                throw new IllegalArgumentException("Address must be " + ADDRESS_LENGTH + " bytes long");
-            }
-            this.bytes = Arrays.copyOf(bytes, bytes.length);
+            this(checkLength(bytes, ADDRESS_LENGTH, "Address"), 0);
+        }
+
+        private Address(byte[] src, int off) {
+            this((long) LONGS.get(src, off), (long) LONGS.get(src, off + 8), (int) INTS.get(src, off + 16));
         }
 
         public static Address fromBytes(byte[] bytes) {
             return new Address(bytes);
         }
 
+        public static Address fromBytes(byte[] src, int off) {
+            Objects.checkFromIndexSize(off, ADDRESS_LENGTH, src.length);
+            return new Address(src, off);
+        }
+
+        // Returns the address held at index in src, leaving its position unchanged. The bytes
+        // are read in file order whatever the buffer's byte order.
+        public static Address fromBuffer(ByteBuffer src, int index) {
+            Objects.checkFromIndexSize(index, ADDRESS_LENGTH, src.limit());
+            boolean big = src.order() == ByteOrder.BIG_ENDIAN;
+            long w0 = src.getLong(index);
+            long w1 = src.getLong(index + 8);
+            int w2 = src.getInt(index + 16);
+            return big ? new Address(w0, w1, w2)
+                    : new Address(Long.reverseBytes(w0), Long.reverseBytes(w1), Integer.reverseBytes(w2));
+        }
+
+        // Reads an address at the position of src and advances it.
+        public static Address readFrom(ByteBuffer src) {
+            Address a = fromBuffer(src, src.position());
+            src.position(src.position() + ADDRESS_LENGTH);
+            return a;
+        }
+
         public static Address fromBigInteger(BigInteger bigInteger) {
             return fromBytes(bigInteger.toByteArray());
         }
@@ -118,23 +307,77 @@ public final class CommonTypes {
             return fromBytes(HexUtil.decode(hexString));
         }
 
+        // Returns the address held in the low 160 bits of value.
+        public static Address fromUInt256(UInt256 value) {
+            return new Address((value.u1 >>> 32) | (value.u2 << 32), (value.u0 >>> 32) | (value.u1 << 32), (int) value.u0);
+        }
+
         public static boolean isHexStringAddress(String hexString) {
-            if (hexString.startsWith("0x") || hexString.startsWith("0X")) {
-                hexString = hexString.substring(2);
-            }
-            return hexString.length() == 2 * ADDRESS_LENGTH && isHex(hexString);
+            return HexValidator.isHexString(hexString, 0, hexString.length(), ADDRESS_LENGTH);
         }
 
         public byte[] getBytes() {
-            return Arrays.copyOf(bytes, bytes.length);
+            byte[] out = new byte[ADDRESS_LENGTH];
+            copyTo(out, 0);
+            return out;
+        }
+
+        // Copies the bytes of the address into dst starting at off.
+        public void copyTo(byte[] dst, int off) {
+            Objects.checkFromIndexSize(off, ADDRESS_LENGTH, dst.length);
+            LONGS.set(dst, off, w0);
+            LONGS.set(dst, off + 8, w1);
+            INTS.set(dst, off + 16, w2);
         }
 
+        // Writes the bytes of the address at the position of dst and advances it.
+        public ByteBuffer writeTo(ByteBuffer dst) {
+            boolean big = dst.order() == ByteOrder.BIG_ENDIAN;
+            return dst.putLong(big ? w0 : Long.reverseBytes(w0))
+                    .putLong(big ? w1 : Long.reverseBytes(w1))
+                    .putInt(big ? w2 : Integer.reverseBytes(w2));
+        }
+
+        // Returns byte i of the address.
+        public byte byteAt(int i) {
+            Objects.checkIndex(i, ADDRESS_LENGTH);
+            return switch (i >>> 3) {
+                case 0 -> (byte) (w0 >>> (56 - ((i & 7) << 3)));
+                case 1 -> (byte) (w1 >>> (56 - ((i & 7) << 3)));
+                default -> (byte) (w2 >>> (24 - ((i & 3) << 3)));
+            };
+        }
+
+        // Returns the address left-padded to a 32 byte hash.
         public Hash toHash() {
-            return Hash.fromBytes(bytes);
+            return new Hash(0, w0 >>> 32, (w0 << 32) | (w1 >>> 32), (w1 << 32) | (w2 & 0xffffffffL));
+        }
+
+        public UInt256 toUInt256() {
+            return UInt256.of((w1 << 32) | (w2 & 0xffffffffL), (w0 << 32) | (w1 >>> 32), w0 >>> 32, 0);
+        }
+
+        // Writes the lowercase hex encoding of the address into dst starting at dstOff and
+        // returns the index just past the last character written.
+        public int encodeHex(char[] dst, int dstOff, boolean prefix) {
+            int p = dstOff;
+            if (prefix) {
+                dst[p++] = '0';
+                dst[p++] = 'x';
+            }
+            p = HexEncoder.encodeLong(w0, 8, dst, p);
+            p = HexEncoder.encodeLong(w1, 8, dst, p);
+            return HexEncoder.encodeLong(w2, 4, dst, p);
         }
 
+        // Returns the EIP-55 checksummed hex encoding, computed on first use and cached.
         public String toHexString() {
-            return checksumAddress(bytes);
+            String s = checksum;
+            if (s == null) {
+                s = checksumAddress(this);
+                checksum = s;
+            }
+            return s;
         }
 
         @Override
@@ -147,13 +390,24 @@ public final class CommonTypes {
             if (o == null || getClass() != o.getClass()) return false;
             Address address = (Address)
             o;
-            return Arrays.equals(bytes, address.bytes);
+            return w0 == address.w0 && w1 == address.w1 && w2 == address.w2;
         }
 
         @Override
         public int hashCode() {
-            return Arrays.hashCode(bytes);
+            return mix(mix(w0) + w1) + w2;
+        }
 
+        // Orders addresses as unsigned big-endian byte strings, the order of their hex forms. As
+        // with Hash, an Address and an UnprefixedAddress of the same bytes compare as 0 but are
+        // not equal.
+        @Override
+        public int compareTo(Address o) {
+            int c = Long.compareUnsigned(w0, o.w0);
+            if (c == 0 && (c = Long.compareUnsigned(w1, o.w1)) == 0) {
+                c = Integer.compareUnsigned(w2, o.w2);
+            }
+            return c;
         }
 
         public static final class Formatter extends Format {
@@ -161,8 +415,6 @@ public final class CommonTypes {
             public StringBuffer format(Object obj, StringBuffer buffer, FieldPosition fieldPosition) {
                 if (obj instanceof Address) {
                     Address address = (Address) obj;
-                    String prefix = "0x";
-                    buffer.append(prefix);
                     buffer.append(address.toHexString());
                 } else {
                     throw new IllegalArgumentException("Object must be of type Address");
@@ -170,8 +422,17 @@ public final class CommonTypes {
                 return buffer;
             }
 
+            // Parses a 0x-prefixed address at the index of pos and advances it. The digits may be
+            // of either case and must not run on into further letters or digits.
             @Override
             public Object parseObject(String source, ParsePosition pos) {
+                HexTokenScanner s = HexTokenScanner.of(source);
+                int i = pos.getIndex();
+                if (s.lookingAt(i) && s.kind() == HexTokenScanner.Kind.ADDRESS) {
+                    pos.setIndex(s.end());
+                    return Address.fromBytes(s.value(), 0);
+                }
+                pos.setErrorIndex(i);
                 return null;
             }
         }
@@ -179,29 +440,25 @@ public final class CommonTypes {
         // Similar implementations for Scan, Value, ImplementsGraphQLType and UnmarshalGraphQL
         // can be defined here using corresponding Java libraries like JdbcTemplate or Jackson.
 
-        private static String checksumAddress(byte[] addressBytes) {
-            try {
-                MessageDigest digest = MessageDigest.getInstance("SHA3-256");
-                digest.update(addressBytes);
-                byte[] hash = digest.digest();
-
-                StringBuilder hexString = new StringBuilder("0x");
-                for (int i = 2; i < addressBytes.length; i++) {
-                    byte hashByte = hash[(i - 2) / 2];
-                    if (i % 2 == 0) {
-                        hashByte >>= 4;
-                    } else {
-                        hashByte &= 0xf;
-                    }
-                    if (addressBytes[i] > '9' && hashByte > 7) {
-                        addressBytes[i] -= 32;
+        // Renders the EIP-55 mixed-case encoding: a letter digit is upper-cased when the
+        // matching nibble of the Keccak-256 hash of the lowercase hex digits is 8 or more.
+        private static String checksumAddress(Address address) {
+            byte[] out = new byte[HexEncoder.encodedLength(ADDRESS_LENGTH, true)];
+            out[0] = '0';
+            out[1] = 'x';
+            int p = HexEncoder.encodeLong(address.w0, 8, out, 2);
+            p = HexEncoder.encodeLong(address.w1, 8, out, p);
+            HexEncoder.encodeLong(address.w2, 4, out, p);
+            Hash hash = Keccak.internal256().update(out, 2, 2 * ADDRESS_LENGTH).digestHash();
+            for (int i = 0; i < 2 * ADDRESS_LENGTH; i++) {
+                if (out[2 + i] >= 'a') {
+                    int nibble = hash.byteAt(i >>> 1) >>> ((i & 1) == 0 ? 4 : 0);
+                    if ((nibble & 0x8) != 0) {
+                        out[2 + i] -= 32;
                     }
-                    hexString.append(String.format("%02x", addressBytes[i]));
                 }
-                return hexString.toString();
-            } catch (NoSuchAlgorithmException e) {
-                throw new RuntimeException(e);
             }
+            return new String(out, StandardCharsets.ISO_8859_1);
         }
     }
 
@@ -225,7 +482,7 @@ public final class CommonTypes {
 
         @Override
         public String toHexString() {
-            return super.toHexString().substring(2);
+            return toHexString(false);
         }
     }
 
@@ -269,10 +526,16 @@ public final class CommonTypes {
         }
 
         public static MixedcaseAddress fromHexString(String hexString) throws HexUtil.HexUtilException {
-            if (!Address.isHexStringAddress(hexString)) {
+            // Accepts what isHexStringAddress does, including an unprefixed address, validating
+            // and decoding in one pass.
+            int len = hexString.length();
+            int start = len == 2 * ADDRESS_LENGTH + 2 && HexDecoder.hasPrefix(hexString, 0, len) ? 2 : 0;
+            byte[] bytes = new byte[ADDRESS_LENGTH];
+            if (len - start != 2 * ADDRESS_LENGTH
+                    || HexDecoder.tryDecodeDigits(hexString, start, len, bytes, 0) != ADDRESS_LENGTH) {
                 throw new IllegalArgumentException("Invalid address: " + hexString);
             }
-            return new MixedcaseAddress(Address.fromHexString(hexString), hexString);
+            return new MixedcaseAddress(Address.fromBytes(bytes), hexString);
         }
 
         public Address getAddress() {
@@ -288,8 +551,14 @@ public final class CommonTypes {
             return String.format("%s [%s]", original, isValidChecksum() ? "checksum ok" : "checksum INVALID");
         }
 
+        // Reports whether the original text, with or without 0x prefix, is the EIP-55
+        // checksummed encoding of the address.
         public boolean isValidChecksum() {
-            return original.equals(address.toHexString());
+            String checksum = address.toHexString();
+            if (original.startsWith("0x")) {
+                return original.equals(checksum);
+            }
+            return original.length() == 2 * ADDRESS_LENGTH && checksum.regionMatches(2, original, 0, 2 * ADDRESS_LENGTH);
         }
     }
     }
\ No newline at end of file
@@ -0,0 +1,245 @@
+package org.eth.common;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// InternDictionary canonicalises values such as Address and Hash and gives each distinct value
+// a dense int id, so indexes can hold 4-byte ids instead of object references and equal values
+// share one instance. Ids are handed out in insertion order starting at 0.
+//
+// The dictionary is safe for concurrent use. An unbounded dictionary keeps every value and never
+// reuses an id. A bounded one evicts values that have not been looked up recently once it holds
+// more than its capacity, using the CLOCK approximation of LRU: every lookup sets a referenced
+// bit, and the eviction sweep clears bits and evicts the values whose bit was already clear.
+// Evicted ids are recycled for new values, so ids, pages and the sweep stay within about
+// capacity slots however many values pass through; a stale id of a bounded dictionary may
+// resolve to null or to a newer value.
+public final class InternDictionary<T> {
+
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final ConcurrentHashMap<T, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final int capacity;
+    private final Object evictionLock = new Object();
+
+    // id -> value, in pages of PAGE_SIZE so that growing never copies the values.
+    private volatile AtomicReferenceArray<T>[] pages;
+    // Referenced bits for CLOCK, parallel to pages. Races on these only make eviction less exact.
+    private volatile byte[][] referenced;
+    // Next id examined by the eviction sweep. Guarded by evictionLock.
+    private int clock;
+    // Evicted ids waiting to be reused, a stack of freeCount entries. Guarded by freeLock, which
+    // is never held while taking another lock, as add holds a map lock when it takes it.
+    private final Object freeLock = new Object();
+    private int[] freeIds = new int[0];
+    private int freeCount;
+
+    private InternDictionary(int capacity) {
+        this.capacity = capacity;
+        this.pages = newPages(0);
+        this.referenced = new byte[0][];
+    }
+
+    public static <T> InternDictionary<T> unbounded() {
+        return new InternDictionary<>(0);
+    }
+
+    // Returns a dictionary holding at most capacity values.
+    public static <T> InternDictionary<T> bounded(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        return new InternDictionary<>(capacity);
+    }
+
+    // Returns the id of value, adding it if it is not present.
+    public int intern(T value) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            // A new value starts unreferenced and survives the sweep only if it is looked up
+            // again before the clock hand reaches it.
+            id = ids.computeIfAbsent(value, this::add);
+            if (capacity > 0 && ids.size() > capacity) {
+                evict();
+            }
+            return id;
+        }
+        touch(id);
+        return id;
+    }
+
+    // Returns the canonical instance equal to value, adding value if it is not present.
+    public T canonical(T value) {
+        return canonical(value, intern(value));
+    }
+
+    // Returns the canonical instance for value given the id intern returned for it. In a bounded
+    // dictionary the value may have been evicted and the id recycled for another value since, so
+    // the instance found is checked and value interned once more if it does not match.
+    T canonical(T value, int id) {
+        T v = get(id);
+        if (v != null && v.equals(value)) {
+            return v;
+        }
+        v = get(intern(value));
+        return v != null && v.equals(value) ? v : value;
+    }
+
+    // Interns every value of values and writes its id to dst starting at dstOff.
+    public void internAll(Collection<? extends T> values, int[] dst, int dstOff) {
+        Objects.checkFromIndexSize(dstOff, values.size(), dst.length);
+        int i = dstOff;
+        for (T value : values) {
+            dst[i++] = intern(value);
+        }
+    }
+
+    public int[] internAll(Collection<? extends T> values) {
+        int[] out = new int[values.size()];
+        internAll(values, out, 0);
+        return out;
+    }
+
+    // Returns the id of value, or -1 if it is not present.
+    public int idOf(T value) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            return -1;
+        }
+        touch(id);
+        return id;
+    }
+
+    // Returns the value with the given id, or null if the id is unknown or was evicted.
+    public T get(int id) {
+        AtomicReferenceArray<T>[] p = pages;
+        if (id < 0 || (id >>> PAGE_SHIFT) >= p.length) {
+            return null;
+        }
+        AtomicReferenceArray<T> page = p[id >>> PAGE_SHIFT];
+        return page == null ? null : page.get(id & PAGE_MASK);
+    }
+
+    // Returns the number of values currently held.
+    public int size() {
+        return ids.size();
+    }
+
+    // Returns an upper bound for every id: the number of ids handed out so far, or for a bounded
+    // dictionary the most ids ever in use at once.
+    public int idLimit() {
+        return nextId.get();
+    }
+
+    // Allocates the id for a new value. Runs inside computeIfAbsent, so the value is stored
+    // before any other thread can see its id.
+    private Integer add(T value) {
+        if (capacity > 0) {
+            synchronized (freeLock) {
+                if (freeCount > 0) {
+                    int id = freeIds[--freeCount];
+                    // A lookup racing with the eviction may have marked the slot since.
+                    referenced[id >>> PAGE_SHIFT][id & PAGE_MASK] = 0;
+                    pages[id >>> PAGE_SHIFT].set(id & PAGE_MASK, value);
+                    return id;
+                }
+            }
+        }
+        int id = nextId.getAndIncrement();
+        if (id < 0) {
+            nextId.set(Integer.MIN_VALUE);
+            throw new IllegalStateException("InternDictionary ran out of ids");
+        }
+        int index = id >>> PAGE_SHIFT;
+        if (index >= pages.length || pages[index] == null) {
+            grow(index);
+        }
+        pages[index].set(id & PAGE_MASK, value);
+        return id;
+    }
+
+    private synchronized void grow(int index) {
+        AtomicReferenceArray<T>[] p = pages;
+        byte[][] r = referenced;
+        if (index >= p.length) {
+            int n = Math.max(index + 1, p.length * 2);
+            AtomicReferenceArray<T>[] np = newPages(n);
+            System.arraycopy(p, 0, np, 0, p.length);
+            byte[][] nr = new byte[n][];
+            System.arraycopy(r, 0, nr, 0, r.length);
+            p = np;
+            r = nr;
+        }
+        if (p[index] == null) {
+            p[index] = new AtomicReferenceArray<>(PAGE_SIZE);
+            r[index] = new byte[PAGE_SIZE];
+        }
+        referenced = r;
+        pages = p;
+    }
+
+    private void touch(int id) {
+        if (capacity > 0) {
+            byte[] r = referenced[id >>> PAGE_SHIFT];
+            if (r[id & PAGE_MASK] == 0) {
+                r[id & PAGE_MASK] = 1;
+            }
+        }
+    }
+
+    private void evict() {
+        synchronized (evictionLock) {
+            while (ids.size() > capacity) {
+                int limit = nextId.get();
+                if (clock >= limit) {
+                    clock = 0;
+                }
+                int id = clock++;
+                AtomicReferenceArray<T> page = pages[id >>> PAGE_SHIFT];
+                T value = page == null ? null : page.get(id & PAGE_MASK);
+                if (value == null) {
+                    continue;
+                }
+                byte[] r = referenced[id >>> PAGE_SHIFT];
+                if (r[id & PAGE_MASK] != 0) {
+                    r[id & PAGE_MASK] = 0;
+                } else if (ids.remove(value, id)) {
+                    page.set(id & PAGE_MASK, null);
+                    release(id);
+                }
+            }
+        }
+    }
+
+    private void release(int id) {
+        synchronized (freeLock) {
+            if (freeCount == freeIds.length) {
+                freeIds = Arrays.copyOf(freeIds, Math.max(16, 2 * freeCount));
+            }
+            freeIds[freeCount++] = id;
+        }
+    }
+
+    // Returns the number of pages allocated, for tests.
+    int pageCount() {
+        int n = 0;
+        for (AtomicReferenceArray<T> page : pages) {
+            if (page != null) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> AtomicReferenceArray<T>[] newPages(int n) {
+        return (AtomicReferenceArray<T>[]) new AtomicReferenceArray[n];
+    }
+}
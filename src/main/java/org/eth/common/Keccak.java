@@ -0,0 +1,319 @@
+package org.eth.common;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+import static org.eth.common.CommonTypes.Hash;
+
+// Keccak is the original Keccak sponge used by Ethereum, which differs from the standardised
+// SHA3 only in its padding byte (0x01 instead of 0x06), so MessageDigest's SHA3-256 cannot be
+// used in its place. The state is a long[25] of little-endian lanes and the permutation keeps
+// all lanes in locals, so hashing allocates nothing once an instance exists.
+//
+// An instance is not thread-safe. The static helpers, and the hashing done elsewhere in the
+// library, use per-thread instances of their own, separate from those local256 and local512
+// hand out.
+public final class Keccak {
+
+    public static final int KECCAK256_LENGTH = 32;
+    public static final int KECCAK512_LENGTH = 64;
+
+    private static final VarHandle LANES = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    // Reads lanes of direct buffers without touching the caller's byte order.
+    private static final VarHandle BUFFER_LANES = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long[] RC = {
+            0x0000000000000001L, 0x0000000000008082L, 0x800000000000808aL, 0x8000000080008000L,
+            0x000000000000808bL, 0x0000000080000001L, 0x8000000080008081L, 0x8000000000008009L,
+            0x000000000000008aL, 0x0000000000000088L, 0x0000000080008009L, 0x000000008000000aL,
+            0x000000008000808bL, 0x800000000000008bL, 0x8000000000008089L, 0x8000000000008003L,
+            0x8000000000008002L, 0x8000000000000080L, 0x000000000000800aL, 0x800000008000000aL,
+            0x8000000080008081L, 0x8000000000008080L, 0x0000000080000001L, 0x8000000080008008L
+    };
+
+    private static final ThreadLocal<Keccak> LOCAL256 = ThreadLocal.withInitial(Keccak::keccak256);
+    private static final ThreadLocal<Keccak> LOCAL512 = ThreadLocal.withInitial(Keccak::keccak512);
+    // Used by the static helpers and the library, so they never reset a caller's instance.
+    private static final ThreadLocal<Keccak> INTERNAL256 = ThreadLocal.withInitial(Keccak::keccak256);
+    private static final ThreadLocal<Keccak> INTERNAL512 = ThreadLocal.withInitial(Keccak::keccak512);
+
+    private final long[] state = new long[25];
+    // Bytes per block; the digest fits in one block for both variants.
+    private final int rate;
+    private final int digestLength;
+    // Number of bytes absorbed into the current block.
+    private int pos;
+
+    private Keccak(int digestLength) {
+        this.digestLength = digestLength;
+        this.rate = 200 - 2 * digestLength;
+    }
+
+    public static Keccak keccak256() {
+        return new Keccak(KECCAK256_LENGTH);
+    }
+
+    public static Keccak keccak512() {
+        return new Keccak(KECCAK512_LENGTH);
+    }
+
+    // Returns the calling thread's Keccak-256 instance, reset and ready for input. Every call
+    // on the thread returns the same instance, so it must not be held across code that may
+    // itself call local256; the library's own hashing does not.
+    public static Keccak local256() {
+        return LOCAL256.get().reset();
+    }
+
+    // Returns the calling thread's Keccak-512 instance, reset and ready for input; see local256.
+    public static Keccak local512() {
+        return LOCAL512.get().reset();
+    }
+
+    // Returns the library's per-thread Keccak-256 instance, reset. Holders must not call back
+    // into code that may use it before they are done.
+    static Keccak internal256() {
+        return INTERNAL256.get().reset();
+    }
+
+    // Writes the Keccak-256 hash of src[off, off + len) into dst at dstOff.
+    public static void hash256(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        internal256().update(src, off, len).digest(dst, dstOff);
+    }
+
+    // Writes the Keccak-512 hash of src[off, off + len) into dst at dstOff.
+    public static void hash512(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        INTERNAL512.get().reset().update(src, off, len).digest(dst, dstOff);
+    }
+
+    public static byte[] hash256(byte[] src) {
+        byte[] out = new byte[KECCAK256_LENGTH];
+        hash256(src, 0, src.length, out, 0);
+        return out;
+    }
+
+    public static byte[] hash512(byte[] src) {
+        byte[] out = new byte[KECCAK512_LENGTH];
+        hash512(src, 0, src.length, out, 0);
+        return out;
+    }
+
+    // Returns the Keccak-256 hash of src[off, off + len) as a Hash, built straight from the
+    // state lanes.
+    public static Hash hash(byte[] src, int off, int len) {
+        return internal256().update(src, off, len).digestHash();
+    }
+
+    public static Hash hash(byte[] src) {
+        return hash(src, 0, src.length);
+    }
+
+    public int digestLength() {
+        return digestLength;
+    }
+
+    public Keccak reset() {
+        for (int i = 0; i < 25; i++) {
+            state[i] = 0;
+        }
+        pos = 0;
+        return this;
+    }
+
+    public Keccak update(byte b) {
+        state[pos >>> 3] ^= (b & 0xffL) << ((pos & 7) << 3);
+        if (++pos == rate) {
+            permute(state);
+            pos = 0;
+        }
+        return this;
+    }
+
+    public Keccak update(byte[] src, int off, int len) {
+        Objects.checkFromIndexSize(off, len, src.length);
+        int end = off + len;
+        // Finish a partial block byte by byte, then absorb whole blocks a lane at a time.
+        while (pos != 0 && off < end) {
+            update(src[off++]);
+        }
+        long[] s = state;
+        int lanes = rate >>> 3;
+        while (end - off >= rate) {
+            for (int i = 0; i < lanes; i++) {
+                s[i] ^= (long) LANES.get(src, off + (i << 3));
+            }
+            permute(s);
+            off += rate;
+        }
+        while (off < end) {
+            update(src[off++]);
+        }
+        return this;
+    }
+
+    // Absorbs the remaining bytes of src and advances its position to the limit.
+    public Keccak update(ByteBuffer src) {
+        if (src.hasArray()) {
+            int p = src.position();
+            update(src.array(), src.arrayOffset() + p, src.remaining());
+            src.position(src.limit());
+            return this;
+        }
+        int p = src.position();
+        int end = src.limit();
+        while (pos != 0 && p < end) {
+            update(src.get(p++));
+        }
+        while (end - p >= 8) {
+            state[pos >>> 3] ^= (long) BUFFER_LANES.get(src, p);
+            p += 8;
+            pos += 8;
+            if (pos == rate) {
+                permute(state);
+                pos = 0;
+            }
+        }
+        while (p < end) {
+            update(src.get(p++));
+        }
+        src.position(end);
+        return this;
+    }
+
+    // Pads and writes the digest into dst at dstOff, then resets for the next message.
+    public void digest(byte[] dst, int dstOff) {
+        Objects.checkFromIndexSize(dstOff, digestLength, dst.length);
+        pad();
+        for (int i = 0; i < digestLength >>> 3; i++) {
+            LANES.set(dst, dstOff + (i << 3), state[i]);
+        }
+        reset();
+    }
+
+    public byte[] digest() {
+        byte[] out = new byte[digestLength];
+        digest(out, 0);
+        return out;
+    }
+
+    // Pads and returns the first 32 bytes of the digest as a Hash, then resets.
+    public Hash digestHash() {
+        pad();
+        Hash h = new Hash(Long.reverseBytes(state[0]), Long.reverseBytes(state[1]),
+                Long.reverseBytes(state[2]), Long.reverseBytes(state[3]));
+        reset();
+        return h;
+    }
+
+    private void pad() {
+        state[pos >>> 3] ^= 0x01L << ((pos & 7) << 3);
+        state[(rate - 1) >>> 3] ^= 0x80L << 56;
+        permute(state);
+    }
+
+    // Keccak-f[1600]: 24 rounds of theta, rho and pi, chi and iota over the 5x5 lanes, with
+    // rho and pi merged into a single cycle of rotations.
+    static void permute(long[] s) {
+        long a00 = s[0], a01 = s[1], a02 = s[2], a03 = s[3], a04 = s[4];
+        long a05 = s[5], a06 = s[6], a07 = s[7], a08 = s[8], a09 = s[9];
+        long a10 = s[10], a11 = s[11], a12 = s[12], a13 = s[13], a14 = s[14];
+        long a15 = s[15], a16 = s[16], a17 = s[17], a18 = s[18], a19 = s[19];
+        long a20 = s[20], a21 = s[21], a22 = s[22], a23 = s[23], a24 = s[24];
+
+        for (int round = 0; round < 24; round++) {
+            long c0 = a00 ^ a05 ^ a10 ^ a15 ^ a20;
+            long c1 = a01 ^ a06 ^ a11 ^ a16 ^ a21;
+            long c2 = a02 ^ a07 ^ a12 ^ a17 ^ a22;
+            long c3 = a03 ^ a08 ^ a13 ^ a18 ^ a23;
+            long c4 = a04 ^ a09 ^ a14 ^ a19 ^ a24;
+
+            long d0 = Long.rotateLeft(c1, 1) ^ c4;
+            long d1 = Long.rotateLeft(c2, 1) ^ c0;
+            long d2 = Long.rotateLeft(c3, 1) ^ c1;
+            long d3 = Long.rotateLeft(c4, 1) ^ c2;
+            long d4 = Long.rotateLeft(c0, 1) ^ c3;
+
+            a00 ^= d0; a05 ^= d0; a10 ^= d0; a15 ^= d0; a20 ^= d0;
+            a01 ^= d1; a06 ^= d1; a11 ^= d1; a16 ^= d1; a21 ^= d1;
+            a02 ^= d2; a07 ^= d2; a12 ^= d2; a17 ^= d2; a22 ^= d2;
+            a03 ^= d3; a08 ^= d3; a13 ^= d3; a18 ^= d3; a23 ^= d3;
+            a04 ^= d4; a09 ^= d4; a14 ^= d4; a19 ^= d4; a24 ^= d4;
+
+            c1 = Long.rotateLeft(a01, 1);
+            a01 = Long.rotateLeft(a06, 44);
+            a06 = Long.rotateLeft(a09, 20);
+            a09 = Long.rotateLeft(a22, 61);
+            a22 = Long.rotateLeft(a14, 39);
+            a14 = Long.rotateLeft(a20, 18);
+            a20 = Long.rotateLeft(a02, 62);
+            a02 = Long.rotateLeft(a12, 43);
+            a12 = Long.rotateLeft(a13, 25);
+            a13 = Long.rotateLeft(a19, 8);
+            a19 = Long.rotateLeft(a23, 56);
+            a23 = Long.rotateLeft(a15, 41);
+            a15 = Long.rotateLeft(a04, 27);
+            a04 = Long.rotateLeft(a24, 14);
+            a24 = Long.rotateLeft(a21, 2);
+            a21 = Long.rotateLeft(a08, 55);
+            a08 = Long.rotateLeft(a16, 45);
+            a16 = Long.rotateLeft(a05, 36);
+            a05 = Long.rotateLeft(a03, 28);
+            a03 = Long.rotateLeft(a18, 21);
+            a18 = Long.rotateLeft(a17, 15);
+            a17 = Long.rotateLeft(a11, 10);
+            a11 = Long.rotateLeft(a07, 6);
+            a07 = Long.rotateLeft(a10, 3);
+            a10 = c1;
+
+            c0 = a00 ^ (~a01 & a02);
+            c1 = a01 ^ (~a02 & a03);
+            a02 ^= ~a03 & a04;
+            a03 ^= ~a04 & a00;
+            a04 ^= ~a00 & a01;
+            a00 = c0;
+            a01 = c1;
+
+            c0 = a05 ^ (~a06 & a07);
+            c1 = a06 ^ (~a07 & a08);
+            a07 ^= ~a08 & a09;
+            a08 ^= ~a09 & a05;
+            a09 ^= ~a05 & a06;
+            a05 = c0;
+            a06 = c1;
+
+            c0 = a10 ^ (~a11 & a12);
+            c1 = a11 ^ (~a12 & a13);
+            a12 ^= ~a13 & a14;
+            a13 ^= ~a14 & a10;
+            a14 ^= ~a10 & a11;
+            a10 = c0;
+            a11 = c1;
+
+            c0 = a15 ^ (~a16 & a17);
+            c1 = a16 ^ (~a17 & a18);
+            a17 ^= ~a18 & a19;
+            a18 ^= ~a19 & a15;
+            a19 ^= ~a15 & a16;
+            a15 = c0;
+            a16 = c1;
+
+            c0 = a20 ^ (~a21 & a22);
+            c1 = a21 ^ (~a22 & a23);
+            a22 ^= ~a23 & a24;
+            a23 ^= ~a24 & a20;
+            a24 ^= ~a20 & a21;
+            a20 = c0;
+            a21 = c1;
+
+            a00 ^= RC[round];
+        }
+
+        s[0] = a00; s[1] = a01; s[2] = a02; s[3] = a03; s[4] = a04;
+        s[5] = a05; s[6] = a06; s[7] = a07; s[8] = a08; s[9] = a09;
+        s[10] = a10; s[11] = a11; s[12] = a12; s[13] = a13; s[14] = a14;
+        s[15] = a15; s[16] = a16; s[17] = a17; s[18] = a18; s[19] = a19;
+        s[20] = a20; s[21] = a21; s[22] = a22; s[23] = a23; s[24] = a24;
+    }
+}
@@ -0,0 +1,149 @@
+package org.eth.common;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static org.eth.common.CommonTypes.HASH_LENGTH;
+import static org.eth.common.CommonTypes.Hash;
+
+// KeccakBatch computes the Keccak-256 digests of many independent inputs, such as the storage
+// slot keys or transaction hashes of a block, and writes them back to back into one output
+// array: digest i occupies bytes [i * 32, (i + 1) * 32). Inputs are either slices of one packed
+// array delimited by an offsets array (input i is data[offsets[i], offsets[i + 1])) or a list
+// of arrays.
+//
+// Each worker hashes through its thread's Keccak instance, so a batch allocates nothing per
+// input. Batches of at least parallelThreshold inputs are split across a ForkJoinPool.
+public final class KeccakBatch {
+
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1024;
+
+    // Number of inputs below which a task hashes sequentially instead of splitting.
+    private static final int LEAF_SIZE = 256;
+
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+
+    public KeccakBatch() {
+        this(DEFAULT_PARALLEL_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    public KeccakBatch(int parallelThreshold, ForkJoinPool pool) {
+        this.parallelThreshold = parallelThreshold;
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    // Hashes the offsets.length - 1 inputs of the packed data array and returns the digests.
+    public byte[] hash(byte[] data, int[] offsets) {
+        int count = offsets.length - 1;
+        byte[] out = new byte[Math.multiplyExact(Math.max(count, 0), HASH_LENGTH)];
+        hash(data, offsets, count, out, 0);
+        return out;
+    }
+
+    // Hashes inputs data[offsets[i], offsets[i + 1]) for i < count into dst starting at dstOff.
+    public void hash(byte[] data, int[] offsets, int count, byte[] dst, int dstOff) {
+        Objects.checkFromIndexSize(0, count + 1, offsets.length);
+        Objects.checkFromIndexSize(dstOff, Math.multiplyExact(count, HASH_LENGTH), dst.length);
+        for (int i = 0; i < count; i++) {
+            Objects.checkFromToIndex(offsets[i], offsets[i + 1], data.length);
+        }
+        run(new Packed(data, offsets), count, dst, dstOff);
+    }
+
+    public byte[] hash(List<byte[]> inputs) {
+        byte[] out = new byte[Math.multiplyExact(inputs.size(), HASH_LENGTH)];
+        hash(inputs, out, 0);
+        return out;
+    }
+
+    // Hashes every array of inputs into dst starting at dstOff.
+    public void hash(List<byte[]> inputs, byte[] dst, int dstOff) {
+        int count = inputs.size();
+        Objects.checkFromIndexSize(dstOff, Math.multiplyExact(count, HASH_LENGTH), dst.length);
+        run(new Listed(inputs), count, dst, dstOff);
+    }
+
+    // Returns digest i of a batch output as a Hash.
+    public static Hash hashAt(byte[] digests, int i) {
+        return Hash.fromBytes(digests, Math.multiplyExact(i, HASH_LENGTH));
+    }
+
+    private void run(Inputs inputs, int count, byte[] dst, int dstOff) {
+        if (count >= parallelThreshold && count > LEAF_SIZE) {
+            pool.invoke(new HashTask(inputs, 0, count, dst, dstOff));
+        } else {
+            hashRange(inputs, 0, count, dst, dstOff);
+        }
+    }
+
+    private static void hashRange(Inputs inputs, int from, int to, byte[] dst, int dstOff) {
+        Keccak k = Keccak.internal256();
+        for (int i = from; i < to; i++) {
+            inputs.absorb(k, i);
+            k.digest(dst, dstOff + i * HASH_LENGTH);
+        }
+    }
+
+    // Inputs abstracts over the two input layouts so the tasks are shared.
+    private interface Inputs {
+        void absorb(Keccak k, int i);
+    }
+
+    private static final class Packed implements Inputs {
+        private final byte[] data;
+        private final int[] offsets;
+
+        Packed(byte[] data, int[] offsets) {
+            this.data = data;
+            this.offsets = offsets;
+        }
+
+        @Override
+        public void absorb(Keccak k, int i) {
+            k.update(data, offsets[i], offsets[i + 1] - offsets[i]);
+        }
+    }
+
+    private static final class Listed implements Inputs {
+        private final List<byte[]> inputs;
+
+        Listed(List<byte[]> inputs) {
+            this.inputs = inputs;
+        }
+
+        @Override
+        public void absorb(Keccak k, int i) {
+            byte[] in = inputs.get(i);
+            k.update(in, 0, in.length);
+        }
+    }
+
+    private static final class HashTask extends RecursiveAction {
+        private final Inputs inputs;
+        private final int from;
+        private final int to;
+        private final byte[] dst;
+        private final int dstOff;
+
+        HashTask(Inputs inputs, int from, int to, byte[] dst, int dstOff) {
+            this.inputs = inputs;
+            this.from = from;
+            this.to = to;
+            this.dst = dst;
+            this.dstOff = dstOff;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                hashRange(inputs, from, to, dst, dstOff);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new HashTask(inputs, from, mid, dst, dstOff), new HashTask(inputs, mid, to, dst, dstOff));
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package org.eth.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import static org.eth.common.CommonTypes.ADDRESS_LENGTH;
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.HASH_LENGTH;
+import static org.eth.common.CommonTypes.Hash;
+
+// KeySort sorts Hash and Address arrays, and packed arrays of fixed-width keys, into unsigned
+// byte order with an MSD radix sort. Hashes and addresses are close to uniformly distributed, so
+// the first byte or two already splits the keys into small buckets that are finished with
+// insertion sort, and each key is touched a few times instead of log n times.
+//
+// Ranges of at least parallelThreshold keys are partitioned across a ForkJoinPool, each worker
+// counting and then scattering its own chunk, and the resulting buckets are sorted in parallel.
+// A sort allocates one scratch array as large as the range being sorted.
+public final class KeySort {
+
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+
+    // Ranges at most this long are finished with insertion sort.
+    private static final int INSERTION_THRESHOLD = 24;
+    // Minimum number of keys a worker counts and scatters during a parallel partition pass.
+    private static final int MIN_CHUNK = 1 << 14;
+    private static final int RADIX = 256;
+
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+
+    public KeySort() {
+        this(DEFAULT_PARALLEL_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    public KeySort(int parallelThreshold, ForkJoinPool pool) {
+        this.parallelThreshold = Math.max(parallelThreshold, 2 * MIN_CHUNK);
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    public void sort(Hash[] a) {
+        sort(a, 0, a.length);
+    }
+
+    public void sort(Hash[] a, int from, int to) {
+        Objects.checkFromToIndex(from, to, a.length);
+        run(new ObjectKeys<>(a, from, to, HASH_LENGTH) {
+            @Override
+            int digit(Hash key, int d) {
+                return key.byteAt(d) & 0xff;
+            }
+        }, from, to);
+    }
+
+    public void sort(Address[] a) {
+        sort(a, 0, a.length);
+    }
+
+    public void sort(Address[] a, int from, int to) {
+        Objects.checkFromToIndex(from, to, a.length);
+        run(new ObjectKeys<>(a, from, to, ADDRESS_LENGTH) {
+            @Override
+            int digit(Address key, int d) {
+                return key.byteAt(d) & 0xff;
+            }
+        }, from, to);
+    }
+
+    // Sorts the count keys of width bytes held back to back in data starting at off.
+    public void sort(byte[] data, int off, int count, int width) {
+        checkPacked(data, off, count, width);
+        run(new PackedKeys(data, off, count, width), 0, count);
+    }
+
+    // Sorts a and removes duplicates, returning the number of distinct keys left at its front.
+    public int sortUnique(Hash[] a) {
+        sort(a);
+        return dedupe(a, 0, a.length);
+    }
+
+    public int sortUnique(Address[] a) {
+        sort(a);
+        return dedupe(a, 0, a.length);
+    }
+
+    public int sortUnique(byte[] data, int off, int count, int width) {
+        sort(data, off, count, width);
+        return dedupe(data, off, count, width);
+    }
+
+    // Compacts the sorted range a[from, to) in place so each distinct key appears once, and
+    // returns the end of the distinct keys. Keys are distinct by compareTo, as in a TreeSet, so
+    // of a Hash and an UnprefixedHash with the same bytes only the first is kept. Slots past the
+    // end keep stale references.
+    public static <K extends Comparable<? super K>> int dedupe(K[] a, int from, int to) {
+        Objects.checkFromToIndex(from, to, a.length);
+        if (to - from < 2) {
+            return to;
+        }
+        int w = from + 1;
+        for (int r = from + 1; r < to; r++) {
+            if (a[r].compareTo(a[w - 1]) != 0) {
+                a[w++] = a[r];
+            }
+        }
+        return w;
+    }
+
+    // Compacts count sorted packed keys in place and returns the number of distinct keys.
+    public static int dedupe(byte[] data, int off, int count, int width) {
+        checkPacked(data, off, count, width);
+        if (count < 2) {
+            return count;
+        }
+        int w = 1;
+        for (int r = 1; r < count; r++) {
+            int p = off + r * width;
+            int q = off + (w - 1) * width;
+            if (!Arrays.equals(data, p, p + width, data, q, q + width)) {
+                System.arraycopy(data, p, data, off + w * width, width);
+                w++;
+            }
+        }
+        return w;
+    }
+
+    private static void checkPacked(byte[] data, int off, int count, int width) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("Key width must be positive");
+        }
+        Objects.checkFromIndexSize(off, Math.multiplyExact(count, width), data.length);
+    }
+
+    private void run(Keys keys, int lo, int hi) {
+        if (hi - lo >= parallelThreshold) {
+            pool.invoke(new SortTask(keys, lo, hi, 0, parallelThreshold));
+        } else {
+            sortRange(keys, lo, hi, 0);
+        }
+    }
+
+    // Sorts [lo, hi), whose keys share their first d bytes.
+    private static void sortRange(Keys keys, int lo, int hi, int d) {
+        while (hi - lo > INSERTION_THRESHOLD && d < keys.width) {
+            int[] counts = new int[RADIX + 1];
+            keys.count(lo, hi, d, counts);
+            if (!isSingleBucket(counts, hi - lo)) {
+                for (int b = 0; b < RADIX; b++) {
+                    counts[b + 1] += counts[b];
+                }
+                int[] next = new int[RADIX];
+                for (int b = 0; b < RADIX; b++) {
+                    next[b] = lo + counts[b];
+                }
+                keys.scatter(lo, hi, d, next);
+                keys.copyBack(lo, hi);
+                for (int b = 0; b < RADIX; b++) {
+                    if (counts[b + 1] - counts[b] > 1) {
+                        sortRange(keys, lo + counts[b], lo + counts[b + 1], d + 1);
+                    }
+                }
+                return;
+            }
+            d++;
+        }
+        if (d < keys.width) {
+            keys.insertionSort(lo, hi, d);
+        }
+    }
+
+    private static boolean isSingleBucket(int[] counts, int n) {
+        for (int b = 1; b <= RADIX; b++) {
+            if (counts[b] != 0) {
+                return counts[b] == n;
+            }
+        }
+        return true;
+    }
+
+    // Keys abstracts over the key layouts so the sort is shared. Digit d of a key is its byte d;
+    // the bulk methods work on whole ranges so the per-key loops are monomorphic.
+    private abstract static class Keys {
+        final int width;
+
+        Keys(int width) {
+            this.width = width;
+        }
+
+        // Adds one to counts[digit + 1] for digit d of every key in [lo, hi).
+        abstract void count(int lo, int hi, int d, int[] counts);
+
+        // Copies each key in [lo, hi) to scratch slot next[digit]++ for its digit d.
+        abstract void scatter(int lo, int hi, int d, int[] next);
+
+        // Copies scratch slots [lo, hi) back over the keys.
+        abstract void copyBack(int lo, int hi);
+
+        // Sorts [lo, hi), whose keys share their first d bytes.
+        abstract void insertionSort(int lo, int hi, int d);
+    }
+
+    private abstract static class ObjectKeys<K extends Comparable<K>> extends Keys {
+        private final K[] a;
+        private final K[] aux;
+        private final int base;
+
+        ObjectKeys(K[] a, int from, int to, int width) {
+            super(width);
+            this.a = a;
+            this.aux = Arrays.copyOf(a, to - from);
+            this.base = from;
+        }
+
+        abstract int digit(K key, int d);
+
+        @Override
+        void count(int lo, int hi, int d, int[] counts) {
+            for (int i = lo; i < hi; i++) {
+                counts[digit(a[i], d) + 1]++;
+            }
+        }
+
+        @Override
+        void scatter(int lo, int hi, int d, int[] next) {
+            for (int i = lo; i < hi; i++) {
+                K key = a[i];
+                aux[next[digit(key, d)]++ - base] = key;
+            }
+        }
+
+        @Override
+        void copyBack(int lo, int hi) {
+            System.arraycopy(aux, lo - base, a, lo, hi - lo);
+        }
+
+        @Override
+        void insertionSort(int lo, int hi, int d) {
+            for (int i = lo + 1; i < hi; i++) {
+                K key = a[i];
+                int j = i - 1;
+                while (j >= lo && a[j].compareTo(key) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = key;
+            }
+        }
+    }
+
+    private static final class PackedKeys extends Keys {
+        private final byte[] data;
+        private final int off;
+        private final byte[] aux;
+
+        PackedKeys(byte[] data, int off, int count, int width) {
+            super(width);
+            this.data = data;
+            this.off = off;
+            this.aux = new byte[count * width];
+        }
+
+        @Override
+        void count(int lo, int hi, int d, int[] counts) {
+            for (int p = off + lo * width + d, end = off + hi * width; p < end; p += width) {
+                counts[(data[p] & 0xff) + 1]++;
+            }
+        }
+
+        @Override
+        void scatter(int lo, int hi, int d, int[] next) {
+            for (int p = off + lo * width, end = off + hi * width; p < end; p += width) {
+                System.arraycopy(data, p, aux, next[data[p + d] & 0xff]++ * width, width);
+            }
+        }
+
+        @Override
+        void copyBack(int lo, int hi) {
+            System.arraycopy(aux, lo * width, data, off + lo * width, (hi - lo) * width);
+        }
+
+        @Override
+        void insertionSort(int lo, int hi, int d) {
+            byte[] key = new byte[width];
+            for (int i = lo + 1; i < hi; i++) {
+                int p = off + i * width;
+                System.arraycopy(data, p, key, 0, width);
+                int j = i - 1;
+                while (j >= lo && Arrays.compareUnsigned(data, off + j * width + d, off + (j + 1) * width,
+                        key, d, width) > 0) {
+                    j--;
+                }
+                int q = off + (j + 1) * width;
+                if (q != p) {
+                    System.arraycopy(data, q, data, q + width, p - q);
+                    System.arraycopy(key, 0, data, q, width);
+                }
+            }
+        }
+    }
+
+    // SortTask partitions a large range in parallel on digit d, then sorts the buckets as
+    // subtasks, falling back to the sequential sort once a range is below the threshold.
+    private static final class SortTask extends RecursiveAction {
+        private final Keys keys;
+        private final int lo;
+        private final int hi;
+        private final int d;
+        private final int threshold;
+
+        SortTask(Keys keys, int lo, int hi, int d, int threshold) {
+            this.keys = keys;
+            this.lo = lo;
+            this.hi = hi;
+            this.d = d;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            int n = hi - lo;
+            if (n < threshold || d >= keys.width) {
+                sortRange(keys, lo, hi, d);
+                return;
+            }
+            int parallelism = getPool().getParallelism();
+            int chunk = Math.max(MIN_CHUNK, (n + 4 * parallelism - 1) / (4 * parallelism));
+            int chunks = (n + chunk - 1) / chunk;
+            int[][] counts = new int[chunks][RADIX + 1];
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks);
+            for (int c = 0; c < chunks; c++) {
+                int from = lo + c * chunk;
+                int to = Math.min(hi, from + chunk);
+                int[] cc = counts[c];
+                tasks.add(ForkJoinTask.adapt(() -> keys.count(from, to, d, cc)));
+            }
+            invokeAll(tasks);
+
+            // Bucket b starts at starts[b]; chunk c scatters its keys of bucket b after those of
+            // the chunks before it.
+            int[] starts = new int[RADIX + 1];
+            starts[0] = lo;
+            for (int b = 0; b < RADIX; b++) {
+                int total = 0;
+                for (int c = 0; c < chunks; c++) {
+                    total += counts[c][b + 1];
+                }
+                starts[b + 1] = starts[b] + total;
+            }
+            for (int b = 0; b < RADIX; b++) {
+                if (starts[b + 1] - starts[b] == n) {
+                    new SortTask(keys, lo, hi, d + 1, threshold).compute();
+                    return;
+                }
+            }
+            int[][] next = new int[chunks][RADIX];
+            for (int b = 0; b < RADIX; b++) {
+                int at = starts[b];
+                for (int c = 0; c < chunks; c++) {
+                    next[c][b] = at;
+                    at += counts[c][b + 1];
+                }
+            }
+            tasks.clear();
+            for (int c = 0; c < chunks; c++) {
+                int from = lo + c * chunk;
+                int to = Math.min(hi, from + chunk);
+                int[] nc = next[c];
+                tasks.add(ForkJoinTask.adapt(() -> keys.scatter(from, to, d, nc)));
+            }
+            invokeAll(tasks);
+            tasks.clear();
+            for (int c = 0; c < chunks; c++) {
+                int from = lo + c * chunk;
+                int to = Math.min(hi, from + chunk);
+                tasks.add(ForkJoinTask.adapt(() -> keys.copyBack(from, to)));
+            }
+            invokeAll(tasks);
+
+            tasks.clear();
+            for (int b = 0; b < RADIX; b++) {
+                if (starts[b + 1] - starts[b] > 1) {
+                    tasks.add(new SortTask(keys, starts[b], starts[b + 1], d + 1, threshold));
+                }
+            }
+            invokeAll(tasks);
+        }
+    }
+}
@@ -0,0 +1,788 @@
+package org.eth.common;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.eth.common.CommonTypes.ADDRESS_LENGTH;
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.HASH_LENGTH;
+import static org.eth.common.CommonTypes.Hash;
+
+// KeyedCollections holds sets and maps keyed by Hash or Address that store the keys inline as
+// long limbs in one flat array, with linear-probing open addressing. An entry costs the key's
+// 32 (or 24) bytes plus the value slot, instead of a node, a key object and a boxed value.
+//
+// Keys are usually Keccak output, so the home bucket is taken straight from the low key bits
+// without further mixing. Deletion shifts later entries back instead of leaving tombstones.
+//
+// Entries are visited through slot indexes, which allocates nothing per entry:
+//
+//     for (int s = map.first(); s >= 0; s = map.next(s)) {
+//         map.copyKeyAt(s, buf, 0);
+//         long v = map.valueAt(s);
+//     }
+//
+// Slots are only stable while the collection is not modified. None of the classes is
+// thread-safe.
+public final class KeyedCollections {
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private KeyedCollections() {
+    }
+
+    // KeyKind reads the limbs of a key type and builds keys back from them.
+    abstract static class KeyKind<K> {
+        final int width;
+
+        KeyKind(int width) {
+            this.width = width;
+        }
+
+        abstract long limb0(K key);
+
+        abstract long limb1(K key);
+
+        abstract long limb2(K key);
+
+        abstract long limb3(K key);
+
+        abstract K make(long[] keys, int off);
+
+        abstract void copy(long[] keys, int off, byte[] dst, int dstOff);
+    }
+
+    static final KeyKind<Hash> HASH = new KeyKind<>(4) {
+        @Override
+        long limb0(Hash key) {
+            return key.w0;
+        }
+
+        @Override
+        long limb1(Hash key) {
+            return key.w1;
+        }
+
+        @Override
+        long limb2(Hash key) {
+            return key.w2;
+        }
+
+        @Override
+        long limb3(Hash key) {
+            return key.w3;
+        }
+
+        @Override
+        Hash make(long[] keys, int off) {
+            return new Hash(keys[off], keys[off + 1], keys[off + 2], keys[off + 3]);
+        }
+
+        @Override
+        void copy(long[] keys, int off, byte[] dst, int dstOff) {
+            Objects.checkFromIndexSize(dstOff, HASH_LENGTH, dst.length);
+            for (int i = 0; i < 4; i++) {
+                LONGS.set(dst, dstOff + (i << 3), keys[off + i]);
+            }
+        }
+    };
+
+    // An address is stored as three limbs, the int widened to a long.
+    static final KeyKind<Address> ADDRESS = new KeyKind<>(3) {
+        @Override
+        long limb0(Address key) {
+            return key.w0;
+        }
+
+        @Override
+        long limb1(Address key) {
+            return key.w1;
+        }
+
+        @Override
+        long limb2(Address key) {
+            return key.w2;
+        }
+
+        @Override
+        long limb3(Address key) {
+            return 0;
+        }
+
+        @Override
+        Address make(long[] keys, int off) {
+            return new Address(keys[off], keys[off + 1], (int) keys[off + 2]);
+        }
+
+        @Override
+        void copy(long[] keys, int off, byte[] dst, int dstOff) {
+            Objects.checkFromIndexSize(dstOff, ADDRESS_LENGTH, dst.length);
+            LONGS.set(dst, dstOff, keys[off]);
+            LONGS.set(dst, dstOff + 8, keys[off + 1]);
+            INTS.set(dst, dstOff + 16, (int) keys[off + 2]);
+        }
+    };
+
+    // LimbTable is the open-addressing table shared by every collection: width limbs per slot
+    // in keys, and an occupancy bitset, since an all-zero key is valid.
+    abstract static class LimbTable<K> {
+        private static final int MIN_CAPACITY = 16;
+        // Longest array the VM reliably allocates.
+        private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+        final KeyKind<K> kind;
+        private final int width;
+        // Largest power of two whose width limbs per slot still fit in one array.
+        private final int maxCapacity;
+        long[] keys;
+        private long[] used;
+        private int mask;
+        private int size;
+        private int resizeAt;
+
+        LimbTable(KeyKind<K> kind, int expectedSize) {
+            if (expectedSize < 0) {
+                throw new IllegalArgumentException("Negative expected size: " + expectedSize);
+            }
+            this.kind = kind;
+            this.width = kind.width;
+            this.maxCapacity = Integer.highestOneBit(MAX_ARRAY_LENGTH / width);
+            int capacity = MIN_CAPACITY;
+            while (capacity < maxCapacity && maxFill(capacity) < expectedSize) {
+                capacity <<= 1;
+            }
+            allocate(capacity);
+        }
+
+        // Load factor 0.75.
+        private static int maxFill(int capacity) {
+            return capacity - (capacity >>> 2);
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity * width];
+            used = new long[(capacity + 63) >>> 6];
+            mask = capacity - 1;
+            resizeAt = maxFill(capacity);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public void clear() {
+            Arrays.fill(used, 0);
+            size = 0;
+            clearValues();
+        }
+
+        // Returns the first occupied slot, or -1 if the collection is empty.
+        public int first() {
+            return next(-1);
+        }
+
+        // Returns the first occupied slot after slot, or -1 if there is none.
+        public int next(int slot) {
+            int s = slot + 1;
+            int capacity = mask + 1;
+            if (s >= capacity) {
+                return -1;
+            }
+            int word = s >>> 6;
+            long bits = used[word] & (-1L << s);
+            while (bits == 0) {
+                if (++word == used.length) {
+                    return -1;
+                }
+                bits = used[word];
+            }
+            return (word << 6) + Long.numberOfTrailingZeros(bits);
+        }
+
+        // Returns the key in slot as a new object.
+        public K keyAt(int slot) {
+            checkSlot(slot);
+            return kind.make(keys, slot * width);
+        }
+
+        // Copies the bytes of the key in slot into dst at dstOff.
+        public void copyKeyAt(int slot, byte[] dst, int dstOff) {
+            checkSlot(slot);
+            kind.copy(keys, slot * width, dst, dstOff);
+        }
+
+        final void checkSlot(int slot) {
+            Objects.checkIndex(slot, mask + 1);
+            if (!isUsed(slot)) {
+                throw new IllegalArgumentException("Slot " + slot + " is empty");
+            }
+        }
+
+        private boolean isUsed(int slot) {
+            return (used[slot >>> 6] & (1L << slot)) != 0;
+        }
+
+        // The last limb holds the most variable bits for both key kinds.
+        private int home(long l2, long l3) {
+            long h = width == 4 ? l3 : l2;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        private boolean matches(int slot, long l0, long l1, long l2, long l3) {
+            int p = slot * width;
+            return keys[p] == l0 && keys[p + 1] == l1 && keys[p + 2] == l2 && (width == 3 || keys[p + 3] == l3);
+        }
+
+        // Returns the slot holding key, or -1.
+        final int find(K key) {
+            if (key == null) {
+                return -1;
+            }
+            long l0 = kind.limb0(key), l1 = kind.limb1(key), l2 = kind.limb2(key), l3 = kind.limb3(key);
+            for (int s = home(l2, l3); ; s = (s + 1) & mask) {
+                if (!isUsed(s)) {
+                    return -1;
+                }
+                if (matches(s, l0, l1, l2, l3)) {
+                    return s;
+                }
+            }
+        }
+
+        // Returns the slot holding key, inserting it if absent. A newly inserted slot is
+        // returned as -(slot + 1).
+        final int insert(K key) {
+            Objects.requireNonNull(key);
+            long l0 = kind.limb0(key), l1 = kind.limb1(key), l2 = kind.limb2(key), l3 = kind.limb3(key);
+            for (int s = home(l2, l3); ; s = (s + 1) & mask) {
+                if (!isUsed(s)) {
+                    // Grow only when a new slot is needed; the key's slot moves with the table.
+                    if (size >= resizeAt) {
+                        grow();
+                        return insert(key);
+                    }
+                    int p = s * width;
+                    keys[p] = l0;
+                    keys[p + 1] = l1;
+                    keys[p + 2] = l2;
+                    if (width == 4) {
+                        keys[p + 3] = l3;
+                    }
+                    used[s >>> 6] |= 1L << s;
+                    size++;
+                    return -(s + 1);
+                }
+                if (matches(s, l0, l1, l2, l3)) {
+                    return s;
+                }
+            }
+        }
+
+        // Removes the entry in slot, shifting back later entries of the probe run that would
+        // otherwise become unreachable.
+        final void removeSlot(int slot) {
+            int hole = slot;
+            for (int s = (hole + 1) & mask; isUsed(s); s = (s + 1) & mask) {
+                int p = s * width;
+                int h = home(keys[p + 2], width == 4 ? keys[p + 3] : 0);
+                if (((s - h) & mask) >= ((s - hole) & mask)) {
+                    System.arraycopy(keys, p, keys, hole * width, width);
+                    moveValue(s, hole);
+                    hole = s;
+                }
+            }
+            used[hole >>> 6] &= ~(1L << hole);
+            clearValue(hole);
+            size--;
+        }
+
+        private void grow() {
+            int oldCapacity = mask + 1;
+            if (oldCapacity == maxCapacity) {
+                throw new IllegalStateException("Collection is full");
+            }
+            long[] oldKeys = keys;
+            long[] oldUsed = used;
+            allocate(oldCapacity << 1);
+            int[] moved = new int[oldCapacity];
+            for (int s = 0; s < oldCapacity; s++) {
+                if ((oldUsed[s >>> 6] & (1L << s)) == 0) {
+                    moved[s] = -1;
+                    continue;
+                }
+                int p = s * width;
+                int t = home(oldKeys[p + 2], width == 4 ? oldKeys[p + 3] : 0);
+                while (isUsed(t)) {
+                    t = (t + 1) & mask;
+                }
+                System.arraycopy(oldKeys, p, keys, t * width, width);
+                used[t >>> 6] |= 1L << t;
+                moved[s] = t;
+            }
+            remapValues(moved, oldCapacity << 1);
+        }
+
+        int maxCapacity() {
+            return maxCapacity;
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+
+        // Value hooks; sets have no values.
+        void moveValue(int from, int to) {
+        }
+
+        void clearValue(int slot) {
+        }
+
+        void clearValues() {
+        }
+
+        // Rebuilds the values for a table of newCapacity slots, old slot s moving to moved[s].
+        void remapValues(int[] moved, int newCapacity) {
+        }
+    }
+
+    public abstract static class KeySet<K> extends LimbTable<K> {
+        KeySet(KeyKind<K> kind, int expectedSize) {
+            super(kind, expectedSize);
+        }
+
+        // Adds key and returns true if it was not present.
+        public boolean add(K key) {
+            return insert(key) < 0;
+        }
+
+        public boolean contains(K key) {
+            return find(key) >= 0;
+        }
+
+        public boolean remove(K key) {
+            int s = find(key);
+            if (s < 0) {
+                return false;
+            }
+            removeSlot(s);
+            return true;
+        }
+
+        public boolean addAll(Collection<? extends K> keys) {
+            boolean changed = false;
+            for (K key : keys) {
+                changed |= add(key);
+            }
+            return changed;
+        }
+
+        public boolean addAll(KeySet<K> other) {
+            boolean changed = false;
+            for (int s = other.first(); s >= 0; s = other.next(s)) {
+                changed |= add(other.keyAt(s));
+            }
+            return changed;
+        }
+
+        public boolean containsAll(Collection<? extends K> keys) {
+            for (K key : keys) {
+                if (!contains(key)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    public static final class HashKeySet extends KeySet<Hash> {
+        public HashKeySet() {
+            this(0);
+        }
+
+        public HashKeySet(int expectedSize) {
+            super(HASH, expectedSize);
+        }
+    }
+
+    public static final class AddressKeySet extends KeySet<Address> {
+        public AddressKeySet() {
+            this(0);
+        }
+
+        public AddressKeySet(int expectedSize) {
+            super(ADDRESS, expectedSize);
+        }
+    }
+
+    public abstract static class KeyedMap<K, V> extends LimbTable<K> {
+        private Object[] values;
+
+        KeyedMap(KeyKind<K> kind, int expectedSize) {
+            super(kind, expectedSize);
+            values = new Object[capacity()];
+        }
+
+        @SuppressWarnings("unchecked")
+        public V get(K key) {
+            int s = find(key);
+            return s < 0 ? null : (V) values[s];
+        }
+
+        @SuppressWarnings("unchecked")
+        public V getOrDefault(K key, V defaultValue) {
+            int s = find(key);
+            return s < 0 ? defaultValue : (V) values[s];
+        }
+
+        public boolean containsKey(K key) {
+            return find(key) >= 0;
+        }
+
+        // Associates value with key and returns the previous value, or null.
+        @SuppressWarnings("unchecked")
+        public V put(K key, V value) {
+            int s = insert(key);
+            if (s < 0) {
+                values[-s - 1] = value;
+                return null;
+            }
+            V old = (V) values[s];
+            values[s] = value;
+            return old;
+        }
+
+        @SuppressWarnings("unchecked")
+        public V remove(K key) {
+            int s = find(key);
+            if (s < 0) {
+                return null;
+            }
+            V old = (V) values[s];
+            removeSlot(s);
+            return old;
+        }
+
+        public void putAll(Map<? extends K, ? extends V> map) {
+            for (Map.Entry<? extends K, ? extends V> e : map.entrySet()) {
+                put(e.getKey(), e.getValue());
+            }
+        }
+
+        public void putAll(KeyedMap<K, ? extends V> other) {
+            for (int s = other.first(); s >= 0; s = other.next(s)) {
+                put(other.keyAt(s), other.valueAt(s));
+            }
+        }
+
+        public boolean containsAll(Collection<? extends K> keys) {
+            for (K key : keys) {
+                if (!containsKey(key)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        public V valueAt(int slot) {
+            checkSlot(slot);
+            return (V) values[slot];
+        }
+
+        public void setValueAt(int slot, V value) {
+            checkSlot(slot);
+            values[slot] = value;
+        }
+
+        @Override
+        void moveValue(int from, int to) {
+            values[to] = values[from];
+        }
+
+        @Override
+        void clearValue(int slot) {
+            values[slot] = null;
+        }
+
+        @Override
+        void clearValues() {
+            Arrays.fill(values, null);
+        }
+
+        @Override
+        void remapValues(int[] moved, int newCapacity) {
+            Object[] nv = new Object[newCapacity];
+            for (int s = 0; s < moved.length; s++) {
+                if (moved[s] >= 0) {
+                    nv[moved[s]] = values[s];
+                }
+            }
+            values = nv;
+        }
+    }
+
+    public static final class HashKeyedMap<V> extends KeyedMap<Hash, V> {
+        public HashKeyedMap() {
+            this(0);
+        }
+
+        public HashKeyedMap(int expectedSize) {
+            super(HASH, expectedSize);
+        }
+    }
+
+    public static final class AddressKeyedMap<V> extends KeyedMap<Address, V> {
+        public AddressKeyedMap() {
+            this(0);
+        }
+
+        public AddressKeyedMap(int expectedSize) {
+            super(ADDRESS, expectedSize);
+        }
+    }
+
+    // KeyedLongMap maps keys to primitive longs. Lookups of absent keys return noValue.
+    public abstract static class KeyedLongMap<K> extends LimbTable<K> {
+        private final long noValue;
+        private long[] values;
+
+        KeyedLongMap(KeyKind<K> kind, int expectedSize, long noValue) {
+            super(kind, expectedSize);
+            this.noValue = noValue;
+            values = new long[capacity()];
+        }
+
+        public long noValue() {
+            return noValue;
+        }
+
+        public long get(K key) {
+            int s = find(key);
+            return s < 0 ? noValue : values[s];
+        }
+
+        public boolean containsKey(K key) {
+            return find(key) >= 0;
+        }
+
+        // Associates value with key and returns the previous value, or noValue.
+        public long put(K key, long value) {
+            int s = insert(key);
+            if (s < 0) {
+                values[-s - 1] = value;
+                return noValue;
+            }
+            long old = values[s];
+            values[s] = value;
+            return old;
+        }
+
+        // Adds delta to the value of key, starting from 0 if absent, and returns the sum.
+        public long addTo(K key, long delta) {
+            int s = insert(key);
+            if (s < 0) {
+                return values[-s - 1] = delta;
+            }
+            return values[s] += delta;
+        }
+
+        public long remove(K key) {
+            int s = find(key);
+            if (s < 0) {
+                return noValue;
+            }
+            long old = values[s];
+            removeSlot(s);
+            return old;
+        }
+
+        public void putAll(KeyedLongMap<K> other) {
+            for (int s = other.first(); s >= 0; s = other.next(s)) {
+                put(other.keyAt(s), other.values[s]);
+            }
+        }
+
+        public boolean containsAll(Collection<? extends K> keys) {
+            for (K key : keys) {
+                if (!containsKey(key)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public long valueAt(int slot) {
+            checkSlot(slot);
+            return values[slot];
+        }
+
+        public void setValueAt(int slot, long value) {
+            checkSlot(slot);
+            values[slot] = value;
+        }
+
+        @Override
+        void moveValue(int from, int to) {
+            values[to] = values[from];
+        }
+
+        @Override
+        void remapValues(int[] moved, int newCapacity) {
+            long[] nv = new long[newCapacity];
+            for (int s = 0; s < moved.length; s++) {
+                if (moved[s] >= 0) {
+                    nv[moved[s]] = values[s];
+                }
+            }
+            values = nv;
+        }
+    }
+
+    public static final class HashKeyedLongMap extends KeyedLongMap<Hash> {
+        public HashKeyedLongMap() {
+            this(0, 0);
+        }
+
+        public HashKeyedLongMap(int expectedSize, long noValue) {
+            super(HASH, expectedSize, noValue);
+        }
+    }
+
+    public static final class AddressKeyedLongMap extends KeyedLongMap<Address> {
+        public AddressKeyedLongMap() {
+            this(0, 0);
+        }
+
+        public AddressKeyedLongMap(int expectedSize, long noValue) {
+            super(ADDRESS, expectedSize, noValue);
+        }
+    }
+
+    // KeyedIntMap maps keys to primitive ints, such as InternDictionary ids. Lookups of absent
+    // keys return noValue.
+    public abstract static class KeyedIntMap<K> extends LimbTable<K> {
+        private final int noValue;
+        private int[] values;
+
+        KeyedIntMap(KeyKind<K> kind, int expectedSize, int noValue) {
+            super(kind, expectedSize);
+            this.noValue = noValue;
+            values = new int[capacity()];
+        }
+
+        public int noValue() {
+            return noValue;
+        }
+
+        public int get(K key) {
+            int s = find(key);
+            return s < 0 ? noValue : values[s];
+        }
+
+        public boolean containsKey(K key) {
+            return find(key) >= 0;
+        }
+
+        // Associates value with key and returns the previous value, or noValue.
+        public int put(K key, int value) {
+            int s = insert(key);
+            if (s < 0) {
+                values[-s - 1] = value;
+                return noValue;
+            }
+            int old = values[s];
+            values[s] = value;
+            return old;
+        }
+
+        // Adds delta to the value of key, starting from 0 if absent, and returns the sum.
+        public int addTo(K key, int delta) {
+            int s = insert(key);
+            if (s < 0) {
+                return values[-s - 1] = delta;
+            }
+            return values[s] += delta;
+        }
+
+        public int remove(K key) {
+            int s = find(key);
+            if (s < 0) {
+                return noValue;
+            }
+            int old = values[s];
+            removeSlot(s);
+            return old;
+        }
+
+        public void putAll(KeyedIntMap<K> other) {
+            for (int s = other.first(); s >= 0; s = other.next(s)) {
+                put(other.keyAt(s), other.values[s]);
+            }
+        }
+
+        public boolean containsAll(Collection<? extends K> keys) {
+            for (K key : keys) {
+                if (!containsKey(key)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public int valueAt(int slot) {
+            checkSlot(slot);
+            return values[slot];
+        }
+
+        public void setValueAt(int slot, int value) {
+            checkSlot(slot);
+            values[slot] = value;
+        }
+
+        @Override
+        void moveValue(int from, int to) {
+            values[to] = values[from];
+        }
+
+        @Override
+        void remapValues(int[] moved, int newCapacity) {
+            int[] nv = new int[newCapacity];
+            for (int s = 0; s < moved.length; s++) {
+                if (moved[s] >= 0) {
+                    nv[moved[s]] = values[s];
+                }
+            }
+            values = nv;
+        }
+    }
+
+    public static final class HashKeyedIntMap extends KeyedIntMap<Hash> {
+        public HashKeyedIntMap() {
+            this(0, 0);
+        }
+
+        public HashKeyedIntMap(int expectedSize, int noValue) {
+            super(HASH, expectedSize, noValue);
+        }
+    }
+
+    public static final class AddressKeyedIntMap extends KeyedIntMap<Address> {
+        public AddressKeyedIntMap() {
+            this(0, 0);
+        }
+
+        public AddressKeyedIntMap(int expectedSize, int noValue) {
+            super(ADDRESS, expectedSize, noValue);
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package org.eth.common;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+// MutableUInt256 is the in-place counterpart of UInt256: an unsigned 256-bit integer in four
+// long limbs whose arithmetic overwrites the receiver, so balance and gas calculations on hot
+// paths can run without allocating. All operations wrap modulo 2^256; division and modulo by
+// zero yield zero, as in the EVM. Every operation returns this to allow chaining.
+public final class MutableUInt256 implements Comparable<MutableUInt256> {
+
+    static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    // Limbs, least significant first.
+    long u0;
+    long u1;
+    long u2;
+    long u3;
+
+    public MutableUInt256() {
+    }
+
+    public MutableUInt256(long value) {
+        this.u0 = value;
+    }
+
+    public MutableUInt256(UInt256 value) {
+        set(value);
+    }
+
+    MutableUInt256(long u0, long u1, long u2, long u3) {
+        this.u0 = u0;
+        this.u1 = u1;
+        this.u2 = u2;
+        this.u3 = u3;
+    }
+
+    public MutableUInt256 set(long value) {
+        return setLimbs(value, 0, 0, 0);
+    }
+
+    public MutableUInt256 set(UInt256 value) {
+        return setLimbs(value.u0, value.u1, value.u2, value.u3);
+    }
+
+    public MutableUInt256 set(MutableUInt256 value) {
+        return setLimbs(value.u0, value.u1, value.u2, value.u3);
+    }
+
+    public MutableUInt256 setZero() {
+        return setLimbs(0, 0, 0, 0);
+    }
+
+    // Sets the value from len big-endian bytes at src[off], len being at most 32.
+    public MutableUInt256 setBytes(byte[] src, int off, int len) {
+        Objects.checkFromIndexSize(off, len, src.length);
+        if (len == 32) {
+            return setLimbs((long) LONGS.get(src, off + 24), (long) LONGS.get(src, off + 16),
+                    (long) LONGS.get(src, off + 8), (long) LONGS.get(src, off));
+        }
+        if (len > 32) {
+            throw new IllegalArgumentException("UInt256 takes at most 32 bytes, got " + len);
+        }
+        setZero();
+        for (int i = 0; i < len; i++) {
+            long b = src[off + len - 1 - i] & 0xffL;
+            int shift = (i & 7) << 3;
+            switch (i >>> 3) {
+                case 0 -> u0 |= b << shift;
+                case 1 -> u1 |= b << shift;
+                case 2 -> u2 |= b << shift;
+                default -> u3 |= b << shift;
+            }
+        }
+        return this;
+    }
+
+    MutableUInt256 setLimbs(long u0, long u1, long u2, long u3) {
+        this.u0 = u0;
+        this.u1 = u1;
+        this.u2 = u2;
+        this.u3 = u3;
+        return this;
+    }
+
+    public MutableUInt256 add(UInt256 b) {
+        return addLimbs(b.u0, b.u1, b.u2, b.u3);
+    }
+
+    public MutableUInt256 add(MutableUInt256 b) {
+        return addLimbs(b.u0, b.u1, b.u2, b.u3);
+    }
+
+    public MutableUInt256 add(long b) {
+        return addLimbs(b, 0, 0, 0);
+    }
+
+    public MutableUInt256 sub(UInt256 b) {
+        return subLimbs(b.u0, b.u1, b.u2, b.u3);
+    }
+
+    public MutableUInt256 sub(MutableUInt256 b) {
+        return subLimbs(b.u0, b.u1, b.u2, b.u3);
+    }
+
+    public MutableUInt256 sub(long b) {
+        return subLimbs(b, 0, 0, 0);
+    }
+
+    public MutableUInt256 mul(UInt256 b) {
+        return mulLimbs(b.u0, b.u1, b.u2, b.u3);
+    }
+
+    public MutableUInt256 mul(MutableUInt256 b) {
+        return mulLimbs(b.u0, b.u1, b.u2, b.u3);
+    }
+
+    public MutableUInt256 mul(long b) {
+        return mulLimbs(b, 0, 0, 0);
+    }
+
+    public MutableUInt256 div(UInt256 b) {
+        return divRem(b.u0, b.u1, b.u2, b.u3, false);
+    }
+
+    public MutableUInt256 div(MutableUInt256 b) {
+        return divRem(b.u0, b.u1, b.u2, b.u3, false);
+    }
+
+    public MutableUInt256 div(long b) {
+        return divRem(b, 0, 0, 0, false);
+    }
+
+    public MutableUInt256 mod(UInt256 b) {
+        return divRem(b.u0, b.u1, b.u2, b.u3, true);
+    }
+
+    public MutableUInt256 mod(MutableUInt256 b) {
+        return divRem(b.u0, b.u1, b.u2, b.u3, true);
+    }
+
+    public MutableUInt256 mod(long b) {
+        return divRem(b, 0, 0, 0, true);
+    }
+
+    public MutableUInt256 and(UInt256 b) {
+        return setLimbs(u0 & b.u0, u1 & b.u1, u2 & b.u2, u3 & b.u3);
+    }
+
+    public MutableUInt256 or(UInt256 b) {
+        return setLimbs(u0 | b.u0, u1 | b.u1, u2 | b.u2, u3 | b.u3);
+    }
+
+    public MutableUInt256 xor(UInt256 b) {
+        return setLimbs(u0 ^ b.u0, u1 ^ b.u1, u2 ^ b.u2, u3 ^ b.u3);
+    }
+
+    public MutableUInt256 not() {
+        return setLimbs(~u0, ~u1, ~u2, ~u3);
+    }
+
+    // Shifts left by n bits; shifts of 256 or more clear the value.
+    public MutableUInt256 shl(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Negative shift: " + n);
+        }
+        if (n >= 256) {
+            return setZero();
+        }
+        int limbs = n >>> 6;
+        int bits = n & 63;
+        return setLimbs(shlLimb(0 - limbs, bits), shlLimb(1 - limbs, bits),
+                shlLimb(2 - limbs, bits), shlLimb(3 - limbs, bits));
+    }
+
+    // Shifts right (logically) by n bits; shifts of 256 or more clear the value.
+    public MutableUInt256 shr(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Negative shift: " + n);
+        }
+        if (n >= 256) {
+            return setZero();
+        }
+        int limbs = n >>> 6;
+        int bits = n & 63;
+        return setLimbs(shrLimb(limbs, bits), shrLimb(1 + limbs, bits),
+                shrLimb(2 + limbs, bits), shrLimb(3 + limbs, bits));
+    }
+
+    public boolean isZero() {
+        return (u0 | u1 | u2 | u3) == 0;
+    }
+
+    // Returns the number of bits needed to represent the value, 0 for zero.
+    public int bitLength() {
+        return bitLength(u0, u1, u2, u3);
+    }
+
+    public int compareTo(UInt256 b) {
+        return compareLimbs(u0, u1, u2, u3, b.u0, b.u1, b.u2, b.u3);
+    }
+
+    @Override
+    public int compareTo(MutableUInt256 b) {
+        return compareLimbs(u0, u1, u2, u3, b.u0, b.u1, b.u2, b.u3);
+    }
+
+    // Writes the value as 32 big-endian bytes into dst at off.
+    public void toBytes(byte[] dst, int off) {
+        UInt256.writeLimbs(u0, u1, u2, u3, dst, off);
+    }
+
+    public UInt256 toUInt256() {
+        return UInt256.of(u0, u1, u2, u3);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MutableUInt256)) return false;
+        MutableUInt256 b = (MutableUInt256) o;
+        return u0 == b.u0 && u1 == b.u1 && u2 == b.u2 && u3 == b.u3;
+    }
+
+    @Override
+    public int hashCode() {
+        return UInt256.hashLimbs(u0, u1, u2, u3);
+    }
+
+    @Override
+    public String toString() {
+        return toUInt256().toHexString();
+    }
+
+    private long limb(int i) {
+        return switch (i) {
+            case 0 -> u0;
+            case 1 -> u1;
+            case 2 -> u2;
+            default -> u3;
+        };
+    }
+
+    private long shlLimb(int src, int bits) {
+        if (src < 0) {
+            return 0;
+        }
+        long v = limb(src) << bits;
+        if (bits != 0 && src > 0) {
+            v |= limb(src - 1) >>> (64 - bits);
+        }
+        return v;
+    }
+
+    private long shrLimb(int src, int bits) {
+        if (src > 3) {
+            return 0;
+        }
+        long v = limb(src) >>> bits;
+        if (bits != 0 && src < 3) {
+            v |= limb(src + 1) << (64 - bits);
+        }
+        return v;
+    }
+
+    private MutableUInt256 addLimbs(long b0, long b1, long b2, long b3) {
+        long r0 = u0 + b0;
+        long c = carry(u0, b0, r0);
+        long r1 = u1 + b1 + c;
+        c = carry(u1, b1, r1);
+        long r2 = u2 + b2 + c;
+        c = carry(u2, b2, r2);
+        long r3 = u3 + b3 + c;
+        return setLimbs(r0, r1, r2, r3);
+    }
+
+    private MutableUInt256 subLimbs(long b0, long b1, long b2, long b3) {
+        long r0 = u0 - b0;
+        long c = borrow(u0, b0, r0);
+        long r1 = u1 - b1 - c;
+        c = borrow(u1, b1, r1);
+        long r2 = u2 - b2 - c;
+        c = borrow(u2, b2, r2);
+        long r3 = u3 - b3 - c;
+        return setLimbs(r0, r1, r2, r3);
+    }
+
+    // Carry out of r = a + b + carryIn.
+    private static long carry(long a, long b, long r) {
+        return ((a & b) | ((a | b) & ~r)) >>> 63;
+    }
+
+    // Borrow out of r = a - b - borrowIn.
+    private static long borrow(long a, long b, long r) {
+        return ((~a & b) | (~(a ^ b) & r)) >>> 63;
+    }
+
+    // Schoolbook multiplication keeping the low 256 bits. Row i adds a_i * b shifted by i limbs.
+    private MutableUInt256 mulLimbs(long b0, long b1, long b2, long b3) {
+        long a0 = u0, a1 = u1, a2 = u2, a3 = u3;
+        long lo, hi, s, c;
+
+        long r0 = a0 * b0;
+        hi = Math.unsignedMultiplyHigh(a0, b0);
+        lo = a0 * b1;
+        long r1 = lo + hi;
+        c = Math.unsignedMultiplyHigh(a0, b1) + (Long.compareUnsigned(r1, lo) < 0 ? 1 : 0);
+        lo = a0 * b2;
+        long r2 = lo + c;
+        c = Math.unsignedMultiplyHigh(a0, b2) + (Long.compareUnsigned(r2, lo) < 0 ? 1 : 0);
+        long r3 = a0 * b3 + c;
+
+        lo = a1 * b0;
+        s = r1 + lo;
+        c = Math.unsignedMultiplyHigh(a1, b0) + (Long.compareUnsigned(s, lo) < 0 ? 1 : 0);
+        r1 = s;
+        lo = a1 * b1;
+        s = r2 + lo;
+        long c2 = Long.compareUnsigned(s, lo) < 0 ? 1 : 0;
+        long t = s + c;
+        c2 += Long.compareUnsigned(t, s) < 0 ? 1 : 0;
+        r2 = t;
+        c = Math.unsignedMultiplyHigh(a1, b1) + c2;
+        r3 += a1 * b2 + c;
+
+        lo = a2 * b0;
+        s = r2 + lo;
+        c = Math.unsignedMultiplyHigh(a2, b0) + (Long.compareUnsigned(s, lo) < 0 ? 1 : 0);
+        r2 = s;
+        r3 += a2 * b1 + c;
+
+        r3 += a3 * b0;
+        return setLimbs(r0, r1, r2, r3);
+    }
+
+    private MutableUInt256 divRem(long b0, long b1, long b2, long b3, boolean remainder) {
+        if ((b0 | b1 | b2 | b3) == 0) {
+            return setZero();
+        }
+        if ((u1 | u2 | u3 | b1 | b2 | b3) == 0) {
+            return set(remainder ? Long.remainderUnsigned(u0, b0) : Long.divideUnsigned(u0, b0));
+        }
+        int cmp = compareLimbs(u0, u1, u2, u3, b0, b1, b2, b3);
+        if (cmp < 0) {
+            return remainder ? this : setZero();
+        }
+        if (cmp == 0) {
+            return remainder ? setZero() : set(1);
+        }
+        if ((b1 | b2 | b3) == 0 && (b0 >>> 32) == 0) {
+            return divRemSmall(b0, remainder);
+        }
+        // Binary long division: one quotient bit per step from the highest possible position.
+        // The remainder is kept in this; the shifted divisor in d0..d3.
+        int shift = bitLength() - bitLength(b0, b1, b2, b3);
+        long d0 = b0, d1 = b1, d2 = b2, d3 = b3;
+        for (int k = shift >>> 6; k > 0; k--) {
+            d3 = d2;
+            d2 = d1;
+            d1 = d0;
+            d0 = 0;
+        }
+        int bits = shift & 63;
+        if (bits != 0) {
+            d3 = d3 << bits | d2 >>> (64 - bits);
+            d2 = d2 << bits | d1 >>> (64 - bits);
+            d1 = d1 << bits | d0 >>> (64 - bits);
+            d0 <<= bits;
+        }
+        long q0 = 0, q1 = 0, q2 = 0, q3 = 0;
+        for (int i = shift; i >= 0; i--) {
+            if (compareLimbs(u0, u1, u2, u3, d0, d1, d2, d3) >= 0) {
+                subLimbs(d0, d1, d2, d3);
+                long bit = 1L << (i & 63);
+                switch (i >>> 6) {
+                    case 0 -> q0 |= bit;
+                    case 1 -> q1 |= bit;
+                    case 2 -> q2 |= bit;
+                    default -> q3 |= bit;
+                }
+            }
+            d0 = d0 >>> 1 | d1 << 63;
+            d1 = d1 >>> 1 | d2 << 63;
+            d2 = d2 >>> 1 | d3 << 63;
+            d3 >>>= 1;
+        }
+        return remainder ? this : setLimbs(q0, q1, q2, q3);
+    }
+
+    // Division by a divisor below 2^32, one 32-bit digit at a time from the top. The running
+    // remainder stays below the divisor, so every partial dividend fits in 64 bits.
+    private MutableUInt256 divRemSmall(long b, boolean remainder) {
+        long rem = 0;
+        long q0 = 0, q1 = 0, q2 = 0, q3 = 0;
+        for (int i = 3; i >= 0; i--) {
+            long limb = limb(i);
+            long cur = (rem << 32) | (limb >>> 32);
+            long qHi = Long.divideUnsigned(cur, b);
+            rem = cur - qHi * b;
+            cur = (rem << 32) | (limb & 0xffffffffL);
+            long qLo = Long.divideUnsigned(cur, b);
+            rem = cur - qLo * b;
+            long q = (qHi << 32) | qLo;
+            switch (i) {
+                case 0 -> q0 = q;
+                case 1 -> q1 = q;
+                case 2 -> q2 = q;
+                default -> q3 = q;
+            }
+        }
+        return remainder ? set(rem) : setLimbs(q0, q1, q2, q3);
+    }
+
+    static int bitLength(long u0, long u1, long u2, long u3) {
+        if (u3 != 0) return 256 - Long.numberOfLeadingZeros(u3);
+        if (u2 != 0) return 192 - Long.numberOfLeadingZeros(u2);
+        if (u1 != 0) return 128 - Long.numberOfLeadingZeros(u1);
+        return 64 - Long.numberOfLeadingZeros(u0);
+    }
+
+    static int compareLimbs(long a0, long a1, long a2, long a3, long b0, long b1, long b2, long b3) {
+        if (a3 != b3) return Long.compareUnsigned(a3, b3);
+        if (a2 != b2) return Long.compareUnsigned(a2, b2);
+        if (a1 != b1) return Long.compareUnsigned(a1, b1);
+        return Long.compareUnsigned(a0, b0);
+    }
+}
@@ -0,0 +1,420 @@
+package org.eth.common;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+import static org.eth.common.CommonTypes.ADDRESS_LENGTH;
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.HASH_LENGTH;
+import static org.eth.common.CommonTypes.Hash;
+
+// RecordFile is a binary container for large collections of fixed-width records, such as the
+// hashes of a pending transaction set or the addresses of touched accounts. Records are stored
+// raw, so a file is exactly as large as its contents and loading it is a plain bulk read into
+// ByteBuffers, after which Hash.fromBuffer and Address.fromBuffer pick records out by index.
+//
+// File layout, big-endian: an 8-byte magic, the record width and flags as ints, the record count
+// as a long and 8 reserved bytes, followed by the records and, if the checksum flag is set, the
+// CRC32C of the record bytes as an 8-byte trailer.
+public final class RecordFile {
+
+    private static final long MAGIC = 0x4554485245435331L; // "ETHRECS1"
+    private static final int HEADER_LENGTH = 32;
+    private static final int TRAILER_LENGTH = 8;
+    private static final int FLAG_CHECKSUM = 1;
+    // Size of the staging buffers used for single records and checksum verification.
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private RecordFile() {
+    }
+
+    // Creates or truncates path and returns a writer for records of width bytes.
+    public static Writer create(Path path, int width, boolean checksum) throws IOException {
+        if (width <= 0) {
+            throw new IllegalArgumentException("Record width must be positive");
+        }
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            return new Writer(ch, width, checksum);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    public static Reader open(Path path) throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new Reader(ch, path);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    public static void writeHashes(Path path, Collection<Hash> hashes, boolean checksum) throws IOException {
+        try (Writer w = create(path, HASH_LENGTH, checksum)) {
+            for (Hash h : hashes) {
+                w.write(h);
+            }
+        }
+    }
+
+    public static void writeAddresses(Path path, Collection<Address> addresses, boolean checksum) throws IOException {
+        try (Writer w = create(path, ADDRESS_LENGTH, checksum)) {
+            for (Address a : addresses) {
+                w.write(a);
+            }
+        }
+    }
+
+    public static List<Hash> readHashes(Path path) throws IOException {
+        try (Reader r = open(path)) {
+            List<Hash> out = new ArrayList<>(r.checkList(HASH_LENGTH));
+            ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            for (int n; (n = r.read(buf.clear())) >= 0; ) {
+                for (int i = 0; i < n; i++) {
+                    out.add(Hash.fromBuffer(buf, i * HASH_LENGTH));
+                }
+            }
+            return out;
+        }
+    }
+
+    public static List<Address> readAddresses(Path path) throws IOException {
+        try (Reader r = open(path)) {
+            List<Address> out = new ArrayList<>(r.checkList(ADDRESS_LENGTH));
+            ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE - BUFFER_SIZE % ADDRESS_LENGTH);
+            for (int n; (n = r.read(buf.clear())) >= 0; ) {
+                for (int i = 0; i < n; i++) {
+                    out.add(Address.fromBuffer(buf, i * ADDRESS_LENGTH));
+                }
+            }
+            return out;
+        }
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer dst, long position) throws IOException {
+        while (dst.hasRemaining()) {
+            int n = ch.read(dst, position);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            position += n;
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            ch.write(src);
+        }
+    }
+
+    private static long remaining(ByteBuffer[] buffers) {
+        long n = 0;
+        for (ByteBuffer b : buffers) {
+            n += b.remaining();
+        }
+        return n;
+    }
+
+    // Writer appends records through a staging buffer, or straight from caller buffers for the
+    // bulk and gathering writes. The record count and checksum are written on close.
+    public static final class Writer implements Closeable {
+        private final FileChannel ch;
+        private final int width;
+        private final CRC32C crc;
+        private final ByteBuffer buf;
+        private long count;
+        private boolean closed;
+
+        private Writer(FileChannel ch, int width, boolean checksum) throws IOException {
+            this.ch = ch;
+            this.width = width;
+            this.crc = checksum ? new CRC32C() : null;
+            this.buf = ByteBuffer.allocateDirect(Math.max(width, BUFFER_SIZE - BUFFER_SIZE % width));
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH)
+                    .putLong(MAGIC).putInt(width).putInt(checksum ? FLAG_CHECKSUM : 0).putLong(0).putLong(0)
+                    .flip();
+            writeFully(ch, header);
+        }
+
+        public int width() {
+            return width;
+        }
+
+        // Returns the number of records written so far.
+        public long size() {
+            return count;
+        }
+
+        public Writer write(Hash hash) throws IOException {
+            checkWidth(HASH_LENGTH);
+            hash.writeTo(reserve());
+            count++;
+            return this;
+        }
+
+        public Writer write(Address address) throws IOException {
+            checkWidth(ADDRESS_LENGTH);
+            address.writeTo(reserve());
+            count++;
+            return this;
+        }
+
+        // Writes the record held in src[off, off + width).
+        public Writer write(byte[] src, int off) throws IOException {
+            Objects.checkFromIndexSize(off, width, src.length);
+            reserve().put(src, off, width);
+            count++;
+            return this;
+        }
+
+        // Writes the remaining bytes of src, which must be whole records, and advances it.
+        public Writer write(ByteBuffer src) throws IOException {
+            return write(new ByteBuffer[]{src});
+        }
+
+        // Writes the remaining bytes of every buffer in one gathering write. The total must be
+        // whole records; a record may span buffers.
+        public Writer write(ByteBuffer... srcs) throws IOException {
+            ensureOpen();
+            long total = remaining(srcs);
+            if (total % width != 0) {
+                throw new IllegalArgumentException("Buffers hold " + total + " bytes, not a multiple of " + width);
+            }
+            flush();
+            if (crc != null) {
+                for (ByteBuffer b : srcs) {
+                    crc.update(b.duplicate());
+                }
+            }
+            for (long left = total; left > 0; ) {
+                left -= ch.write(srcs);
+            }
+            count += total / width;
+            return this;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            try {
+                flush();
+                if (crc != null) {
+                    writeFully(ch, ByteBuffer.allocate(TRAILER_LENGTH).putLong(0, crc.getValue()));
+                }
+                ByteBuffer n = ByteBuffer.allocate(8).putLong(0, count);
+                while (n.hasRemaining()) {
+                    ch.write(n, 16 + n.position());
+                }
+            } finally {
+                closed = true;
+                ch.close();
+            }
+        }
+
+        private ByteBuffer reserve() throws IOException {
+            ensureOpen();
+            if (buf.remaining() < width) {
+                flush();
+            }
+            return buf;
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            if (crc != null) {
+                crc.update(buf.duplicate());
+            }
+            writeFully(ch, buf);
+            buf.clear();
+        }
+
+        private void checkWidth(int length) {
+            if (width != length) {
+                throw new IllegalArgumentException("Record width is " + width + ", not " + length);
+            }
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Record file writer is closed");
+            }
+        }
+    }
+
+    // Reader streams records into caller buffers in file order, checksumming them on the way
+    // when the file carries a checksum, or maps ranges of records for random access.
+    public static final class Reader implements Closeable {
+        private final FileChannel ch;
+        private final int width;
+        private final long count;
+        private final CRC32C crc;
+        private final long expectedCrc;
+        // Index of the next record returned by read.
+        private long next;
+
+        private Reader(FileChannel ch, Path path) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            try {
+                readFully(ch, header, 0);
+            } catch (EOFException e) {
+                throw new IOException("Not a record file: " + path);
+            }
+            if (header.getLong(0) != MAGIC) {
+                throw new IOException("Not a record file: " + path);
+            }
+            int width = header.getInt(8);
+            int flags = header.getInt(12);
+            long count = header.getLong(16);
+            boolean checksum = (flags & FLAG_CHECKSUM) != 0;
+            if (width <= 0 || count < 0 || (flags & ~FLAG_CHECKSUM) != 0
+                    || ch.size() != HEADER_LENGTH + Math.multiplyExact(count, (long) width) + (checksum ? TRAILER_LENGTH : 0)) {
+                throw new IOException("Corrupt record file: " + path);
+            }
+            this.ch = ch;
+            this.width = width;
+            this.count = count;
+            if (checksum) {
+                ByteBuffer trailer = ByteBuffer.allocate(TRAILER_LENGTH);
+                readFully(ch, trailer, HEADER_LENGTH + count * width);
+                this.crc = new CRC32C();
+                this.expectedCrc = trailer.getLong(0);
+            } else {
+                this.crc = null;
+                this.expectedCrc = 0;
+            }
+        }
+
+        public int width() {
+            return width;
+        }
+
+        public long size() {
+            return count;
+        }
+
+        public boolean hasChecksum() {
+            return crc != null;
+        }
+
+        // Reads as many whole records as fit in dst at its position and advances it. Returns the
+        // number of records read, or -1 once every record has been read. Reading the last
+        // record throws IOException if the checksum does not match.
+        public int read(ByteBuffer dst) throws IOException {
+            return (int) read(new ByteBuffer[]{dst});
+        }
+
+        // Scatters as many whole records as fit into dsts, filling each in turn, and returns the
+        // number read or -1 once every record has been read. A record may span buffers.
+        public long read(ByteBuffer... dsts) throws IOException {
+            if (next == count) {
+                return -1;
+            }
+            long records = Math.min(remaining(dsts) / width, count - next);
+            long bytes = records * width;
+            int[] limits = new int[dsts.length];
+            int[] starts = new int[dsts.length];
+            long left = bytes;
+            for (int i = 0; i < dsts.length; i++) {
+                ByteBuffer b = dsts[i];
+                limits[i] = b.limit();
+                starts[i] = b.position();
+                int take = (int) Math.min(b.remaining(), left);
+                b.limit(b.position() + take);
+                left -= take;
+            }
+            try {
+                ch.position(HEADER_LENGTH + next * width);
+                for (long done = 0; done < bytes; ) {
+                    long n = ch.read(dsts);
+                    if (n < 0) {
+                        throw new EOFException();
+                    }
+                    done += n;
+                }
+            } finally {
+                for (int i = 0; i < dsts.length; i++) {
+                    dsts[i].limit(limits[i]);
+                }
+            }
+            if (crc != null) {
+                for (int i = 0; i < dsts.length; i++) {
+                    crc.update(dsts[i].duplicate().position(starts[i]).limit(dsts[i].position()));
+                }
+            }
+            next += records;
+            if (next == count) {
+                checkCrc();
+            }
+            return records;
+        }
+
+        // Maps records [first, first + records) read-only. One mapping is limited to 2 GiB, so
+        // larger files are mapped in several ranges.
+        public MappedByteBuffer map(long first, int records) throws IOException {
+            Objects.checkFromIndexSize(first, records, count);
+            long bytes = (long) records * width;
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Mapping of " + bytes + " bytes exceeds 2 GiB");
+            }
+            return ch.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH + first * width, bytes);
+        }
+
+        // Recomputes the checksum of every record, independently of read, and throws IOException
+        // if it does not match. Does nothing for files without a checksum.
+        public void verify() throws IOException {
+            if (crc == null) {
+                return;
+            }
+            CRC32C check = new CRC32C();
+            ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long end = HEADER_LENGTH + count * width;
+            for (long pos = HEADER_LENGTH; pos < end; ) {
+                buf.clear().limit((int) Math.min(BUFFER_SIZE, end - pos));
+                readFully(ch, buf, pos);
+                pos += buf.flip().remaining();
+                check.update(buf);
+            }
+            if (check.getValue() != expectedCrc) {
+                throw new IOException("Record file checksum mismatch");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            ch.close();
+        }
+
+        private void checkCrc() throws IOException {
+            if (crc != null && crc.getValue() != expectedCrc) {
+                throw new IOException("Record file checksum mismatch");
+            }
+        }
+
+        private int checkList(int length) throws IOException {
+            if (width != length) {
+                throw new IOException("Record width is " + width + ", not " + length);
+            }
+            if (count > Integer.MAX_VALUE - 8) {
+                throw new IOException("Record file too large for a list: " + count);
+            }
+            return (int) count;
+        }
+    }
+}
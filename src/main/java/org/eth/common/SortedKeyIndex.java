@@ -0,0 +1,392 @@
+package org.eth.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static org.eth.common.CommonTypes.ADDRESS_LENGTH;
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.HASH_LENGTH;
+import static org.eth.common.CommonTypes.Hash;
+
+// SortedKeyIndex is a read-only set of fixed-width keys of 8 to 32 bytes, typically Address or
+// Hash, each with an optional fixed-width payload, stored in a file sorted by key and
+// memory-mapped for lookups. Opening maps the file without reading it, the pages are shared
+// with every other process mapping the same file, and lookups only do absolute reads, so any
+// number of threads can query one instance without locking.
+//
+// Lookups use interpolation search on the first eight key bytes, which takes a handful of
+// probes for uniformly distributed keys such as Keccak output, and fall back to bisection when
+// the keys turn out to be skewed.
+//
+// File layout, big-endian: an 8-byte magic, the key width and payload width as ints, the record
+// count as a long and 8 reserved bytes, followed by the records, each the key bytes followed by
+// the payload bytes.
+public final class SortedKeyIndex {
+
+    private static final long MAGIC = 0x4554484b49445831L; // "ETHKIDX1"
+    private static final int HEADER_LENGTH = 32;
+    // Interpolation probes per lookup before switching to bisection.
+    private static final int INTERPOLATION_PROBES = 8;
+
+    private final int keyWidth;
+    private final int payloadWidth;
+    private final int recordLength;
+    private final long count;
+    // The records, mapped in chunks of recordsPerChunk since one mapping is limited to 2 GiB.
+    private final MappedByteBuffer[] chunks;
+    private final int recordsPerChunk;
+
+    private SortedKeyIndex(int keyWidth, int payloadWidth, long count, MappedByteBuffer[] chunks, int recordsPerChunk) {
+        this.keyWidth = keyWidth;
+        this.payloadWidth = payloadWidth;
+        this.recordLength = keyWidth + payloadWidth;
+        this.count = count;
+        this.chunks = chunks;
+        this.recordsPerChunk = recordsPerChunk;
+    }
+
+    public static SortedKeyIndex open(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            while (header.hasRemaining()) {
+                if (ch.read(header, header.position()) < 0) {
+                    break;
+                }
+            }
+            if (header.hasRemaining() || header.getLong(0) != MAGIC) {
+                throw new IOException("Not a sorted key index: " + path);
+            }
+            int keyWidth = header.getInt(8);
+            int payloadWidth = header.getInt(12);
+            long count = header.getLong(16);
+            if (keyWidth < 8 || keyWidth > 32 || payloadWidth < 0 || payloadWidth > Integer.MAX_VALUE - keyWidth
+                    || count < 0) {
+                throw new IOException("Corrupt sorted key index: " + path);
+            }
+            int recordLength = keyWidth + payloadWidth;
+            int recordsPerChunk = Integer.MAX_VALUE / recordLength;
+            // count is checked against the file before multiplying so a corrupt one cannot overflow.
+            long body = ch.size() - HEADER_LENGTH;
+            if (recordsPerChunk == 0 || count > body / recordLength || body != count * recordLength) {
+                throw new IOException("Corrupt sorted key index: " + path);
+            }
+            int n = (int) ((count + recordsPerChunk - 1) / recordsPerChunk);
+            MappedByteBuffer[] chunks = new MappedByteBuffer[n];
+            for (int i = 0; i < n; i++) {
+                long first = (long) i * recordsPerChunk;
+                long records = Math.min(recordsPerChunk, count - first);
+                chunks[i] = ch.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH + first * recordLength, records * recordLength);
+            }
+            return new SortedKeyIndex(keyWidth, payloadWidth, count, chunks, recordsPerChunk);
+        }
+    }
+
+    public static Builder builder(int keyWidth, int payloadWidth) {
+        return new Builder(keyWidth, payloadWidth);
+    }
+
+    public long size() {
+        return count;
+    }
+
+    public int keyWidth() {
+        return keyWidth;
+    }
+
+    public int payloadWidth() {
+        return payloadWidth;
+    }
+
+    public boolean contains(Hash hash) {
+        return indexOf(hash) >= 0;
+    }
+
+    public boolean contains(Address address) {
+        return indexOf(address) >= 0;
+    }
+
+    // Returns the record index of hash, or -1.
+    public long indexOf(Hash hash) {
+        checkKeyWidth(HASH_LENGTH);
+        return search(hash.w0, hash.w1, hash.w2, hash.w3);
+    }
+
+    // Returns the record index of address, or -1.
+    public long indexOf(Address address) {
+        checkKeyWidth(ADDRESS_LENGTH);
+        return search(address.w0, address.w1, (long) address.w2 << 32, 0);
+    }
+
+    // Returns the record index of the key in src[off, off + keyWidth), or -1.
+    public long indexOf(byte[] src, int off) {
+        Objects.checkFromIndexSize(off, keyWidth, src.length);
+        long[] k = new long[4];
+        for (int i = 0; i < keyWidth; i++) {
+            k[i >>> 3] |= (src[off + i] & 0xffL) << (56 - ((i & 7) << 3));
+        }
+        return search(k[0], k[1], k[2], k[3]);
+    }
+
+    // Copies the payload of hash into dst at off and returns true, or returns false if absent.
+    public boolean get(Hash hash, byte[] dst, int off) {
+        long i = indexOf(hash);
+        if (i < 0) {
+            return false;
+        }
+        payloadAt(i, dst, off);
+        return true;
+    }
+
+    public boolean get(Address address, byte[] dst, int off) {
+        long i = indexOf(address);
+        if (i < 0) {
+            return false;
+        }
+        payloadAt(i, dst, off);
+        return true;
+    }
+
+    // Copies the key of record i into dst at off.
+    public void keyAt(long i, byte[] dst, int off) {
+        Objects.checkIndex(i, count);
+        chunk(i).get(position(i), dst, off, keyWidth);
+    }
+
+    // Copies the payload of record i into dst at off.
+    public void payloadAt(long i, byte[] dst, int off) {
+        Objects.checkIndex(i, count);
+        chunk(i).get(position(i) + keyWidth, dst, off, payloadWidth);
+    }
+
+    private void checkKeyWidth(int width) {
+        if (keyWidth != width) {
+            throw new IllegalArgumentException("Index holds " + keyWidth + " byte keys, not " + width);
+        }
+    }
+
+    private MappedByteBuffer chunk(long i) {
+        return chunks[(int) (i / recordsPerChunk)];
+    }
+
+    private int position(long i) {
+        return (int) (i % recordsPerChunk) * recordLength;
+    }
+
+    // Reads key limb j (eight bytes, big-endian) of record i, zero-padded past the key width.
+    private long limb(long i, int j) {
+        MappedByteBuffer c = chunk(i);
+        int p = position(i) + (j << 3);
+        int remaining = keyWidth - (j << 3);
+        if (remaining >= 8) {
+            return c.getLong(p);
+        }
+        if (remaining == 4) {
+            return (long) c.getInt(p) << 32;
+        }
+        long v = 0;
+        for (int k = 0; k < 8; k++) {
+            v = (v << 8) | (k < remaining ? c.get(p + k) & 0xff : 0);
+        }
+        return v;
+    }
+
+    private int compareRecord(long i, long k0, long k1, long k2, long k3) {
+        int cmp = Long.compareUnsigned(limb(i, 0), k0);
+        if (cmp != 0 || keyWidth <= 8) return cmp;
+        cmp = Long.compareUnsigned(limb(i, 1), k1);
+        if (cmp != 0 || keyWidth <= 16) return cmp;
+        cmp = Long.compareUnsigned(limb(i, 2), k2);
+        if (cmp != 0 || keyWidth <= 24) return cmp;
+        return Long.compareUnsigned(limb(i, 3), k3);
+    }
+
+    // Interpolation search over limbs k0..k3 of a key of up to 32 bytes.
+    private long search(long k0, long k1, long k2, long k3) {
+        long lo = 0;
+        long hi = count - 1;
+        int probes = 0;
+        while (lo <= hi) {
+            long mid;
+            long loKey = limb(lo, 0);
+            long hiKey = limb(hi, 0);
+            if (Long.compareUnsigned(k0, loKey) < 0 || Long.compareUnsigned(k0, hiKey) > 0) {
+                return -1;
+            }
+            if (probes++ < INTERPOLATION_PROBES && loKey != hiKey) {
+                double fraction = (unsignedToDouble(k0) - unsignedToDouble(loKey))
+                        / (unsignedToDouble(hiKey) - unsignedToDouble(loKey));
+                mid = lo + (long) (fraction * (hi - lo));
+                mid = Math.max(lo, Math.min(hi, mid));
+            } else {
+                mid = (lo + hi) >>> 1;
+            }
+            int cmp = compareRecord(mid, k0, k1, k2, k3);
+            if (cmp == 0) {
+                return mid;
+            }
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    private static double unsignedToDouble(long v) {
+        double d = (double) (v >>> 1) * 2.0;
+        return d + (v & 1);
+    }
+
+    // Builder collects keys and payloads in memory, then sorts them and writes the index file.
+    // Duplicate keys are dropped, keeping the first one added.
+    public static final class Builder {
+        private final int keyWidth;
+        private final int payloadWidth;
+        private final int recordLength;
+        private byte[] data = new byte[4096];
+        private int count;
+
+        Builder(int keyWidth, int payloadWidth) {
+            if (keyWidth < 8 || keyWidth > 32 || payloadWidth < 0 || payloadWidth > Integer.MAX_VALUE - keyWidth) {
+                throw new IllegalArgumentException("Key width must be 8 to 32 bytes and payload width not negative");
+            }
+            this.keyWidth = keyWidth;
+            this.payloadWidth = payloadWidth;
+            this.recordLength = keyWidth + payloadWidth;
+        }
+
+        public Builder add(Hash hash) {
+            return add(hash, null, 0);
+        }
+
+        public Builder add(Address address) {
+            return add(address, null, 0);
+        }
+
+        // Adds hash with the payload payload[payloadOff, payloadOff + payloadWidth), or with a
+        // zero payload if payload is null.
+        public Builder add(Hash hash, byte[] payload, int payloadOff) {
+            checkKeyWidth(HASH_LENGTH);
+            hash.copyTo(reserve(), count * recordLength);
+            return addPayload(payload, payloadOff);
+        }
+
+        public Builder add(Address address, byte[] payload, int payloadOff) {
+            checkKeyWidth(ADDRESS_LENGTH);
+            address.copyTo(reserve(), count * recordLength);
+            return addPayload(payload, payloadOff);
+        }
+
+        // Adds the key key[keyOff, keyOff + keyWidth) with the given payload, as above.
+        public Builder add(byte[] key, int keyOff, byte[] payload, int payloadOff) {
+            Objects.checkFromIndexSize(keyOff, keyWidth, key.length);
+            System.arraycopy(key, keyOff, reserve(), count * recordLength, keyWidth);
+            return addPayload(payload, payloadOff);
+        }
+
+        public int size() {
+            return count;
+        }
+
+        private void checkKeyWidth(int width) {
+            if (keyWidth != width) {
+                throw new IllegalArgumentException("Index holds " + keyWidth + " byte keys, not " + width);
+            }
+        }
+
+        private byte[] reserve() {
+            int need = Math.multiplyExact(count + 1, recordLength);
+            if (need > data.length) {
+                data = Arrays.copyOf(data, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(need, 2L * data.length)));
+            }
+            return data;
+        }
+
+        private Builder addPayload(byte[] payload, int payloadOff) {
+            int p = count * recordLength + keyWidth;
+            if (payload != null) {
+                Objects.checkFromIndexSize(payloadOff, payloadWidth, payload.length);
+                System.arraycopy(payload, payloadOff, data, p, payloadWidth);
+            } else {
+                Arrays.fill(data, p, p + payloadWidth, (byte) 0);
+            }
+            count++;
+            return this;
+        }
+
+        // Sorts the records and writes the index to path, replacing any existing file.
+        public void write(Path path) throws IOException {
+            int[] order = sortedOrder();
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer out = ByteBuffer.allocate(Math.max(1 << 16, recordLength));
+                out.putLong(MAGIC).putInt(keyWidth).putInt(payloadWidth).putLong(0).putLong(0);
+                long written = 0;
+                int prev = -1;
+                for (int r : order) {
+                    if (prev >= 0 && compare(prev, r) == 0) {
+                        continue;
+                    }
+                    prev = r;
+                    if (out.remaining() < recordLength) {
+                        drain(ch, out);
+                    }
+                    out.put(data, r * recordLength, recordLength);
+                    written++;
+                }
+                drain(ch, out);
+                ByteBuffer n = ByteBuffer.allocate(8).putLong(0, written);
+                while (n.hasRemaining()) {
+                    ch.write(n, 16 + n.position());
+                }
+            }
+        }
+
+        private static void drain(FileChannel ch, ByteBuffer out) throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                ch.write(out);
+            }
+            out.clear();
+        }
+
+        private int compare(int a, int b) {
+            int pa = a * recordLength;
+            int pb = b * recordLength;
+            return Arrays.compareUnsigned(data, pa, pa + keyWidth, data, pb, pb + keyWidth);
+        }
+
+        // Returns the record indexes in key order. A stable merge sort, so the first of equal
+        // keys comes first.
+        private int[] sortedOrder() {
+            int[] a = new int[count];
+            for (int i = 0; i < count; i++) {
+                a[i] = i;
+            }
+            int[] b = new int[count];
+            for (int width = 1; width < count; width <<= 1) {
+                for (int lo = 0; lo < count; lo += width << 1) {
+                    int mid = Math.min(lo + width, count);
+                    int hi = Math.min(lo + (width << 1), count);
+                    int i = lo, j = mid, k = lo;
+                    while (i < mid && j < hi) {
+                        b[k++] = compare(a[j], a[i]) < 0 ? a[j++] : a[i++];
+                    }
+                    while (i < mid) b[k++] = a[i++];
+                    while (j < hi) b[k++] = a[j++];
+                }
+                int[] t = a;
+                a = b;
+                b = t;
+            }
+            return a;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package org.eth.common;
+
+import org.eth.hexutil.HexDecoder;
+import org.eth.hexutil.HexEncoder;
+import org.eth.hexutil.HexError;
+import org.eth.hexutil.HexUtil;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import static org.eth.common.MutableUInt256.LONGS;
+
+// UInt256 is an immutable unsigned 256-bit integer held in four long limbs, the fixed-width
+// replacement for BigInteger on quantity and hash paths. Arithmetic wraps modulo 2^256 and
+// division and modulo by zero yield zero, as in the EVM. Each operation returns a new value;
+// use MutableUInt256 to accumulate in place.
+public final class UInt256 implements Comparable<UInt256> {
+
+    public static final UInt256 ZERO = new UInt256(0, 0, 0, 0);
+    public static final UInt256 ONE = new UInt256(1, 0, 0, 0);
+    public static final UInt256 MAX_VALUE = new UInt256(-1, -1, -1, -1);
+
+    public static final int BYTES = 32;
+
+    // Limbs, least significant first.
+    final long u0;
+    final long u1;
+    final long u2;
+    final long u3;
+
+    private UInt256(long u0, long u1, long u2, long u3) {
+        this.u0 = u0;
+        this.u1 = u1;
+        this.u2 = u2;
+        this.u3 = u3;
+    }
+
+    static UInt256 of(long u0, long u1, long u2, long u3) {
+        if ((u1 | u2 | u3) == 0 && (u0 == 0 || u0 == 1)) {
+            return u0 == 0 ? ZERO : ONE;
+        }
+        return new UInt256(u0, u1, u2, u3);
+    }
+
+    // Returns value read as an unsigned 64-bit integer.
+    public static UInt256 valueOf(long value) {
+        return of(value, 0, 0, 0);
+    }
+
+    // Returns the value of 32 big-endian bytes at src[off].
+    public static UInt256 fromBytes(byte[] src, int off) {
+        Objects.checkFromIndexSize(off, BYTES, src.length);
+        return of((long) LONGS.get(src, off + 24), (long) LONGS.get(src, off + 16),
+                (long) LONGS.get(src, off + 8), (long) LONGS.get(src, off));
+    }
+
+    // Returns the value of 32 big-endian bytes at index in src, leaving its position unchanged.
+    // The bytes are read big-endian whatever the buffer's byte order.
+    public static UInt256 fromBuffer(ByteBuffer src, int index) {
+        Objects.checkFromIndexSize(index, BYTES, src.limit());
+        long w0 = src.getLong(index);
+        long w1 = src.getLong(index + 8);
+        long w2 = src.getLong(index + 16);
+        long w3 = src.getLong(index + 24);
+        if (src.order() == ByteOrder.BIG_ENDIAN) {
+            return of(w3, w2, w1, w0);
+        }
+        return of(Long.reverseBytes(w3), Long.reverseBytes(w2), Long.reverseBytes(w1), Long.reverseBytes(w0));
+    }
+
+    // Returns the value of len big-endian bytes at index in src, len being at most 32, leaving
+    // its position unchanged. The bytes are read big-endian whatever the buffer's byte order.
+    public static UInt256 fromBuffer(ByteBuffer src, int index, int len) {
+        if (len == BYTES) {
+            return fromBuffer(src, index);
+        }
+        Objects.checkIndex(len, BYTES);
+        Objects.checkFromIndexSize(index, len, src.limit());
+        long u0 = 0, u1 = 0, u2 = 0, u3 = 0;
+        for (int i = 0; i < len; i++) {
+            long b = (src.get(index + len - 1 - i) & 0xffL) << ((i & 7) << 3);
+            switch (i >>> 3) {
+                case 0 -> u0 |= b;
+                case 1 -> u1 |= b;
+                case 2 -> u2 |= b;
+                default -> u3 |= b;
+            }
+        }
+        return of(u0, u1, u2, u3);
+    }
+
+    // Returns the value of len big-endian bytes at src[off], len being at most 32.
+    public static UInt256 fromBytes(byte[] src, int off, int len) {
+        if (len == BYTES) {
+            return fromBytes(src, off);
+        }
+        return new MutableUInt256().setBytes(src, off, len).toUInt256();
+    }
+
+    // Returns the value of a big-endian byte array of at most 32 bytes.
+    public static UInt256 fromBytes(byte[] src) {
+        return fromBytes(src, 0, src.length);
+    }
+
+    // Returns bigInteger modulo 2^256; negative values wrap around as in two's complement.
+    public static UInt256 fromBigInteger(BigInteger bigInteger) {
+        return of(bigInteger.longValue(), bigInteger.shiftRight(64).longValue(),
+                bigInteger.shiftRight(128).longValue(), bigInteger.shiftRight(192).longValue());
+    }
+
+    // Decodes a hex quantity with 0x prefix, following the rules of HexUtil.decodeBig.
+    public static UInt256 fromHexString(String input) throws HexUtil.HexUtilException {
+        if (input == null) {
+            throw HexError.EMPTY_STRING.exception();
+        }
+        return fromHexString(input, 0, input.length());
+    }
+
+    // Decodes the hex quantity in input[from, to) without allocating intermediate buffers.
+    public static UInt256 fromHexString(CharSequence input, int from, int to) throws HexUtil.HexUtilException {
+        int code = HexUtil.validateBig(input, from, to);
+        if (code < 0) {
+            throw HexError.of(code).exception();
+        }
+        // Each limb is the next run of up to 16 digits from the end.
+        int start = from + 2;
+        long u0 = hexLimb(input, start, to);
+        long u1 = hexLimb(input, start, to - 16);
+        long u2 = hexLimb(input, start, to - 32);
+        long u3 = hexLimb(input, start, to - 48);
+        return of(u0, u1, u2, u3);
+    }
+
+    // Returns the value of the up to 16 hex digits of input that end at end and start no
+    // earlier than start.
+    private static long hexLimb(CharSequence input, int start, int end) {
+        long v = 0;
+        for (int i = Math.max(start, end - 16); i < end; i++) {
+            v = v << 4 | HexDecoder.nibble(input.charAt(i));
+        }
+        return v;
+    }
+
+    public UInt256 add(UInt256 b) {
+        return mutable().add(b).toUInt256();
+    }
+
+    public UInt256 sub(UInt256 b) {
+        return mutable().sub(b).toUInt256();
+    }
+
+    public UInt256 mul(UInt256 b) {
+        return mutable().mul(b).toUInt256();
+    }
+
+    public UInt256 div(UInt256 b) {
+        return mutable().div(b).toUInt256();
+    }
+
+    public UInt256 mod(UInt256 b) {
+        return mutable().mod(b).toUInt256();
+    }
+
+    public UInt256 and(UInt256 b) {
+        return of(u0 & b.u0, u1 & b.u1, u2 & b.u2, u3 & b.u3);
+    }
+
+    public UInt256 or(UInt256 b) {
+        return of(u0 | b.u0, u1 | b.u1, u2 | b.u2, u3 | b.u3);
+    }
+
+    public UInt256 xor(UInt256 b) {
+        return of(u0 ^ b.u0, u1 ^ b.u1, u2 ^ b.u2, u3 ^ b.u3);
+    }
+
+    public UInt256 not() {
+        return of(~u0, ~u1, ~u2, ~u3);
+    }
+
+    public UInt256 shl(int n) {
+        return mutable().shl(n).toUInt256();
+    }
+
+    public UInt256 shr(int n) {
+        return mutable().shr(n).toUInt256();
+    }
+
+    public MutableUInt256 mutable() {
+        return new MutableUInt256(u0, u1, u2, u3);
+    }
+
+    public boolean isZero() {
+        return (u0 | u1 | u2 | u3) == 0;
+    }
+
+    // Reports whether the value fits in an unsigned 64-bit integer.
+    public boolean isUint64() {
+        return (u1 | u2 | u3) == 0;
+    }
+
+    // Returns the low 64 bits.
+    public long longValue() {
+        return u0;
+    }
+
+    public int bitLength() {
+        return MutableUInt256.bitLength(u0, u1, u2, u3);
+    }
+
+    @Override
+    public int compareTo(UInt256 b) {
+        return MutableUInt256.compareLimbs(u0, u1, u2, u3, b.u0, b.u1, b.u2, b.u3);
+    }
+
+    // Writes the value as 32 big-endian bytes into dst at off.
+    public void toBytes(byte[] dst, int off) {
+        writeLimbs(u0, u1, u2, u3, dst, off);
+    }
+
+    public byte[] toByteArray() {
+        byte[] out = new byte[BYTES];
+        writeLimbs(u0, u1, u2, u3, out, 0);
+        return out;
+    }
+
+    public BigInteger toBigInteger() {
+        return new BigInteger(1, toByteArray());
+    }
+
+    // Returns the value as a hex quantity with 0x prefix, in the format of HexUtil.encodeBig.
+    public String toHexString() {
+        if (isUint64()) {
+            return HexEncoder.uint64ToHexString(u0, true);
+        }
+        byte[] bytes = toByteArray();
+        int first = (Long.numberOfLeadingZeros(u3 != 0 ? u3 : u2 != 0 ? u2 : u1) >>> 3)
+                + (u3 != 0 ? 0 : u2 != 0 ? 8 : 16);
+        byte[] out = new byte[2 + 2 * (BYTES - first)];
+        HexEncoder.encode(bytes, first, BYTES - first, out, 2, false);
+        // Drop a leading zero digit by starting the prefix one position later.
+        int start = out[2] == '0' ? 1 : 0;
+        out[start] = '0';
+        out[start + 1] = 'x';
+        return new String(out, start, out.length - start, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString() {
+        return toHexString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof UInt256)) return false;
+        UInt256 b = (UInt256) o;
+        return u0 == b.u0 && u1 == b.u1 && u2 == b.u2 && u3 == b.u3;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashLimbs(u0, u1, u2, u3);
+    }
+
+    static int hashLimbs(long u0, long u1, long u2, long u3) {
+        long h = u0 * 0x9e3779b97f4a7c15L + u1;
+        h = h * 0x9e3779b97f4a7c15L + u2;
+        h = h * 0x9e3779b97f4a7c15L + u3;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    static void writeLimbs(long u0, long u1, long u2, long u3, byte[] dst, int off) {
+        Objects.checkFromIndexSize(off, BYTES, dst.length);
+        LONGS.set(dst, off, u3);
+        LONGS.set(dst, off + 8, u2);
+        LONGS.set(dst, off + 16, u1);
+        LONGS.set(dst, off + 24, u0);
+    }
+}
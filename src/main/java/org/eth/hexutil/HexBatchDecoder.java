@@ -0,0 +1,217 @@
+package org.eth.hexutil;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// HexBatchDecoder decodes many fixed-width hex values, such as the topics and hashes of an
+// eth_getLogs response, into one packed buffer of width-byte records: entry i occupies
+// bytes [i * width, (i + 1) * width). Entries follow the rules of HexUtil.decode and must
+// decode to exactly width bytes. A bad entry does not abort the batch; its record is zeroed
+// and its HexError code is stored in the per-entry result array (0 marks success).
+//
+// Batches of at least parallelThreshold entries are split across a ForkJoinPool. Entries are
+// independent and every task writes to a disjoint range of the output, so the only
+// coordination is the join.
+public final class HexBatchDecoder {
+
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
+    // Number of entries below which a task decodes sequentially instead of splitting.
+    private static final int LEAF_SIZE = 1024;
+
+    private static final int LENGTH = HexError.LENGTH.code();
+
+    private final int width;
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+
+    public HexBatchDecoder(int width) {
+        this(width, DEFAULT_PARALLEL_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    public HexBatchDecoder(int width, int parallelThreshold, ForkJoinPool pool) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("Record width must be positive");
+        }
+        this.width = width;
+        this.parallelThreshold = parallelThreshold;
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    public int width() {
+        return width;
+    }
+
+    // Batch is the result of decoding a list of entries: the packed records and a result code
+    // per entry.
+    public static final class Batch {
+        private final byte[] data;
+        private final int[] codes;
+        private final int width;
+        private final int failures;
+
+        Batch(byte[] data, int[] codes, int width, int failures) {
+            this.data = data;
+            this.codes = codes;
+            this.width = width;
+            this.failures = failures;
+        }
+
+        public int size() {
+            return codes.length;
+        }
+
+        public int width() {
+            return width;
+        }
+
+        // Returns the number of entries that failed to decode.
+        public int failures() {
+            return failures;
+        }
+
+        public boolean isValid(int i) {
+            return codes[i] == 0;
+        }
+
+        // Returns the error of entry i, or null if it decoded.
+        public HexError error(int i) {
+            return codes[i] == 0 ? null : HexError.of(codes[i]);
+        }
+
+        // Returns the offset of entry i in data().
+        public int offset(int i) {
+            Objects.checkIndex(i, codes.length);
+            return i * width;
+        }
+
+        // Returns the packed records. The array is shared, not copied.
+        public byte[] data() {
+            return data;
+        }
+
+        public byte[] copy(int i) {
+            int off = offset(i);
+            return Arrays.copyOfRange(data, off, off + width);
+        }
+
+        public ByteBuffer asByteBuffer() {
+            return ByteBuffer.wrap(data);
+        }
+    }
+
+    public Batch decode(CharSequence[] inputs) {
+        return decode(Arrays.asList(inputs));
+    }
+
+    public Batch decode(List<? extends CharSequence> inputs) {
+        int n = inputs.size();
+        byte[] data = new byte[Math.multiplyExact(n, width)];
+        int[] codes = new int[n];
+        int failures = decode(inputs, data, 0, codes);
+        return new Batch(data, codes, width, failures);
+    }
+
+    // Decodes every entry into dst starting at dstOff and stores its result code in codes.
+    // Returns the number of entries that failed.
+    public int decode(List<? extends CharSequence> inputs, byte[] dst, int dstOff, int[] codes) {
+        int n = inputs.size();
+        Objects.checkFromIndexSize(dstOff, Math.multiplyExact(n, width), dst.length);
+        Objects.checkFromIndexSize(0, n, codes.length);
+        List<? extends CharSequence> list = inputs instanceof RandomAccess ? inputs : Arrays.asList(inputs.toArray(new CharSequence[0]));
+        if (n >= parallelThreshold && n > LEAF_SIZE) {
+            return pool.invoke(new DecodeTask(list, 0, n, dst, dstOff, codes, width));
+        }
+        return decodeRange(list, 0, n, dst, dstOff, codes, width);
+    }
+
+    // Decodes every entry into dst starting at its position, which advances past the last
+    // record. Buffers without an accessible array are filled from a temporary packed array.
+    public int decode(List<? extends CharSequence> inputs, ByteBuffer dst, int[] codes) {
+        int n = inputs.size();
+        int size = Math.multiplyExact(n, width);
+        int p = dst.position();
+        Objects.checkFromIndexSize(p, size, dst.limit());
+        int failures;
+        if (dst.hasArray() && !dst.isReadOnly()) {
+            failures = decode(inputs, dst.array(), dst.arrayOffset() + p, codes);
+        } else {
+            byte[] packed = new byte[size];
+            failures = decode(inputs, packed, 0, codes);
+            dst.put(p, packed);
+        }
+        dst.position(p + size);
+        return failures;
+    }
+
+    private static int decodeRange(List<? extends CharSequence> inputs, int from, int to, byte[] dst, int dstOff, int[] codes, int width) {
+        int failures = 0;
+        for (int i = from, off = dstOff + from * width; i < to; i++, off += width) {
+            int code = decodeEntry(inputs.get(i), dst, off, width);
+            codes[i] = code;
+            if (code != 0) {
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    // Decodes one entry into dst[off, off + width) and returns 0 or a HexError code. The record
+    // is zeroed on failure.
+    private static int decodeEntry(CharSequence s, byte[] dst, int off, int width) {
+        if (s == null) {
+            Arrays.fill(dst, off, off + width, (byte) 0);
+            return HexError.EMPTY_STRING.code();
+        }
+        int len = s.length();
+        if (len != 2 + 2 * width) {
+            Arrays.fill(dst, off, off + width, (byte) 0);
+            // Report what the strict decoder would, or the length if the entry is well-formed.
+            int v = HexDecoder.validate(s, 0, len);
+            return v < 0 ? v : LENGTH;
+        }
+        int r = HexDecoder.tryDecode(s, 0, len, dst, off);
+        if (r < 0) {
+            Arrays.fill(dst, off, off + width, (byte) 0);
+            return r;
+        }
+        return 0;
+    }
+
+    private static final class DecodeTask extends RecursiveTask<Integer> {
+        private final List<? extends CharSequence> inputs;
+        private final int from;
+        private final int to;
+        private final byte[] dst;
+        private final int dstOff;
+        private final int[] codes;
+        private final int width;
+
+        DecodeTask(List<? extends CharSequence> inputs, int from, int to, byte[] dst, int dstOff, int[] codes, int width) {
+            this.inputs = inputs;
+            this.from = from;
+            this.to = to;
+            this.dst = dst;
+            this.dstOff = dstOff;
+            this.codes = codes;
+            this.width = width;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= LEAF_SIZE) {
+                return decodeRange(inputs, from, to, dst, dstOff, codes, width);
+            }
+            int mid = (from + to) >>> 1;
+            DecodeTask left = new DecodeTask(inputs, from, mid, dst, dstOff, codes, width);
+            left.fork();
+            int right = new DecodeTask(inputs, mid, to, dst, dstOff, codes, width).compute();
+            return right + left.join();
+        }
+    }
+}
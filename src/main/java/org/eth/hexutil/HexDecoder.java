@@ -0,0 +1,411 @@
+package org.eth.hexutil;
+
+import org.eth.hexutil.HexUtil.ErrSyntax;
+import org.eth.hexutil.HexUtil.HexUtilException;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+// HexDecoder decodes hex digits straight out of a CharSequence slice or an ASCII ByteBuffer
+// into a caller-supplied destination. The 0x prefix and odd digit counts are handled by
+// offset arithmetic, so no substrings or intermediate char arrays are created.
+//
+// The strict methods follow the rules of HexUtil.decode: a lowercase 0x prefix is required
+// and the number of digits must be even. The lenient methods follow CommonByte.fromHex: the
+// prefix (0x or 0X) is optional and an odd number of digits is read as if it had a leading 0.
+//
+// Each decoder comes in a throwing form and a try* form. The try* form returns the number of
+// bytes written, or a negative HexError code, so rejecting bad input costs no exception.
+public final class HexDecoder {
+
+    // Value of every ASCII hex digit, -1 for any other byte.
+    private static final byte[] NIBBLES = new byte[256];
+
+    private static final int SYNTAX = HexError.SYNTAX.code();
+
+    static {
+        Arrays.fill(NIBBLES, (byte) -1);
+        for (int c = '0'; c <= '9'; c++) {
+            NIBBLES[c] = (byte) (c - '0');
+        }
+        for (int c = 'a'; c <= 'f'; c++) {
+            NIBBLES[c] = (byte) (c - 'a' + 10);
+            NIBBLES[c - 'a' + 'A'] = (byte) (c - 'a' + 10);
+        }
+    }
+
+    private HexDecoder() {
+    }
+
+    // Returns the value of the hex digit c, or -1 if c is not a hex digit.
+    public static int nibble(int c) {
+        return (c & ~0xff) == 0 ? NIBBLES[c] : -1;
+    }
+
+    // Reports whether src[from, to) starts with 0x or 0X.
+    public static boolean hasPrefix(CharSequence src, int from, int to) {
+        return to - from >= 2 && src.charAt(from) == '0' && (src.charAt(from + 1) | 0x20) == 'x';
+    }
+
+    // Reports whether the bytes between position and limit of src start with 0x or 0X.
+    public static boolean hasPrefix(ByteBuffer src) {
+        int p = src.position();
+        return src.remaining() >= 2 && src.get(p) == '0' && (src.get(p + 1) | 0x20) == 'x';
+    }
+
+    // Returns the number of bytes the lenient decoders produce for src[from, to).
+    public static int decodedLength(CharSequence src, int from, int to) {
+        int digits = to - from - (hasPrefix(src, from, to) ? 2 : 0);
+        return (digits + 1) >>> 1;
+    }
+
+    // Returns the number of bytes the lenient decoders produce for the remaining bytes of src.
+    public static int decodedLength(ByteBuffer src) {
+        int digits = src.remaining() - (hasPrefix(src) ? 2 : 0);
+        return (digits + 1) >>> 1;
+    }
+
+    // Checks src[from, to) against the strict rules without decoding it. Returns the number of
+    // bytes it decodes to, or a negative HexError code.
+    public static int validate(CharSequence src, int from, int to) {
+        int start = strictStart(src, from, to);
+        if (start < 0) {
+            return start;
+        }
+        return isHexDigits(src, start, to) ? (to - start) >>> 1 : SYNTAX;
+    }
+
+    // Checks the ASCII bytes src[from, to) against the strict rules without decoding them.
+    // Returns the number of bytes they decode to, or a negative HexError code.
+    public static int validate(byte[] src, int from, int to) {
+        int start = strictStart(src, from, to);
+        if (start < 0) {
+            return start;
+        }
+        return isHexDigits(src, start, to) ? (to - start) >>> 1 : SYNTAX;
+    }
+
+    // Decodes the 0x-prefixed hex string src[from, to) into dst starting at dstOff and
+    // returns the number of bytes written.
+    public static int decode(CharSequence src, int from, int to, byte[] dst, int dstOff) throws HexUtilException {
+        return HexError.check(tryDecode(src, from, to, dst, dstOff));
+    }
+
+    // Like decode(CharSequence, int, int, byte[], int), returning a negative HexError code
+    // instead of throwing.
+    public static int tryDecode(CharSequence src, int from, int to, byte[] dst, int dstOff) {
+        int start = strictStart(src, from, to);
+        return start < 0 ? start : tryDecodeDigits(src, start, to, dst, dstOff);
+    }
+
+    // Decodes src[from, to), with or without prefix and of any length, into dst starting at
+    // dstOff and returns the number of bytes written.
+    public static int decodeLenient(CharSequence src, int from, int to, byte[] dst, int dstOff) throws HexUtilException {
+        return HexError.check(tryDecodeLenient(src, from, to, dst, dstOff));
+    }
+
+    // Like decodeLenient(CharSequence, int, int, byte[], int), returning a negative HexError
+    // code instead of throwing.
+    public static int tryDecodeLenient(CharSequence src, int from, int to, byte[] dst, int dstOff) {
+        Objects.checkFromToIndex(from, to, src.length());
+        return tryDecodeDigits(src, hasPrefix(src, from, to) ? from + 2 : from, to, dst, dstOff);
+    }
+
+    // Decodes the bare hex digits src[from, to) into dst starting at dstOff. An odd number of
+    // digits is read as if it had a leading 0. Returns the number of bytes written.
+    public static int decodeDigits(CharSequence src, int from, int to, byte[] dst, int dstOff) throws ErrSyntax {
+        int n = tryDecodeDigits(src, from, to, dst, dstOff);
+        if (n < 0) {
+            throw ErrSyntax.INSTANCE;
+        }
+        return n;
+    }
+
+    // Like decodeDigits(CharSequence, int, int, byte[], int), returning the HexError.SYNTAX
+    // code instead of throwing.
+    public static int tryDecodeDigits(CharSequence src, int from, int to, byte[] dst, int dstOff) {
+        int n = (to - from + 1) >>> 1;
+        Objects.checkFromIndexSize(dstOff, n, dst.length);
+        int p = dstOff;
+        int i = from;
+        if (((to - from) & 1) != 0) {
+            int lo = nibble(src.charAt(i++));
+            if (lo < 0) {
+                return SYNTAX;
+            }
+            dst[p++] = (byte) lo;
+        }
+        for (; i < to; i += 2) {
+            int hi = nibble(src.charAt(i));
+            int lo = nibble(src.charAt(i + 1));
+            if ((hi | lo) < 0) {
+                return SYNTAX;
+            }
+            dst[p++] = (byte) ((hi << 4) | lo);
+        }
+        return n;
+    }
+
+    // Decodes the 0x-prefixed hex in src[from, to) into dst starting at dstOff and returns the
+    // number of bytes written. Suited to char buffers handed out by parsers.
+    public static int decode(char[] src, int from, int to, byte[] dst, int dstOff) throws HexUtilException {
+        return HexError.check(tryDecode(src, from, to, dst, dstOff));
+    }
+
+    // Like decode(char[], int, int, byte[], int), returning a negative HexError code instead
+    // of throwing.
+    public static int tryDecode(char[] src, int from, int to, byte[] dst, int dstOff) {
+        Objects.checkFromToIndex(from, to, src.length);
+        if (from == to) {
+            return HexError.EMPTY_STRING.code();
+        }
+        if (to - from < 2 || src[from] != '0' || src[from + 1] != 'x') {
+            return HexError.MISSING_PREFIX.code();
+        }
+        if (((to - from) & 1) != 0) {
+            return HexError.ODD_LENGTH.code();
+        }
+        return tryDecodeDigits(src, from + 2, to, dst, dstOff);
+    }
+
+    // Like decode(char[], int, int, byte[], int) with lenient prefix and length rules.
+    public static int decodeLenient(char[] src, int from, int to, byte[] dst, int dstOff) throws HexUtilException {
+        Objects.checkFromToIndex(from, to, src.length);
+        if (to - from >= 2 && src[from] == '0' && (src[from + 1] | 0x20) == 'x') {
+            from += 2;
+        }
+        return decodeDigits(src, from, to, dst, dstOff);
+    }
+
+    // Decodes the bare hex digits src[from, to) into dst starting at dstOff. An odd number of
+    // digits is read as if it had a leading 0. Returns the number of bytes written.
+    public static int decodeDigits(char[] src, int from, int to, byte[] dst, int dstOff) throws ErrSyntax {
+        int n = tryDecodeDigits(src, from, to, dst, dstOff);
+        if (n < 0) {
+            throw ErrSyntax.INSTANCE;
+        }
+        return n;
+    }
+
+    // Like decodeDigits(char[], int, int, byte[], int), returning the HexError.SYNTAX code
+    // instead of throwing.
+    public static int tryDecodeDigits(char[] src, int from, int to, byte[] dst, int dstOff) {
+        Objects.checkFromToIndex(from, to, src.length);
+        int n = (to - from + 1) >>> 1;
+        Objects.checkFromIndexSize(dstOff, n, dst.length);
+        int p = dstOff;
+        int i = from;
+        if (((to - from) & 1) != 0) {
+            int lo = nibble(src[i++]);
+            if (lo < 0) {
+                return SYNTAX;
+            }
+            dst[p++] = (byte) lo;
+        }
+        for (; i < to; i += 2) {
+            int hi = nibble(src[i]);
+            int lo = nibble(src[i + 1]);
+            if ((hi | lo) < 0) {
+                return SYNTAX;
+            }
+            dst[p++] = (byte) ((hi << 4) | lo);
+        }
+        return n;
+    }
+
+    // Decodes the 0x-prefixed ASCII hex src[from, to) into dst starting at dstOff. Returns the
+    // number of bytes written, or a negative HexError code.
+    public static int tryDecode(byte[] src, int from, int to, byte[] dst, int dstOff) {
+        int start = strictStart(src, from, to);
+        return start < 0 ? start : tryDecodeDigits(src, start, to, dst, dstOff);
+    }
+
+    // Decodes the 0x-prefixed ASCII hex between position and limit of src into dst starting
+    // at dstOff and returns the number of bytes written. On success the position of src is
+    // moved to its limit; on failure it is left untouched.
+    public static int decode(ByteBuffer src, byte[] dst, int dstOff) throws HexUtilException {
+        int from = HexError.check(strictStart(src));
+        int n = decodeDigits(src, from, src.limit(), dst, dstOff);
+        src.position(src.limit());
+        return n;
+    }
+
+    // Like decode(ByteBuffer, byte[], int) with lenient prefix and length rules.
+    public static int decodeLenient(ByteBuffer src, byte[] dst, int dstOff) throws HexUtilException {
+        int from = src.position() + (hasPrefix(src) ? 2 : 0);
+        int n = decodeDigits(src, from, src.limit(), dst, dstOff);
+        src.position(src.limit());
+        return n;
+    }
+
+    // Decodes the 0x-prefixed ASCII hex between position and limit of src into dst at its
+    // position. Both buffers are advanced on success.
+    public static ByteBuffer decode(ByteBuffer src, ByteBuffer dst) throws HexUtilException {
+        return decodeInto(HexError.check(strictStart(src)), src, dst);
+    }
+
+    // Like decode(ByteBuffer, ByteBuffer) with lenient prefix and length rules.
+    public static ByteBuffer decodeLenient(ByteBuffer src, ByteBuffer dst) throws HexUtilException {
+        return decodeInto(src.position() + (hasPrefix(src) ? 2 : 0), src, dst);
+    }
+
+    // Returns the index of the first digit of the strict hex string src[from, to), or a
+    // negative HexError code.
+    private static int strictStart(CharSequence src, int from, int to) {
+        Objects.checkFromToIndex(from, to, src.length());
+        if (from == to) {
+            return HexError.EMPTY_STRING.code();
+        }
+        if (to - from < 2 || src.charAt(from) != '0' || src.charAt(from + 1) != 'x') {
+            return HexError.MISSING_PREFIX.code();
+        }
+        if (((to - from) & 1) != 0) {
+            return HexError.ODD_LENGTH.code();
+        }
+        return from + 2;
+    }
+
+    private static int strictStart(byte[] src, int from, int to) {
+        Objects.checkFromToIndex(from, to, src.length);
+        if (from == to) {
+            return HexError.EMPTY_STRING.code();
+        }
+        if (to - from < 2 || src[from] != '0' || src[from + 1] != 'x') {
+            return HexError.MISSING_PREFIX.code();
+        }
+        if (((to - from) & 1) != 0) {
+            return HexError.ODD_LENGTH.code();
+        }
+        return from + 2;
+    }
+
+    private static int strictStart(ByteBuffer src) {
+        int p = src.position();
+        int len = src.remaining();
+        if (len == 0) {
+            return HexError.EMPTY_STRING.code();
+        }
+        if (len < 2 || src.get(p) != '0' || src.get(p + 1) != 'x') {
+            return HexError.MISSING_PREFIX.code();
+        }
+        if ((len & 1) != 0) {
+            return HexError.ODD_LENGTH.code();
+        }
+        return p + 2;
+    }
+
+    private static ByteBuffer decodeInto(int from, ByteBuffer src, ByteBuffer dst) throws ErrSyntax {
+        int to = src.limit();
+        int n = (to - from + 1) >>> 1;
+        if (dst.remaining() < n) {
+            throw new BufferOverflowException();
+        }
+        if (dst.hasArray()) {
+            decodeDigits(src, from, to, dst.array(), dst.arrayOffset() + dst.position());
+        } else {
+            int p = dst.position();
+            int i = from;
+            if (((to - from) & 1) != 0) {
+                int lo = NIBBLES[src.get(i++) & 0xff];
+                if (lo < 0) {
+                    throw ErrSyntax.INSTANCE;
+                }
+                dst.put(p++, (byte) lo);
+            }
+            for (; i < to; i += 2) {
+                int hi = NIBBLES[src.get(i) & 0xff];
+                int lo = NIBBLES[src.get(i + 1) & 0xff];
+                if ((hi | lo) < 0) {
+                    throw ErrSyntax.INSTANCE;
+                }
+                dst.put(p++, (byte) ((hi << 4) | lo));
+            }
+        }
+        dst.position(dst.position() + n);
+        src.position(to);
+        return dst;
+    }
+
+    // Decodes the bare ASCII hex digits at absolute indices [from, to) of src into dst
+    // starting at dstOff, without touching the position of src. An odd number of digits is
+    // read as if it had a leading 0. Returns the number of bytes written.
+    public static int decodeDigits(ByteBuffer src, int from, int to, byte[] dst, int dstOff) throws ErrSyntax {
+        Objects.checkFromToIndex(from, to, src.limit());
+        if (src.hasArray()) {
+            return decodeDigits(src.array(), src.arrayOffset() + from, src.arrayOffset() + to, dst, dstOff);
+        }
+        int n = (to - from + 1) >>> 1;
+        Objects.checkFromIndexSize(dstOff, n, dst.length);
+        int p = dstOff;
+        int i = from;
+        if (((to - from) & 1) != 0) {
+            int lo = NIBBLES[src.get(i++) & 0xff];
+            if (lo < 0) {
+                throw ErrSyntax.INSTANCE;
+            }
+            dst[p++] = (byte) lo;
+        }
+        for (; i < to; i += 2) {
+            int hi = NIBBLES[src.get(i) & 0xff];
+            int lo = NIBBLES[src.get(i + 1) & 0xff];
+            if ((hi | lo) < 0) {
+                throw ErrSyntax.INSTANCE;
+            }
+            dst[p++] = (byte) ((hi << 4) | lo);
+        }
+        return n;
+    }
+
+    // Decodes the bare ASCII hex digits src[from, to) into dst starting at dstOff. An odd
+    // number of digits is read as if it had a leading 0. Returns the number of bytes written.
+    public static int decodeDigits(byte[] src, int from, int to, byte[] dst, int dstOff) throws ErrSyntax {
+        int n = tryDecodeDigits(src, from, to, dst, dstOff);
+        if (n < 0) {
+            throw ErrSyntax.INSTANCE;
+        }
+        return n;
+    }
+
+    // Like decodeDigits(byte[], int, int, byte[], int), returning the HexError.SYNTAX code
+    // instead of throwing.
+    public static int tryDecodeDigits(byte[] src, int from, int to, byte[] dst, int dstOff) {
+        Objects.checkFromToIndex(from, to, src.length);
+        int n = (to - from + 1) >>> 1;
+        Objects.checkFromIndexSize(dstOff, n, dst.length);
+        int p = dstOff;
+        int i = from;
+        if (((to - from) & 1) != 0) {
+            int lo = NIBBLES[src[i++] & 0xff];
+            if (lo < 0) {
+                return SYNTAX;
+            }
+            dst[p++] = (byte) lo;
+        }
+        if (HexVectorSupport.ENABLED && to - i >= HexVectorSupport.THRESHOLD) {
+            int done = HexVectorKernels.decode(src, i, to, dst, p);
+            i += done;
+            p += done >>> 1;
+        }
+        for (; i < to; i += 2) {
+            int hi = NIBBLES[src[i] & 0xff];
+            int lo = NIBBLES[src[i + 1] & 0xff];
+            if ((hi | lo) < 0) {
+                return SYNTAX;
+            }
+            dst[p++] = (byte) ((hi << 4) | lo);
+        }
+        return n;
+    }
+
+    // Reports whether every character of src[from, to) is a hex digit.
+    public static boolean isHexDigits(CharSequence src, int from, int to) {
+        return HexValidator.firstInvalidIndex(src, from, to) < 0;
+    }
+
+    // Reports whether every byte of src[from, to) is an ASCII hex digit.
+    public static boolean isHexDigits(byte[] src, int from, int to) {
+        return HexValidator.firstInvalidIndex(src, from, to) < 0;
+    }
+}
@@ -0,0 +1,156 @@
+package org.eth.hexutil;
+
+import org.eth.hexutil.HexUtil.ErrOddLength;
+import org.eth.hexutil.HexUtil.ErrSyntax;
+import org.eth.hexutil.HexUtil.HexStreamException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+// HexDecodingChannel reads ASCII hex digits from a source channel in fixed-size chunks and
+// returns the decoded bytes. A 0x or 0X prefix is accepted at the start of the stream only,
+// and a digit split across two chunks is carried over to the next one. Malformed input is
+// reported as a HexStreamException holding the stream offset of the offending byte.
+// Wrap with Channels.newInputStream for an InputStream view.
+public final class HexDecodingChannel implements ReadableByteChannel {
+
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private final ReadableByteChannel source;
+    private final ByteBuffer in;
+    // Stream offset of the byte at in.position().
+    private long offset;
+    // High nibble read at the end of the previous chunk, or -1.
+    private int pendingNibble = -1;
+    private boolean started;
+    private boolean eof;
+    private boolean open = true;
+
+    public HexDecodingChannel(ReadableByteChannel source) {
+        this(source, DEFAULT_CHUNK_SIZE);
+    }
+
+    // chunkSize is the size of the ASCII input buffer in bytes.
+    public HexDecodingChannel(ReadableByteChannel source, int chunkSize) {
+        if (chunkSize < 2) {
+            throw new IllegalArgumentException("Chunk size must be at least 2 bytes");
+        }
+        this.source = source;
+        this.in = ByteBuffer.allocate(chunkSize);
+        in.flip();
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        if (!started && !skipPrefix()) {
+            return 0;
+        }
+        int written = 0;
+        while (dst.hasRemaining()) {
+            if (!in.hasRemaining()) {
+                if (eof || fill() == 0) {
+                    break;
+                }
+                continue;
+            }
+            written += decodeChunk(dst);
+        }
+        // Checked here rather than in fill, as skipPrefix may reach the end of the source
+        // before the last digit is decoded.
+        if (eof && !in.hasRemaining() && pendingNibble >= 0) {
+            throw new HexStreamException(ErrOddLength.INSTANCE, offset);
+        }
+        if (written == 0 && eof && !in.hasRemaining()) {
+            return -1;
+        }
+        return written;
+    }
+
+    // Decodes as much of the buffered input as fits into dst and returns the number of
+    // bytes produced.
+    private int decodeChunk(ByteBuffer dst) throws HexStreamException {
+        byte[] src = in.array();
+        int i = in.position();
+        int end = in.limit();
+        int produced = 0;
+        int pending = pendingNibble;
+        try {
+            while (i < end && dst.hasRemaining()) {
+                int v = HexDecoder.nibble(src[i] & 0xff);
+                if (v < 0) {
+                    throw new HexStreamException(ErrSyntax.INSTANCE, offset + (i - in.position()));
+                }
+                i++;
+                if (pending < 0) {
+                    pending = v;
+                } else {
+                    dst.put((byte) ((pending << 4) | v));
+                    pending = -1;
+                    produced++;
+                }
+            }
+        } finally {
+            offset += i - in.position();
+            in.position(i);
+            pendingNibble = pending;
+        }
+        return produced;
+    }
+
+    // Refills the input buffer and returns the number of bytes read, or 0 if the source had
+    // nothing available. Sets eof once the source is exhausted.
+    private int fill() throws IOException {
+        in.compact();
+        int r;
+        try {
+            r = source.read(in);
+        } finally {
+            in.flip();
+        }
+        if (r < 0) {
+            eof = true;
+            return 0;
+        }
+        return r;
+    }
+
+    // Skips an optional prefix at the start of the stream. Returns false if the source could
+    // not yet supply enough bytes to decide.
+    private boolean skipPrefix() throws IOException {
+        while (in.remaining() < 2 && !eof) {
+            if (fill() == 0 && !eof) {
+                return false;
+            }
+        }
+        int p = in.position();
+        if (in.remaining() >= 2 && in.get(p) == '0' && (in.get(p + 1) | 0x20) == 'x') {
+            in.position(p + 2);
+            offset += 2;
+        }
+        started = true;
+        return true;
+    }
+
+    // Returns the number of input bytes consumed so far.
+    public long position() {
+        return offset;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (open) {
+            open = false;
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package org.eth.hexutil;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+// HexEncoder is a table-driven hex encoder. Every method writes lowercase digits straight
+// into a caller-supplied destination, so encoding does not create a String per byte.
+public final class HexEncoder {
+
+    static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    // Two lowercase hex digits for every byte value, high nibble first.
+    private static final char[] BYTE_TO_CHARS = new char[512];
+    private static final byte[] BYTE_TO_ASCII = new byte[512];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            BYTE_TO_CHARS[i << 1] = DIGITS[i >>> 4];
+            BYTE_TO_CHARS[(i << 1) + 1] = DIGITS[i & 0x0f];
+            BYTE_TO_ASCII[i << 1] = (byte) DIGITS[i >>> 4];
+            BYTE_TO_ASCII[(i << 1) + 1] = (byte) DIGITS[i & 0x0f];
+        }
+    }
+
+    private HexEncoder() {
+    }
+
+    // Returns the number of characters needed to encode len bytes.
+    public static int encodedLength(int len, boolean prefix) {
+        return (prefix ? 2 : 0) + (len << 1);
+    }
+
+    // Returns the number of digits needed to encode value as a quantity without leading zeros.
+    public static int uint64Digits(long value) {
+        return value == 0 ? 1 : (67 - Long.numberOfLeadingZeros(value)) >>> 2;
+    }
+
+    // Encodes src[srcOff, srcOff+len) into dst starting at dstOff and returns the index
+    // just past the last character written.
+    public static int encode(byte[] src, int srcOff, int len, char[] dst, int dstOff, boolean prefix) {
+        int p = dstOff;
+        if (prefix) {
+            dst[p++] = '0';
+            dst[p++] = 'x';
+        }
+        for (int i = srcOff, end = srcOff + len; i < end; i++) {
+            int idx = (src[i] & 0xff) << 1;
+            dst[p++] = BYTE_TO_CHARS[idx];
+            dst[p++] = BYTE_TO_CHARS[idx + 1];
+        }
+        return p;
+    }
+
+    // Encodes src[srcOff, srcOff+len) as ASCII into dst starting at dstOff and returns the
+    // index just past the last byte written.
+    public static int encode(byte[] src, int srcOff, int len, byte[] dst, int dstOff, boolean prefix) {
+        int p = dstOff;
+        if (prefix) {
+            dst[p++] = '0';
+            dst[p++] = 'x';
+        }
+        if (HexVectorSupport.ENABLED && len >= HexVectorSupport.THRESHOLD) {
+            int done = HexVectorKernels.encode(src, srcOff, len, dst, p);
+            srcOff += done;
+            len -= done;
+            p += done << 1;
+        }
+        for (int i = srcOff, end = srcOff + len; i < end; i++) {
+            int idx = (src[i] & 0xff) << 1;
+            dst[p++] = BYTE_TO_ASCII[idx];
+            dst[p++] = BYTE_TO_ASCII[idx + 1];
+        }
+        return p;
+    }
+
+    // Encodes src[srcOff, srcOff+len) as ASCII into dst at the absolute index dstIndex,
+    // leaving the buffer position untouched. Returns the index just past the last byte written.
+    public static int encode(byte[] src, int srcOff, int len, ByteBuffer dst, int dstIndex, boolean prefix) {
+        if (dst.hasArray()) {
+            int base = dst.arrayOffset();
+            Objects.checkFromIndexSize(dstIndex, encodedLength(len, prefix), dst.limit());
+            return encode(src, srcOff, len, dst.array(), base + dstIndex, prefix) - base;
+        }
+        int p = dstIndex;
+        if (prefix) {
+            dst.put(p++, (byte) '0');
+            dst.put(p++, (byte) 'x');
+        }
+        for (int i = srcOff, end = srcOff + len; i < end; i++) {
+            int idx = (src[i] & 0xff) << 1;
+            dst.put(p++, BYTE_TO_ASCII[idx]);
+            dst.put(p++, BYTE_TO_ASCII[idx + 1]);
+        }
+        return p;
+    }
+
+    // Encodes src[srcOff, srcOff+len) as ASCII at the current position of dst and advances it.
+    public static ByteBuffer encode(byte[] src, int srcOff, int len, ByteBuffer dst, boolean prefix) {
+        int n = encodedLength(len, prefix);
+        if (dst.remaining() < n) {
+            throw new BufferOverflowException();
+        }
+        dst.position(encode(src, srcOff, len, dst, dst.position(), prefix));
+        return dst;
+    }
+
+    // Appends the encoding of src[srcOff, srcOff+len) to dst.
+    public static StringBuilder encode(byte[] src, int srcOff, int len, StringBuilder dst, boolean prefix) {
+        dst.ensureCapacity(dst.length() + encodedLength(len, prefix));
+        if (prefix) {
+            dst.append('0').append('x');
+        }
+        for (int i = srcOff, end = srcOff + len; i < end; i++) {
+            int idx = (src[i] & 0xff) << 1;
+            dst.append(BYTE_TO_CHARS[idx]).append(BYTE_TO_CHARS[idx + 1]);
+        }
+        return dst;
+    }
+
+    // Appends the encoding of src[srcOff, srcOff+len) to an arbitrary Appendable.
+    public static <A extends Appendable> A encode(byte[] src, int srcOff, int len, A dst, boolean prefix) throws IOException {
+        if (prefix) {
+            dst.append('0').append('x');
+        }
+        for (int i = srcOff, end = srcOff + len; i < end; i++) {
+            int idx = (src[i] & 0xff) << 1;
+            dst.append(BYTE_TO_CHARS[idx]).append(BYTE_TO_CHARS[idx + 1]);
+        }
+        return dst;
+    }
+
+    // Returns the encoding of src[srcOff, srcOff+len) as a String. The digits are written
+    // into a single Latin-1 buffer, so the only allocations are that buffer and the String.
+    public static String toHexString(byte[] src, int srcOff, int len, boolean prefix) {
+        byte[] out = new byte[encodedLength(len, prefix)];
+        encode(src, srcOff, len, out, 0, prefix);
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+
+    public static String toHexString(byte[] src, boolean prefix) {
+        return toHexString(src, 0, src.length, prefix);
+    }
+
+    // Encodes the low len bytes of value, most significant first, as 2 * len digits into dst
+    // starting at dstOff and returns the index just past the last character written. This
+    // lets types stored as long limbs encode without materialising a byte[].
+    public static int encodeLong(long value, int len, char[] dst, int dstOff) {
+        Objects.checkFromIndexSize(dstOff, len << 1, dst.length);
+        int p = dstOff;
+        for (int shift = (len - 1) << 3; shift >= 0; shift -= 8) {
+            int idx = ((int) (value >>> shift) & 0xff) << 1;
+            dst[p++] = BYTE_TO_CHARS[idx];
+            dst[p++] = BYTE_TO_CHARS[idx + 1];
+        }
+        return p;
+    }
+
+    // Like encodeLong(long, int, char[], int), writing ASCII bytes.
+    public static int encodeLong(long value, int len, byte[] dst, int dstOff) {
+        Objects.checkFromIndexSize(dstOff, len << 1, dst.length);
+        int p = dstOff;
+        for (int shift = (len - 1) << 3; shift >= 0; shift -= 8) {
+            int idx = ((int) (value >>> shift) & 0xff) << 1;
+            dst[p++] = BYTE_TO_ASCII[idx];
+            dst[p++] = BYTE_TO_ASCII[idx + 1];
+        }
+        return p;
+    }
+
+    // Encodes value as a quantity (no leading zeros) into dst starting at dstOff and returns
+    // the index just past the last character written.
+    public static int encodeUint64(long value, char[] dst, int dstOff, boolean prefix) {
+        int p = dstOff;
+        if (prefix) {
+            dst[p++] = '0';
+            dst[p++] = 'x';
+        }
+        for (int shift = (uint64Digits(value) - 1) << 2; shift >= 0; shift -= 4) {
+            dst[p++] = DIGITS[(int) (value >>> shift) & 0x0f];
+        }
+        return p;
+    }
+
+    // Encodes value as an ASCII quantity (no leading zeros) into dst starting at dstOff and
+    // returns the index just past the last byte written.
+    public static int encodeUint64(long value, byte[] dst, int dstOff, boolean prefix) {
+        int p = dstOff;
+        if (prefix) {
+            dst[p++] = '0';
+            dst[p++] = 'x';
+        }
+        for (int shift = (uint64Digits(value) - 1) << 2; shift >= 0; shift -= 4) {
+            dst[p++] = (byte) DIGITS[(int) (value >>> shift) & 0x0f];
+        }
+        return p;
+    }
+
+    // Returns value encoded as a quantity.
+    public static String uint64ToHexString(long value, boolean prefix) {
+        byte[] out = new byte[(prefix ? 2 : 0) + uint64Digits(value)];
+        encodeUint64(value, out, 0, prefix);
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,106 @@
+package org.eth.hexutil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+
+// HexEncodingChannel hex-encodes everything written to it and passes the ASCII digits on to
+// a sink channel in fixed-size chunks, so memory use does not depend on the payload size.
+// The sink is expected to be blocking. Wrap with Channels.newOutputStream for an
+// OutputStream view.
+public final class HexEncodingChannel implements WritableByteChannel {
+
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private final WritableByteChannel sink;
+    private final ByteBuffer out;
+    private final byte[] scratch;
+    private boolean prefixPending;
+    private boolean open = true;
+
+    public HexEncodingChannel(WritableByteChannel sink, boolean prefix) {
+        this(sink, prefix, DEFAULT_CHUNK_SIZE);
+    }
+
+    // chunkSize is the size of the ASCII output buffer in bytes.
+    public HexEncodingChannel(WritableByteChannel sink, boolean prefix, int chunkSize) {
+        if (chunkSize < 4) {
+            throw new IllegalArgumentException("Chunk size must be at least 4 bytes");
+        }
+        this.sink = sink;
+        this.out = ByteBuffer.allocate(chunkSize & ~1);
+        this.scratch = new byte[out.capacity() >>> 1];
+        this.prefixPending = prefix;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        writePrefix();
+        int n = src.remaining();
+        while (src.hasRemaining()) {
+            int chunk = Math.min(src.remaining(), out.remaining() >>> 1);
+            if (chunk == 0) {
+                flush();
+                continue;
+            }
+            byte[] in;
+            int inOff;
+            if (src.hasArray()) {
+                in = src.array();
+                inOff = src.arrayOffset() + src.position();
+                src.position(src.position() + chunk);
+            } else {
+                in = scratch;
+                inOff = 0;
+                src.get(scratch, 0, chunk);
+            }
+            int end = HexEncoder.encode(in, inOff, chunk, out.array(), out.position(), false);
+            out.position(end);
+        }
+        return n;
+    }
+
+    // Writes all buffered digits to the sink.
+    public void flush() throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        out.flip();
+        while (out.hasRemaining()) {
+            sink.write(out);
+        }
+        out.clear();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    // Flushes the remaining digits and closes the sink. An empty stream with a prefix is
+    // written as "0x", matching HexUtil.encode.
+    @Override
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        try {
+            writePrefix();
+            flush();
+        } finally {
+            open = false;
+            sink.close();
+        }
+    }
+
+    private void writePrefix() {
+        if (prefixPending) {
+            out.put((byte) '0').put((byte) 'x');
+            prefixPending = false;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.eth.hexutil;
+
+import org.eth.hexutil.HexUtil.HexUtilException;
+
+// HexError enumerates the ways hex input can be malformed. The non-throwing decoders (the
+// try* methods of HexDecoder and HexUtil) report them as negative result codes, so bulk
+// validation never allocates; exception() maps a code back to the preallocated, stackless
+// HexUtilException that the throwing API uses.
+public enum HexError {
+    EMPTY_STRING(HexUtil.ErrEmptyString.INSTANCE),
+    SYNTAX(HexUtil.ErrSyntax.INSTANCE),
+    MISSING_PREFIX(HexUtil.ErrMissingPrefix.INSTANCE),
+    ODD_LENGTH(HexUtil.ErrOddLength.INSTANCE),
+    EMPTY_NUMBER(HexUtil.ErrEmptyNumber.INSTANCE),
+    LEADING_ZERO(HexUtil.ErrLeadingZero.INSTANCE),
+    UINT64_RANGE(HexUtil.ErrUint64Range.INSTANCE),
+    BIG256_RANGE(HexUtil.ErrBig256Range.INSTANCE),
+    LENGTH(HexUtil.ErrLength.INSTANCE);
+
+    private static final HexError[] VALUES = values();
+
+    private final int code;
+    private final HexUtilException exception;
+
+    HexError(HexUtilException exception) {
+        this.code = -1 - ordinal();
+        this.exception = exception;
+    }
+
+    // Returns the negative result code reported by the non-throwing decoders.
+    public int code() {
+        return code;
+    }
+
+    // Returns the error for a negative result code.
+    public static HexError of(int code) {
+        if (code >= 0 || -1 - code >= VALUES.length) {
+            throw new IllegalArgumentException("Not a hex error code: " + code);
+        }
+        return VALUES[-1 - code];
+    }
+
+    // Returns the preallocated, stackless exception for this error.
+    public HexUtilException exception() {
+        return exception;
+    }
+
+    public String message() {
+        return exception.getMessage();
+    }
+
+    // Returns result unchanged if it is not an error code, otherwise throws the matching exception.
+    static int check(int result) throws HexUtilException {
+        if (result < 0) {
+            throw of(result).exception;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,273 @@
+package org.eth.hexutil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+
+// HexTokenScanner finds the 0x-prefixed 20-byte and 32-byte hex values, addresses and hashes,
+// embedded in text such as logs, trace dumps and JSON. A token is 0x or 0X followed by exactly
+// 40 or 64 hex digits, standing as a word of its own: the characters before and after it must
+// not be ASCII letters, digits or underscores, so longer hex values and identifiers that merely
+// contain hex are skipped.
+//
+// Like java.util.regex.Matcher, a scanner is a cursor: find moves to the next token and start,
+// end, kind and value describe it. The value is decoded into one buffer owned by the scanner
+// and overwritten by the next find, so scanning allocates nothing. Sources are a
+// CharSequence, including CharBuffer, or ASCII bytes in a ByteBuffer, including a mapped file;
+// scan(FileChannel) maps and scans a whole file of any size.
+//
+// The search steps through the text in strides: a token covers 42 positions, so if the last of
+// them holds a character that cannot be part of one, no token starts in the stride and the scan
+// skips it without looking at the rest. Plain text is crossed in roughly one read per 42 bytes.
+public final class HexTokenScanner {
+
+    public enum Kind {
+        ADDRESS(20),
+        HASH(32);
+
+        private final int length;
+
+        Kind(int length) {
+            this.length = length;
+        }
+
+        // Returns the number of bytes the token decodes to.
+        public int length() {
+            return length;
+        }
+    }
+
+    // Listener receives the tokens of scan. The value array is reused for every token.
+    public interface Listener {
+        void onToken(Kind kind, long offset, byte[] value);
+    }
+
+    private static final int ADDRESS_DIGITS = 40;
+    private static final int HASH_DIGITS = 64;
+    // Length of the shortest token, prefix included.
+    private static final int MIN_TOKEN = 2 + ADDRESS_DIGITS;
+    private static final int MAX_TOKEN = 2 + HASH_DIGITS;
+    // Bytes of a file mapped and scanned at a time by scan(FileChannel).
+    private static final int WINDOW = 1 << 30;
+
+    private static final byte HEX = 1;
+    private static final byte WORD = 2;
+    // Characters that may stand at any position of a token: hex digits and the x of the prefix.
+    private static final byte TOKEN = 4;
+    private static final byte[] CLASSES = new byte[256];
+
+    static {
+        for (int c = 0; c < 128; c++) {
+            if (Character.isLetterOrDigit(c) || c == '_') {
+                CLASSES[c] = WORD;
+            }
+            if (HexDecoder.nibble(c) >= 0) {
+                CLASSES[c] |= HEX | TOKEN;
+            }
+        }
+        CLASSES['x'] |= TOKEN;
+        CLASSES['X'] |= TOKEN;
+    }
+
+    private final CharSequence chars;
+    private final ByteBuffer bytes;
+    // Bounds of the readable source.
+    private final int lo;
+    private final int hi;
+    // Bounds of the positions where tokens may start.
+    private int from;
+    private int to;
+    private int next;
+
+    private final byte[] value = new byte[32];
+    private Kind kind;
+    private int start = -1;
+    private int end = -1;
+
+    private HexTokenScanner(CharSequence chars, ByteBuffer bytes, int lo, int hi) {
+        this.chars = chars;
+        this.bytes = bytes;
+        this.lo = lo;
+        this.hi = hi;
+        this.from = lo;
+        this.to = hi;
+        this.next = lo;
+    }
+
+    // Returns a scanner over src. Offsets are indices into src.
+    public static HexTokenScanner of(CharSequence src) {
+        return new HexTokenScanner(src, null, 0, src.length());
+    }
+
+    // Returns a scanner over the ASCII bytes between the position and limit of src. Offsets are
+    // absolute indices into src, whose position is left unchanged.
+    public static HexTokenScanner of(ByteBuffer src) {
+        return new HexTokenScanner(null, src, src.position(), src.limit());
+    }
+
+    // Maps the file in windows and passes every token to listener with its file offset.
+    // Returns the number of tokens.
+    public static long scan(FileChannel ch, Listener listener) throws IOException {
+        long size = ch.size();
+        long found = 0;
+        for (long base = 0; base < size; base += WINDOW) {
+            // Map one byte before the window to see what precedes a token at its start, and a
+            // token's length past it to finish tokens that start inside it.
+            long mapStart = Math.max(0, base - 1);
+            long mapEnd = Math.min(size, base + WINDOW + MAX_TOKEN + 1);
+            MappedByteBuffer m = ch.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+            HexTokenScanner s = of(m).region((int) (base - mapStart), (int) (Math.min(size, base + WINDOW) - mapStart));
+            while (s.find()) {
+                listener.onToken(s.kind, mapStart + s.start, s.value);
+                found++;
+            }
+        }
+        return found;
+    }
+
+    // Passes every remaining token to listener and returns their number.
+    public long scan(Listener listener) {
+        long found = 0;
+        while (find()) {
+            listener.onToken(kind, start, value);
+            found++;
+        }
+        return found;
+    }
+
+    // Limits the tokens found to those starting in [from, to) and resets the scanner. Characters
+    // outside the region are still read to check a token's surroundings and to finish it.
+    public HexTokenScanner region(int from, int to) {
+        Objects.checkFromToIndex(from, to, hi);
+        if (from < lo) {
+            throw new IndexOutOfBoundsException("Region starts before the source: " + from);
+        }
+        this.from = from;
+        this.to = to;
+        return reset();
+    }
+
+    public HexTokenScanner reset() {
+        next = from;
+        kind = null;
+        start = -1;
+        end = -1;
+        return this;
+    }
+
+    // Moves to the next token and returns true, or returns false if there is none.
+    public boolean find() {
+        int i = next;
+        while (i < to && i + MIN_TOKEN <= hi) {
+            if ((classOf(at(i + MIN_TOKEN - 1)) & TOKEN) == 0) {
+                i += MIN_TOKEN;
+                continue;
+            }
+            if (at(i) == '0' && (at(i + 1) | 0x20) == 'x' && (i == lo || (classOf(at(i - 1)) & WORD) == 0)) {
+                int digits = digitRun(i + 2);
+                if (accept(i, digits)) {
+                    next = end;
+                    return true;
+                }
+                // No token starts inside a run of hex digits, since each is preceded by a word
+                // character.
+                i += 2 + digits;
+                continue;
+            }
+            i++;
+        }
+        next = Math.max(i, next);
+        kind = null;
+        start = -1;
+        end = -1;
+        return false;
+    }
+
+    // Reports whether a token starts exactly at index, whatever precedes it, and if so makes it
+    // the current token. Used to parse a token at a known position.
+    public boolean lookingAt(int index) {
+        if (index >= lo && index + MIN_TOKEN <= hi && at(index) == '0' && (at(index + 1) | 0x20) == 'x'
+                && accept(index, digitRun(index + 2))) {
+            next = end;
+            return true;
+        }
+        kind = null;
+        start = -1;
+        end = -1;
+        return false;
+    }
+
+    // Returns the kind of the current token.
+    public Kind kind() {
+        checkMatch();
+        return kind;
+    }
+
+    // Returns the offset of the 0 of the current token's prefix.
+    public int start() {
+        checkMatch();
+        return start;
+    }
+
+    // Returns the offset just past the current token.
+    public int end() {
+        checkMatch();
+        return end;
+    }
+
+    // Returns the buffer holding the current token's bytes in [0, kind().length()). It is
+    // overwritten by the next find.
+    public byte[] value() {
+        checkMatch();
+        return value;
+    }
+
+    public void copyValue(byte[] dst, int off) {
+        checkMatch();
+        System.arraycopy(value, 0, dst, off, kind.length);
+    }
+
+    // Returns the number of hex digits from i, counting at most one past the longest token.
+    private int digitRun(int i) {
+        int limit = Math.min(hi, i + HASH_DIGITS + 1);
+        int j = i;
+        while (j < limit && (classOf(at(j)) & HEX) != 0) {
+            j++;
+        }
+        return j - i;
+    }
+
+    // Makes the digits after the prefix at s the current token if they are a whole token.
+    private boolean accept(int s, int digits) {
+        if (digits != ADDRESS_DIGITS && digits != HASH_DIGITS) {
+            return false;
+        }
+        int e = s + 2 + digits;
+        if (e < hi && (classOf(at(e)) & WORD) != 0) {
+            return false;
+        }
+        for (int k = 0, p = s + 2; k < digits; k += 2, p += 2) {
+            value[k >>> 1] = (byte) (HexDecoder.nibble(at(p)) << 4 | HexDecoder.nibble(at(p + 1)));
+        }
+        kind = digits == HASH_DIGITS ? Kind.HASH : Kind.ADDRESS;
+        start = s;
+        end = e;
+        return true;
+    }
+
+    private int at(int i) {
+        return chars != null ? chars.charAt(i) : bytes.get(i) & 0xff;
+    }
+
+    private static int classOf(int c) {
+        return (c & ~0xff) == 0 ? CLASSES[c] : 0;
+    }
+
+    private void checkMatch() {
+        if (kind == null) {
+            throw new IllegalStateException("No current token");
+        }
+    }
+}
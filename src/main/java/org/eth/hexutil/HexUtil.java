@@ -1,98 +1,200 @@
 package org.eth.hexutil;
 
-import org.apache.commons.codec.binary.Hex;
-
+import java.io.IOException;
 import java.math.BigInteger;
-import java.util.Arrays;
+import java.util.Objects;
 
 public class HexUtil {
 
-    // Custom Exceptions for Error Handling
+    // Custom Exceptions for Error Handling. Every subclass has a preallocated INSTANCE
+    // without stack trace or suppression, which is what the decoders throw: malformed input
+    // from clients is routine and should not cost a stack walk.
     public static class HexUtilException extends Exception {
         public HexUtilException(String message) {
             super(message);
         }
+
+        protected HexUtilException(String message, boolean writableStackTrace) {
+            super(message, null, false, writableStackTrace);
+        }
     }
 
     public static class ErrEmptyString extends HexUtilException {
+        public static final ErrEmptyString INSTANCE = new ErrEmptyString(false);
+
         public ErrEmptyString() {
             super("Empty hex string");
         }
+
+        private ErrEmptyString(boolean writableStackTrace) {
+            super("Empty hex string", writableStackTrace);
+        }
     }
 
     public static class ErrSyntax extends HexUtilException {
+        public static final ErrSyntax INSTANCE = new ErrSyntax(false);
+
         public ErrSyntax() {
             super("Invalid hex string");
         }
+
+        private ErrSyntax(boolean writableStackTrace) {
+            super("Invalid hex string", writableStackTrace);
+        }
     }
 
     public static class ErrMissingPrefix extends HexUtilException {
+        public static final ErrMissingPrefix INSTANCE = new ErrMissingPrefix(false);
+
         public ErrMissingPrefix() {
             super("Hex string without 0x prefix");
         }
+
+        private ErrMissingPrefix(boolean writableStackTrace) {
+            super("Hex string without 0x prefix", writableStackTrace);
+        }
     }
 
     public static class ErrOddLength extends HexUtilException {
+        public static final ErrOddLength INSTANCE = new ErrOddLength(false);
+
         public ErrOddLength() {
             super("Hex string of odd length");
         }
+
+        private ErrOddLength(boolean writableStackTrace) {
+            super("Hex string of odd length", writableStackTrace);
+        }
     }
 
     public static class ErrEmptyNumber extends HexUtilException {
+        public static final ErrEmptyNumber INSTANCE = new ErrEmptyNumber(false);
+
         public ErrEmptyNumber() {
             super("Hex string \"0x\"");
         }
+
+        private ErrEmptyNumber(boolean writableStackTrace) {
+            super("Hex string \"0x\"", writableStackTrace);
+        }
     }
 
     public static class ErrLeadingZero extends HexUtilException {
+        public static final ErrLeadingZero INSTANCE = new ErrLeadingZero(false);
+
         public ErrLeadingZero() {
             super("Hex number with leading zero digits");
         }
+
+        private ErrLeadingZero(boolean writableStackTrace) {
+            super("Hex number with leading zero digits", writableStackTrace);
+        }
     }
 
     public static class ErrUint64Range extends HexUtilException {
+        public static final ErrUint64Range INSTANCE = new ErrUint64Range(false);
+
         public ErrUint64Range() {
             super("Hex number > 64 bits");
         }
+
+        private ErrUint64Range(boolean writableStackTrace) {
+            super("Hex number > 64 bits", writableStackTrace);
+        }
     }
 
     public static class ErrBig256Range extends HexUtilException {
+        public static final ErrBig256Range INSTANCE = new ErrBig256Range(false);
+
         public ErrBig256Range() {
             super("Hex number > 256 bits");
         }
+
+        private ErrBig256Range(boolean writableStackTrace) {
+            super("Hex number > 256 bits", writableStackTrace);
+        }
     }
 
-    // Decode a hex string with 0x prefix to a byte array
-    public static byte[] decode(String input) throws HexUtilException {
-        if (input == null || input.isEmpty()) {
-            throw new ErrEmptyString();
+    public static class ErrLength extends HexUtilException {
+        public static final ErrLength INSTANCE = new ErrLength(false);
+
+        public ErrLength() {
+            super("Hex string has wrong length");
+        }
+
+        private ErrLength(boolean writableStackTrace) {
+            super("Hex string has wrong length", writableStackTrace);
+        }
+    }
+
+    // HexStreamException reports malformed input found by the streaming codecs. The cause is
+    // the HexUtilException describing the problem and the offset is the index of the
+    // offending byte counted from the start of the stream.
+    public static class HexStreamException extends IOException {
+        private final long offset;
+
+        public HexStreamException(HexUtilException cause, long offset) {
+            super(cause.getMessage() + " at offset " + offset, cause);
+            this.offset = offset;
         }
-        if (!input.startsWith("0x")) {
-            throw new ErrMissingPrefix();
+
+        public long getOffset() {
+            return offset;
         }
-        String hexString = input.substring(2);
-        if (hexString.length() % 2 != 0) {
-            throw new ErrOddLength();
+
+        @Override
+        public synchronized HexUtilException getCause() {
+            return (HexUtilException) super.getCause();
         }
-        try {
-            return Hex.decodeHex(hexString);
-        } catch (Exception e) {
-            throw new ErrSyntax();
+    }
+
+    // Decode a hex string with 0x prefix to a byte array
+    public static byte[] decode(String input) throws HexUtilException {
+        if (input == null || input.isEmpty()) {
+            throw ErrEmptyString.INSTANCE;
         }
+        byte[] out = new byte[Math.max(0, input.length() - 2) >>> 1];
+        HexDecoder.decode(input, 0, input.length(), out, 0);
+        return out;
     }
 
     // Encode a byte array to a hex string with 0x prefix
     public static String encode(byte[] bytes) {
-        return "0x" + byteArrayToHexString(bytes);
+        return HexEncoder.toHexString(bytes, 0, bytes.length, true);
     }
 
     // Decode a hex string with 0x prefix to a BigInteger
     public static BigInteger decodeBig(String input) throws HexUtilException {
-        String raw = checkNumber(input);
-        if (raw.length() > 64) {
-            throw new ErrBig256Range();
+        if (input == null) {
+            throw ErrEmptyString.INSTANCE;
+        }
+        return decodeBig(input, 0, input.length());
+    }
+
+    // Decode the 0x-prefixed quantity input[from, to) to a BigInteger
+    public static BigInteger decodeBig(CharSequence input, int from, int to) throws HexUtilException {
+        int start = HexError.check(bigStart(input, from, to));
+        byte[] magnitude = new byte[(to - start + 1) >>> 1];
+        HexDecoder.decodeDigits(input, start, to, magnitude, 0);
+        return new BigInteger(1, magnitude);
+    }
+
+    // Checks that input[from, to) is a valid quantity of at most 256 bits. Returns 0, or a
+    // negative HexError code.
+    public static int validateBig(CharSequence input, int from, int to) {
+        int start = bigStart(input, from, to);
+        return start < 0 ? start : 0;
+    }
+
+    private static int bigStart(CharSequence input, int from, int to) {
+        int start = checkNumber(input, from, to);
+        if (start < 0) {
+            return start;
+        }
+        if (to - start > 64) {
+            return HexError.BIG256_RANGE.code();
         }
-        return new BigInteger(raw, 16);
+        return HexDecoder.isHexDigits(input, start, to) ? start : HexError.SYNTAX.code();
     }
 
     // Encode a BigInteger to a hex string with 0x prefix
@@ -106,55 +208,83 @@ public class HexUtil {
 
     // Decode a hex string with 0x prefix to a long
     public static long decodeUint64(String input) throws HexUtilException {
-        String raw = checkNumber(input);
-        if (raw.length() > 16) {
-            throw new ErrUint64Range();
-        }
-        try {
-            return Long.parseLong(raw, 16);
-        } catch (NumberFormatException e) {
-            throw new ErrSyntax();
+        if (input == null) {
+            throw ErrEmptyString.INSTANCE;
         }
+        return decodeUint64(input, 0, input.length());
     }
 
-    // Encode a long to a hex string with 0x prefix
-    public static String encodeUint64(long value) {
-        return "0x" + Long.toHexString(value);
+    // Decode the 0x-prefixed quantity input[from, to) to a long. The full unsigned 64-bit
+    // range is accepted; values of 2^63 and above come back negative, as with
+    // Long.parseUnsignedLong.
+    public static long decodeUint64(CharSequence input, int from, int to) throws HexUtilException {
+        return uint64Value(input, HexError.check(uint64Start(input, from, to)), to);
     }
 
-    private static String checkNumber(String input) throws HexUtilException {
-        if (input == null || input.isEmpty()) {
-            throw new ErrEmptyString();
+    // Uint64Result receives the value decoded by tryDecodeUint64, so a single instance can be
+    // reused across many inputs.
+    public static final class Uint64Result {
+        private long value;
+
+        public long value() {
+            return value;
         }
-        if (!input.startsWith("0x")) {
-            throw new ErrMissingPrefix();
+    }
+
+    // Like decodeUint64(CharSequence, int, int), but stores the value in result and returns 0,
+    // or returns a negative HexError code instead of throwing.
+    public static int tryDecodeUint64(CharSequence input, int from, int to, Uint64Result result) {
+        int start = uint64Start(input, from, to);
+        if (start < 0) {
+            return start;
         }
-        input = input.substring(2);
-        if (input.isEmpty()) {
-            throw new ErrEmptyNumber();
+        result.value = uint64Value(input, start, to);
+        return 0;
+    }
+
+    private static int uint64Start(CharSequence input, int from, int to) {
+        int start = checkNumber(input, from, to);
+        if (start < 0) {
+            return start;
         }
-        if (input.length() > 1 && input.startsWith("0")) {
-            throw new ErrLeadingZero();
+        if (to - start > 16) {
+            return HexError.UINT64_RANGE.code();
         }
-        return input;
+        return HexDecoder.isHexDigits(input, start, to) ? start : HexError.SYNTAX.code();
     }
 
-    private static byte[] hexStringToByteArray(String s) {
-        int len = s.length();
-        byte[] data = new byte[len / 2];
-        for (int i = 0; i < len; i += 2) {
-            data[i / 2] = (byte) ((Character.digit(s.charAt(i), 16) << 4)
-                    + Character.digit(s.charAt(i+1), 16));
+    // Accumulates the already validated digits input[start, to).
+    private static long uint64Value(CharSequence input, int start, int to) {
+        long value = 0;
+        for (int i = start; i < to; i++) {
+            value = (value << 4) | HexDecoder.nibble(input.charAt(i));
         }
-        return data;
+        return value;
+    }
+
+    // Encode a long to a hex string with 0x prefix
+    public static String encodeUint64(long value) {
+        return HexEncoder.uint64ToHexString(value, true);
     }
 
-    private static String byteArrayToHexString(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
+    // Validates the 0x-prefixed quantity input[from, to) and returns the index of its first
+    // digit, or a negative HexError code.
+    private static int checkNumber(CharSequence input, int from, int to) {
+        Objects.checkFromToIndex(from, to, input.length());
+        int len = to - from;
+        if (len == 0) {
+            return HexError.EMPTY_STRING.code();
+        }
+        if (len < 2 || input.charAt(from) != '0' || input.charAt(from + 1) != 'x') {
+            return HexError.MISSING_PREFIX.code();
+        }
+        if (len == 2) {
+            return HexError.EMPTY_NUMBER.code();
+        }
+        if (len > 3 && input.charAt(from + 2) == '0') {
+            return HexError.LEADING_ZERO.code();
         }
-        return sb.toString();
+        return from + 2;
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,147 @@
+package org.eth.hexutil;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+// HexValidator checks hex digits without decoding them. Byte arrays and buffers are read eight
+// ASCII characters to a long and tested with carry-free byte arithmetic (SWAR), after the vector
+// kernels where those are enabled; CharSequences are tested a character at a time against a
+// 128-bit table. firstInvalidIndex stops at the first offending character so it can be reported;
+// the isHexString forms accept an optional 0x or 0X prefix by skipping it, without substrings.
+public final class HexValidator {
+
+    // Little-endian so the first character is the low byte and trailing zeros locate it.
+    private static final VarHandle ARRAY_LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long LOW_BITS = 0x7f7f7f7f7f7f7f7fL;
+
+    // Bit c of LOW_TABLE, or bit c - 64 of HIGH_TABLE, is set if character c is a hex digit.
+    private static final long LOW_TABLE = 0x03ffL << '0';
+    private static final long HIGH_TABLE = 0x3fL << ('A' - 64) | 0x3fL << ('a' - 64);
+
+    private HexValidator() {
+    }
+
+    // Returns the index of the first byte of src[from, to) that is not an ASCII hex digit, or
+    // -1 if there is none.
+    public static int firstInvalidIndex(byte[] src, int from, int to) {
+        Objects.checkFromToIndex(from, to, src.length);
+        int i = from;
+        if (HexVectorSupport.ENABLED && to - from >= HexVectorSupport.THRESHOLD) {
+            i = HexVectorKernels.validPrefix(src, from, to);
+        }
+        for (; i <= to - Long.BYTES; i += Long.BYTES) {
+            long invalid = invalidBits((long) ARRAY_LONGS.get(src, i));
+            if (invalid != 0) {
+                return i + (Long.numberOfTrailingZeros(invalid) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (!isDigit(src[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Returns the index of the first byte of src[from, to) that is not an ASCII hex digit, or
+    // -1 if there is none. Indices are absolute and the position of src is not used.
+    public static int firstInvalidIndex(ByteBuffer src, int from, int to) {
+        Objects.checkFromToIndex(from, to, src.limit());
+        if (src.hasArray()) {
+            int off = src.arrayOffset();
+            int i = firstInvalidIndex(src.array(), off + from, off + to);
+            return i < 0 ? -1 : i - off;
+        }
+        int i = from;
+        for (; i <= to - Long.BYTES; i += Long.BYTES) {
+            long invalid = invalidBits((long) BUFFER_LONGS.get(src, i));
+            if (invalid != 0) {
+                return i + (Long.numberOfTrailingZeros(invalid) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (!isDigit(src.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Returns the index of the first character of src[from, to) that is not a hex digit, or -1
+    // if there is none.
+    public static int firstInvalidIndex(CharSequence src, int from, int to) {
+        Objects.checkFromToIndex(from, to, src.length());
+        for (int i = from; i < to; i++) {
+            if (!isDigit(src.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Reports whether src[from, to) is an optional 0x prefix followed by an even number of hex
+    // digits.
+    public static boolean isHexString(CharSequence src, int from, int to) {
+        int start = HexDecoder.hasPrefix(src, from, to) ? from + 2 : from;
+        return ((to - start) & 1) == 0 && firstInvalidIndex(src, start, to) < 0;
+    }
+
+    // Reports whether src[from, to) is an optional 0x prefix followed by the 2 * bytes hex
+    // digits of a value of that many bytes, such as an address or hash.
+    public static boolean isHexString(CharSequence src, int from, int to, int bytes) {
+        int start = HexDecoder.hasPrefix(src, from, to) ? from + 2 : from;
+        return to - start == 2 * bytes && firstInvalidIndex(src, start, to) < 0;
+    }
+
+    public static boolean isHexString(byte[] src, int from, int to) {
+        int start = hasPrefix(src, from, to) ? from + 2 : from;
+        return ((to - start) & 1) == 0 && firstInvalidIndex(src, start, to) < 0;
+    }
+
+    public static boolean isHexString(byte[] src, int from, int to, int bytes) {
+        int start = hasPrefix(src, from, to) ? from + 2 : from;
+        return to - start == 2 * bytes && firstInvalidIndex(src, start, to) < 0;
+    }
+
+    // Indices are absolute and the position of src is not used.
+    public static boolean isHexString(ByteBuffer src, int from, int to) {
+        int start = hasPrefix(src, from, to) ? from + 2 : from;
+        return ((to - start) & 1) == 0 && firstInvalidIndex(src, start, to) < 0;
+    }
+
+    public static boolean isHexString(ByteBuffer src, int from, int to, int bytes) {
+        int start = hasPrefix(src, from, to) ? from + 2 : from;
+        return to - start == 2 * bytes && firstInvalidIndex(src, start, to) < 0;
+    }
+
+    // Returns a long with the high bit of every byte of word set where that byte is not an
+    // ASCII hex digit. Bytes are compared by adding 0x80 - bound to their low seven bits, which
+    // sets the high bit exactly when the byte is at least bound and never carries into the next.
+    static long invalidBits(long word) {
+        long v = word & LOW_BITS;
+        long digit = (v + ONES * (0x80 - '0')) & ~(v + ONES * (0x80 - '9' - 1));
+        // Setting bit 5 folds 'A'-'F' onto 'a'-'f' and maps nothing else there.
+        long folded = v | ONES * 0x20;
+        long letter = (folded + ONES * (0x80 - 'a')) & ~(folded + ONES * (0x80 - 'f' - 1));
+        return ~((digit | letter) & ~word) & HIGH_BITS;
+    }
+
+    private static boolean isDigit(int c) {
+        return (c & ~0x7f) == 0 && ((c < 64 ? LOW_TABLE : HIGH_TABLE) >>> c & 1) != 0;
+    }
+
+    private static boolean hasPrefix(byte[] src, int from, int to) {
+        return to - from >= 2 && src[from] == '0' && (src[from + 1] | 0x20) == 'x';
+    }
+
+    private static boolean hasPrefix(ByteBuffer src, int from, int to) {
+        return to - from >= 2 && src.get(from) == '0' && (src.get(from + 1) | 0x20) == 'x';
+    }
+}
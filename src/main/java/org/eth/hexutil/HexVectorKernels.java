@@ -0,0 +1,128 @@
+package org.eth.hexutil;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.LSHL;
+import static jdk.incubator.vector.VectorOperators.LSHR;
+import static jdk.incubator.vector.VectorOperators.UNSIGNED_LT;
+
+// HexVectorKernels holds the jdk.incubator.vector implementations behind HexEncoder and
+// HexDecoder. It must only be touched through HexVectorSupport, which checks that the
+// incubator module is present before this class is loaded.
+//
+// Every kernel processes whole vectors only and returns how far it got; the caller finishes
+// the tail, and any malformed block, with its scalar loop.
+final class HexVectorKernels {
+
+    private static final VectorSpecies<Byte> SPECIES = pickSpecies();
+    private static final int VL = SPECIES.length();
+
+    // "0123456789abcdef" repeated across the vector, indexed by nibble value.
+    private static final ByteVector DIGITS;
+    // Interleave the high-digit and low-digit vectors into the first and second halves of
+    // the ASCII output.
+    private static final VectorShuffle<Byte> INTERLEAVE_FIRST;
+    private static final VectorShuffle<Byte> INTERLEAVE_SECOND;
+    // Pick the even and odd lanes out of two consecutive vectors of nibbles.
+    private static final VectorShuffle<Byte> EVENS;
+    private static final VectorShuffle<Byte> ODDS;
+
+    static {
+        byte[] digits = new byte[VL];
+        int[] first = new int[VL];
+        int[] second = new int[VL];
+        int[] evens = new int[VL];
+        int[] odds = new int[VL];
+        for (int i = 0; i < VL; i++) {
+            digits[i] = (byte) HexEncoder.DIGITS[i & 0x0f];
+            int k = i >>> 1;
+            // Negative indices select from the second vector of a two-vector rearrange.
+            first[i] = (i & 1) == 0 ? k : k - VL;
+            second[i] = (i & 1) == 0 ? VL / 2 + k : VL / 2 + k - VL;
+            evens[i] = 2 * i < VL ? 2 * i : 2 * i - 2 * VL;
+            odds[i] = 2 * i + 1 < VL ? 2 * i + 1 : 2 * i + 1 - 2 * VL;
+        }
+        DIGITS = ByteVector.fromArray(SPECIES, digits, 0);
+        INTERLEAVE_FIRST = VectorShuffle.fromArray(SPECIES, first, 0);
+        INTERLEAVE_SECOND = VectorShuffle.fromArray(SPECIES, second, 0);
+        EVENS = VectorShuffle.fromArray(SPECIES, evens, 0);
+        ODDS = VectorShuffle.fromArray(SPECIES, odds, 0);
+    }
+
+    private HexVectorKernels() {
+    }
+
+    private static VectorSpecies<Byte> pickSpecies() {
+        VectorSpecies<Byte> preferred = ByteVector.SPECIES_PREFERRED;
+        return preferred.length() > 32 ? ByteVector.SPECIES_256 : preferred;
+    }
+
+    // Reports whether the hardware offers vectors wide enough for the nibble tables.
+    static boolean usable() {
+        return VL >= 16;
+    }
+
+    // Encodes as many whole vectors of src[srcOff, srcOff+len) as possible into dst as ASCII
+    // and returns the number of source bytes consumed.
+    static int encode(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+        int bound = SPECIES.loopBound(len);
+        for (int i = 0; i < bound; i += VL) {
+            ByteVector v = ByteVector.fromArray(SPECIES, src, srcOff + i);
+            ByteVector hi = DIGITS.rearrange(v.lanewise(LSHR, 4).toShuffle());
+            ByteVector lo = DIGITS.rearrange(v.and((byte) 0x0f).toShuffle());
+            int p = dstOff + 2 * i;
+            hi.rearrange(INTERLEAVE_FIRST, lo).intoArray(dst, p);
+            hi.rearrange(INTERLEAVE_SECOND, lo).intoArray(dst, p + VL);
+        }
+        return bound;
+    }
+
+    // Decodes whole pairs of vectors of the ASCII digits src[from, to) into dst and returns
+    // the number of digits consumed. Stops in front of the first block holding a non-hex byte.
+    static int decode(byte[] src, int from, int to, byte[] dst, int dstOff) {
+        int step = 2 * VL;
+        int bound = from + ((to - from) / step) * step;
+        int i = from;
+        int p = dstOff;
+        for (; i < bound; i += step) {
+            ByteVector a = ByteVector.fromArray(SPECIES, src, i);
+            ByteVector b = ByteVector.fromArray(SPECIES, src, i + VL);
+            ByteVector da = a.sub((byte) '0');
+            ByteVector db = b.sub((byte) '0');
+            ByteVector la = a.or((byte) 0x20).sub((byte) 'a');
+            ByteVector lb = b.or((byte) 0x20).sub((byte) 'a');
+            VectorMask<Byte> digitA = da.compare(UNSIGNED_LT, 10);
+            VectorMask<Byte> digitB = db.compare(UNSIGNED_LT, 10);
+            VectorMask<Byte> valid = digitA.or(la.compare(UNSIGNED_LT, 6))
+                    .and(digitB.or(lb.compare(UNSIGNED_LT, 6)));
+            if (!valid.allTrue()) {
+                break;
+            }
+            ByteVector na = la.add((byte) 10).blend(da, digitA);
+            ByteVector nb = lb.add((byte) 10).blend(db, digitB);
+            na.rearrange(EVENS, nb).lanewise(LSHL, 4)
+                    .or(na.rearrange(ODDS, nb))
+                    .intoArray(dst, p);
+            p += VL;
+        }
+        return i - from;
+    }
+
+    // Returns the index of the first non-hex byte in src[from, to) within the whole vectors
+    // of the range, or the start of the unchecked tail if all of them are valid.
+    static int validPrefix(byte[] src, int from, int to) {
+        int bound = from + SPECIES.loopBound(to - from);
+        for (int i = from; i < bound; i += VL) {
+            ByteVector c = ByteVector.fromArray(SPECIES, src, i);
+            VectorMask<Byte> valid = c.sub((byte) '0').compare(UNSIGNED_LT, 10)
+                    .or(c.or((byte) 0x20).sub((byte) 'a').compare(UNSIGNED_LT, 6));
+            if (!valid.allTrue()) {
+                return i + valid.not().firstTrue();
+            }
+        }
+        return bound;
+    }
+}
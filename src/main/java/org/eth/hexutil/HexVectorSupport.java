@@ -0,0 +1,30 @@
+package org.eth.hexutil;
+
+// HexVectorSupport decides once per JVM whether the vectorised kernels in HexVectorKernels
+// can be used. They are enabled when the jdk.incubator.vector module is part of the boot
+// layer (java --add-modules jdk.incubator.vector) and the hardware offers at least 128-bit
+// vectors. Setting the system property org.eth.hexutil.vector to false forces the scalar path.
+final class HexVectorSupport {
+
+    // Inputs shorter than this many bytes are left to the scalar loops.
+    static final int THRESHOLD = 64;
+
+    static final boolean ENABLED = detect();
+
+    private HexVectorSupport() {
+    }
+
+    private static boolean detect() {
+        if (!Boolean.parseBoolean(System.getProperty("org.eth.hexutil.vector", "true"))) {
+            return false;
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return HexVectorKernels.usable();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package org.eth.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.eth.common.CommonTypes.Address;
+import org.eth.common.CommonTypes.Hash;
+import org.eth.common.CommonTypes.MixedcaseAddress;
+import org.eth.common.CommonTypes.UnprefixedAddress;
+import org.eth.common.CommonTypes.UnprefixedHash;
+import org.eth.hexutil.HexDecoder;
+import org.eth.hexutil.HexEncoder;
+import org.eth.hexutil.HexUtil;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.CharBuffer;
+
+import static org.eth.common.CommonTypes.ADDRESS_LENGTH;
+import static org.eth.common.CommonTypes.HASH_LENGTH;
+
+// EthereumModule registers Jackson support for the types in CommonTypes, following the JSON
+// encoding used by go-ethereum: hashes and addresses are 0x-prefixed lowercase hex strings,
+// the Unprefixed variants drop the prefix, and MixedcaseAddress keeps its original text.
+//
+// Serializers encode into a per-thread char buffer and hand it to the generator, and
+// deserializers decode straight from the parser's text buffer, so no intermediate String is
+// created on the happy path.
+//
+// Quantity (de)serializers for BigInteger and long in the HexUtil.encodeBig/encodeUint64
+// format are registered for every BigInteger and long when the module is created with
+// hexQuantities set; otherwise they can be attached to individual fields with
+// @JsonSerialize(using = ...) and @JsonDeserialize(using = ...).
+public class EthereumModule extends SimpleModule {
+
+    // Large enough for a 0x-prefixed hash, the widest value written here.
+    private static final ThreadLocal<char[]> SCRATCH = ThreadLocal.withInitial(() -> new char[2 + 2 * HASH_LENGTH]);
+
+    public EthereumModule() {
+        this(false);
+    }
+
+    public EthereumModule(boolean hexQuantities) {
+        super("EthereumModule");
+        addSerializer(Hash.class, new HashSerializer());
+        addSerializer(UnprefixedHash.class, new UnprefixedHashSerializer());
+        addSerializer(Address.class, new AddressSerializer());
+        addSerializer(UnprefixedAddress.class, new UnprefixedAddressSerializer());
+        addSerializer(MixedcaseAddress.class, new MixedcaseAddressSerializer());
+        addDeserializer(Hash.class, new HashDeserializer());
+        addDeserializer(UnprefixedHash.class, new UnprefixedHashDeserializer());
+        addDeserializer(Address.class, new AddressDeserializer());
+        addDeserializer(UnprefixedAddress.class, new UnprefixedAddressDeserializer());
+        addDeserializer(MixedcaseAddress.class, new MixedcaseAddressDeserializer());
+        if (hexQuantities) {
+            addSerializer(BigInteger.class, new BigQuantitySerializer());
+            addSerializer(Long.class, new Uint64QuantitySerializer());
+            addSerializer(Long.TYPE, new Uint64QuantitySerializer());
+            addDeserializer(BigInteger.class, new BigQuantityDeserializer());
+            addDeserializer(Long.class, new Uint64QuantityDeserializer());
+            addDeserializer(Long.TYPE, new Uint64QuantityDeserializer());
+        }
+    }
+
+    public static class HashSerializer extends StdSerializer<Hash> {
+        public HashSerializer() {
+            super(Hash.class);
+        }
+
+        @Override
+        public void serialize(Hash value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            char[] buf = SCRATCH.get();
+            gen.writeString(buf, 0, value.encodeHex(buf, 0, true));
+        }
+    }
+
+    public static class UnprefixedHashSerializer extends StdSerializer<UnprefixedHash> {
+        public UnprefixedHashSerializer() {
+            super(UnprefixedHash.class);
+        }
+
+        @Override
+        public void serialize(UnprefixedHash value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            char[] buf = SCRATCH.get();
+            gen.writeString(buf, 0, value.encodeHex(buf, 0, false));
+        }
+    }
+
+    public static class AddressSerializer extends StdSerializer<Address> {
+        public AddressSerializer() {
+            super(Address.class);
+        }
+
+        @Override
+        public void serialize(Address value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            char[] buf = SCRATCH.get();
+            gen.writeString(buf, 0, value.encodeHex(buf, 0, true));
+        }
+    }
+
+    public static class UnprefixedAddressSerializer extends StdSerializer<UnprefixedAddress> {
+        public UnprefixedAddressSerializer() {
+            super(UnprefixedAddress.class);
+        }
+
+        @Override
+        public void serialize(UnprefixedAddress value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            char[] buf = SCRATCH.get();
+            gen.writeString(buf, 0, value.encodeHex(buf, 0, false));
+        }
+    }
+
+    public static class MixedcaseAddressSerializer extends StdSerializer<MixedcaseAddress> {
+        public MixedcaseAddressSerializer() {
+            super(MixedcaseAddress.class);
+        }
+
+        @Override
+        public void serialize(MixedcaseAddress value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            String original = value.getOriginal();
+            if (HexDecoder.hasPrefix(original, 0, original.length())) {
+                gen.writeString(original);
+            } else {
+                gen.writeString("0x" + original);
+            }
+        }
+    }
+
+    public static class HashDeserializer extends StdDeserializer<Hash> {
+        public HashDeserializer() {
+            super(Hash.class);
+        }
+
+        @Override
+        public Hash deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return Hash.fromBytes(readFixed(p, ctxt, Hash.class, HASH_LENGTH, true));
+        }
+    }
+
+    public static class UnprefixedHashDeserializer extends StdDeserializer<UnprefixedHash> {
+        public UnprefixedHashDeserializer() {
+            super(UnprefixedHash.class);
+        }
+
+        @Override
+        public UnprefixedHash deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return UnprefixedHash.fromBytes(readFixed(p, ctxt, UnprefixedHash.class, HASH_LENGTH, false));
+        }
+    }
+
+    public static class AddressDeserializer extends StdDeserializer<Address> {
+        public AddressDeserializer() {
+            super(Address.class);
+        }
+
+        @Override
+        public Address deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return Address.fromBytes(readFixed(p, ctxt, Address.class, ADDRESS_LENGTH, true));
+        }
+    }
+
+    public static class UnprefixedAddressDeserializer extends StdDeserializer<UnprefixedAddress> {
+        public UnprefixedAddressDeserializer() {
+            super(UnprefixedAddress.class);
+        }
+
+        @Override
+        public UnprefixedAddress deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return UnprefixedAddress.fromBytes(readFixed(p, ctxt, UnprefixedAddress.class, ADDRESS_LENGTH, false));
+        }
+    }
+
+    public static class MixedcaseAddressDeserializer extends StdDeserializer<MixedcaseAddress> {
+        public MixedcaseAddressDeserializer() {
+            super(MixedcaseAddress.class);
+        }
+
+        @Override
+        public MixedcaseAddress deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            Address address = Address.fromBytes(readFixed(p, ctxt, MixedcaseAddress.class, ADDRESS_LENGTH, true));
+            return new MixedcaseAddress(address, p.getText());
+        }
+    }
+
+    public static class BigQuantitySerializer extends StdSerializer<BigInteger> {
+        public BigQuantitySerializer() {
+            super(BigInteger.class);
+        }
+
+        @Override
+        public void serialize(BigInteger value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            if (value.signum() >= 0 && value.bitLength() < Long.SIZE) {
+                char[] buf = SCRATCH.get();
+                gen.writeString(buf, 0, HexEncoder.encodeUint64(value.longValue(), buf, 0, true));
+            } else {
+                gen.writeString(HexUtil.encodeBig(value));
+            }
+        }
+    }
+
+    public static class Uint64QuantitySerializer extends StdSerializer<Long> {
+        public Uint64QuantitySerializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public void serialize(Long value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            char[] buf = SCRATCH.get();
+            gen.writeString(buf, 0, HexEncoder.encodeUint64(value, buf, 0, true));
+        }
+    }
+
+    public static class BigQuantityDeserializer extends StdDeserializer<BigInteger> {
+        public BigQuantityDeserializer() {
+            super(BigInteger.class);
+        }
+
+        @Override
+        public BigInteger deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            CharSequence text = textOf(p, ctxt, BigInteger.class);
+            try {
+                return HexUtil.decodeBig(text, 0, text.length());
+            } catch (HexUtil.HexUtilException e) {
+                throw ctxt.weirdStringException(p.getText(), BigInteger.class, e.getMessage());
+            }
+        }
+    }
+
+    public static class Uint64QuantityDeserializer extends StdDeserializer<Long> {
+        public Uint64QuantityDeserializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            CharSequence text = textOf(p, ctxt, Long.class);
+            try {
+                return HexUtil.decodeUint64(text, 0, text.length());
+            } catch (HexUtil.HexUtilException e) {
+                throw ctxt.weirdStringException(p.getText(), Long.class, e.getMessage());
+            }
+        }
+    }
+
+    // Returns a view of the current string token that shares the parser's buffer.
+    private static CharSequence textOf(JsonParser p, DeserializationContext ctxt, Class<?> type) throws IOException {
+        if (p.currentToken() != JsonToken.VALUE_STRING) {
+            throw ctxt.wrongTokenException(p, type, JsonToken.VALUE_STRING, "hex quantity must be a JSON string");
+        }
+        return CharBuffer.wrap(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+    }
+
+    // Decodes the current string token, which must hold exactly length bytes of hex, straight
+    // out of the parser's text buffer. With prefixed set the 0x prefix is mandatory, otherwise
+    // it is optional.
+    private static byte[] readFixed(JsonParser p, DeserializationContext ctxt, Class<?> type, int length, boolean prefixed) throws IOException {
+        if (p.currentToken() != JsonToken.VALUE_STRING) {
+            throw ctxt.wrongTokenException(p, type, JsonToken.VALUE_STRING, "hex value must be a JSON string");
+        }
+        char[] text = p.getTextCharacters();
+        int from = p.getTextOffset();
+        int to = from + p.getTextLength();
+        boolean hasPrefix = to - from >= 2 && text[from] == '0' && (text[from + 1] | 0x20) == 'x';
+        if (prefixed && !hasPrefix) {
+            throw ctxt.weirdStringException(p.getText(), type, "hex string without 0x prefix");
+        }
+        if (hasPrefix) {
+            from += 2;
+        }
+        if (to - from != 2 * length) {
+            throw ctxt.weirdStringException(p.getText(), type,
+                    "hex string has length " + (to - from) + ", want " + 2 * length);
+        }
+        byte[] out = new byte[length];
+        try {
+            HexDecoder.decodeDigits(text, from, to, out, 0);
+        } catch (HexUtil.ErrSyntax e) {
+            throw ctxt.weirdStringException(p.getText(), type, e.getMessage());
+        }
+        return out;
+    }
+}
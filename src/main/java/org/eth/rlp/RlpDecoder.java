@@ -0,0 +1,299 @@
+package org.eth.rlp;
+
+import org.eth.common.UInt256;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static org.eth.common.CommonTypes.ADDRESS_LENGTH;
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.HASH_LENGTH;
+import static org.eth.common.CommonTypes.Hash;
+import static org.eth.rlp.RlpItem.LIST_OFFSET;
+import static org.eth.rlp.RlpItem.SHORT_LENGTH;
+import static org.eth.rlp.RlpItem.STRING_OFFSET;
+
+// RlpDecoder is a pull decoder over RLP data in an array, a buffer or a mapped file region.
+// next() steps to the following item of the current list, decoding only its header, and the
+// getters describe that item as offsets and lengths into the data or read it directly as a
+// long, UInt256, BigInteger, Hash or Address. enter() descends into the current list and
+// exit() resumes after it, whatever of it was left unread. Nothing is copied or allocated
+// except what a getter returns, so walking a block body of thousands of transactions costs
+// only the values the caller asks for.
+//
+// Headers are checked as they are read: an item must fit in its enclosing list, and lengths
+// and single bytes must use their shortest form. Integer getters reject leading zeros.
+public final class RlpDecoder {
+
+    private final ByteBuffer data;
+    // Absolute index of the next item, and of the end of the list being read.
+    private int pos;
+    private int end;
+    // Ends of the enclosing lists.
+    private int[] ends = new int[8];
+    private int depth;
+
+    // The current item: start of its header, start and length of its payload. start is -1
+    // before the first next() of a list and after its last.
+    private int start = -1;
+    private int payload;
+    private int length;
+    private boolean list;
+
+    private RlpDecoder(ByteBuffer data, int pos, int end) {
+        this.data = data;
+        this.pos = pos;
+        this.end = end;
+    }
+
+    public static RlpDecoder of(byte[] data) {
+        return of(data, 0, data.length);
+    }
+
+    public static RlpDecoder of(byte[] data, int off, int len) {
+        Objects.checkFromIndexSize(off, len, data.length);
+        return new RlpDecoder(ByteBuffer.wrap(data), off, off + len);
+    }
+
+    // Returns a decoder over the items between the position and limit of data, which is not
+    // modified. Offsets returned are indices into data.
+    public static RlpDecoder of(ByteBuffer data) {
+        return new RlpDecoder(data.duplicate().order(ByteOrder.BIG_ENDIAN), data.position(), data.limit());
+    }
+
+    // Returns whether the current list, or the top-level sequence, has another item.
+    public boolean hasNext() {
+        return pos < end;
+    }
+
+    // Steps to the next item of the current list and returns true, or returns false at its end.
+    public boolean next() {
+        if (pos >= end) {
+            start = -1;
+            return false;
+        }
+        header(pos);
+        pos = payload + length;
+        return true;
+    }
+
+    // Returns the number of items left in the current list after the current item, checking
+    // their headers, without moving.
+    public int remaining() {
+        int s = start, p = payload, n = length;
+        boolean l = list;
+        int count = 0;
+        for (int q = pos; q < end; q = payload + length) {
+            header(q);
+            count++;
+        }
+        start = s;
+        payload = p;
+        length = n;
+        list = l;
+        return count;
+    }
+
+    // Returns the number of lists entered and not exited.
+    public int depth() {
+        return depth;
+    }
+
+    public boolean isList() {
+        requireItem();
+        return list;
+    }
+
+    // Returns the index of the payload of the current item in the data.
+    public int offset() {
+        requireItem();
+        return payload;
+    }
+
+    // Returns the length of the payload of the current item.
+    public int length() {
+        requireItem();
+        return length;
+    }
+
+    // Returns the index of the current item, header included, in the data.
+    public int itemOffset() {
+        requireItem();
+        return start;
+    }
+
+    // Returns the length of the current item, header included.
+    public int itemLength() {
+        requireItem();
+        return payload + length - start;
+    }
+
+    // Descends into the current item, which must be a list. next() then steps through its
+    // items.
+    public void enter() {
+        requireItem();
+        if (!list) {
+            throw new RlpException("Item at " + start + " is not a list");
+        }
+        if (depth == ends.length) {
+            ends = Arrays.copyOf(ends, depth * 2);
+        }
+        ends[depth++] = end;
+        end = payload + length;
+        pos = payload;
+        start = -1;
+    }
+
+    // Leaves the list last entered; next() then steps to the item following it.
+    public void exit() {
+        if (depth == 0) {
+            throw new IllegalStateException("Not in a list");
+        }
+        pos = end;
+        end = ends[--depth];
+        start = -1;
+    }
+
+    // Returns a read-only view of the payload of the current item.
+    public ByteBuffer bytes() {
+        requireItem();
+        return data.slice(payload, length).asReadOnlyBuffer();
+    }
+
+    // Returns a read-only view of the whole encoding of the current item, header included, for
+    // hashing or passing on unchanged.
+    public ByteBuffer raw() {
+        requireItem();
+        return data.slice(start, payload + length - start).asReadOnlyBuffer();
+    }
+
+    public byte[] byteArray() {
+        requireString();
+        byte[] out = new byte[length];
+        data.get(payload, out);
+        return out;
+    }
+
+    public String string() {
+        requireString();
+        return StandardCharsets.UTF_8.decode(data.slice(payload, length)).toString();
+    }
+
+    // Returns the current item as an integer that must fit in 63 bits, such as a nonce, gas
+    // limit or block number.
+    public long longValue() {
+        requireInteger();
+        if (length > 8 || length == 8 && data.get(payload) < 0) {
+            throw new ArithmeticException("Integer at " + start + " does not fit in a long");
+        }
+        long v = 0;
+        for (int i = 0; i < length; i++) {
+            v = v << 8 | (data.get(payload + i) & 0xff);
+        }
+        return v;
+    }
+
+    public UInt256 uint256() {
+        requireInteger();
+        if (length > UInt256.BYTES) {
+            throw new ArithmeticException("Integer at " + start + " does not fit in 256 bits");
+        }
+        return UInt256.fromBuffer(data, payload, length);
+    }
+
+    public BigInteger bigInteger() {
+        requireInteger();
+        byte[] b = new byte[length];
+        data.get(payload, b);
+        return new BigInteger(1, b);
+    }
+
+    public Hash hash() {
+        requireString();
+        if (length != HASH_LENGTH) {
+            throw new RlpException("Item at " + start + " has length " + length + ", not a hash");
+        }
+        return Hash.fromBuffer(data, payload);
+    }
+
+    public Address address() {
+        requireString();
+        if (length != ADDRESS_LENGTH) {
+            throw new RlpException("Item at " + start + " has length " + length + ", not an address");
+        }
+        return Address.fromBuffer(data, payload);
+    }
+
+    // Decodes the header of the item at absolute index p into the current item.
+    private void header(int p) {
+        int b = data.get(p) & 0xff;
+        start = p;
+        if (b < STRING_OFFSET) {
+            payload = p;
+            length = 1;
+            list = false;
+            return;
+        }
+        list = b >= LIST_OFFSET;
+        int n = b - (list ? LIST_OFFSET : STRING_OFFSET);
+        if (n < SHORT_LENGTH) {
+            payload = p + 1;
+            length = n;
+            checkPayload();
+            if (n == 1 && !list && (data.get(payload) & 0xff) < STRING_OFFSET) {
+                throw new RlpException("Non-canonical single byte at " + p);
+            }
+            return;
+        }
+        int k = n - SHORT_LENGTH + 1;
+        if (p + 1 + k > end) {
+            throw new RlpException("Truncated header at " + p);
+        }
+        if (data.get(p + 1) == 0) {
+            throw new RlpException("Length with leading zeros at " + p);
+        }
+        long len = 0;
+        for (int i = 1; i <= k; i++) {
+            len = len << 8 | (data.get(p + i) & 0xff);
+        }
+        if (len < 0 || len > Integer.MAX_VALUE) {
+            throw new RlpException("Length out of range at " + p);
+        }
+        if (len < SHORT_LENGTH) {
+            throw new RlpException("Non-canonical long length at " + p);
+        }
+        payload = p + 1 + k;
+        length = (int) len;
+        checkPayload();
+    }
+
+    private void checkPayload() {
+        if (length > end - payload) {
+            throw new RlpException("Item at " + start + " overruns its list");
+        }
+    }
+
+    private void requireItem() {
+        if (start < 0) {
+            throw new IllegalStateException("No current item");
+        }
+    }
+
+    private void requireString() {
+        requireItem();
+        if (list) {
+            throw new RlpException("Item at " + start + " is a list");
+        }
+    }
+
+    private void requireInteger() {
+        requireString();
+        if (length > 0 && data.get(payload) == 0) {
+            throw new RlpException("Integer with leading zeros at " + start);
+        }
+    }
+}
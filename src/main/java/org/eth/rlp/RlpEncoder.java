@@ -0,0 +1,38 @@
+package org.eth.rlp;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+// RlpEncoder writes RlpItems into a single array or buffer sized from the item's precomputed
+// length; see RlpItem.
+public final class RlpEncoder {
+
+    private RlpEncoder() {
+    }
+
+    public static byte[] encode(RlpItem item) {
+        byte[] out = new byte[item.size];
+        item.write(out, 0);
+        return out;
+    }
+
+    // Writes the encoding of item into dst starting at off and returns the offset past it.
+    public static int encode(RlpItem item, byte[] dst, int off) {
+        Objects.checkFromIndexSize(off, item.size, dst.length);
+        item.write(dst, off);
+        return off + item.size;
+    }
+
+    // Writes the encoding of item at the position of dst and advances it. Buffers without an
+    // accessible array are filled from a temporary array.
+    public static ByteBuffer encode(RlpItem item, ByteBuffer dst) {
+        int p = dst.position();
+        Objects.checkFromIndexSize(p, item.size, dst.limit());
+        if (dst.hasArray() && !dst.isReadOnly()) {
+            item.write(dst.array(), dst.arrayOffset() + p);
+        } else {
+            dst.put(p, encode(item));
+        }
+        return dst.position(p + item.size);
+    }
+}
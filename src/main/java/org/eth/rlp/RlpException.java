@@ -0,0 +1,9 @@
+package org.eth.rlp;
+
+// RlpException reports malformed or non-canonical RLP input, or a value read as the wrong kind
+// of item.
+public class RlpException extends IllegalArgumentException {
+    public RlpException(String message) {
+        super(message);
+    }
+}
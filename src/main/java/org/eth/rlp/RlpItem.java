@@ -0,0 +1,276 @@
+package org.eth.rlp;
+
+import org.eth.common.ByteSlice;
+import org.eth.common.UInt256;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.eth.common.CommonTypes.ADDRESS_LENGTH;
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.HASH_LENGTH;
+import static org.eth.common.CommonTypes.Hash;
+
+// RlpItem is a value to RLP-encode: a byte string, including integers in their canonical
+// minimal big-endian form, or a list of items. Each item computes its encoded size, header
+// included, when it is built, so a list knows its payload length before anything is written and
+// RlpEncoder writes a whole nested structure into one buffer in a single pass.
+public abstract class RlpItem {
+
+    static final int STRING_OFFSET = 0x80;
+    static final int LIST_OFFSET = 0xc0;
+    // Payloads shorter than this have a one byte header.
+    static final int SHORT_LENGTH = 56;
+
+    public static final RlpItem EMPTY_STRING = new Bytes(ByteSlice.EMPTY);
+    public static final RlpItem EMPTY_LIST = new ListItem(new RlpItem[0]);
+
+    // Encoded size in bytes, header included.
+    final int size;
+
+    RlpItem(int size) {
+        this.size = size;
+    }
+
+    public int encodedSize() {
+        return size;
+    }
+
+    public abstract boolean isList();
+
+    // Writes the encoding, exactly encodedSize() bytes, into dst at off.
+    abstract void write(byte[] dst, int off);
+
+    // Returns a byte string item. The array is referenced, not copied, until encoding.
+    public static RlpItem bytes(byte[] value) {
+        return new Bytes(ByteSlice.wrap(value));
+    }
+
+    public static RlpItem bytes(ByteSlice value) {
+        return new Bytes(value);
+    }
+
+    public static RlpItem string(String value) {
+        return new Bytes(ByteSlice.wrap(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Returns an unsigned integer as its minimal big-endian bytes; zero is the empty string.
+    public static RlpItem uint(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative integer: " + value);
+        }
+        return new Uint64(value);
+    }
+
+    public static RlpItem uint(UInt256 value) {
+        return new Bytes(ByteSlice.wrap(value.toByteArray()).trimLeftZeroes());
+    }
+
+    public static RlpItem uint(BigInteger value) {
+        if (value.signum() < 0) {
+            throw new IllegalArgumentException("Negative integer: " + value);
+        }
+        return new Bytes(ByteSlice.wrap(value.toByteArray()).trimLeftZeroes());
+    }
+
+    public static RlpItem hash(Hash hash) {
+        return new HashItem(hash);
+    }
+
+    public static RlpItem address(Address address) {
+        return new AddressItem(address);
+    }
+
+    public static RlpItem list(RlpItem... items) {
+        return new ListItem(items.clone());
+    }
+
+    public static RlpItem list(List<? extends RlpItem> items) {
+        return new ListItem(items.toArray(new RlpItem[0]));
+    }
+
+    // Returns an item that is already RLP-encoded, such as a transaction received from the
+    // network, written out as is. The encoding is not checked.
+    public static RlpItem encoded(ByteSlice encoding) {
+        return new Encoded(encoding);
+    }
+
+    // Returns the number of bytes of the header of a payload of length n.
+    static int headerLength(int n) {
+        return n < SHORT_LENGTH ? 1 : 1 + lengthOfLength(n);
+    }
+
+    static int lengthOfLength(long n) {
+        return 8 - (Long.numberOfLeadingZeros(n) >>> 3);
+    }
+
+    // Writes the header of a payload of length n, offset being STRING_OFFSET or LIST_OFFSET,
+    // and returns the offset past it.
+    static int writeHeader(byte[] dst, int off, int n, int offset) {
+        if (n < SHORT_LENGTH) {
+            dst[off] = (byte) (offset + n);
+            return off + 1;
+        }
+        int k = lengthOfLength(n);
+        dst[off] = (byte) (offset + SHORT_LENGTH - 1 + k);
+        for (int i = k; i > 0; i--) {
+            dst[off + i] = (byte) n;
+            n >>>= 8;
+        }
+        return off + 1 + k;
+    }
+
+    private static final class Bytes extends RlpItem {
+        private final ByteSlice value;
+
+        Bytes(ByteSlice value) {
+            super(isSingleByte(value) ? 1 : Math.addExact(headerLength(value.size()), value.size()));
+            this.value = value;
+        }
+
+        // A single byte below 0x80 is its own encoding.
+        private static boolean isSingleByte(ByteSlice value) {
+            return value.size() == 1 && (value.get(0) & 0xff) < STRING_OFFSET;
+        }
+
+        @Override
+        public boolean isList() {
+            return false;
+        }
+
+        @Override
+        void write(byte[] dst, int off) {
+            if (size == 1 && value.size() == 1) {
+                dst[off] = value.get(0);
+                return;
+            }
+            value.copyTo(dst, writeHeader(dst, off, value.size(), STRING_OFFSET));
+        }
+    }
+
+    private static final class Uint64 extends RlpItem {
+        private final long value;
+
+        Uint64(long value) {
+            super(value != 0 && value < STRING_OFFSET ? 1 : 1 + lengthOfLength(value));
+            this.value = value;
+        }
+
+        @Override
+        public boolean isList() {
+            return false;
+        }
+
+        @Override
+        void write(byte[] dst, int off) {
+            if (value != 0 && value < STRING_OFFSET) {
+                dst[off] = (byte) value;
+                return;
+            }
+            int k = size - 1;
+            dst[off] = (byte) (STRING_OFFSET + k);
+            long v = value;
+            for (int i = k; i > 0; i--) {
+                dst[off + i] = (byte) v;
+                v >>>= 8;
+            }
+        }
+    }
+
+    private static final class HashItem extends RlpItem {
+        private final Hash hash;
+
+        HashItem(Hash hash) {
+            super(1 + HASH_LENGTH);
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean isList() {
+            return false;
+        }
+
+        @Override
+        void write(byte[] dst, int off) {
+            dst[off] = (byte) (STRING_OFFSET + HASH_LENGTH);
+            hash.copyTo(dst, off + 1);
+        }
+    }
+
+    private static final class AddressItem extends RlpItem {
+        private final Address address;
+
+        AddressItem(Address address) {
+            super(1 + ADDRESS_LENGTH);
+            this.address = address;
+        }
+
+        @Override
+        public boolean isList() {
+            return false;
+        }
+
+        @Override
+        void write(byte[] dst, int off) {
+            dst[off] = (byte) (STRING_OFFSET + ADDRESS_LENGTH);
+            address.copyTo(dst, off + 1);
+        }
+    }
+
+    private static final class Encoded extends RlpItem {
+        private final ByteSlice encoding;
+
+        Encoded(ByteSlice encoding) {
+            super(encoding.size());
+            this.encoding = encoding;
+        }
+
+        @Override
+        public boolean isList() {
+            return encoding.size() > 0 && (encoding.get(0) & 0xff) >= LIST_OFFSET;
+        }
+
+        @Override
+        void write(byte[] dst, int off) {
+            encoding.copyTo(dst, off);
+        }
+    }
+
+    private static final class ListItem extends RlpItem {
+        private final RlpItem[] items;
+        private final int payload;
+
+        ListItem(RlpItem[] items) {
+            this(items, payloadLength(items));
+        }
+
+        private ListItem(RlpItem[] items, int payload) {
+            super(Math.addExact(headerLength(payload), payload));
+            this.items = items;
+            this.payload = payload;
+        }
+
+        private static int payloadLength(RlpItem[] items) {
+            int n = 0;
+            for (RlpItem item : items) {
+                n = Math.addExact(n, item.size);
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isList() {
+            return true;
+        }
+
+        @Override
+        void write(byte[] dst, int off) {
+            int p = writeHeader(dst, off, payload, LIST_OFFSET);
+            for (RlpItem item : items) {
+                item.write(dst, p);
+                p += item.size;
+            }
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package org.eth.trie;
+
+import org.eth.common.ByteSlice;
+import org.eth.common.Keccak;
+import org.eth.rlp.RlpEncoder;
+import org.eth.rlp.RlpItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static org.eth.common.CommonTypes.HASH_LENGTH;
+import static org.eth.common.CommonTypes.Hash;
+
+// MerklePatriciaTrie is an in-memory Ethereum Merkle Patricia Trie, as used for state,
+// transaction and receipt roots. Keys are split into nibble paths kept packed in the key bytes;
+// see NibblePath. Nodes are leaves, extensions and 16-way branches, RLP-encoded and referenced
+// by Keccak-256 hash, or inline if their encoding is shorter than a hash.
+//
+// Every node caches its reference. An update clears the caches along the path it touches only,
+// and rootHash() re-encodes just those dirty nodes, so the cost of a new root is proportional to
+// the paths touched since the last one, however large the trie. Branches with at least
+// parallelThreshold values below them hash their dirty children as ForkJoinPool tasks.
+//
+// A trie is not safe for concurrent use; rootHash() uses the pool internally only.
+public final class MerklePatriciaTrie {
+
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 10;
+
+    // Root of the empty trie, the hash of the RLP empty string.
+    public static final Hash EMPTY_ROOT = Hash.fromBytes(Keccak.hash256(RlpEncoder.encode(RlpItem.EMPTY_STRING)));
+
+    private static final int RADIX = 16;
+
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+    private Node root;
+    // Set by delete when it removed something.
+    private boolean changed;
+
+    public MerklePatriciaTrie() {
+        this(DEFAULT_PARALLEL_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    public MerklePatriciaTrie(int parallelThreshold, ForkJoinPool pool) {
+        this.parallelThreshold = Math.max(parallelThreshold, 2);
+        this.pool = Objects.requireNonNull(pool);
+    }
+
+    // Returns the root hash of the transaction or receipt trie of a block whose encoded
+    // transactions or receipts are values, keyed by the RLP encoding of their index.
+    public static Hash orderedRoot(List<byte[]> values) {
+        MerklePatriciaTrie trie = new MerklePatriciaTrie();
+        for (int i = 0; i < values.size(); i++) {
+            trie.put(RlpEncoder.encode(RlpItem.uint(i)), values.get(i));
+        }
+        return trie.rootHash();
+    }
+
+    public int size() {
+        return root == null ? 0 : root.size;
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    // Returns the value stored under key, or null.
+    public byte[] get(byte[] key) {
+        NibblePath path = NibblePath.of(key);
+        Node n = root;
+        while (n != null) {
+            if (n instanceof Leaf leaf) {
+                return leaf.path.equals(path) ? leaf.value : null;
+            }
+            if (n instanceof Extension ext) {
+                int k = ext.path.length();
+                if (path.length() < k || path.commonPrefix(ext.path) < k) {
+                    return null;
+                }
+                path = path.slice(k);
+                n = ext.child;
+            } else {
+                Branch branch = (Branch) n;
+                if (path.length() == 0) {
+                    return branch.value;
+                }
+                n = branch.children[path.get(0)];
+                path = path.slice(1);
+            }
+        }
+        return null;
+    }
+
+    // Stores value under key; an empty value deletes key, as in Ethereum. The key is copied, the
+    // value is referenced and must not be modified afterwards.
+    public void put(byte[] key, byte[] value) {
+        if (value.length == 0) {
+            delete(key);
+            return;
+        }
+        root = insert(root, NibblePath.of(key.clone()), value);
+    }
+
+    // Removes key and returns whether it was present.
+    public boolean delete(byte[] key) {
+        changed = false;
+        root = remove(root, NibblePath.of(key));
+        return changed;
+    }
+
+    // Applies the puts and deletes of batch in key order, a later update of a key replacing an
+    // earlier one. Updates sharing a prefix then follow each other down the same nodes, and the
+    // root is rehashed once for the whole batch when rootHash() is next called.
+    public void apply(Batch batch) {
+        Integer[] order = new Integer[batch.keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(batch.keys.get(a), batch.keys.get(b)));
+        for (int i : order) {
+            byte[] value = batch.values.get(i);
+            if (value == null) {
+                delete(batch.keys.get(i));
+            } else {
+                put(batch.keys.get(i), value);
+            }
+        }
+    }
+
+    // Returns the root hash, re-encoding the nodes updated since it was last computed.
+    public Hash rootHash() {
+        if (root == null) {
+            return EMPTY_ROOT;
+        }
+        if (root.size >= parallelThreshold) {
+            pool.invoke(new HashTask(root, parallelThreshold));
+        } else {
+            seal(root, parallelThreshold);
+        }
+        if (root.hash != null) {
+            return root.hash;
+        }
+        // A root shorter than a hash is still referenced by its hash.
+        return Hash.fromBytes(Keccak.hash256(root.embedded));
+    }
+
+    private Node insert(Node n, NibblePath path, byte[] value) {
+        if (n == null) {
+            return new Leaf(path, value);
+        }
+        n.clear();
+        if (n instanceof Leaf leaf) {
+            int common = leaf.path.commonPrefix(path);
+            if (common == path.length() && common == leaf.path.length()) {
+                leaf.value = value;
+                return leaf;
+            }
+            Branch branch = new Branch();
+            if (common == leaf.path.length()) {
+                branch.value = leaf.value;
+            } else {
+                int i = leaf.path.get(common);
+                leaf.path = leaf.path.slice(common + 1);
+                branch.children[i] = leaf;
+            }
+            return split(branch, path, common, value);
+        }
+        if (n instanceof Extension ext) {
+            int common = ext.path.commonPrefix(path);
+            if (common == ext.path.length()) {
+                ext.child = insert(ext.child, path.slice(common), value);
+                ext.size = ext.child.size;
+                return ext;
+            }
+            Branch branch = new Branch();
+            int i = ext.path.get(common);
+            if (common + 1 == ext.path.length()) {
+                branch.children[i] = ext.child;
+            } else {
+                ext.path = ext.path.slice(common + 1);
+                branch.children[i] = ext;
+            }
+            return split(branch, path, common, value);
+        }
+        Branch branch = (Branch) n;
+        if (path.length() == 0) {
+            branch.value = value;
+        } else {
+            int i = path.get(0);
+            branch.children[i] = insert(branch.children[i], path.slice(1), value);
+        }
+        branch.resize();
+        return branch;
+    }
+
+    // Completes a branch created where path diverges from an existing node after common
+    // nibbles: adds the new value and puts the branch behind an extension of the shared prefix.
+    private static Node split(Branch branch, NibblePath path, int common, byte[] value) {
+        if (common == path.length()) {
+            branch.value = value;
+        } else {
+            branch.children[path.get(common)] = new Leaf(path.slice(common + 1), value);
+        }
+        branch.resize();
+        return common == 0 ? branch : new Extension(path.slice(0, common), branch);
+    }
+
+    private Node remove(Node n, NibblePath path) {
+        if (n == null) {
+            return null;
+        }
+        if (n instanceof Leaf leaf) {
+            if (!leaf.path.equals(path)) {
+                return leaf;
+            }
+            changed = true;
+            return null;
+        }
+        if (n instanceof Extension ext) {
+            int k = ext.path.length();
+            if (path.length() < k || path.commonPrefix(ext.path) < k) {
+                return ext;
+            }
+            Node child = remove(ext.child, path.slice(k));
+            if (!changed) {
+                return ext;
+            }
+            // A branch losing a value collapses into a leaf or extension, which this extension
+            // absorbs; the branch itself cannot vanish as it held at least two values.
+            if (child instanceof Leaf leaf) {
+                return new Leaf(NibblePath.concat(ext.path, -1, leaf.path), leaf.value);
+            }
+            if (child instanceof Extension e) {
+                return new Extension(NibblePath.concat(ext.path, -1, e.path), e.child);
+            }
+            ext.clear();
+            ext.child = child;
+            ext.size = child.size;
+            return ext;
+        }
+        Branch branch = (Branch) n;
+        if (path.length() == 0) {
+            if (branch.value == null) {
+                return branch;
+            }
+            changed = true;
+            branch.value = null;
+        } else {
+            int i = path.get(0);
+            Node child = remove(branch.children[i], path.slice(1));
+            if (!changed) {
+                return branch;
+            }
+            branch.children[i] = child;
+        }
+        branch.clear();
+        branch.resize();
+        return collapse(branch);
+    }
+
+    // Returns branch, or the node replacing it once it holds a single value or child.
+    private static Node collapse(Branch branch) {
+        int only = -1;
+        for (int i = 0; i < RADIX; i++) {
+            if (branch.children[i] != null) {
+                if (only >= 0 || branch.value != null) {
+                    return branch;
+                }
+                only = i;
+            }
+        }
+        if (only < 0) {
+            return new Leaf(NibblePath.EMPTY, branch.value);
+        }
+        Node child = branch.children[only];
+        if (child instanceof Leaf leaf) {
+            return new Leaf(NibblePath.concat(NibblePath.EMPTY, only, leaf.path), leaf.value);
+        }
+        if (child instanceof Extension ext) {
+            return new Extension(NibblePath.concat(NibblePath.EMPTY, only, ext.path), ext.child);
+        }
+        return new Extension(NibblePath.concat(NibblePath.EMPTY, only, NibblePath.EMPTY), child);
+    }
+
+    // Computes the reference of n and of its dirty descendants. Inside a HashTask, branches of
+    // at least threshold values fork their large dirty children.
+    private static void seal(Node n, int threshold) {
+        if (!n.isDirty()) {
+            return;
+        }
+        RlpItem item;
+        if (n instanceof Leaf leaf) {
+            item = RlpItem.list(RlpItem.bytes(leaf.path.encodeCompact(true)), RlpItem.bytes(leaf.value));
+        } else if (n instanceof Extension ext) {
+            seal(ext.child, threshold);
+            item = RlpItem.list(RlpItem.bytes(ext.path.encodeCompact(false)), ext.child.ref());
+        } else {
+            Branch branch = (Branch) n;
+            if (branch.size >= threshold) {
+                List<HashTask> tasks = new ArrayList<>(RADIX);
+                for (Node c : branch.children) {
+                    if (c != null && c.isDirty() && c.size >= threshold) {
+                        tasks.add(new HashTask(c, threshold));
+                    }
+                }
+                for (HashTask t : tasks) {
+                    t.fork();
+                }
+                for (Node c : branch.children) {
+                    if (c != null && c.size < threshold) {
+                        seal(c, threshold);
+                    }
+                }
+                for (int i = tasks.size() - 1; i >= 0; i--) {
+                    tasks.get(i).join();
+                }
+            } else {
+                for (Node c : branch.children) {
+                    if (c != null) {
+                        seal(c, threshold);
+                    }
+                }
+            }
+            RlpItem[] items = new RlpItem[RADIX + 1];
+            for (int i = 0; i < RADIX; i++) {
+                Node c = branch.children[i];
+                items[i] = c == null ? RlpItem.EMPTY_STRING : c.ref();
+            }
+            items[RADIX] = branch.value == null ? RlpItem.EMPTY_STRING : RlpItem.bytes(branch.value);
+            item = RlpItem.list(items);
+        }
+        byte[] encoded = RlpEncoder.encode(item);
+        if (encoded.length < HASH_LENGTH) {
+            n.embedded = encoded;
+        } else {
+            n.hash = Hash.fromBytes(Keccak.hash256(encoded));
+        }
+    }
+
+    // Batch collects puts and deletes for apply.
+    public static final class Batch {
+        private final List<byte[]> keys = new ArrayList<>();
+        // null for a delete.
+        private final List<byte[]> values = new ArrayList<>();
+
+        // The key is copied, the value is referenced; an empty value deletes key.
+        public Batch put(byte[] key, byte[] value) {
+            keys.add(key.clone());
+            values.add(value.length == 0 ? null : value);
+            return this;
+        }
+
+        public Batch delete(byte[] key) {
+            keys.add(key.clone());
+            values.add(null);
+            return this;
+        }
+
+        public int size() {
+            return keys.size();
+        }
+    }
+
+    // HashTask seals the subtree of a node on a pool thread; see seal.
+    private static final class HashTask extends RecursiveAction {
+        private final Node node;
+        private final int threshold;
+
+        HashTask(Node node, int threshold) {
+            this.node = node;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            seal(node, threshold);
+        }
+    }
+
+    // Node caches its reference as either the hash of its encoding or, if that is shorter than
+    // a hash, the encoding itself; a node with neither is dirty. size counts its values.
+    private abstract static class Node {
+        Hash hash;
+        byte[] embedded;
+        int size;
+
+        boolean isDirty() {
+            return hash == null && embedded == null;
+        }
+
+        void clear() {
+            hash = null;
+            embedded = null;
+        }
+
+        // Returns how a parent refers to this sealed node.
+        RlpItem ref() {
+            return hash != null ? RlpItem.hash(hash) : RlpItem.encoded(ByteSlice.wrap(embedded));
+        }
+    }
+
+    private static final class Leaf extends Node {
+        NibblePath path;
+        byte[] value;
+
+        Leaf(NibblePath path, byte[] value) {
+            this.path = path;
+            this.value = value;
+            this.size = 1;
+        }
+    }
+
+    // Extension skips the nibbles of path, shared by every key below it, to a branch.
+    private static final class Extension extends Node {
+        NibblePath path;
+        Node child;
+
+        Extension(NibblePath path, Node child) {
+            this.path = path;
+            this.child = child;
+            this.size = child.size;
+        }
+    }
+
+    private static final class Branch extends Node {
+        final Node[] children = new Node[RADIX];
+        // Value of the key ending at this branch, or null.
+        byte[] value;
+
+        void resize() {
+            int n = value == null ? 0 : 1;
+            for (Node c : children) {
+                if (c != null) {
+                    n += c.size;
+                }
+            }
+            size = n;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.eth.trie;
+
+// NibblePath is a run of nibbles, the half-bytes a trie key is split into, held packed two to a
+// byte as in the key itself. Slicing a path shares the packed array, so the paths of all the
+// nodes along a key refer to that key's bytes; only merging paths when a node collapses
+// allocates.
+final class NibblePath {
+
+    static final NibblePath EMPTY = new NibblePath(new byte[0], 0, 0);
+
+    private final byte[] packed;
+    // Nibble indices into packed; nibble 2i is the high half of packed[i].
+    private final int from;
+    private final int to;
+
+    private NibblePath(byte[] packed, int from, int to) {
+        this.packed = packed;
+        this.from = from;
+        this.to = to;
+    }
+
+    // Returns the nibbles of key. The array is referenced, not copied.
+    static NibblePath of(byte[] key) {
+        return new NibblePath(key, 0, 2 * key.length);
+    }
+
+    int length() {
+        return to - from;
+    }
+
+    int get(int i) {
+        int n = from + i;
+        int b = packed[n >>> 1];
+        return (n & 1) == 0 ? (b >>> 4) & 0xf : b & 0xf;
+    }
+
+    NibblePath slice(int start) {
+        return slice(start, length());
+    }
+
+    NibblePath slice(int start, int end) {
+        if (start == 0 && end == length()) {
+            return this;
+        }
+        return new NibblePath(packed, from + start, from + end);
+    }
+
+    // Returns the number of leading nibbles this path and other have in common.
+    int commonPrefix(NibblePath other) {
+        int n = Math.min(length(), other.length());
+        int i = 0;
+        // Compare whole bytes while both paths are byte-aligned.
+        if (((from | other.from) & 1) == 0) {
+            int a = from >>> 1, b = other.from >>> 1;
+            while (i + 2 <= n && packed[a] == other.packed[b]) {
+                a++;
+                b++;
+                i += 2;
+            }
+        }
+        while (i < n && get(i) == other.get(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    boolean equals(NibblePath other) {
+        return length() == other.length() && commonPrefix(other) == length();
+    }
+
+    // Returns head, then nibble unless it is negative, then tail, packed into a new array.
+    static NibblePath concat(NibblePath head, int nibble, NibblePath tail) {
+        int n = head.length() + (nibble < 0 ? 0 : 1) + tail.length();
+        byte[] packed = new byte[(n + 1) >>> 1];
+        int p = 0;
+        for (int i = 0; i < head.length(); i++) {
+            put(packed, p++, head.get(i));
+        }
+        if (nibble >= 0) {
+            put(packed, p++, nibble);
+        }
+        for (int i = 0; i < tail.length(); i++) {
+            put(packed, p++, tail.get(i));
+        }
+        return new NibblePath(packed, 0, n);
+    }
+
+    private static void put(byte[] packed, int i, int nibble) {
+        packed[i >>> 1] |= (byte) ((i & 1) == 0 ? nibble << 4 : nibble);
+    }
+
+    // Returns the hex-prefix encoding of the path: a flag nibble marking leaves and odd lengths,
+    // a padding nibble if the length is even, then the path, packed two nibbles to a byte.
+    byte[] encodeCompact(boolean leaf) {
+        int n = length();
+        byte[] out = new byte[n / 2 + 1];
+        int flag = (leaf ? 2 : 0) | (n & 1);
+        out[0] = (byte) (flag << 4);
+        int p = 2 - (n & 1);
+        for (int i = 0; i < n; i++, p++) {
+            put(out, p, get(i));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,127 @@
+package org.eth.abi;
+
+import org.eth.common.UInt256;
+import org.eth.hexutil.HexEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.Hash;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AbiTest {
+
+    private static String hex(byte[] b) {
+        return HexEncoder.toHexString(b, false);
+    }
+
+    // Examples from the Solidity ABI specification.
+    @Test
+    void testSpecExamples() {
+        int baz = AbiEncoder.selector("baz(uint32,bool)");
+        assertEquals(0xcdcd77c0, baz);
+        assertEquals("cdcd77c0"
+                        + "0000000000000000000000000000000000000000000000000000000000000045"
+                        + "0000000000000000000000000000000000000000000000000000000000000001",
+                hex(AbiEncoder.encodeCall(baz, AbiValue.uint(69), AbiValue.bool(true))));
+
+        int sam = AbiEncoder.selector("sam(bytes,bool,uint256[])");
+        assertEquals(0xa5643bf2, sam);
+        assertEquals("a5643bf2"
+                        + "0000000000000000000000000000000000000000000000000000000000000060"
+                        + "0000000000000000000000000000000000000000000000000000000000000001"
+                        + "00000000000000000000000000000000000000000000000000000000000000a0"
+                        + "0000000000000000000000000000000000000000000000000000000000000004"
+                        + "6461766500000000000000000000000000000000000000000000000000000000"
+                        + "0000000000000000000000000000000000000000000000000000000000000003"
+                        + "0000000000000000000000000000000000000000000000000000000000000001"
+                        + "0000000000000000000000000000000000000000000000000000000000000002"
+                        + "0000000000000000000000000000000000000000000000000000000000000003",
+                hex(AbiEncoder.encodeCall(sam, AbiValue.string("dave"), AbiValue.bool(true),
+                        AbiValue.array(AbiValue.uint(1), AbiValue.uint(2), AbiValue.uint(3)))));
+
+        int f = AbiEncoder.selector("f(uint256,uint32[],bytes10,bytes)");
+        assertEquals(0x8be65246, f);
+        AbiValue[] args = {AbiValue.uint(0x123), AbiValue.array(AbiValue.uint(0x456), AbiValue.uint(0x789)),
+                AbiValue.fixedBytes("1234567890".getBytes(StandardCharsets.US_ASCII)),
+                AbiValue.bytes("Hello, world!".getBytes(StandardCharsets.US_ASCII))};
+        String want = "8be65246"
+                + "0000000000000000000000000000000000000000000000000000000000000123"
+                + "0000000000000000000000000000000000000000000000000000000000000080"
+                + "3132333435363738393000000000000000000000000000000000000000000000"
+                + "00000000000000000000000000000000000000000000000000000000000000e0"
+                + "0000000000000000000000000000000000000000000000000000000000000002"
+                + "0000000000000000000000000000000000000000000000000000000000000456"
+                + "0000000000000000000000000000000000000000000000000000000000000789"
+                + "000000000000000000000000000000000000000000000000000000000000000d"
+                + "48656c6c6f2c20776f726c642100000000000000000000000000000000000000";
+        assertEquals(want, hex(AbiEncoder.encodeCall(f, args)));
+
+        // Encoding into a dirty buffer must overwrite the padding.
+        byte[] dirty = new byte[3 + want.length() / 2];
+        Arrays.fill(dirty, (byte) 0x55);
+        assertEquals(dirty.length, AbiEncoder.encodeCall(f, args, dirty, 3));
+        assertEquals(want, hex(Arrays.copyOfRange(dirty, 3, dirty.length)));
+        ByteBuffer direct = ByteBuffer.allocateDirect(want.length() / 2);
+        AbiEncoder.encodeCall(f, args, direct);
+        assertFalse(direct.hasRemaining());
+    }
+
+    // Builds a multicall aggregate((address,bytes)[]) payload and decodes it back in place.
+    @Test
+    void testMulticallRoundTrip() {
+        int transfer = AbiEncoder.selector("transfer(address,uint256)");
+        List<AbiValue> calls = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Address token = Address.fromUInt256(UInt256.valueOf(1000 + i));
+            Address to = Address.fromUInt256(UInt256.valueOf(i));
+            calls.add(AbiValue.tuple(AbiValue.address(token), AbiValue.call(transfer, AbiValue.address(to), AbiValue.uint(i * 7L))));
+        }
+        byte[] payload = AbiEncoder.encodeCall(AbiEncoder.selector("aggregate((address,bytes)[])"), AbiValue.array(calls));
+
+        AbiDecoder d = AbiDecoder.of(payload, 4, payload.length - 4);
+        assertEquals(100, d.length(0));
+        AbiDecoder elements = d.array(0);
+        for (int i = 0; i < 100; i++) {
+            AbiDecoder call = elements.tuple(i);
+            assertEquals(Address.fromUInt256(UInt256.valueOf(1000 + i)), call.address(0));
+            ByteBuffer data = call.bytes(1);
+            assertEquals(4 + 64, data.remaining());
+            assertEquals(transfer, data.getInt(0));
+            byte[] inner = call.byteArray(1);
+            AbiDecoder args = AbiDecoder.of(inner, 4, inner.length - 4);
+            assertEquals(Address.fromUInt256(UInt256.valueOf(i)), args.address(0));
+            assertEquals(i * 7L, args.uint64(1));
+            assertArrayEquals(AbiEncoder.encodeCall(transfer, AbiValue.address(Address.fromUInt256(UInt256.valueOf(i))),
+                    AbiValue.uint(i * 7L)), inner);
+        }
+    }
+
+    @Test
+    void testDecodeWords() {
+        Hash h = Hash.fromUInt256(UInt256.MAX_VALUE.shr(3));
+        byte[] data = AbiEncoder.encode(AbiValue.bytes32(h), AbiValue.int256(-5), AbiValue.uint(BigInteger.TEN.pow(30)),
+                AbiValue.bool(false), AbiValue.string("héllo"), AbiValue.fixedArray(AbiValue.uint(1), AbiValue.uint(2)));
+        AbiDecoder d = AbiDecoder.of(ByteBuffer.wrap(data));
+        assertEquals(h, d.bytes32(0));
+        assertEquals(BigInteger.valueOf(-5), d.int256(1));
+        assertEquals(UInt256.MAX_VALUE.sub(UInt256.valueOf(4)), d.uint(1));
+        assertEquals(BigInteger.TEN.pow(30), d.bigInteger(2));
+        assertThrows(ArithmeticException.class, () -> d.uint64(2));
+        assertFalse(d.bool(3));
+        assertThrows(IllegalArgumentException.class, () -> d.bool(1));
+        assertThrows(IllegalArgumentException.class, () -> d.address(1));
+        assertEquals("héllo", d.string(4));
+        assertEquals(2, d.inline(5).uint64(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> d.uint(d.words()));
+        assertThrows(IllegalArgumentException.class, () -> d.tuple(0));
+        assertThrows(IllegalArgumentException.class, () -> AbiValue.uint(-1));
+        assertThrows(IllegalArgumentException.class, () -> AbiValue.int256(BigInteger.ONE.shiftLeft(255)));
+    }
+}
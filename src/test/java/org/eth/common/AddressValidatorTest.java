@@ -0,0 +1,92 @@
+package org.eth.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.MixedcaseAddress;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AddressValidatorTest {
+
+    // Returns a mix of checksummed, lowercased, case-flipped, unprefixed and malformed entries.
+    private static List<String> entries(Random rnd, int n) {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            byte[] b = new byte[20];
+            rnd.nextBytes(b);
+            String s = Address.fromBytes(b).toHexString();
+            switch (rnd.nextInt(8)) {
+                case 0 -> s = s.toLowerCase();
+                case 1 -> s = s.substring(2);
+                case 2 -> {
+                    char[] c = s.toCharArray();
+                    int j = 2 + rnd.nextInt(40);
+                    c[j] = Character.isUpperCase(c[j]) ? Character.toLowerCase(c[j]) : Character.toUpperCase(c[j]);
+                    s = new String(c);
+                }
+                case 3 -> s = s.substring(0, 40);
+                case 4 -> s = s.substring(0, 20) + "g" + s.substring(21);
+                case 5 -> s = "0X" + s.substring(2);
+                default -> {
+                }
+            }
+            out.add(s);
+        }
+        return out;
+    }
+
+    private static Boolean reference(String s) {
+        try {
+            return MixedcaseAddress.fromHexString(s).isValidChecksum();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Test
+    void testMatchesMixedcaseAddress() throws Exception {
+        List<String> inputs = entries(new Random(71), 20_000);
+        inputs.add(null);
+        AddressValidator.Result r = new AddressValidator(false, 1024, ForkJoinPool.commonPool()).validate(inputs);
+        assertEquals(inputs.size(), r.size());
+        int valid = 0;
+        for (int i = 0; i < inputs.size(); i++) {
+            Boolean want = inputs.get(i) == null ? null : reference(inputs.get(i));
+            assertEquals(want != null, r.isWellFormed(i), inputs.get(i));
+            assertEquals(want != null && want, r.isValid(i), inputs.get(i));
+            if (want != null) {
+                assertEquals(MixedcaseAddress.fromHexString(inputs.get(i)).getAddress(), r.address(i));
+                valid += want ? 1 : 0;
+            } else {
+                assertNull(r.address(i));
+            }
+        }
+        assertEquals(valid, r.validCount());
+        int first = r.nextInvalid(0);
+        for (int i = 0; i < first; i++) {
+            assertTrue(r.isValid(i));
+        }
+        assertFalse(r.isValid(first));
+        assertEquals(-1, r.nextInvalid(inputs.size()));
+    }
+
+    @Test
+    void testAcceptUncased() {
+        String checksummed = "0x5aAeb6053F3E94C9b9A09f33669435E7Ef1BeAed";
+        String[] inputs = {checksummed, checksummed.toLowerCase(), "0x" + checksummed.substring(2).toUpperCase(),
+                checksummed.replace('a', 'A')};
+        AddressValidator.Result strict = new AddressValidator().validate(inputs);
+        AddressValidator.Result loose = new AddressValidator(true).validate(List.of(inputs).stream());
+        assertTrue(strict.isValid(0));
+        assertFalse(strict.isValid(1) || strict.isValid(2) || strict.isValid(3));
+        assertTrue(loose.isValid(0) && loose.isValid(1) && loose.isValid(2));
+        assertFalse(loose.isValid(3));
+        assertEquals(4, loose.wellFormedCount());
+        assertEquals(1, strict.nextInvalid(0));
+    }
+}
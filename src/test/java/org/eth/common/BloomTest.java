@@ -0,0 +1,106 @@
+package org.eth.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.Hash;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomTest {
+
+    // Reference bloom built straight from the spec: the value is a 2048 bit big-endian number.
+    private static byte[] reference(byte[]... values) {
+        BigInteger bits = BigInteger.ZERO;
+        for (byte[] v : values) {
+            byte[] d = Keccak.hash256(v);
+            for (int i = 0; i < 6; i += 2) {
+                bits = bits.setBit(((d[i] & 0xff) << 8 | (d[i + 1] & 0xff)) & 2047);
+            }
+        }
+        byte[] raw = bits.toByteArray();
+        byte[] out = new byte[Bloom.BYTES];
+        int n = Math.min(raw.length, Bloom.BYTES);
+        System.arraycopy(raw, raw.length - n, out, Bloom.BYTES - n, n);
+        return out;
+    }
+
+    @Test
+    void testMatchesSpec() {
+        Random rnd = new Random(41);
+        Bloom bloom = new Bloom();
+        byte[][] values = new byte[40][];
+        for (int i = 0; i < values.length; i++) {
+            if (i % 2 == 0) {
+                byte[] b = new byte[20];
+                rnd.nextBytes(b);
+                bloom.add(Address.fromBytes(b));
+                values[i] = b;
+            } else {
+                byte[] b = new byte[32];
+                rnd.nextBytes(b);
+                bloom.add(Hash.fromBytes(b));
+                values[i] = b;
+            }
+        }
+        assertArrayEquals(reference(values), bloom.getBytes());
+        assertEquals(bloom, Bloom.fromBytes(bloom.getBytes()));
+        for (int i = 0; i < values.length; i += 2) {
+            assertTrue(bloom.mayContain(Address.fromBytes(values[i])));
+            assertTrue(bloom.mayContain(Hash.fromBytes(values[i + 1])));
+        }
+        assertFalse(new Bloom().mayContain(Address.fromBytes(values[0])));
+    }
+
+    @Test
+    void testOrAndContains() {
+        Address a = Address.fromUInt256(UInt256.valueOf(1));
+        Address b = Address.fromUInt256(UInt256.valueOf(2));
+        Bloom x = new Bloom().add(a);
+        Bloom y = new Bloom().add(b);
+        Bloom merged = x.copy().or(y);
+        assertTrue(merged.contains(x));
+        assertTrue(merged.contains(y));
+        assertFalse(x.contains(merged));
+        assertTrue(merged.mayContain(a) && merged.mayContain(b));
+        assertTrue(new Bloom().isEmpty());
+        assertFalse(merged.isEmpty());
+    }
+
+    @Test
+    void testPackedScan() {
+        Random rnd = new Random(42);
+        int count = 1000;
+        long[] packed = new long[count * Bloom.WORDS];
+        Address target = Address.fromUInt256(UInt256.valueOf(0xdeadbeefL));
+        boolean[] has = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            Bloom bloom = new Bloom();
+            for (int j = 0; j < 5; j++) {
+                bloom.add(Address.fromUInt256(UInt256.valueOf(rnd.nextLong())));
+            }
+            if (rnd.nextInt(10) == 0) {
+                bloom.add(target);
+                has[i] = true;
+            }
+            bloom.copyTo(packed, i);
+        }
+        Bloom.Query q = Bloom.query(target);
+        long[] hits = new long[(count - 100 + 63) / 64];
+        int matches = q.scan(packed, 100, count, hits);
+        int expected = 0;
+        for (int i = 100; i < count; i++) {
+            boolean hit = (hits[(i - 100) >>> 6] & (1L << (i - 100))) != 0;
+            assertEquals(q.test(Bloom.fromPacked(packed, i)), hit);
+            assertEquals(q.test(packed, i), hit);
+            if (has[i]) {
+                assertTrue(hit);
+            }
+            expected += hit ? 1 : 0;
+        }
+        assertEquals(expected, matches);
+        assertThrows(IndexOutOfBoundsException.class, () -> q.scan(packed, 0, count + 1, new long[20]));
+    }
+}
@@ -0,0 +1,102 @@
+package org.eth.common;
+
+import org.apache.commons.codec.DecoderException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteSliceTest {
+
+    // Builds random views, each paired with the bytes it should hold.
+    private static ByteSlice randomSlice(Random rnd, byte[][] bytes) {
+        byte[] b = new byte[rnd.nextInt(6)];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = (byte) (rnd.nextInt(3) - 1);
+        }
+        ByteSlice s = ByteSlice.wrap(b);
+        byte[] want = b.clone();
+        switch (rnd.nextInt(4)) {
+            case 0 -> {
+                int n = rnd.nextInt(10);
+                s = s.leftPad(n);
+                want = CommonByte.leftPadBytes(want, n);
+            }
+            case 1 -> {
+                int n = rnd.nextInt(10);
+                s = s.rightPad(n);
+                want = CommonByte.rightPadBytes(want, n);
+            }
+            case 2 -> {
+                s = s.leftPad(8).trimLeftZeroes();
+                want = CommonByte.trimLeftZeroes(want);
+            }
+            default -> {
+                s = s.rightPad(8).trimRightZeroes();
+                want = CommonByte.trimRightZeroes(want);
+            }
+        }
+        if (rnd.nextBoolean() && want.length > 0) {
+            int from = rnd.nextInt(want.length);
+            int to = from + rnd.nextInt(want.length - from + 1);
+            s = s.slice(from, to);
+            want = Arrays.copyOfRange(want, from, to);
+        }
+        bytes[0] = want;
+        return s;
+    }
+
+    @Test
+    public void testAgainstArrays() {
+        Random rnd = new Random(91);
+        byte[][] a = new byte[1][];
+        byte[][] b = new byte[1][];
+        for (int i = 0; i < 20_000; i++) {
+            ByteSlice x = randomSlice(rnd, a);
+            ByteSlice y = randomSlice(rnd, b);
+            assertArrayEquals(a[0], x.toByteArray());
+            assertEquals(Arrays.hashCode(a[0]), x.hashCode());
+            assertEquals(Arrays.equals(a[0], b[0]), x.equals(y));
+            assertEquals(Integer.signum(Arrays.compareUnsigned(a[0], b[0])), Integer.signum(x.compareUnsigned(y)));
+            for (int j = 0; j < a[0].length; j++) {
+                assertEquals(a[0][j], x.get(j));
+            }
+        }
+    }
+
+    @Test
+    public void testViewsShareArray() {
+        byte[] b = {0, 0, 1, 2, 0};
+        ByteSlice s = ByteSlice.wrap(b).trimLeftZeroes().trimRightZeroes().leftPad(4);
+        assertEquals(ByteSlice.wrap(new byte[]{0, 0, 1, 2}), s);
+        b[3] = 9;
+        assertArrayEquals(new byte[]{0, 0, 1, 9}, s.toByteArray());
+
+        ByteBuffer buf = ByteBuffer.allocate(8);
+        s.rightPad(6).writeTo(buf.put((byte) 7));
+        assertArrayEquals(new byte[]{7, 0, 0, 1, 9, 0, 0, 0}, buf.array());
+        assertEquals(7, buf.position());
+        assertThrows(BufferOverflowException.class, () -> s.writeTo(ByteBuffer.allocate(3)));
+
+        ByteSlice unchanged = ByteSlice.wrap(new byte[]{1, 2});
+        assertSame(unchanged, unchanged.trimLeftZeroes());
+        assertSame(unchanged, unchanged.leftPad(1));
+        assertTrue(ByteSlice.zeros(5).trimLeftZeroes().isEmpty());
+        assertEquals("00000109", s.toHexString());
+    }
+
+    @Test
+    public void testCommonByteSlices() throws DecoderException {
+        byte[] val = {0, 1, 2, 0};
+        assertArrayEquals(CommonByte.leftPadBytes(val, 8), CommonByte.leftPadSlice(val, 8).toByteArray());
+        assertArrayEquals(CommonByte.rightPadBytes(val, 8), CommonByte.rightPadSlice(val, 8).toByteArray());
+        assertArrayEquals(CommonByte.trimLeftZeroes(val), CommonByte.trimLeftZeroesSlice(val).toByteArray());
+        assertArrayEquals(CommonByte.trimRightZeroes(val), CommonByte.trimRightZeroesSlice(val).toByteArray());
+        assertArrayEquals(CommonByte.hexToBytesFixed("a1b2c3", 2), CommonByte.hexToSliceFixed("a1b2c3", 2).toByteArray());
+        assertThrows(IllegalArgumentException.class, () -> CommonByte.hexToSliceFixed("a1", 2));
+    }
+}
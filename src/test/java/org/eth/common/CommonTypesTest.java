@@ -2,6 +2,8 @@ package org.eth.common;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -41,6 +43,53 @@ class CommonTypesTest {
         });
     }
 
+    @Test
+    void testHashHexString() {
+        byte[] bytes = bytesToHash(new byte[]{(byte) 0xab, 0x01});
+        String hex = "0x" + "00".repeat(30) + "ab01";
+
+        assertEquals(hex, Hash.fromBytes(bytes).toHexString());
+        assertEquals(hex.substring(2), UnprefixedHash.fromBytes(bytes).toHexString());
+        assertEquals(hex, new Hash.Formatter().format(Hash.fromBytes(bytes)));
+    }
+
+    @Test
+    void testLimbAccessors() {
+        byte[] bytes = new byte[32];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (0xa0 + i);
+        }
+        Hash hash = Hash.fromBytes(bytes);
+        Address address = Address.fromBytes(bytes, 12);
+
+        assertArrayEquals(bytes, hash.getBytes());
+        assertArrayEquals(Arrays.copyOfRange(bytes, 12, 32), address.getBytes());
+        for (int i = 0; i < 32; i++) {
+            assertEquals(bytes[i], hash.byteAt(i));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertEquals(bytes[12 + i], address.byteAt(i));
+        }
+
+        byte[] copy = new byte[40];
+        hash.copyTo(copy, 4);
+        assertArrayEquals(bytes, Arrays.copyOfRange(copy, 4, 36));
+
+        ByteBuffer little = ByteBuffer.allocate(52).order(ByteOrder.LITTLE_ENDIAN);
+        hash.writeTo(little);
+        address.writeTo(little);
+        assertEquals(52, little.position());
+        assertArrayEquals(bytes, Arrays.copyOfRange(little.array(), 0, 32));
+        assertArrayEquals(address.getBytes(), Arrays.copyOfRange(little.array(), 32, 52));
+
+        assertEquals(Hash.fromBytes(bytes), hash);
+        assertEquals(Hash.fromBytes(bytes).hashCode(), hash.hashCode());
+        assertNotEquals(UnprefixedHash.fromBytes(bytes), hash);
+        assertEquals(hash.toUInt256().and(UInt256.MAX_VALUE.shr(96)), address.toUInt256());
+        assertEquals(Hash.fromUInt256(address.toUInt256()), address.toHash());
+        assertEquals(address, Address.fromUInt256(hash.toUInt256()));
+    }
+
     private byte[] bytesToHash(byte[] bytes) {
         byte[] hash = new byte[32];
         System.arraycopy(bytes, 0, hash, 32 - bytes.length, bytes.length);
@@ -0,0 +1,133 @@
+package org.eth.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.Hash;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InternDictionaryTest {
+
+    private static Address address(int i) {
+        byte[] b = new byte[CommonTypes.ADDRESS_LENGTH];
+        b[16] = (byte) (i >>> 24);
+        b[17] = (byte) (i >>> 16);
+        b[18] = (byte) (i >>> 8);
+        b[19] = (byte) i;
+        return Address.fromBytes(b);
+    }
+
+    @Test
+    void testIntern() {
+        InternDictionary<Address> dict = InternDictionary.unbounded();
+        Address a = address(1);
+        Address b = address(2);
+        assertEquals(0, dict.intern(a));
+        assertEquals(1, dict.intern(b));
+        assertEquals(0, dict.intern(address(1)));
+        assertSame(a, dict.canonical(address(1)));
+        assertSame(b, dict.get(1));
+        assertEquals(1, dict.idOf(address(2)));
+        assertEquals(-1, dict.idOf(address(3)));
+        assertNull(dict.get(2));
+        assertNull(dict.get(-1));
+        assertEquals(2, dict.size());
+    }
+
+    @Test
+    void testInternAll() {
+        InternDictionary<Hash> dict = InternDictionary.unbounded();
+        List<Hash> hashes = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            hashes.add(Hash.fromUInt256(address(i % 5000).toUInt256().mul(UInt256.MAX_VALUE)));
+        }
+        int[] ids = dict.internAll(hashes);
+        assertEquals(5000, dict.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i % 5000, ids[i]);
+            assertEquals(hashes.get(i), dict.get(ids[i]));
+        }
+    }
+
+    @Test
+    void testConcurrentIntern() {
+        InternDictionary<Address> dict = InternDictionary.unbounded();
+        int[][] ids = IntStream.range(0, 8).parallel()
+                .mapToObj(t -> IntStream.range(0, 20_000).map(i -> dict.intern(address(i))).toArray())
+                .toArray(int[][]::new);
+        assertEquals(20_000, dict.size());
+        Set<Integer> distinct = new HashSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            for (int[] run : ids) {
+                assertEquals(ids[0][i], run[i]);
+            }
+            assertTrue(ids[0][i] < 20_000);
+            distinct.add(ids[0][i]);
+        }
+        assertEquals(20_000, distinct.size());
+    }
+
+    @Test
+    void testBoundedEviction() {
+        InternDictionary<Address> dict = InternDictionary.bounded(100);
+        int hot = dict.intern(address(-1));
+        for (int i = 0; i < 1000; i++) {
+            dict.intern(address(i));
+            assertEquals(hot, dict.idOf(address(-1)));
+        }
+        assertTrue(dict.size() <= 100);
+        assertEquals(address(-1), dict.get(hot));
+        assertEquals(-1, dict.idOf(address(0)));
+        // Evicted ids are recycled, so ids stay below about the capacity.
+        assertTrue(dict.idLimit() <= 101, "idLimit " + dict.idLimit());
+        int id = dict.intern(address(0));
+        assertTrue(id < dict.idLimit());
+        assertEquals(address(0), dict.get(id));
+    }
+
+    @Test
+    void testCanonicalAfterRecycle() {
+        InternDictionary<Address> dict = InternDictionary.bounded(1);
+        Address first = address(1);
+        int id = dict.intern(first);
+        // Evict address(1) and hand its id to address(3), as another thread could between
+        // canonical's intern and get.
+        dict.intern(address(2));
+        assertEquals(id, dict.intern(address(3)));
+        assertEquals(address(3), dict.get(id));
+
+        Address copy = address(1);
+        Address canonical = dict.canonical(copy, id);
+        assertEquals(copy, canonical);
+        assertSame(canonical, dict.canonical(address(1)));
+        assertSame(canonical, dict.get(dict.idOf(address(1))));
+    }
+
+    @Test
+    void testBoundedMemory() {
+        InternDictionary<Address> dict = InternDictionary.bounded(5000);
+        for (int i = 0; i < 1_000_000; i++) {
+            int id = dict.intern(address(i));
+            assertEquals(address(i), dict.get(id));
+        }
+        assertTrue(dict.size() <= 5000);
+        assertTrue(dict.idLimit() <= 5001, "idLimit " + dict.idLimit());
+        assertEquals(2, dict.pageCount());
+
+        // Concurrent interning stays bounded too, give or take the threads racing past the
+        // capacity check.
+        IntStream.range(0, 8).parallel().forEach(t -> {
+            for (int i = 0; i < 100_000; i++) {
+                dict.intern(address(t * 100_000 + i));
+            }
+        });
+        assertTrue(dict.size() <= 5000);
+        assertTrue(dict.pageCount() <= 2, "pages " + dict.pageCount());
+    }
+}
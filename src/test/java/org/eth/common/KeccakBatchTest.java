@@ -0,0 +1,57 @@
+package org.eth.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeccakBatchTest {
+
+    @Test
+    void testPackedMatchesSingle() {
+        Random rnd = new Random(11);
+        int count = 5000;
+        int[] offsets = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            offsets[i + 1] = offsets[i] + rnd.nextInt(300);
+        }
+        byte[] data = new byte[offsets[count]];
+        rnd.nextBytes(data);
+
+        byte[] parallel = new KeccakBatch(512, ForkJoinPool.commonPool()).hash(data, offsets);
+        byte[] sequential = new KeccakBatch(Integer.MAX_VALUE, ForkJoinPool.commonPool()).hash(data, offsets);
+        assertArrayEquals(sequential, parallel);
+        for (int i = 0; i < count; i += 97) {
+            byte[] want = Keccak.hash256(Arrays.copyOfRange(data, offsets[i], offsets[i + 1]));
+            assertArrayEquals(want, KeccakBatch.hashAt(parallel, i).getBytes());
+        }
+    }
+
+    @Test
+    void testList() {
+        Random rnd = new Random(12);
+        List<byte[]> inputs = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            byte[] b = new byte[rnd.nextInt(200)];
+            rnd.nextBytes(b);
+            inputs.add(b);
+        }
+        byte[] out = new KeccakBatch(256, ForkJoinPool.commonPool()).hash(inputs);
+        for (int i = 0; i < inputs.size(); i++) {
+            assertEquals(Keccak.hash(inputs.get(i)), KeccakBatch.hashAt(out, i));
+        }
+    }
+
+    @Test
+    void testBounds() {
+        KeccakBatch batch = new KeccakBatch();
+        assertEquals(0, batch.hash(new byte[0], new int[]{0}).length);
+        assertThrows(IndexOutOfBoundsException.class, () -> batch.hash(new byte[4], new int[]{0, 5}));
+        assertThrows(IndexOutOfBoundsException.class, () -> batch.hash(new byte[4], new int[]{0, 4}, 1, new byte[31], 0));
+    }
+}
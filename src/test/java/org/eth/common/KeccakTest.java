@@ -0,0 +1,109 @@
+package org.eth.common;
+
+import org.eth.hexutil.HexEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.MixedcaseAddress;
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeccakTest {
+
+    private static String hex(byte[] b) {
+        return HexEncoder.toHexString(b, false);
+    }
+
+    @Test
+    void testVectors() {
+        assertEquals("c5d2460186f7233c927e7db2dcc703c0e500b653ca82273b7bfad8045d85a470",
+                hex(Keccak.hash256(new byte[0])));
+        assertEquals("4e03657aea45a94fc7d47ba826c8d667c0d1e6e33a64a036ec44f58fa12d6c45",
+                hex(Keccak.hash256("abc".getBytes(StandardCharsets.US_ASCII))));
+        assertEquals("0eab42de4c3ceb9235fc91acffe746b29c29a8c366b7c60e4e67c466f36a4304"
+                        + "c00fa9caf9d87976ba469bcbe06713b435f091ef2769fb160cdab33d3670680e",
+                hex(Keccak.hash512(new byte[0])));
+        assertEquals("0x" + hex(Keccak.hash256("abc".getBytes(StandardCharsets.US_ASCII))),
+                Keccak.hash("abc".getBytes(StandardCharsets.US_ASCII)).toHexString());
+    }
+
+    @Test
+    void testIncremental() {
+        Random rnd = new Random(5);
+        for (int len : new int[]{0, 1, 7, 8, 135, 136, 137, 271, 272, 1000}) {
+            byte[] data = new byte[len];
+            rnd.nextBytes(data);
+            byte[] want = Keccak.hash256(data);
+
+            Keccak k = Keccak.keccak256();
+            int split = len / 3;
+            k.update(data, 0, split).update(data, split, len - split);
+            assertArrayEquals(want, k.digest());
+
+            for (ByteBuffer buf : new ByteBuffer[]{ByteBuffer.wrap(data), ByteBuffer.allocateDirect(len).put(data).flip()}) {
+                k.update(buf);
+                assertFalse(buf.hasRemaining());
+                assertArrayEquals(want, k.digest());
+            }
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(len + 3).put(new byte[3]).put(data).flip();
+            k.update(data, 0, Math.min(len, 5));
+            direct.position(3 + Math.min(len, 5));
+            assertArrayEquals(want, k.update(direct).digest());
+
+            // The buffer's byte order is the caller's and is neither used nor changed.
+            ByteBuffer readOnly = direct.position(3).asReadOnlyBuffer();
+            assertArrayEquals(want, k.update(readOnly).digest());
+            assertEquals(ByteOrder.BIG_ENDIAN, readOnly.order());
+        }
+    }
+
+    @Test
+    void testChecksumAddress() throws Exception {
+        String[] vectors = {
+                "0x5aAeb6053F3E94C9b9A09f33669435E7Ef1BeAed",
+                "0xfB6916095ca1df60bB79Ce92cE3Ea74c37c5d359",
+                "0xdbF03B407c01E7cD3CBea99509d93f8DDDC8C6FB",
+                "0xD1220A0cf47c7B9Be7A2E6BA89F429762e7b9aDb",
+        };
+        for (String v : vectors) {
+            Address a = Address.fromHexString(v.toLowerCase());
+            assertEquals(v, a.toHexString());
+            assertSame(a.toHexString(), a.toHexString());
+            assertTrue(MixedcaseAddress.fromHexString(v).isValidChecksum());
+            assertTrue(MixedcaseAddress.fromHexString(v.substring(2)).isValidChecksum());
+            assertFalse(MixedcaseAddress.fromHexString(v.toLowerCase()).isValidChecksum());
+        }
+        assertEquals(vectors[0], new Address.Formatter().format(Address.fromHexString(vectors[0].toLowerCase())));
+    }
+
+    // A caller's local256 instance survives library hashing between its updates.
+    @Test
+    void testLocalInstanceSurvivesLibraryHashing() throws Exception {
+        byte[] a = "hello ".getBytes(StandardCharsets.US_ASCII);
+        byte[] b = "world".getBytes(StandardCharsets.US_ASCII);
+        byte[] want = Keccak.hash256("hello world".getBytes(StandardCharsets.US_ASCII));
+
+        Keccak k = Keccak.local256().update(a, 0, a.length);
+        Keccak.hash256(b);
+        Keccak.hash512(b);
+        Keccak.hash(b);
+        Address.fromHexString("0x5aaeb6053f3e94c9b9a09f33669435e7ef1beaed").toHexString();
+        assertTrue(MixedcaseAddress.fromHexString("0xfB6916095ca1df60bB79Ce92cE3Ea74c37c5d359").isValidChecksum());
+        new Bloom().add(b, 0, b.length);
+        byte[] got = new byte[Keccak.KECCAK256_LENGTH];
+        k.update(b, 0, b.length).digest(got, 0);
+        assertArrayEquals(want, got);
+
+        byte[] want512 = Keccak.hash512("hello world".getBytes(StandardCharsets.US_ASCII));
+        Keccak k512 = Keccak.local512().update(a, 0, a.length);
+        Keccak.hash512(b);
+        byte[] got512 = new byte[Keccak.KECCAK512_LENGTH];
+        k512.update(b, 0, b.length).digest(got512, 0);
+        assertArrayEquals(want512, got512);
+    }
+}
@@ -0,0 +1,135 @@
+package org.eth.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.Hash;
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeySortTest {
+
+    private static Hash randomHash(Random rnd) {
+        byte[] b = new byte[32];
+        rnd.nextBytes(b);
+        return Hash.fromBytes(b);
+    }
+
+    @Test
+    void testCompareTo() {
+        Hash a = Hash.fromUInt256(UInt256.valueOf(1));
+        Hash b = Hash.fromUInt256(UInt256.MAX_VALUE);
+        assertTrue(a.compareTo(b) < 0);
+        assertTrue(b.compareTo(a) > 0);
+        assertEquals(0, a.compareTo(Hash.fromUInt256(UInt256.ONE)));
+
+        Random rnd = new Random(61);
+        Comparator<byte[]> unsigned = Arrays::compareUnsigned;
+        for (int i = 0; i < 1000; i++) {
+            Hash x = randomHash(rnd);
+            Hash y = randomHash(rnd);
+            assertEquals(Integer.signum(unsigned.compare(x.getBytes(), y.getBytes())), Integer.signum(x.compareTo(y)));
+            Address p = Address.fromBytes(Arrays.copyOf(x.getBytes(), 20));
+            Address q = Address.fromBytes(Arrays.copyOf(y.getBytes(), 20));
+            assertEquals(Integer.signum(unsigned.compare(p.getBytes(), q.getBytes())), Integer.signum(p.compareTo(q)));
+        }
+    }
+
+    @Test
+    void testParallelSortAndDedupe() {
+        Random rnd = new Random(62);
+        Hash[] hashes = new Hash[300_000];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = i % 3 == 0 && i > 0 ? hashes[rnd.nextInt(i)] : randomHash(rnd);
+        }
+        Hash[] want = hashes.clone();
+        Arrays.sort(want);
+        Hash[] got = hashes.clone();
+        new KeySort(0, ForkJoinPool.commonPool()).sort(got);
+        assertArrayEquals(want, got);
+
+        int n = new KeySort().sortUnique(hashes);
+        Hash[] distinct = Arrays.stream(want).distinct().toArray(Hash[]::new);
+        assertEquals(distinct.length, n);
+        assertArrayEquals(distinct, Arrays.copyOf(hashes, n));
+    }
+
+    @Test
+    void testSkewedAddresses() {
+        // Small integers share 19 leading zero bytes, so every pass but the last is one bucket.
+        Random rnd = new Random(63);
+        Address[] addresses = new Address[100_000];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = Address.fromUInt256(UInt256.valueOf(rnd.nextInt(50_000)));
+        }
+        Address[] want = addresses.clone();
+        Arrays.sort(want);
+        new KeySort(0, ForkJoinPool.commonPool()).sort(addresses, 0, addresses.length);
+        assertArrayEquals(want, addresses);
+        assertEquals(Arrays.stream(want).distinct().count(), KeySort.dedupe(addresses, 0, addresses.length));
+    }
+
+    // Prefixed and unprefixed keys with the same bytes are one key to the sort order, so dedupe
+    // keeps one of them, as a TreeSet would.
+    @Test
+    void testDedupeMatchesOrdering() {
+        Random rnd = new Random(18);
+        Hash[] hashes = new Hash[1000];
+        for (int i = 0; i < hashes.length; i += 2) {
+            Hash h = randomHash(rnd);
+            hashes[i] = h;
+            hashes[i + 1] = new CommonTypes.UnprefixedHash(h.getBytes());
+        }
+        int n = new KeySort().sortUnique(hashes);
+        assertEquals(new TreeSet<>(Arrays.asList(hashes)).size(), n);
+        assertEquals(500, n);
+
+        Address a = Address.fromUInt256(UInt256.valueOf(7));
+        Address[] addresses = {new CommonTypes.UnprefixedAddress(a.getBytes()), a, Address.fromUInt256(UInt256.valueOf(8))};
+        assertEquals(2, new KeySort().sortUnique(addresses));
+        assertEquals(0, a.compareTo(addresses[0]));
+    }
+
+    @Test
+    void testPacked() {
+        Random rnd = new Random(64);
+        int width = 20;
+        int count = 120_000;
+        byte[] data = new byte[3 + count * width];
+        for (int i = 0; i < count; i++) {
+            byte[] key = new byte[width];
+            rnd.nextBytes(key);
+            key[0] &= 0x83;
+            if (i % 4 == 0 && i > 0) {
+                int j = rnd.nextInt(i);
+                System.arraycopy(data, 3 + j * width, key, 0, width);
+            }
+            System.arraycopy(key, 0, data, 3 + i * width, width);
+        }
+        byte[][] want = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            want[i] = Arrays.copyOfRange(data, 3 + i * width, 3 + (i + 1) * width);
+        }
+        Arrays.sort(want, Arrays::compareUnsigned);
+
+        byte[] copy = data.clone();
+        new KeySort(0, ForkJoinPool.commonPool()).sort(copy, 3, count, width);
+        for (int i = 0; i < count; i++) {
+            assertArrayEquals(want[i], Arrays.copyOfRange(copy, 3 + i * width, 3 + (i + 1) * width));
+        }
+
+        int n = new KeySort().sortUnique(data, 3, count, width);
+        byte[][] distinct = Arrays.stream(want).map(b -> Address.fromBytes(b)).distinct()
+                .map(Address::getBytes).toArray(byte[][]::new);
+        assertEquals(distinct.length, n);
+        for (int i = 0; i < n; i++) {
+            assertArrayEquals(distinct[i], Arrays.copyOfRange(data, 3 + i * width, 3 + (i + 1) * width));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> new KeySort().sort(data, 4, count, width));
+    }
+}
@@ -0,0 +1,142 @@
+package org.eth.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.Hash;
+import static org.eth.common.KeyedCollections.AddressKeySet;
+import static org.eth.common.KeyedCollections.AddressKeyedIntMap;
+import static org.eth.common.KeyedCollections.HashKeySet;
+import static org.eth.common.KeyedCollections.HashKeyedLongMap;
+import static org.eth.common.KeyedCollections.HashKeyedMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyedCollectionsTest {
+
+    private static Hash randomHash(Random rnd) {
+        byte[] b = new byte[32];
+        rnd.nextBytes(b);
+        return Hash.fromBytes(b);
+    }
+
+    private static Address address(int i) {
+        return Address.fromUInt256(UInt256.valueOf(i));
+    }
+
+    // Random operations checked against java.util.HashMap, with small sequential keys to force
+    // long probe runs and exercise backward-shift deletion.
+    @Test
+    void testMapAgainstHashMap() {
+        Random rnd = new Random(21);
+        HashKeyedMap<Integer> map = new HashKeyedMap<>();
+        Map<Hash, Integer> ref = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            Hash key = Hash.fromUInt256(UInt256.valueOf(rnd.nextInt(5000)).shl(rnd.nextBoolean() ? 0 : 8));
+            switch (rnd.nextInt(3)) {
+                case 0 -> assertEquals(ref.put(key, i), map.put(key, i));
+                case 1 -> assertEquals(ref.remove(key), map.remove(key));
+                default -> assertEquals(ref.get(key), map.get(key));
+            }
+            assertEquals(ref.size(), map.size());
+        }
+        int visited = 0;
+        for (int s = map.first(); s >= 0; s = map.next(s)) {
+            assertEquals(ref.get(map.keyAt(s)), map.valueAt(s));
+            visited++;
+        }
+        assertEquals(ref.size(), visited);
+        assertTrue(map.containsAll(ref.keySet()));
+    }
+
+    @Test
+    void testSets() {
+        Random rnd = new Random(22);
+        List<Hash> hashes = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            hashes.add(randomHash(rnd));
+        }
+        HashKeySet set = new HashKeySet();
+        assertTrue(set.addAll(hashes));
+        assertFalse(set.addAll(hashes));
+        assertEquals(10_000, set.size());
+        assertTrue(set.containsAll(hashes));
+        assertFalse(set.contains(randomHash(rnd)));
+        assertFalse(set.contains(null));
+
+        HashKeySet copy = new HashKeySet(set.size());
+        copy.addAll(set);
+        assertTrue(copy.containsAll(hashes));
+
+        byte[] buf = new byte[32];
+        int s = set.first();
+        set.copyKeyAt(s, buf, 0);
+        assertArrayEquals(set.keyAt(s).getBytes(), buf);
+        assertTrue(set.remove(set.keyAt(s)));
+        assertEquals(9_999, set.size());
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertEquals(-1, set.first());
+
+        AddressKeySet addresses = new AddressKeySet();
+        addresses.add(address(0));
+        addresses.add(Address.fromUInt256(UInt256.MAX_VALUE));
+        assertTrue(addresses.contains(address(0)));
+        assertTrue(addresses.contains(Address.fromUInt256(UInt256.MAX_VALUE)));
+        assertFalse(addresses.contains(address(1)));
+    }
+
+    @Test
+    void testPrimitiveMaps() {
+        HashKeyedLongMap balances = new HashKeyedLongMap(0, -1);
+        Hash a = randomHash(new Random(23));
+        assertEquals(-1, balances.get(a));
+        assertEquals(5, balances.addTo(a, 5));
+        assertEquals(12, balances.addTo(a, 7));
+        assertEquals(12, balances.put(a, 1));
+        assertEquals(1, balances.remove(a));
+        assertEquals(-1, balances.remove(a));
+
+        AddressKeyedIntMap ids = new AddressKeyedIntMap();
+        for (int i = 0; i < 1000; i++) {
+            ids.put(address(i), i);
+        }
+        AddressKeyedIntMap copy = new AddressKeyedIntMap();
+        copy.putAll(ids);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, copy.get(address(i)));
+        }
+        for (int s = copy.first(); s >= 0; s = copy.next(s)) {
+            copy.setValueAt(s, copy.valueAt(s) + 1);
+        }
+        assertEquals(1000, copy.get(address(999)));
+        assertEquals(0, copy.get(address(1000)));
+    }
+
+    @Test
+    void testGrowth() {
+        HashKeyedMap<Integer> map = new HashKeyedMap<>();
+        assertEquals(16, map.capacity());
+        for (int i = 0; i < 12; i++) {
+            map.put(Hash.fromUInt256(UInt256.valueOf(i)), i);
+        }
+        // Full to the load factor: replacing a value needs no new slot and must not grow.
+        map.put(Hash.fromUInt256(UInt256.valueOf(3)), 30);
+        assertEquals(16, map.capacity());
+        map.put(Hash.fromUInt256(UInt256.valueOf(12)), 12);
+        assertEquals(32, map.capacity());
+        assertEquals(30, map.get(Hash.fromUInt256(UInt256.valueOf(3))));
+        assertEquals(13, map.size());
+
+        // The largest tables still fit their limbs in one array.
+        assertEquals(1 << 28, map.maxCapacity());
+        AddressKeySet set = new AddressKeySet();
+        assertEquals(1 << 29, set.maxCapacity());
+        assertTrue(3L * set.maxCapacity() <= Integer.MAX_VALUE);
+    }
+}
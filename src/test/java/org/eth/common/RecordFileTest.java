@@ -0,0 +1,125 @@
+package org.eth.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.Hash;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordFileTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<Hash> randomHashes(Random rnd, int n) {
+        List<Hash> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            byte[] b = new byte[32];
+            rnd.nextBytes(b);
+            out.add(Hash.fromBytes(b));
+        }
+        return out;
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        Random rnd = new Random(51);
+        List<Hash> hashes = randomHashes(rnd, 70_000);
+        Path file = dir.resolve("hashes.rec");
+        RecordFile.writeHashes(file, hashes, true);
+        assertEquals(32 + 70_000 * 32 + 8, Files.size(file));
+        assertEquals(hashes, RecordFile.readHashes(file));
+
+        List<Address> addresses = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            addresses.add(Address.fromUInt256(UInt256.valueOf(rnd.nextLong())));
+        }
+        Path afile = dir.resolve("addresses.rec");
+        RecordFile.writeAddresses(afile, addresses, false);
+        assertEquals(32 + 1000 * 20, Files.size(afile));
+        assertEquals(addresses, RecordFile.readAddresses(afile));
+        assertThrows(IOException.class, () -> RecordFile.readHashes(afile));
+    }
+
+    @Test
+    void testScatterGatherAndMap() throws IOException {
+        Random rnd = new Random(52);
+        List<Hash> hashes = randomHashes(rnd, 100);
+        ByteBuffer a = ByteBuffer.allocate(40 * 32 + 7);
+        ByteBuffer b = ByteBuffer.allocateDirect(60 * 32 - 7);
+        for (int i = 0; i < 40; i++) {
+            hashes.get(i).writeTo(a);
+        }
+        byte[] spill = hashes.get(40).getBytes();
+        a.put(spill, 0, 7);
+        b.put(spill, 7, 25);
+        for (int i = 41; i < 100; i++) {
+            hashes.get(i).writeTo(b);
+        }
+        Path file = dir.resolve("gather.rec");
+        try (RecordFile.Writer w = RecordFile.create(file, 32, true)) {
+            w.write(a.flip(), b.flip());
+            w.write(hashes.get(0));
+            assertEquals(101, w.size());
+            assertThrows(IllegalArgumentException.class, () -> w.write(ByteBuffer.allocate(31)));
+            assertThrows(IllegalArgumentException.class, () -> w.write(Address.fromUInt256(UInt256.ONE)));
+        }
+
+        try (RecordFile.Reader r = RecordFile.open(file)) {
+            assertEquals(101, r.size());
+            assertTrue(r.hasChecksum());
+            r.verify();
+            ByteBuffer x = ByteBuffer.allocate(33 * 32 + 5);
+            ByteBuffer y = ByteBuffer.allocateDirect(100 * 32);
+            assertEquals(101, r.read(x, y));
+            assertEquals(-1, r.read(x, y));
+            x.flip();
+            y.flip();
+            for (int i = 0; i < 33; i++) {
+                assertEquals(hashes.get(i), Hash.readFrom(x));
+            }
+            assertEquals(5, x.remaining());
+
+            MappedByteBuffer m = r.map(90, 11);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(hashes.get(90 + i), Hash.fromBuffer(m, i * 32));
+            }
+            assertEquals(hashes.get(0), Hash.fromBuffer(m, 10 * 32));
+            assertEquals(hashes.get(90), Hash.fromBuffer(m.duplicate().order(ByteOrder.LITTLE_ENDIAN), 0));
+        }
+    }
+
+    @Test
+    void testCorruption() throws IOException {
+        Path file = dir.resolve("corrupt.rec");
+        RecordFile.writeHashes(file, randomHashes(new Random(53), 10), true);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), 100);
+        }
+        assertThrows(IOException.class, () -> RecordFile.readHashes(file));
+        try (RecordFile.Reader r = RecordFile.open(file)) {
+            assertThrows(IOException.class, r::verify);
+        }
+
+        Path truncated = dir.resolve("truncated.rec");
+        byte[] all = Files.readAllBytes(file);
+        Files.write(truncated, Arrays.copyOf(all, all.length - 1));
+        assertThrows(IOException.class, () -> RecordFile.open(truncated));
+        Files.write(truncated, new byte[3]);
+        assertThrows(IOException.class, () -> RecordFile.open(truncated));
+    }
+}
@@ -0,0 +1,110 @@
+package org.eth.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.Hash;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedKeyIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testAddressIndex() throws IOException {
+        Random rnd = new Random(31);
+        List<Address> addresses = new ArrayList<>();
+        SortedKeyIndex.Builder builder = SortedKeyIndex.builder(20, 0);
+        for (int i = 0; i < 20_000; i++) {
+            byte[] b = new byte[20];
+            rnd.nextBytes(b);
+            Address a = Address.fromBytes(b);
+            addresses.add(a);
+            builder.add(a);
+        }
+        builder.add(addresses.get(0));
+        Path file = dir.resolve("addresses.idx");
+        builder.write(file);
+
+        SortedKeyIndex index = SortedKeyIndex.open(file);
+        assertEquals(20_000, index.size());
+        assertTrue(IntStream.range(0, addresses.size()).parallel().allMatch(i -> index.contains(addresses.get(i))));
+        for (int i = 0; i < 1000; i++) {
+            byte[] b = new byte[20];
+            rnd.nextBytes(b);
+            assertFalse(index.contains(Address.fromBytes(b)));
+        }
+        byte[] prev = new byte[20];
+        byte[] cur = new byte[20];
+        index.keyAt(0, prev, 0);
+        for (long i = 1; i < index.size(); i++) {
+            index.keyAt(i, cur, 0);
+            assertTrue(Arrays.compareUnsigned(prev, cur) < 0);
+            System.arraycopy(cur, 0, prev, 0, 20);
+        }
+        assertThrows(IllegalArgumentException.class, () -> index.contains(Hash.fromBytes(new byte[32])));
+    }
+
+    @Test
+    void testHashPayloads() throws IOException {
+        // Skewed keys: small integers have all-zero leading limbs, defeating interpolation.
+        SortedKeyIndex.Builder builder = SortedKeyIndex.builder(32, 8);
+        for (int i = 0; i < 5000; i++) {
+            byte[] payload = ByteBuffer.allocate(8).putLong(i * 3L).array();
+            builder.add(Hash.fromUInt256(UInt256.valueOf(i * 7L)), payload, 0);
+        }
+        Path file = dir.resolve("hashes.idx");
+        builder.write(file);
+
+        SortedKeyIndex index = SortedKeyIndex.open(file);
+        byte[] payload = new byte[8];
+        for (int i = 0; i < 5000; i++) {
+            Hash h = Hash.fromUInt256(UInt256.valueOf(i * 7L));
+            assertTrue(index.get(h, payload, 0));
+            assertEquals(i * 3L, ByteBuffer.wrap(payload).getLong());
+            assertEquals(index.indexOf(h), index.indexOf(h.getBytes(), 0));
+            assertFalse(index.contains(Hash.fromUInt256(UInt256.valueOf(i * 7L + 1))));
+        }
+    }
+
+    @Test
+    void testEmptyAndCorrupt() throws IOException {
+        Path file = dir.resolve("empty.idx");
+        SortedKeyIndex.builder(32, 0).write(file);
+        SortedKeyIndex index = SortedKeyIndex.open(file);
+        assertEquals(0, index.size());
+        assertFalse(index.contains(Hash.fromBytes(new byte[32])));
+
+        Path bad = dir.resolve("bad.idx");
+        Files.write(bad, new byte[40]);
+        assertThrows(IOException.class, () -> SortedKeyIndex.open(bad));
+
+        // Headers whose widths or count overflow the record arithmetic are reported as corrupt.
+        byte[] header = Files.readAllBytes(file);
+        int[][] widths = {{32, Integer.MAX_VALUE}, {8, Integer.MAX_VALUE - 7}, {32, Integer.MAX_VALUE - 31}};
+        for (int[] w : widths) {
+            ByteBuffer.wrap(header).putInt(8, w[0]).putInt(12, w[1]).putLong(16, 0);
+            Files.write(bad, header);
+            IOException e = assertThrows(IOException.class, () -> SortedKeyIndex.open(bad));
+            assertTrue(e.getMessage().startsWith("Corrupt"), e.getMessage());
+        }
+        ByteBuffer.wrap(header).putInt(8, 8).putInt(12, Integer.MAX_VALUE - 8).putLong(16, 0);
+        Files.write(bad, header);
+        assertEquals(Integer.MAX_VALUE - 8, SortedKeyIndex.open(bad).payloadWidth());
+        ByteBuffer.wrap(header).putInt(8, 32).putInt(12, 0).putLong(16, Long.MAX_VALUE);
+        Files.write(bad, header);
+        assertThrows(IOException.class, () -> SortedKeyIndex.open(bad));
+    }
+}
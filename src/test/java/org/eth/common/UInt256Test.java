@@ -0,0 +1,194 @@
+package org.eth.common;
+
+import com.sun.management.ThreadMXBean;
+import org.eth.hexutil.HexUtil;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.function.BinaryOperator;
+
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.Hash;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UInt256Test {
+    private static final BigInteger MOD = BigInteger.ONE.shiftLeft(256);
+
+    // Random operands of varying widths, so that every limb-count combination is exercised.
+    private static BigInteger random(Random rnd) {
+        int bits = rnd.nextInt(257);
+        BigInteger v = new BigInteger(bits, rnd);
+        return rnd.nextInt(8) == 0 ? MOD.subtract(BigInteger.ONE).subtract(v) : v;
+    }
+
+    private static void checkOp(BinaryOperator<UInt256> op, BinaryOperator<BigInteger> ref) {
+        Random rnd = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            BigInteger a = random(rnd);
+            BigInteger b = random(rnd);
+            BigInteger want = ref.apply(a, b).mod(MOD);
+            UInt256 got = op.apply(UInt256.fromBigInteger(a), UInt256.fromBigInteger(b));
+            assertEquals(want, got.toBigInteger(), () -> a.toString(16) + ", " + b.toString(16));
+        }
+    }
+
+    @Test
+    void testArithmetic() {
+        checkOp(UInt256::add, BigInteger::add);
+        checkOp(UInt256::sub, BigInteger::subtract);
+        checkOp(UInt256::mul, BigInteger::multiply);
+        checkOp(UInt256::div, (a, b) -> b.signum() == 0 ? BigInteger.ZERO : a.divide(b));
+        checkOp(UInt256::mod, (a, b) -> b.signum() == 0 ? BigInteger.ZERO : a.mod(b));
+        checkOp(UInt256::and, BigInteger::and);
+        checkOp(UInt256::or, BigInteger::or);
+        checkOp(UInt256::xor, BigInteger::xor);
+    }
+
+    @Test
+    void testSmallDivisor() {
+        UInt256 a = UInt256.MAX_VALUE;
+        BigInteger max = MOD.subtract(BigInteger.ONE);
+        for (long d : new long[]{1, 3, 10, 0xffffffffL, 1_000_000_007L}) {
+            assertEquals(max.divide(BigInteger.valueOf(d)), a.div(UInt256.valueOf(d)).toBigInteger());
+            assertEquals(max.mod(BigInteger.valueOf(d)), a.mod(UInt256.valueOf(d)).toBigInteger());
+        }
+    }
+
+    @Test
+    void testWrapping() {
+        assertEquals(UInt256.ZERO, UInt256.MAX_VALUE.add(UInt256.ONE));
+        assertEquals(UInt256.MAX_VALUE, UInt256.ZERO.sub(UInt256.ONE));
+        assertEquals(UInt256.ZERO, UInt256.ONE.div(UInt256.ZERO));
+        assertEquals(UInt256.ZERO, UInt256.ONE.mod(UInt256.ZERO));
+        assertEquals(UInt256.MAX_VALUE, UInt256.fromBigInteger(BigInteger.ONE.negate()));
+    }
+
+    @Test
+    void testShift() {
+        Random rnd = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            BigInteger a = random(rnd);
+            int n = rnd.nextInt(300);
+            UInt256 u = UInt256.fromBigInteger(a);
+            assertEquals(a.shiftLeft(n).mod(MOD), u.shl(n).toBigInteger());
+            assertEquals(a.shiftRight(n), u.shr(n).toBigInteger());
+        }
+        assertThrows(IllegalArgumentException.class, () -> UInt256.ONE.shl(-1));
+    }
+
+    @Test
+    void testCompare() {
+        Random rnd = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            BigInteger a = random(rnd);
+            BigInteger b = rnd.nextBoolean() ? a : random(rnd);
+            int got = UInt256.fromBigInteger(a).compareTo(UInt256.fromBigInteger(b));
+            assertEquals(a.compareTo(b), Integer.signum(got));
+            assertEquals(a.bitLength(), UInt256.fromBigInteger(a).bitLength());
+        }
+    }
+
+    @Test
+    void testMutable() {
+        MutableUInt256 acc = new MutableUInt256();
+        BigInteger want = BigInteger.ZERO;
+        for (int i = 1; i <= 100; i++) {
+            acc.add(i).mul(0x1_0000_0001L).sub(7);
+            want = want.add(BigInteger.valueOf(i)).multiply(BigInteger.valueOf(0x1_0000_0001L))
+                    .subtract(BigInteger.valueOf(7)).mod(MOD);
+        }
+        assertEquals(want, acc.toUInt256().toBigInteger());
+        assertEquals(acc, acc.toUInt256().mutable());
+        assertEquals(acc.hashCode(), acc.toUInt256().hashCode());
+    }
+
+    // Division in place works on the accumulator's own limbs, so a warmed-up loop of div and mod
+    // by wide and single-limb divisors allocates nothing.
+    @Test
+    void testMutableDivision() {
+        Random rnd = new Random(8);
+        UInt256[] as = new UInt256[1000];
+        UInt256[] bs = new UInt256[as.length];
+        for (int i = 0; i < as.length; i++) {
+            BigInteger a = random(rnd);
+            BigInteger b = i % 2 == 0 ? random(rnd) : BigInteger.valueOf(rnd.nextLong() >>> 1 + rnd.nextInt(63));
+            as[i] = UInt256.fromBigInteger(a);
+            bs[i] = UInt256.fromBigInteger(b);
+            BigInteger q = b.signum() == 0 ? BigInteger.ZERO : a.divide(b);
+            BigInteger r = b.signum() == 0 ? BigInteger.ZERO : a.mod(b);
+            assertEquals(q, new MutableUInt256(as[i]).div(bs[i]).toUInt256().toBigInteger());
+            assertEquals(r, new MutableUInt256(as[i]).mod(bs[i]).toUInt256().toBigInteger());
+            if (i % 2 == 1) {
+                long d = b.longValue();
+                assertEquals(q, new MutableUInt256(as[i]).div(d).toUInt256().toBigInteger());
+                assertEquals(r, new MutableUInt256(as[i]).mod(d).toUInt256().toBigInteger());
+            }
+        }
+
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        MutableUInt256 acc = new MutableUInt256();
+        long sum = 0;
+        for (int round = 0; round <= 20; round++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < as.length; i++) {
+                sum += acc.set(as[i]).div(bs[i]).hashCode();
+                sum += acc.set(as[i]).mod(bs[i]).hashCode();
+            }
+            long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+            if (round == 20) {
+                assertTrue(allocated < 1024, allocated + " bytes allocated");
+            }
+        }
+        assertNotEquals(0, sum);
+    }
+
+    @Test
+    void testBytes() {
+        byte[] bytes = new byte[32];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i + 1);
+        }
+        UInt256 u = UInt256.fromBytes(bytes, 0);
+        assertEquals(new BigInteger(1, bytes), u.toBigInteger());
+        assertArrayEquals(bytes, u.toByteArray());
+        assertEquals(BigInteger.valueOf(0x0102), UInt256.fromBytes(bytes, 0, 2).toBigInteger());
+        assertThrows(IllegalArgumentException.class, () -> UInt256.fromBytes(new byte[33]));
+    }
+
+    @Test
+    void testHex() throws HexUtil.HexUtilException {
+        String[] inputs = {"0x0", "0x1", "0xabc", "0x10000000000000000", "0x1234567890abcdef1234567890abcdef",
+                "0xffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff"};
+        for (String in : inputs) {
+            UInt256 u = UInt256.fromHexString(in);
+            assertEquals(HexUtil.decodeBig(in), u.toBigInteger());
+            assertEquals(in, u.toHexString());
+        }
+        assertThrows(HexUtil.ErrLeadingZero.class, () -> UInt256.fromHexString("0x01"));
+        assertThrows(HexUtil.ErrMissingPrefix.class, () -> UInt256.fromHexString("1"));
+        assertThrows(HexUtil.ErrBig256Range.class,
+                () -> UInt256.fromHexString("0x10000000000000000000000000000000000000000000000000000000000000000"));
+
+        // Every digit count, decoded from the middle of a longer sequence.
+        Random rnd = new Random(9);
+        for (int bits = 1; bits <= 256; bits++) {
+            BigInteger v = new BigInteger(bits, rnd).setBit(bits - 1);
+            String in = "[0x" + v.toString(16) + "]";
+            assertEquals(v, UInt256.fromHexString(in, 1, in.length() - 1).toBigInteger(), in);
+        }
+    }
+
+    @Test
+    void testHashAndAddress() throws HexUtil.HexUtilException {
+        Hash hash = Hash.fromHexString("0x00000000000000000000000000000000000000000000000000000000000001ff");
+        assertEquals(UInt256.valueOf(0x1ff), hash.toUInt256());
+        assertEquals(hash, Hash.fromUInt256(UInt256.valueOf(0x1ff)));
+
+        Address address = Address.fromHexString("0x5aaeb6053f3e94c9b9a09f33669435e7ef1beaed");
+        UInt256 u = address.toUInt256();
+        assertEquals(new BigInteger("5aaeb6053f3e94c9b9a09f33669435e7ef1beaed", 16), u.toBigInteger());
+        assertEquals(address, Address.fromUInt256(u.or(UInt256.MAX_VALUE.shl(160))));
+    }
+}
@@ -0,0 +1,84 @@
+package org.eth.hexutil;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HexBatchDecoderTest {
+
+    private static List<String> randomHashes(int n, Random rnd) {
+        List<String> out = new ArrayList<>(n);
+        byte[] b = new byte[32];
+        for (int i = 0; i < n; i++) {
+            rnd.nextBytes(b);
+            out.add(HexUtil.encode(b));
+        }
+        return out;
+    }
+
+    @Test
+    void testDecode() throws HexUtil.HexUtilException {
+        List<String> inputs = randomHashes(100, new Random(1));
+        HexBatchDecoder.Batch batch = new HexBatchDecoder(32).decode(inputs);
+        assertEquals(100, batch.size());
+        assertEquals(0, batch.failures());
+        for (int i = 0; i < inputs.size(); i++) {
+            assertTrue(batch.isValid(i));
+            assertArrayEquals(HexUtil.decode(inputs.get(i)), batch.copy(i));
+        }
+    }
+
+    @Test
+    void testErrors() {
+        String good = "0x" + "ab".repeat(20);
+        String[] inputs = {good, null, "", "ab".repeat(20), "0x" + "ab".repeat(19), "0x" + "zz".repeat(20), "0xabc", good};
+        HexBatchDecoder.Batch batch = new HexBatchDecoder(20).decode(inputs);
+        assertEquals(6, batch.failures());
+        assertNull(batch.error(0));
+        assertEquals(HexError.EMPTY_STRING, batch.error(1));
+        assertEquals(HexError.EMPTY_STRING, batch.error(2));
+        assertEquals(HexError.MISSING_PREFIX, batch.error(3));
+        assertEquals(HexError.LENGTH, batch.error(4));
+        assertEquals(HexError.SYNTAX, batch.error(5));
+        assertEquals(HexError.ODD_LENGTH, batch.error(6));
+        assertTrue(batch.isValid(7));
+        assertArrayEquals(new byte[20], batch.copy(5));
+        assertEquals((byte) 0xab, batch.data()[batch.offset(7)]);
+    }
+
+    @Test
+    void testParallel() {
+        Random rnd = new Random(2);
+        List<String> inputs = randomHashes(10_000, rnd);
+        inputs.set(4321, "0xnope");
+        HexBatchDecoder parallel = new HexBatchDecoder(32, 2048, ForkJoinPool.commonPool());
+        HexBatchDecoder sequential = new HexBatchDecoder(32, Integer.MAX_VALUE, ForkJoinPool.commonPool());
+        HexBatchDecoder.Batch a = parallel.decode(inputs);
+        HexBatchDecoder.Batch b = sequential.decode(new LinkedList<>(inputs));
+        assertArrayEquals(b.data(), a.data());
+        assertEquals(1, a.failures());
+        assertEquals(HexError.SYNTAX, a.error(4321));
+    }
+
+    @Test
+    void testByteBuffer() {
+        List<String> inputs = randomHashes(10, new Random(3));
+        byte[] want = new HexBatchDecoder(32).decode(inputs).data();
+        for (ByteBuffer dst : new ByteBuffer[]{ByteBuffer.allocate(8 + 320), ByteBuffer.allocateDirect(8 + 320)}) {
+            dst.position(8);
+            int[] codes = new int[10];
+            assertEquals(0, new HexBatchDecoder(32).decode(inputs, dst, codes));
+            assertEquals(dst.capacity(), dst.position());
+            byte[] got = new byte[320];
+            dst.get(8, got);
+            assertArrayEquals(want, got);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.eth.hexutil;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HexChannelTest {
+
+    // Returns a channel that hands out at most one byte per read, to split every digit pair.
+    private static ReadableByteChannel trickle(byte[] data) {
+        ReadableByteChannel ch = Channels.newChannel(new ByteArrayInputStream(data));
+        return new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                ByteBuffer one = ByteBuffer.allocate(1);
+                int r = ch.read(one);
+                if (r > 0) {
+                    dst.put(one.flip());
+                }
+                return r;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return ch.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                ch.close();
+            }
+        };
+    }
+
+    private static byte[] readAll(ReadableByteChannel ch) throws IOException {
+        try (InputStream in = Channels.newInputStream(ch)) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        byte[] payload = new byte[100_003];
+        new Random(1).nextBytes(payload);
+
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (HexEncodingChannel enc = new HexEncodingChannel(Channels.newChannel(sink), true, 64)) {
+            enc.write(ByteBuffer.wrap(payload, 0, 50_000));
+            enc.write(ByteBuffer.allocateDirect(50_003).put(payload, 50_000, 50_003).flip());
+        }
+        assertEquals(HexUtil.encode(payload), sink.toString(StandardCharsets.US_ASCII));
+
+        byte[] decoded = readAll(new HexDecodingChannel(Channels.newChannel(new ByteArrayInputStream(sink.toByteArray())), 7));
+        assertArrayEquals(payload, decoded);
+    }
+
+    @Test
+    public void testEmptyStream() throws IOException {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        new HexEncodingChannel(Channels.newChannel(sink), true).close();
+        assertEquals("0x", sink.toString(StandardCharsets.US_ASCII));
+
+        assertEquals(0, readAll(new HexDecodingChannel(trickle(new byte[0]))).length);
+        assertEquals(0, readAll(new HexDecodingChannel(trickle("0X".getBytes(StandardCharsets.US_ASCII)))).length);
+    }
+
+    @Test
+    public void testDecodeAcrossBoundaries() throws IOException {
+        byte[] hex = "0xDEADbeef01".getBytes(StandardCharsets.US_ASCII);
+        byte[] want = {(byte) 0xde, (byte) 0xad, (byte) 0xbe, (byte) 0xef, 1};
+        assertArrayEquals(want, readAll(new HexDecodingChannel(trickle(hex))));
+        assertArrayEquals(want, readAll(new HexDecodingChannel(trickle("DEADbeef01".getBytes(StandardCharsets.US_ASCII)), 2)));
+    }
+
+    @Test
+    public void testDecodeErrors() {
+        HexUtil.HexStreamException e = assertThrows(HexUtil.HexStreamException.class,
+                () -> readAll(new HexDecodingChannel(trickle("0x00110x22".getBytes(StandardCharsets.US_ASCII)))));
+        assertInstanceOf(HexUtil.ErrSyntax.class, e.getCause());
+        assertEquals(7, e.getOffset());
+
+        e = assertThrows(HexUtil.HexStreamException.class,
+                () -> readAll(new HexDecodingChannel(trickle("0x001".getBytes(StandardCharsets.US_ASCII)))));
+        assertInstanceOf(HexUtil.ErrOddLength.class, e.getCause());
+        assertEquals(5, e.getOffset());
+
+        // A single digit runs the source dry while the prefix is still being looked for.
+        for (String odd : new String[]{"a", "0xa", "abc"}) {
+            ReadableByteChannel whole = Channels.newChannel(new ByteArrayInputStream(odd.getBytes(StandardCharsets.US_ASCII)));
+            e = assertThrows(HexUtil.HexStreamException.class, () -> readAll(new HexDecodingChannel(whole)), odd);
+            assertInstanceOf(HexUtil.ErrOddLength.class, e.getCause());
+            assertEquals(odd.length(), e.getOffset());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.eth.hexutil;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HexDecoderTest {
+
+    @Test
+    public void testDecodeSlice() throws Exception {
+        String src = "id=0x01ab,";
+        byte[] dst = new byte[4];
+        int n = HexDecoder.decode(src, 3, 9, dst, 1);
+        assertEquals(2, n);
+        assertArrayEquals(new byte[]{0, 1, (byte) 0xab, 0}, dst);
+    }
+
+    @Test
+    public void testDecodeErrors() {
+        byte[] dst = new byte[8];
+        assertThrows(HexUtil.ErrEmptyString.class, () -> HexDecoder.decode("abc", 1, 1, dst, 0));
+        assertThrows(HexUtil.ErrMissingPrefix.class, () -> HexDecoder.decode("0X01", 0, 4, dst, 0));
+        assertThrows(HexUtil.ErrOddLength.class, () -> HexDecoder.decode("0x012", 0, 5, dst, 0));
+        assertThrows(HexUtil.ErrSyntax.class, () -> HexDecoder.decode("0x0g", 0, 4, dst, 0));
+        assertThrows(HexUtil.ErrSyntax.class, () -> HexDecoder.decode("0x0İ", 0, 4, dst, 0));
+    }
+
+    @Test
+    public void testDecodeLenient() throws Exception {
+        byte[] dst = new byte[2];
+        assertEquals(2, HexDecoder.decodedLength("0X1ff", 0, 5));
+        assertEquals(2, HexDecoder.decodeLenient("0X1ff", 0, 5, dst, 0));
+        assertArrayEquals(new byte[]{1, (byte) 0xff}, dst);
+
+        assertEquals(1, HexDecoder.decodeLenient("a", 0, 1, dst, 0));
+        assertEquals(0x0a, dst[0]);
+        assertEquals(0, HexDecoder.decodeLenient("0x", 0, 2, dst, 0));
+    }
+
+    @Test
+    public void testDecodeByteBuffer() throws Exception {
+        for (ByteBuffer src : new ByteBuffer[]{ByteBuffer.allocate(16), ByteBuffer.allocateDirect(16)}) {
+            src.put("..0xdeadbeef".getBytes(StandardCharsets.US_ASCII)).flip().position(2);
+            byte[] dst = new byte[4];
+            assertEquals(4, HexDecoder.decode(src, dst, 0));
+            assertArrayEquals(new byte[]{(byte) 0xde, (byte) 0xad, (byte) 0xbe, (byte) 0xef}, dst);
+            assertEquals(src.limit(), src.position());
+
+            src.position(4);
+            ByteBuffer out = ByteBuffer.allocateDirect(8);
+            HexDecoder.decodeLenient(src, out);
+            assertEquals(4, out.position());
+            assertEquals(0xdeadbeef, out.getInt(0));
+
+            src.position(3);
+            assertThrows(HexUtil.ErrMissingPrefix.class, () -> HexDecoder.decode(src, dst, 0));
+            assertEquals(3, src.position());
+        }
+    }
+
+    @Test
+    public void testDecodeBigAndUint64() throws Exception {
+        assertEquals(0x1122334455667788L, HexUtil.decodeUint64("0x1122334455667788"));
+        assertEquals(0, HexUtil.decodeUint64("0x0"));
+        assertThrows(HexUtil.ErrLeadingZero.class, () -> HexUtil.decodeUint64("0x01"));
+        assertThrows(HexUtil.ErrEmptyNumber.class, () -> HexUtil.decodeUint64("0x"));
+        assertThrows(HexUtil.ErrUint64Range.class, () -> HexUtil.decodeUint64("0x10000000000000000"));
+        assertEquals(Long.MIN_VALUE, HexUtil.decodeUint64("0x8000000000000000"));
+        assertEquals(-1L, HexUtil.decodeUint64("0xffffffffffffffff"));
+        assertThrows(HexUtil.ErrSyntax.class, () -> HexUtil.decodeUint64("0xz"));
+
+        assertEquals(new BigInteger("abc", 16), HexUtil.decodeBig("0xabc"));
+        assertThrows(HexUtil.ErrBig256Range.class, () -> HexUtil.decodeBig("0x1" + "0".repeat(64)));
+    }
+
+    @Test
+    public void testTryDecode() {
+        byte[] dst = new byte[4];
+        assertEquals(2, HexDecoder.tryDecode("0xabcd", 0, 6, dst, 0));
+        assertEquals(HexError.EMPTY_STRING.code(), HexDecoder.tryDecode("", 0, 0, dst, 0));
+        assertEquals(HexError.MISSING_PREFIX.code(), HexDecoder.tryDecode("abcd", 0, 4, dst, 0));
+        assertEquals(HexError.ODD_LENGTH.code(), HexDecoder.tryDecode("0xabc", 0, 5, dst, 0));
+        assertEquals(HexError.SYNTAX.code(), HexDecoder.tryDecode("0xabcz", 0, 6, dst, 0));
+        assertEquals(HexError.SYNTAX, HexError.of(HexDecoder.tryDecode("0xzz".toCharArray(), 0, 4, dst, 0)));
+
+        byte[] ascii = "0x0102".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(2, HexDecoder.validate(ascii, 0, ascii.length));
+        assertEquals(2, HexDecoder.tryDecode(ascii, 0, ascii.length, dst, 2));
+        assertArrayEquals(new byte[]{(byte) 0xab, (byte) 0xcd, 1, 2}, dst);
+        assertEquals(HexError.SYNTAX.code(), HexDecoder.validate("0x0g", 0, 4));
+    }
+
+    @Test
+    public void testTryDecodeQuantities() {
+        HexUtil.Uint64Result result = new HexUtil.Uint64Result();
+        assertEquals(0, HexUtil.tryDecodeUint64("0xffffffffffffffff", 0, 18, result));
+        assertEquals(-1L, result.value());
+        assertEquals(HexError.LEADING_ZERO.code(), HexUtil.tryDecodeUint64("0x01", 0, 4, result));
+        assertEquals(HexError.EMPTY_NUMBER.code(), HexUtil.tryDecodeUint64("0x", 0, 2, result));
+        assertEquals(HexError.UINT64_RANGE.code(), HexUtil.tryDecodeUint64("0x10000000000000000", 0, 19, result));
+        assertEquals(0, HexUtil.validateBig("0x1" + "0".repeat(63), 0, 66));
+        assertEquals(HexError.BIG256_RANGE.code(), HexUtil.validateBig("0x1" + "0".repeat(64), 0, 67));
+    }
+
+    @Test
+    public void testStacklessSingletons() {
+        HexUtil.HexUtilException e = assertThrows(HexUtil.ErrSyntax.class, () -> HexUtil.decode("0xzz"));
+        assertSame(HexUtil.ErrSyntax.INSTANCE, e);
+        assertSame(HexError.SYNTAX.exception(), e);
+        assertEquals(0, e.getStackTrace().length);
+        assertEquals("Invalid hex string", HexError.SYNTAX.message());
+        assertTrue(new HexUtil.ErrSyntax().getStackTrace().length > 0);
+    }
+}
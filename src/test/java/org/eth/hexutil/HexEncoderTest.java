@@ -0,0 +1,78 @@
+package org.eth.hexutil;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HexEncoderTest {
+
+    private static final byte[] input = {0, 1, 0x7f, (byte) 0x80, (byte) 0xab, (byte) 0xff};
+    private static final String want = "0001" + "7f80abff";
+
+    @Test
+    public void testEncodeCharArray() {
+        char[] dst = new char[20];
+        int end = HexEncoder.encode(input, 0, input.length, dst, 3, true);
+        assertEquals(3 + 2 + 12, end);
+        assertEquals("0x" + want, new String(dst, 3, end - 3));
+
+        end = HexEncoder.encode(input, 2, 2, dst, 0, false);
+        assertEquals(4, end);
+        assertEquals("7f80", new String(dst, 0, end));
+    }
+
+    @Test
+    public void testEncodeAsciiBytes() {
+        byte[] dst = new byte[14];
+        int end = HexEncoder.encode(input, 0, input.length, dst, 0, true);
+        assertEquals(14, end);
+        assertEquals("0x" + want, new String(dst, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testEncodeByteBuffer() {
+        for (ByteBuffer buf : new ByteBuffer[]{ByteBuffer.allocate(32), ByteBuffer.allocateDirect(32)}) {
+            buf.position(4);
+            HexEncoder.encode(input, 0, input.length, buf, true);
+            assertEquals(18, buf.position());
+            byte[] out = new byte[14];
+            buf.get(4, out);
+            assertEquals("0x" + want, new String(out, StandardCharsets.US_ASCII));
+
+            int end = HexEncoder.encode(input, 0, 1, buf, 20, false);
+            assertEquals(22, end);
+            assertEquals(18, buf.position());
+        }
+    }
+
+    @Test
+    public void testEncodeAppendable() throws Exception {
+        StringBuilder sb = new StringBuilder("x=");
+        HexEncoder.encode(input, 0, input.length, sb, true);
+        assertEquals("x=0x" + want, sb.toString());
+
+        StringBuffer sbuf = new StringBuffer();
+        HexEncoder.encode(input, 0, input.length, sbuf, false);
+        assertEquals(want, sbuf.toString());
+    }
+
+    @Test
+    public void testToHexString() {
+        assertEquals("0x", HexEncoder.toHexString(new byte[0], true));
+        assertEquals(want, HexEncoder.toHexString(input, false));
+    }
+
+    @Test
+    public void testEncodeUint64() {
+        long[] values = {0, 1, 0xf, 0x10, 0x1122334455667788L, -1L, Long.MIN_VALUE};
+        for (long v : values) {
+            assertEquals("0x" + Long.toHexString(v), HexEncoder.uint64ToHexString(v, true));
+            char[] dst = new char[18];
+            int end = HexEncoder.encodeUint64(v, dst, 0, false);
+            assertEquals(Long.toHexString(v), new String(dst, 0, end));
+        }
+    }
+}
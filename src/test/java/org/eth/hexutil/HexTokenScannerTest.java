@@ -0,0 +1,134 @@
+package org.eth.hexutil;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParsePosition;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.Hash;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HexTokenScannerTest {
+
+    private static final Pattern TOKEN = Pattern.compile("(?<![A-Za-z0-9_])0[xX]([0-9a-fA-F]{64}|[0-9a-fA-F]{40})(?![A-Za-z0-9_])");
+
+    @TempDir
+    Path dir;
+
+    // Text dense with near misses: tokens of other lengths, glued to words, and prefixes.
+    private static String randomText(Random rnd, int pieces) {
+        String[] filler = {" ", ",", "\"", "a", "0x", "0", "_", "\n", ": ", "x"};
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pieces; i++) {
+            if (rnd.nextInt(3) == 0) {
+                sb.append(rnd.nextBoolean() ? "0x" : "0X");
+                int[] lengths = {40, 64, 39, 41, 63, 65, 80};
+                int n = lengths[rnd.nextInt(lengths.length)];
+                for (int j = 0; j < n; j++) {
+                    sb.append("0123456789abcdefABCDEF".charAt(rnd.nextInt(22)));
+                }
+            } else {
+                sb.append(filler[rnd.nextInt(filler.length)]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static List<String> expected(String text) {
+        List<String> out = new ArrayList<>();
+        Matcher m = TOKEN.matcher(text);
+        while (m.find()) {
+            out.add(m.start() + ":" + m.group(1).toLowerCase());
+        }
+        return out;
+    }
+
+    private static List<String> found(HexTokenScanner s) {
+        List<String> out = new ArrayList<>();
+        s.scan((kind, offset, value) -> out.add(offset + ":" + HexEncoder.toHexString(value, 0, kind.length(), false)));
+        return out;
+    }
+
+    @Test
+    void testMatchesRegex() {
+        Random rnd = new Random(81);
+        for (int round = 0; round < 20; round++) {
+            String text = randomText(rnd, 2000);
+            List<String> want = expected(text);
+            assertEquals(want, found(HexTokenScanner.of(text)));
+            assertEquals(want, found(HexTokenScanner.of(CharBuffer.wrap(text))));
+            assertEquals(want, found(HexTokenScanner.of(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)))));
+        }
+    }
+
+    @Test
+    void testCursor() throws Exception {
+        String hash = "0x" + "ab".repeat(32);
+        String address = "0x" + "CD".repeat(20);
+        String text = "{\"hash\":\"" + hash + "\",\"to\":\"" + address + "\",\"long\":\"0x" + "1".repeat(66) + "\"}";
+        HexTokenScanner s = HexTokenScanner.of(text);
+        assertTrue(s.find());
+        assertEquals(HexTokenScanner.Kind.HASH, s.kind());
+        assertEquals(text.indexOf(hash), s.start());
+        assertEquals(s.start() + 66, s.end());
+        assertTrue(s.find());
+        assertEquals(HexTokenScanner.Kind.ADDRESS, s.kind());
+        byte[] out = new byte[20];
+        s.copyValue(out, 0);
+        assertArrayEquals(Address.fromHexString(address).getBytes(), out);
+        assertFalse(s.find());
+        assertThrows(IllegalStateException.class, s::kind);
+
+        s.region(text.indexOf(address), text.length());
+        assertTrue(s.find());
+        assertEquals(HexTokenScanner.Kind.ADDRESS, s.kind());
+        assertFalse(HexTokenScanner.of("0x12").find());
+    }
+
+    @Test
+    void testFormatterParse() throws Exception {
+        Hash hash = Hash.fromBytes(new byte[32]);
+        String text = "hash=" + hash.toHexString() + ";";
+        ParsePosition pos = new ParsePosition(5);
+        assertEquals(hash, new Hash.Formatter().parseObject(text, pos));
+        assertEquals(text.length() - 1, pos.getIndex());
+
+        pos = new ParsePosition(0);
+        assertNull(new Hash.Formatter().parseObject(text, pos));
+        assertEquals(0, pos.getErrorIndex());
+
+        Address address = Address.fromHexString("0x5aAeb6053F3E94C9b9A09f33669435E7Ef1BeAed");
+        assertEquals(address, new Address.Formatter().parseObject(address.toHexString()));
+        pos = new ParsePosition(0);
+        assertNull(new Address.Formatter().parseObject(hash.toHexString(), pos));
+        assertNull(new Address.Formatter().parseObject("x", new ParsePosition(1)));
+    }
+
+    @Test
+    void testFile() throws IOException {
+        String text = randomText(new Random(82), 5000);
+        Path file = dir.resolve("trace.log");
+        Files.writeString(file, text, StandardCharsets.US_ASCII);
+        List<String> got = new ArrayList<>();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long n = HexTokenScanner.scan(ch, (kind, offset, value) ->
+                    got.add(offset + ":" + HexEncoder.toHexString(value, 0, kind.length(), false)));
+            assertEquals(got.size(), n);
+        }
+        assertEquals(expected(text), got);
+    }
+}
@@ -0,0 +1,114 @@
+package org.eth.hexutil;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HexValidatorTest {
+
+    private static int firstInvalidScalar(byte[] src, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (HexDecoder.nibble(src[i] & 0xff) < 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void testEveryByteInEveryLane() {
+        byte[] word = "0123abcdef456789".getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer direct = ByteBuffer.allocateDirect(word.length);
+        for (int lane = 0; lane < word.length; lane++) {
+            for (int b = 0; b < 256; b++) {
+                byte[] src = word.clone();
+                src[lane] = (byte) b;
+                int want = HexDecoder.nibble(b) < 0 ? lane : -1;
+                assertEquals(want, HexValidator.firstInvalidIndex(src, 0, src.length), "byte " + b + " lane " + lane);
+                direct.clear().put(src);
+                assertEquals(want, HexValidator.firstInvalidIndex(direct, 0, src.length), "byte " + b + " lane " + lane);
+                String s = new String(src, StandardCharsets.ISO_8859_1);
+                assertEquals(want, HexValidator.firstInvalidIndex(s, 0, s.length()), "byte " + b + " lane " + lane);
+            }
+        }
+    }
+
+    @Test
+    public void testFirstOfSeveralInvalid() {
+        Random rnd = new Random(24);
+        byte[] digits = "0123456789abcdefABCDEF".getBytes(StandardCharsets.US_ASCII);
+        for (int len = 0; len < 200; len++) {
+            byte[] src = new byte[len + 4];
+            for (int i = 0; i < src.length; i++) {
+                src[i] = digits[rnd.nextInt(digits.length)];
+            }
+            for (int k = rnd.nextInt(3); k > 0; k--) {
+                src[rnd.nextInt(src.length)] = (byte) rnd.nextInt(256);
+            }
+            int want = firstInvalidScalar(src, 2, len + 2);
+            assertEquals(want, HexValidator.firstInvalidIndex(src, 2, len + 2), "len " + len);
+
+            ByteBuffer heap = ByteBuffer.wrap(src, 1, src.length - 1).slice();
+            assertEquals(want < 0 ? -1 : want - 1, HexValidator.firstInvalidIndex(heap, 1, len + 1), "len " + len);
+            ByteBuffer direct = ByteBuffer.allocateDirect(src.length).put(src).asReadOnlyBuffer();
+            assertEquals(want, HexValidator.firstInvalidIndex(direct, 2, len + 2), "len " + len);
+
+            StringBuilder sb = new StringBuilder(new String(src, StandardCharsets.ISO_8859_1));
+            assertEquals(want, HexValidator.firstInvalidIndex(sb, 2, len + 2), "len " + len);
+        }
+    }
+
+    @Test
+    public void testNonLatin1Chars() {
+        assertEquals(2, HexValidator.firstInvalidIndex("abİcd", 0, 5));
+        assertEquals(2, HexValidator.firstInvalidIndex("afŦ", 0, 3));
+        assertEquals(-1, HexValidator.firstInvalidIndex("A0", 1, 2));
+        assertEquals(0, HexValidator.firstInvalidIndex("０", 0, 1));
+    }
+
+    @Test
+    public void testIsHexString() {
+        String address = "0x5aAeb6053F3E94C9b9A09f33669435E7Ef1BeAed";
+        assertTrue(HexValidator.isHexString(address, 0, address.length(), 20));
+        assertTrue(HexValidator.isHexString(address, 2, address.length(), 20));
+        assertTrue(HexValidator.isHexString("0X" + address.substring(2), 0, address.length(), 20));
+        assertFalse(HexValidator.isHexString(address, 0, address.length(), 32));
+        assertFalse(HexValidator.isHexString(address, 0, address.length() - 1, 20));
+        assertFalse(HexValidator.isHexString(address.replace('e', 'g'), 0, address.length(), 20));
+        assertTrue(HexValidator.isHexString(address, 0, address.length()));
+        assertTrue(HexValidator.isHexString("0x", 0, 2));
+        assertTrue(HexValidator.isHexString("", 0, 0));
+        assertFalse(HexValidator.isHexString("0xabc", 0, 5));
+        assertFalse(HexValidator.isHexString("0x0x", 0, 4));
+
+        byte[] bytes = (" " + address + " ").getBytes(StandardCharsets.US_ASCII);
+        int to = address.length() + 1;
+        assertTrue(HexValidator.isHexString(bytes, 1, to, 20));
+        assertTrue(HexValidator.isHexString(bytes, 1, to));
+        assertFalse(HexValidator.isHexString(bytes, 0, to));
+        assertTrue(HexValidator.isHexString(ByteBuffer.wrap(bytes), 1, to, 20));
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+        assertTrue(HexValidator.isHexString(direct, 1, to, 20));
+        assertTrue(HexValidator.isHexString(direct, 3, to));
+        assertFalse(HexValidator.isHexString(direct, 1, to + 1));
+        assertEquals(bytes.length, direct.position());
+    }
+
+    @Test
+    public void testLongInputs() {
+        byte[] src = new byte[10_000];
+        Arrays.fill(src, (byte) 'f');
+        assertEquals(-1, HexValidator.firstInvalidIndex(src, 0, src.length));
+        src[9_999] = 'x';
+        assertEquals(9_999, HexValidator.firstInvalidIndex(src, 0, src.length));
+        assertEquals(9_999, HexValidator.firstInvalidIndex(ByteBuffer.allocateDirect(src.length).put(src), 0, src.length));
+        src[4_097] = '/';
+        assertEquals(4_097, HexValidator.firstInvalidIndex(src, 3, src.length));
+        assertThrows(IndexOutOfBoundsException.class, () -> HexValidator.firstInvalidIndex(src, 0, src.length + 1));
+    }
+}
@@ -0,0 +1,136 @@
+package org.eth.hexutil;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class HexVectorTest {
+
+    // The default surefire execution adds jdk.incubator.vector and runs the kernels; the
+    // scalar-hex execution leaves the module out, so every test here also covers the scalar path.
+    @Test
+    public void testEnabledMatchesEnvironment() {
+        boolean requested = Boolean.parseBoolean(System.getProperty("org.eth.hexutil.vector", "true"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        if (!requested) {
+            assertFalse(HexVectorSupport.ENABLED);
+        } else {
+            assertEquals(HexVectorKernels.usable(), HexVectorSupport.ENABLED);
+        }
+    }
+
+    @Test
+    public void testKernelsMatchScalar() {
+        assumeTrue(HexVectorSupport.ENABLED);
+        Random rnd = new Random(6);
+        for (int len = 0; len < 300; len++) {
+            byte[] src = new byte[len];
+            rnd.nextBytes(src);
+            byte[] ascii = new byte[2 * len];
+            int done = HexVectorKernels.encode(src, 0, len, ascii, 0);
+            String want = HexFormat.of().formatHex(src);
+            assertEquals(want.substring(0, 2 * done), new String(ascii, 0, 2 * done, StandardCharsets.US_ASCII));
+
+            byte[] digits = want.getBytes(StandardCharsets.US_ASCII);
+            byte[] out = new byte[len];
+            int consumed = HexVectorKernels.decode(digits, 0, digits.length, out, 0);
+            assertEquals(0, consumed & 1);
+            assertArrayEquals(Arrays.copyOf(src, consumed / 2), Arrays.copyOf(out, consumed / 2));
+
+            if (digits.length > 0) {
+                int bad = rnd.nextInt(digits.length);
+                digits[bad] = 'g';
+                int prefix = HexVectorKernels.validPrefix(digits, 0, digits.length);
+                // Exact within whole vectors, else the start of the scalar tail before it.
+                assertTrue(prefix == bad || prefix < bad && digits.length - prefix < 64, "len " + len);
+                assertTrue(HexVectorKernels.decode(digits, 0, digits.length, out, 0) <= bad, "len " + len);
+            }
+        }
+    }
+
+    // Decoding from a String reads its characters in place; only byte[] and ByteBuffer input
+    // goes through the kernels.
+    @Test
+    public void testStringDecodeDoesNotAllocate() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        String[] hashes = new String[2000];
+        Random rnd = new Random(7);
+        for (int i = 0; i < hashes.length; i++) {
+            byte[] b = new byte[32];
+            rnd.nextBytes(b);
+            hashes[i] = "0x" + HexFormat.of().formatHex(b);
+        }
+        byte[] dst = new byte[32];
+        long sum = 0;
+        for (int round = 0; round < 20; round++) {
+            for (String h : hashes) {
+                sum += HexDecoder.tryDecode(h, 0, h.length(), dst, 0);
+                sum += HexDecoder.isHexDigits(h, 2, h.length()) ? 1 : 0;
+            }
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (String h : hashes) {
+            sum += HexDecoder.tryDecode(h, 0, h.length(), dst, 0);
+            sum += HexDecoder.isHexDigits(h, 2, h.length()) ? 1 : 0;
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        assertEquals(20 * 33 * hashes.length + 33 * hashes.length, sum);
+        assertTrue(allocated < 4096, allocated + " bytes allocated");
+    }
+
+    @Test
+    public void testEncodeMatchesScalar() {
+        Random rnd = new Random(4);
+        for (int len = 0; len < 300; len++) {
+            byte[] src = new byte[len + 3];
+            rnd.nextBytes(src);
+            byte[] dst = new byte[2 * len];
+            HexEncoder.encode(src, 3, len, dst, 0, false);
+
+            StringBuilder want = new StringBuilder();
+            for (int i = 3; i < len + 3; i++) {
+                want.append(Character.forDigit((src[i] >> 4) & 0xf, 16)).append(Character.forDigit(src[i] & 0xf, 16));
+            }
+            assertEquals(want.toString(), new String(dst, StandardCharsets.US_ASCII), "len " + len);
+        }
+    }
+
+    @Test
+    public void testDecodeRoundTrip() throws Exception {
+        Random rnd = new Random(5);
+        for (int len = 0; len < 300; len++) {
+            byte[] payload = new byte[len];
+            rnd.nextBytes(payload);
+            String hex = HexUtil.encode(payload);
+            assertArrayEquals(payload, HexUtil.decode(hex), "len " + len);
+            assertArrayEquals(payload, HexUtil.decode(hex.toUpperCase().replace('X', 'x')), "len " + len);
+        }
+    }
+
+    @Test
+    public void testInvalidDigitAnywhere() {
+        byte[] ascii = "0123456789abcdefABCDEF".repeat(10).substring(0, 200).getBytes(StandardCharsets.US_ASCII);
+        assertTrue(HexDecoder.isHexDigits(ascii, 0, ascii.length));
+        byte[] bad = {'g', 'G', '/', ':', '@', '`', (byte) 0xc1, 0};
+        for (int pos = 0; pos < ascii.length; pos++) {
+            byte[] input = ascii.clone();
+            input[pos] = bad[pos % bad.length];
+            assertFalse(HexDecoder.isHexDigits(input, 0, input.length), "pos " + pos);
+            assertThrows(HexUtil.ErrSyntax.class, () -> HexDecoder.decodeDigits(input, 0, input.length, new byte[100], 0));
+        }
+    }
+
+    @Test
+    public void testIsHexNonLatinString() {
+        String s = "ab".repeat(40) + "İ0";
+        assertFalse(HexDecoder.isHexDigits(s, 0, s.length()));
+    }
+}
@@ -0,0 +1,73 @@
+package org.eth.json;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.eth.common.CommonTypes.Address;
+import org.eth.common.CommonTypes.Hash;
+import org.eth.common.CommonTypes.MixedcaseAddress;
+import org.eth.common.CommonTypes.UnprefixedHash;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EthereumModuleTest {
+
+    private static final String HASH = "0x" + "00".repeat(31) + "ab";
+    private static final String ADDRESS = "0x5aaeb6053f3e94c9b9a09f33669435e7ef1beaed";
+
+    public static class Log {
+        public Address address;
+        public List<Hash> topics;
+        @JsonSerialize(using = EthereumModule.Uint64QuantitySerializer.class)
+        @JsonDeserialize(using = EthereumModule.Uint64QuantityDeserializer.class)
+        public long blockNumber;
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new EthereumModule());
+
+    @Test
+    public void testHashAndAddressRoundTrip() throws Exception {
+        String json = "{\"address\":\"" + ADDRESS + "\",\"topics\":[\"" + HASH + "\"],\"blockNumber\":\"0x1b4\"}";
+        Log log = mapper.readValue(json, Log.class);
+        assertEquals(Address.fromHexString(ADDRESS), log.address);
+        assertEquals(Hash.fromHexString(HASH), log.topics.get(0));
+        assertEquals(0x1b4, log.blockNumber);
+        assertEquals(json, mapper.writeValueAsString(log));
+    }
+
+    @Test
+    public void testUnprefixedAndMixedcase() throws Exception {
+        UnprefixedHash h = mapper.readValue("\"" + HASH.substring(2) + "\"", UnprefixedHash.class);
+        assertEquals("\"" + HASH.substring(2) + "\"", mapper.writeValueAsString(h));
+
+        String mixed = "0x5aAeb6053F3E94C9b9A09f33669435E7Ef1BeAed";
+        MixedcaseAddress ma = mapper.readValue("\"" + mixed + "\"", MixedcaseAddress.class);
+        assertEquals(mixed, ma.getOriginal());
+        assertEquals("\"" + mixed + "\"", mapper.writeValueAsString(ma));
+    }
+
+    @Test
+    public void testRejectsMalformed() {
+        assertThrows(JsonMappingException.class, () -> mapper.readValue("\"" + HASH.substring(2) + "\"", Hash.class));
+        assertThrows(JsonMappingException.class, () -> mapper.readValue("\"" + HASH + "00\"", Hash.class));
+        assertThrows(JsonMappingException.class, () -> mapper.readValue("\"0xG000000000000000000000000000000000000000\"", Address.class));
+        assertThrows(JsonMappingException.class, () -> mapper.readValue("12", Address.class));
+    }
+
+    @Test
+    public void testHexQuantities() throws Exception {
+        ObjectMapper quantities = new ObjectMapper().registerModule(new EthereumModule(true));
+        BigInteger big = new BigInteger("112233445566778899aabbccddeeff", 16);
+        assertEquals("\"0x112233445566778899aabbccddeeff\"", quantities.writeValueAsString(big));
+        assertEquals("\"0xff\"", quantities.writeValueAsString(BigInteger.valueOf(255)));
+        assertEquals(big, quantities.readValue("\"0x112233445566778899aabbccddeeff\"", BigInteger.class));
+        assertEquals("\"0x0\"", quantities.writeValueAsString(0L));
+        assertEquals(16L, quantities.readValue("\"0x10\"", Long.class));
+        assertThrows(JsonMappingException.class, () -> quantities.readValue("\"0x010\"", Long.class));
+    }
+}
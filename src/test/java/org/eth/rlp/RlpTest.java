@@ -0,0 +1,274 @@
+package org.eth.rlp;
+
+import org.eth.common.ByteSlice;
+import org.eth.common.UInt256;
+import org.eth.hexutil.HexEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.eth.common.CommonTypes.Address;
+import static org.eth.common.CommonTypes.Hash;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RlpTest {
+
+    private static String hex(byte[] b) {
+        return HexEncoder.toHexString(b, false);
+    }
+
+    private static byte[] bytes(String hex) {
+        byte[] out = new byte[hex.length() / 2];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (byte) Integer.parseInt(hex, 2 * i, 2 * i + 2, 16);
+        }
+        return out;
+    }
+
+    // Examples from the RLP specification.
+    @Test
+    void testSpecExamples() {
+        assertEquals("83646f67", hex(RlpEncoder.encode(RlpItem.string("dog"))));
+        assertEquals("c88363617483646f67",
+                hex(RlpEncoder.encode(RlpItem.list(RlpItem.string("cat"), RlpItem.string("dog")))));
+        assertEquals("80", hex(RlpEncoder.encode(RlpItem.EMPTY_STRING)));
+        assertEquals("c0", hex(RlpEncoder.encode(RlpItem.EMPTY_LIST)));
+        assertEquals("80", hex(RlpEncoder.encode(RlpItem.uint(0))));
+        assertEquals("00", hex(RlpEncoder.encode(RlpItem.bytes(new byte[1]))));
+        assertEquals("0f", hex(RlpEncoder.encode(RlpItem.uint(15))));
+        assertEquals("820400", hex(RlpEncoder.encode(RlpItem.uint(1024))));
+        assertEquals("820400", hex(RlpEncoder.encode(RlpItem.uint(UInt256.valueOf(1024)))));
+        assertEquals("820400", hex(RlpEncoder.encode(RlpItem.uint(BigInteger.valueOf(1024)))));
+        assertEquals("8180", hex(RlpEncoder.encode(RlpItem.uint(0x80))));
+        assertEquals("80", hex(RlpEncoder.encode(RlpItem.uint(UInt256.ZERO))));
+
+        RlpItem empty = RlpItem.EMPTY_LIST;
+        RlpItem set = RlpItem.list(empty, RlpItem.list(empty), RlpItem.list(empty, RlpItem.list(empty)));
+        assertEquals("c7c0c1c0c3c0c1c0", hex(RlpEncoder.encode(set)));
+
+        String lorem = "Lorem ipsum dolor sit amet, consectetur adipisicing elit";
+        assertEquals(56, lorem.length());
+        assertEquals("b838" + hex(lorem.getBytes(StandardCharsets.US_ASCII)),
+                hex(RlpEncoder.encode(RlpItem.string(lorem))));
+    }
+
+    @Test
+    void testLongLists() {
+        List<RlpItem> items = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            items.add(RlpItem.bytes(new byte[]{1, 2, 3}));
+        }
+        byte[] enc = RlpEncoder.encode(RlpItem.list(items));
+        assertEquals(3 + 1200, enc.length);
+        assertEquals("f904b0", hex(enc).substring(0, 6));
+
+        RlpDecoder d = RlpDecoder.of(enc);
+        assertTrue(d.next());
+        assertTrue(d.isList());
+        assertEquals(3, d.offset());
+        assertEquals(1200, d.length());
+        d.enter();
+        assertEquals(300, d.remaining());
+        int n = 0;
+        while (d.next()) {
+            assertEquals(4 * n + 4, d.offset());
+            assertEquals(3, d.length());
+            n++;
+        }
+        assertEquals(300, n);
+        d.exit();
+        assertFalse(d.next());
+    }
+
+    @Test
+    void testNestedDecode() {
+        RlpDecoder d = RlpDecoder.of(bytes("c7c0c1c0c3c0c1c0"));
+        assertTrue(d.next());
+        d.enter();
+        assertEquals(3, d.remaining());
+        assertTrue(d.next());
+        assertTrue(d.isList());
+        assertEquals(0, d.length());
+        assertTrue(d.next());
+        // Skip the second list without entering it.
+        assertTrue(d.next());
+        d.enter();
+        assertEquals(2, d.depth());
+        assertTrue(d.next());
+        assertTrue(d.next());
+        d.enter();
+        assertTrue(d.next());
+        assertEquals(7, d.itemOffset());
+        assertFalse(d.next());
+        d.exit();
+        d.exit();
+        assertFalse(d.next());
+        d.exit();
+        assertEquals(0, d.depth());
+        assertFalse(d.hasNext());
+        assertThrows(IllegalStateException.class, d::exit);
+        assertThrows(IllegalStateException.class, d::length);
+    }
+
+    // A list shaped like a block body: transactions carrying integers of every size, hashes,
+    // addresses and calldata, walked with the direct readers.
+    @Test
+    void testBlockBodyRoundTrip() {
+        Random rnd = new Random(23);
+        int count = 2000;
+        long[] nonces = new long[count];
+        UInt256[] values = new UInt256[count];
+        Hash[] hashes = new Hash[count];
+        Address[] addresses = new Address[count];
+        byte[][] data = new byte[count][];
+        List<RlpItem> txs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nonces[i] = rnd.nextLong() >>> 1 + rnd.nextInt(63);
+            byte[] v = new byte[32];
+            rnd.nextBytes(v);
+            for (int j = rnd.nextInt(33); j > 0; j--) {
+                v[j - 1] = 0;
+            }
+            values[i] = UInt256.fromBytes(v);
+            byte[] h = new byte[32];
+            rnd.nextBytes(h);
+            hashes[i] = Hash.fromBytes(h);
+            byte[] a = new byte[20];
+            rnd.nextBytes(a);
+            addresses[i] = Address.fromBytes(a);
+            data[i] = new byte[rnd.nextInt(200)];
+            rnd.nextBytes(data[i]);
+            txs.add(RlpItem.list(RlpItem.uint(nonces[i]), RlpItem.uint(values[i]), RlpItem.hash(hashes[i]),
+                    RlpItem.address(addresses[i]), RlpItem.bytes(data[i]),
+                    RlpItem.uint(values[i].toBigInteger())));
+        }
+        RlpItem body = RlpItem.list(RlpItem.list(txs), RlpItem.EMPTY_LIST);
+        byte[] enc = RlpEncoder.encode(body);
+        assertEquals(body.encodedSize(), enc.length);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(enc.length + 5);
+        direct.position(5);
+        direct.put(enc).position(5);
+        for (RlpDecoder d : new RlpDecoder[]{RlpDecoder.of(enc), RlpDecoder.of(direct)}) {
+            assertTrue(d.next());
+            d.enter();
+            assertTrue(d.next());
+            d.enter();
+            assertEquals(count, d.remaining());
+            for (int i = 0; d.next(); i++) {
+                d.enter();
+                assertTrue(d.next());
+                assertEquals(nonces[i], d.longValue());
+                assertTrue(d.next());
+                assertEquals(values[i], d.uint256());
+                assertTrue(d.next());
+                assertEquals(hashes[i], d.hash());
+                assertTrue(d.next());
+                assertEquals(addresses[i], d.address());
+                assertTrue(d.next());
+                assertEquals(data[i].length, d.length());
+                assertEquals(ByteBuffer.wrap(data[i]), d.bytes());
+                assertTrue(d.next());
+                assertEquals(values[i].toBigInteger(), d.bigInteger());
+                d.exit();
+            }
+            d.exit();
+            assertTrue(d.next());
+            assertTrue(d.isList());
+            assertFalse(d.next());
+            d.exit();
+            assertFalse(d.hasNext());
+        }
+        assertEquals(5, direct.position());
+
+        // Passing a decoded transaction on unchanged.
+        RlpDecoder d = RlpDecoder.of(enc);
+        d.next();
+        d.enter();
+        d.next();
+        d.enter();
+        d.next();
+        ByteBuffer raw = d.raw();
+        byte[] tx = new byte[raw.remaining()];
+        raw.get(tx);
+        assertArrayEquals(tx, RlpEncoder.encode(txs.get(0)));
+        assertArrayEquals(tx, RlpEncoder.encode(RlpItem.encoded(ByteSlice.wrap(tx))));
+        assertTrue(RlpItem.encoded(ByteSlice.wrap(tx)).isList());
+    }
+
+    @Test
+    void testEncodeInto() {
+        RlpItem item = RlpItem.list(RlpItem.string("cat"), RlpItem.uint(1024));
+        byte[] dst = new byte[item.encodedSize() + 2];
+        assertEquals(dst.length - 1, RlpEncoder.encode(item, dst, 1));
+        assertEquals("00c783636174820400" + "00", hex(dst));
+        assertThrows(IndexOutOfBoundsException.class, () -> RlpEncoder.encode(item, dst, 3));
+
+        ByteBuffer heap = ByteBuffer.allocate(12).position(2);
+        RlpEncoder.encode(item, heap);
+        assertEquals(2 + item.encodedSize(), heap.position());
+        ByteBuffer direct = ByteBuffer.allocateDirect(12);
+        RlpEncoder.encode(item, direct);
+        assertEquals(heap.flip().position(2), direct.flip());
+    }
+
+    @Test
+    void testStrings() {
+        RlpDecoder d = RlpDecoder.of(RlpEncoder.encode(RlpItem.list(RlpItem.string("dog"),
+                RlpItem.string("été"), RlpItem.bytes(new byte[]{0x7f}))));
+        d.next();
+        d.enter();
+        d.next();
+        assertEquals("dog", d.string());
+        assertArrayEquals("dog".getBytes(StandardCharsets.US_ASCII), d.byteArray());
+        d.next();
+        assertEquals("été", d.string());
+        d.next();
+        assertEquals(1, d.itemLength());
+        assertEquals(0x7f, d.longValue());
+    }
+
+    @Test
+    void testRejectsMalformed() {
+        // Single byte below 0x80 in a one byte string.
+        assertThrows(RlpException.class, () -> RlpDecoder.of(bytes("8100")).next());
+        // Long form for a short string.
+        assertThrows(RlpException.class, () -> RlpDecoder.of(bytes("b803646f67")).next());
+        // Length with leading zeros.
+        assertThrows(RlpException.class, () -> RlpDecoder.of(bytes("b90038" + "00".repeat(56))).next());
+        // Truncated payload and header.
+        assertThrows(RlpException.class, () -> RlpDecoder.of(bytes("83646f")).next());
+        assertThrows(RlpException.class, () -> RlpDecoder.of(bytes("b9")).next());
+        // Item overrunning its list.
+        RlpDecoder d = RlpDecoder.of(bytes("c283646f67"));
+        d.next();
+        d.enter();
+        assertThrows(RlpException.class, d::next);
+
+        RlpDecoder ints = RlpDecoder.of(bytes("820001" + "8901" + "00".repeat(8) + "83646f67" + "c0"));
+        ints.next();
+        assertThrows(RlpException.class, ints::longValue);
+        assertThrows(RlpException.class, ints::uint256);
+        ints.next();
+        assertThrows(ArithmeticException.class, ints::longValue);
+        assertEquals(UInt256.fromBigInteger(BigInteger.ONE.shiftLeft(64)), ints.uint256());
+        ints.next();
+        assertThrows(RlpException.class, ints::hash);
+        assertThrows(RlpException.class, ints::address);
+        assertThrows(RlpException.class, ints::enter);
+        ints.next();
+        assertThrows(RlpException.class, ints::string);
+        assertThrows(RlpException.class, ints::longValue);
+    }
+
+    @Test
+    void testRejectsNegative() {
+        assertThrows(IllegalArgumentException.class, () -> RlpItem.uint(-1));
+        assertThrows(IllegalArgumentException.class, () -> RlpItem.uint(BigInteger.ONE.negate()));
+    }
+}
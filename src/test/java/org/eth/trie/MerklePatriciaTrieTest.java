@@ -0,0 +1,191 @@
+package org.eth.trie;
+
+import org.eth.hexutil.HexEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.eth.common.CommonTypes.Hash;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MerklePatriciaTrieTest {
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String hex(Hash h) {
+        return HexEncoder.toHexString(h.getBytes(), false);
+    }
+
+    @Test
+    void testEmptyRoot() {
+        assertEquals("56e81f171bcc55a6ff8345e692c0f86e5b48e01b996cadc001622fb5e363b421",
+                hex(new MerklePatriciaTrie().rootHash()));
+        assertEquals(MerklePatriciaTrie.EMPTY_ROOT, MerklePatriciaTrie.orderedRoot(List.of()));
+    }
+
+    // Vectors from the Ethereum trie tests.
+    @Test
+    void testKnownRoots() {
+        MerklePatriciaTrie trie = new MerklePatriciaTrie();
+        trie.put(ascii("foo"), ascii("bar"));
+        trie.put(ascii("food"), ascii("bass"));
+        assertEquals("17beaa1648bafa633cda809c90c04af50fc8aed3cb40d16efbddee6fdf63c4c3", hex(trie.rootHash()));
+
+        // emptyValues: empty values delete their key.
+        trie = new MerklePatriciaTrie();
+        String[][] updates = {{"do", "verb"}, {"ether", "wookiedoo"}, {"horse", "stallion"}, {"shaman", "horse"},
+                {"doge", "coin"}, {"ether", ""}, {"dog", "puppy"}, {"shaman", ""}};
+        for (String[] u : updates) {
+            trie.put(ascii(u[0]), ascii(u[1]));
+        }
+        assertEquals("5991bb8c6514148a29db676a14ac506cd2cd5775ace63c30a4fe457715e9ac84", hex(trie.rootHash()));
+        assertEquals(4, trie.size());
+        assertEquals("puppy", new String(trie.get(ascii("dog")), StandardCharsets.US_ASCII));
+        assertEquals("verb", new String(trie.get(ascii("do")), StandardCharsets.US_ASCII));
+        assertNull(trie.get(ascii("ether")));
+        assertNull(trie.get(ascii("d")));
+        assertNull(trie.get(ascii("dogs")));
+    }
+
+    // Random puts and deletes of short, overlapping keys, so that branches carry values and
+    // paths split and collapse, checked against a trie rebuilt from scratch.
+    @Test
+    void testUpdatesMatchRebuild() {
+        Random rnd = new Random(25);
+        Map<String, byte[]> model = new HashMap<>();
+        MerklePatriciaTrie trie = new MerklePatriciaTrie();
+        Hash before = trie.rootHash();
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 300; i++) {
+                byte[] key = new byte[rnd.nextInt(4)];
+                rnd.nextBytes(key);
+                if (key.length > 0) {
+                    key[0] &= 0x31;
+                }
+                String k = HexEncoder.toHexString(key, false);
+                if (rnd.nextInt(3) == 0) {
+                    assertEquals(model.remove(k) != null, trie.delete(key));
+                } else {
+                    byte[] value = ascii("v" + round + "." + i);
+                    model.put(k, value);
+                    trie.put(key, value);
+                }
+            }
+            MerklePatriciaTrie rebuilt = new MerklePatriciaTrie();
+            for (Map.Entry<String, byte[]> e : model.entrySet()) {
+                byte[] key = HexFormat.of().parseHex(e.getKey());
+                rebuilt.put(key, e.getValue());
+                assertArrayEquals(e.getValue(), trie.get(key));
+            }
+            assertEquals(model.size(), trie.size());
+            Hash root = trie.rootHash();
+            assertEquals(rebuilt.rootHash(), root);
+            assertNotEquals(before, root);
+            before = root;
+        }
+
+        for (String k : model.keySet()) {
+            assertTrue(trie.delete(HexFormat.of().parseHex(k)));
+        }
+        assertTrue(trie.isEmpty());
+        assertFalse(trie.delete(new byte[1]));
+        assertEquals(MerklePatriciaTrie.EMPTY_ROOT, trie.rootHash());
+    }
+
+    @Test
+    void testParallelMatchesSequential() {
+        Random rnd = new Random(26);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            MerklePatriciaTrie parallel = new MerklePatriciaTrie(2, pool);
+            MerklePatriciaTrie sequential = new MerklePatriciaTrie(Integer.MAX_VALUE, pool);
+            MerklePatriciaTrie.Batch batch = new MerklePatriciaTrie.Batch();
+            List<byte[]> keys = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++) {
+                byte[] key = new byte[32];
+                rnd.nextBytes(key);
+                byte[] value = new byte[1 + rnd.nextInt(100)];
+                rnd.nextBytes(value);
+                keys.add(key);
+                batch.put(key, value);
+            }
+            parallel.apply(batch);
+            sequential.apply(batch);
+            assertEquals(20_000, parallel.size());
+            assertEquals(sequential.rootHash(), parallel.rootHash());
+
+            // A block's worth of updates rehashes only the touched paths.
+            Collections.shuffle(keys, rnd);
+            MerklePatriciaTrie.Batch block = new MerklePatriciaTrie.Batch();
+            for (int i = 0; i < 2000; i++) {
+                if (i % 4 == 0) {
+                    block.delete(keys.get(i));
+                } else {
+                    block.put(keys.get(i), ascii("updated" + i));
+                }
+            }
+            parallel.apply(block);
+            sequential.apply(block);
+            assertEquals(20_000 - 500, parallel.size());
+            assertEquals(sequential.rootHash(), parallel.rootHash());
+
+            MerklePatriciaTrie fresh = new MerklePatriciaTrie();
+            for (byte[] key : keys) {
+                byte[] value = sequential.get(key);
+                if (value != null) {
+                    fresh.put(key, value);
+                }
+            }
+            assertEquals(fresh.rootHash(), parallel.rootHash());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testBatchOrder() {
+        MerklePatriciaTrie trie = new MerklePatriciaTrie();
+        trie.apply(new MerklePatriciaTrie.Batch()
+                .put(ascii("b"), ascii("1"))
+                .put(ascii("a"), ascii("2"))
+                .delete(ascii("b"))
+                .put(ascii("a"), ascii("3"))
+                .put(ascii("c"), ascii("4"))
+                .put(ascii("c"), new byte[0]));
+        assertEquals(1, trie.size());
+        assertArrayEquals(ascii("3"), trie.get(ascii("a")));
+
+        MerklePatriciaTrie single = new MerklePatriciaTrie();
+        single.put(ascii("a"), ascii("3"));
+        assertEquals(single.rootHash(), trie.rootHash());
+    }
+
+    @Test
+    void testOrderedRoot() {
+        List<byte[]> values = new ArrayList<>();
+        MerklePatriciaTrie trie = new MerklePatriciaTrie();
+        for (int i = 0; i < 300; i++) {
+            values.add(ascii("tx" + i));
+        }
+        // Keys 0x80, 0x01..0x7f, 0x8180.. in any insertion order give the same root.
+        for (int i = values.size() - 1; i >= 0; i--) {
+            byte[] key = i == 0 ? new byte[]{(byte) 0x80} : i < 0x80 ? new byte[]{(byte) i}
+                    : new byte[]{(byte) 0x82, (byte) (i >>> 8), (byte) i};
+            if (i >= 0x80 && i < 0x100) {
+                key = new byte[]{(byte) 0x81, (byte) i};
+            }
+            trie.put(key, values.get(i));
+        }
+        assertEquals(trie.rootHash(), MerklePatriciaTrie.orderedRoot(values));
+    }
+}